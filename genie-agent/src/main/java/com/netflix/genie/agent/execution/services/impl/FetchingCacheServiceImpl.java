@@ -19,12 +19,16 @@ package com.netflix.genie.agent.execution.services.impl;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.genie.agent.cli.ArgumentDelegates;
 import com.netflix.genie.agent.execution.exceptions.DownloadException;
 import com.netflix.genie.agent.execution.exceptions.LockException;
 import com.netflix.genie.agent.execution.services.FetchingCacheService;
+import com.netflix.genie.agent.properties.FetchingCacheServiceProperties;
 import com.netflix.genie.agent.utils.locks.CloseableLock;
 import com.netflix.genie.agent.utils.locks.impl.FileLockFactory;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.core.io.Resource;
@@ -33,6 +37,7 @@ import org.springframework.core.task.TaskExecutor;
 import org.springframework.util.DigestUtils;
 import org.springframework.util.FileCopyUtils;
 import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StreamUtils;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -41,7 +46,25 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A cache on local disk that uses URIs as keys and transparently downloads
@@ -54,7 +77,12 @@ import java.util.Set;
  * Recovers from partial downloads of resources in case an agent gets killed in the middle of a download
  * or a download fails for any other reason
  * <p>
- * Does NOT handle concurrency within the same agent (not an issue at the moment)
+ * Within the same agent a set of resources is fetched by up to
+ * {@link FetchingCacheServiceProperties#getMaxConcurrentDownloads()} threads. Identical URIs in a set are fetched
+ * once and copied to each of their destinations, so no two threads of the agent ever lock the same file
+ * <p>
+ * Cached resources are copied to their destinations unless
+ * {@link FetchingCacheServiceProperties#getMaterializationStrategy()} selects linking or cloning them instead
  * <p>
  * Cache structure on local disk
  * Each resource has a hash to represent it. The version of the resource is the remote last modified
@@ -68,7 +96,24 @@ import java.util.Set;
  * <p>
  * Deletion of older versions
  * Once a version is successfully downloaded, any older versions are deleted as a best effort
- * TODO:Use shared file lock for reading and exclusive lock for writing to the cache
+ * <p>
+ * Trusting cached metadata
+ * Looking up a resource costs remote metadata requests (e.g. two HEAD requests for S3). If a metadata TTL is
+ * configured, the version found by each lookup is recorded in {base_dir}/{hash}/latest and lookups within the TTL
+ * use the recorded version, if still cached, without contacting the remote resource. A newer remote version is
+ * therefore only picked up once the TTL has expired
+ * <p>
+ * Eviction
+ * Every lookup touches the lock file of the resource version, so its last modified timestamp is the last time any
+ * agent used that version. If a maximum size or age is configured, a background sweep started after resources are
+ * fetched deletes the data of versions unused for longer than the maximum age and then of the least recently used
+ * versions until the cache fits in the maximum size. Each version is deleted under its lock and skipped if it was used
+ * since the sweep started
+ * <p>
+ * Locking
+ * Cached versions are copied under a shared lock so agents starting at the same time copy them concurrently. Only
+ * downloading and deleting a version take the exclusive lock. Waiting agents are blocked by the OS rather than
+ * polling and are released as soon as the downloading agent has copied the new version
  *
  * @author standon
  * @since 4.0.0
@@ -79,22 +124,49 @@ class FetchingCacheServiceImpl implements FetchingCacheService {
     private static final String LOCK_FILE_NAME = "lock";
     private static final String DATA_FILE_NAME = "data";
     private static final String DATA_DOWNLOAD_FILE_NAME = "data.tmp";
+    private static final String LATEST_VERSION_FILE_NAME = "latest";
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    private static final long LOCK_WAIT_LOG_THRESHOLD_MILLIS = 1000L;
     private static final String DUMMY_FILE_NAME = "_";
+    private static final String DOWNLOAD_THREAD_NAME_FORMAT = "fetching-cache-download-%d";
     private final ResourceLoader resourceLoader;
     private final File cacheDirectory;
     private final FileLockFactory fileLockFactory;
     private final TaskExecutor cleanUpTaskExecutor;
+    private final FetchingCacheServiceProperties properties;
+    private volatile boolean materializationFallback;
+    private final AtomicBoolean evictionRunning = new AtomicBoolean(false);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong lockWaitMillis = new AtomicLong();
 
     FetchingCacheServiceImpl(
         final ResourceLoader resourceLoader,
         final ArgumentDelegates.CacheArguments cacheArguments,
         final FileLockFactory fileLockFactory,
         final TaskExecutor cleanUpTaskExecutor
+    ) throws IOException {
+        this(
+            resourceLoader,
+            cacheArguments,
+            fileLockFactory,
+            cleanUpTaskExecutor,
+            new FetchingCacheServiceProperties()
+        );
+    }
+
+    FetchingCacheServiceImpl(
+        final ResourceLoader resourceLoader,
+        final ArgumentDelegates.CacheArguments cacheArguments,
+        final FileLockFactory fileLockFactory,
+        final TaskExecutor cleanUpTaskExecutor,
+        final FetchingCacheServiceProperties properties
     ) throws IOException {
         this.resourceLoader = resourceLoader;
         this.cacheDirectory = cacheArguments.getCacheDirectory();
         this.fileLockFactory = fileLockFactory;
         this.cleanUpTaskExecutor = cleanUpTaskExecutor;
+        this.properties = properties;
         createDirectoryStructureIfNotExists(cacheDirectory);
     }
 
@@ -103,7 +175,8 @@ class FetchingCacheServiceImpl implements FetchingCacheService {
      */
     @Override
     public void get(final URI sourceFileUri, final File destinationFile) throws DownloadException, IOException {
-        lookupOrDownload(sourceFileUri, destinationFile);
+        lookupOrDownload(sourceFileUri, Collections.singletonList(destinationFile));
+        scheduleEviction();
     }
 
     /**
@@ -111,25 +184,89 @@ class FetchingCacheServiceImpl implements FetchingCacheService {
      */
     @Override
     public void get(final Set<Pair<URI, File>> sourceDestinationPairs) throws DownloadException, IOException {
+        // The same resource may be requested more than once (e.g. by the cluster and the command), fetch it once
+        final Map<URI, List<File>> destinationFiles = new LinkedHashMap<>();
         for (final Pair<URI, File> sourceDestinationPair : sourceDestinationPairs) {
-            get(sourceDestinationPair.getKey(), sourceDestinationPair.getValue());
+            destinationFiles
+                .computeIfAbsent(sourceDestinationPair.getKey(), uri -> new ArrayList<>())
+                .add(sourceDestinationPair.getValue());
+        }
+
+        final int threads = Math.min(this.properties.getMaxConcurrentDownloads(), destinationFiles.size());
+        if (threads <= 1) {
+            for (final Map.Entry<URI, List<File>> entry : destinationFiles.entrySet()) {
+                lookupOrDownload(entry.getKey(), entry.getValue());
+            }
+            scheduleEviction();
+            return;
+        }
+
+        log.debug("Fetching {} resources with {} threads", destinationFiles.size(), threads);
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+            threads,
+            new ThreadFactoryBuilder().setNameFormat(DOWNLOAD_THREAD_NAME_FORMAT).setDaemon(true).build()
+        );
+        try {
+            final CompletionService<URI> completionService = new ExecutorCompletionService<>(executorService);
+            final List<Future<URI>> futures = new ArrayList<>(destinationFiles.size());
+            for (final Map.Entry<URI, List<File>> entry : destinationFiles.entrySet()) {
+                futures.add(
+                    completionService.submit(
+                        () -> {
+                            lookupOrDownload(entry.getKey(), entry.getValue());
+                            return entry.getKey();
+                        }
+                    )
+                );
+            }
+            // Wait in completion order so the first failure is surfaced without waiting on the slower downloads
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    completionService.take().get();
+                } catch (final ExecutionException e) {
+                    futures.forEach(future -> future.cancel(true));
+                    throw this.unwrapDownloadFailure(e.getCause());
+                } catch (final InterruptedException e) {
+                    futures.forEach(future -> future.cancel(true));
+                    Thread.currentThread().interrupt();
+                    throw new DownloadException("Interrupted while downloading dependencies", e);
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
         }
+        scheduleEviction();
+    }
+
+    private DownloadException unwrapDownloadFailure(final Throwable cause) throws IOException {
+        if (cause instanceof DownloadException) {
+            return (DownloadException) cause;
+        } else if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new DownloadException("Error downloading dependency", cause);
     }
 
     /* Get a handle to the resource represented by the sourceFileURI.
      * The lastModifedTimeStamp represents the version number of the resource.
      * Create the directory structure with resourceCacheId/version(lastModifiedTimeStamp)
-     * if it does not exist. Touch an empty lock file. Use this file to grab a lock on it.
+     * if it does not exist. Touch an empty lock file. Use this file to grab a shared lock on it.
      * While under the lock check for the cache data file resourceCacheId/version/DATA_FILE_NAME.
-     * If it exists copy to the target file and release the lock. Else,
+     * If it exists copy to the target files and release the lock. Else, grab an exclusive lock,
+     * check for the data file again as another process may have downloaded it meanwhile, in which
+     * case release the exclusive lock and copy it under a shared lock as above. Otherwise
      * download the file to resourceCacheId/version/DATA_DOWNLOAD_FILE_NAME download file. Move it
      * to the data file(this operation is guaranteed to be atomic by the OS). Copy data
-     * file to target file and release the lock.
-     * Before exiting delete the previous versions of the resource
+     * file to target files and release the lock.
+     * Before exiting record the version as the latest one and delete the previous versions of the resource
      */
     private void lookupOrDownload(
         final URI sourceFileUri,
-        final File destinationFile
+        final Collection<File> destinationFiles
     ) throws DownloadException, IOException {
 
         final String uriString = sourceFileUri.toASCIIString();
@@ -139,6 +276,10 @@ class FetchingCacheServiceImpl implements FetchingCacheService {
         // Unique id to store the resource on local disk
         final String resourceCacheId = getResourceCacheId(sourceFileUri);
 
+        if (lookupRecentlyValidated(uriString, resourceCacheId, destinationFiles)) {
+            return;
+        }
+
         // Get a handle to the resource
         final Resource resource;
         try {
@@ -168,6 +309,87 @@ class FetchingCacheServiceImpl implements FetchingCacheService {
         //Create the resource version dir in cache if it does not exist
         createDirectoryStructureIfNotExists(cacheResourceVersionDir);
 
+        try {
+            // Retry the shared lock whenever another agent downloaded the version while this one waited to
+            while (!materializeCachedVersion(uriString, resourceCacheId, resourceLastModified, destinationFiles)) {
+                if (
+                    downloadAndMaterialize(uriString, resource, resourceCacheId, resourceLastModified, destinationFiles)
+                ) {
+                    break;
+                }
+            }
+        } catch (LockException e) {
+            throw new DownloadException("Error downloading dependency", e);
+        }
+
+        recordLatestVersion(resourceCacheId, resourceLastModified);
+
+        //Clean up any older versions
+        cleanUpTaskExecutor.execute(
+            new CleanupOlderVersionsTask(resourceCacheId, resourceLastModified)
+        );
+    }
+
+    /* Copy a cached resource version to the target files under a shared lock, so any number of agents can do so at
+     * the same time. Returns false if the version isn't cached.
+     */
+    private boolean materializeCachedVersion(
+        final String uriString,
+        final String resourceCacheId,
+        final long resourceLastModified,
+        final Collection<File> destinationFiles
+    ) throws LockException, IOException {
+        final File cachedResourceVersionDataFile = getCacheResourceVersionDataFile(
+            resourceCacheId,
+            resourceLastModified
+        );
+        if (!cachedResourceVersionDataFile.exists()) {
+            return false;
+        }
+
+        try (
+            CloseableLock lock = fileLockFactory.getSharedLock(
+                touchCacheResourceVersionLockFile(
+                    resourceCacheId,
+                    resourceLastModified
+                )
+            )
+        ) {
+            //Critical section begin
+            lock(lock, uriString);
+
+            // It may have been cleaned up or evicted while waiting for the lock
+            if (!cachedResourceVersionDataFile.exists()) {
+                return false;
+            }
+
+            this.hits.incrementAndGet();
+            log.debug(
+                "Cache hit: {} (id: {})",
+                uriString,
+                resourceCacheId
+            );
+
+            //Copy from cache data file resourceCacheId/version/DATA_FILE_NAME to the target files
+            for (final File destinationFile : destinationFiles) {
+                materialize(cachedResourceVersionDataFile, destinationFile);
+            }
+            //Critical section end
+        }
+        return true;
+    }
+
+    /* Download a resource version and copy it to the target files. The copy is done under the same exclusive lock so
+     * the version can't be deleted before it is made. Returns false, without holding on to the exclusive lock, if
+     * another agent downloaded the version while this one waited for the lock so it can be copied under a shared lock.
+     */
+    private boolean downloadAndMaterialize(
+        final String uriString,
+        final Resource resource,
+        final String resourceCacheId,
+        final long resourceLastModified,
+        final Collection<File> destinationFiles
+    ) throws LockException, IOException {
         try (
             CloseableLock lock = fileLockFactory.getLock(
                 touchCacheResourceVersionLockFile(
@@ -177,7 +399,7 @@ class FetchingCacheServiceImpl implements FetchingCacheService {
             )
         ) {
             //Critical section begin
-            lock.lock();
+            lock(lock, uriString);
 
             //Handle to the resource cached locally
             final File cachedResourceVersionDataFile = getCacheResourceVersionDataFile(
@@ -185,45 +407,194 @@ class FetchingCacheServiceImpl implements FetchingCacheService {
                 resourceLastModified
             );
 
-            if (!cachedResourceVersionDataFile.exists()) {
+            if (cachedResourceVersionDataFile.exists()) {
                 log.debug(
-                    "Cache miss: {} (id: {})",
+                    "Downloaded by another agent while waiting for the lock: {} (id: {})",
                     uriString,
                     resourceCacheId
                 );
+                return false;
+            }
 
-                // Download the resource into the download file in cache
-                // resourceCacheId/version/data.tmp
-                final File cachedResourceVersionDownloadFile = getCacheResourceVersionDownloadFile(
-                    resourceCacheId,
-                    resourceLastModified
-                );
-                try (
-                    InputStream in = resource.getInputStream();
-                    OutputStream out = new FileOutputStream(cachedResourceVersionDownloadFile)
-                ) {
-                    FileCopyUtils.copy(in, out);
-                    Files.move(cachedResourceVersionDownloadFile, cachedResourceVersionDataFile);
-                }
-            } else {
-                log.debug(
-                    "Cache hit: {} (id: {})",
-                    uriString,
-                    resourceCacheId
-                );
+            this.misses.incrementAndGet();
+            log.debug(
+                "Cache miss: {} (id: {})",
+                uriString,
+                resourceCacheId
+            );
+
+            // Download the resource into the download file in cache
+            // resourceCacheId/version/data.tmp
+            final File cachedResourceVersionDownloadFile = getCacheResourceVersionDownloadFile(
+                resourceCacheId,
+                resourceLastModified
+            );
+            try (
+                InputStream in = resource.getInputStream();
+                OutputStream out = new FileOutputStream(cachedResourceVersionDownloadFile)
+            ) {
+                FileCopyUtils.copy(in, out);
+                Files.move(cachedResourceVersionDownloadFile, cachedResourceVersionDataFile);
             }
 
-            //Copy from cache data file resourceCacheId/version/DATA_FILE_NAME to targetFile
-            Files.copy(cachedResourceVersionDataFile, destinationFile);
+            //Copy from cache data file resourceCacheId/version/DATA_FILE_NAME to the target files
+            for (final File destinationFile : destinationFiles) {
+                materialize(cachedResourceVersionDataFile, destinationFile);
+            }
             //Critical section end
+        }
+        return true;
+    }
+
+    /* Acquire a cache lock, reporting how long it took as this is time spent waiting on other agents */
+    private void lock(final CloseableLock lock, final String uriString) throws LockException {
+        final long start = System.nanoTime();
+        lock.lock();
+        final long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        this.lockWaitMillis.addAndGet(waitMillis);
+        if (waitMillis >= LOCK_WAIT_LOG_THRESHOLD_MILLIS) {
+            log.info("Waited {} ms for the cache lock of {}", waitMillis, uriString);
+        } else {
+            log.debug("Waited {} ms for the cache lock of {}", waitMillis, uriString);
+        }
+    }
+
+    /* If the latest version of the resource was validated against the remote resource less than the metadata TTL ago
+     * and is still cached, copy it to the target files without looking up the remote resource at all.
+     * Returns false if the remote resource must be looked up.
+     */
+    private boolean lookupRecentlyValidated(
+        final String uriString,
+        final String resourceCacheId,
+        final Collection<File> destinationFiles
+    ) throws DownloadException, IOException {
+        final long metadataTtl = this.properties.getMetadataTtl();
+        if (metadataTtl <= 0) {
+            return false;
+        }
+
+        final File latestVersionFile = getCacheResourceLatestVersionFile(resourceCacheId);
+        final long validatedAt = latestVersionFile.lastModified();
+        if (validatedAt == 0L || System.currentTimeMillis() - validatedAt > metadataTtl) {
+            return false;
+        }
+
+        final long resourceLastModified;
+        try {
+            resourceLastModified = Long.parseLong(
+                new String(java.nio.file.Files.readAllBytes(latestVersionFile.toPath()), StandardCharsets.UTF_8)
+            );
+        } catch (final IOException | NumberFormatException e) {
+            log.debug("Unable to read the latest version of {} (id: {})", uriString, resourceCacheId, e);
+            return false;
+        }
+
+        log.debug(
+            "Trusting version {} of {} (id: {}) validated {} ms ago",
+            resourceLastModified,
+            uriString,
+            resourceCacheId,
+            System.currentTimeMillis() - validatedAt
+        );
+        try {
+            return materializeCachedVersion(uriString, resourceCacheId, resourceLastModified, destinationFiles);
         } catch (LockException e) {
             throw new DownloadException("Error downloading dependency", e);
         }
+    }
 
-        //Clean up any older versions
-        cleanUpTaskExecutor.execute(
-            new CleanupOlderVersionsTask(resourceCacheId, resourceLastModified)
-        );
+    /* Record the version of a resource just validated against the remote resource for other lookups to trust until
+     * the metadata TTL expires. The record is replaced atomically as other agents may be reading it. Best effort.
+     */
+    private void recordLatestVersion(final String resourceCacheId, final long resourceLastModified) {
+        if (this.properties.getMetadataTtl() <= 0) {
+            return;
+        }
+        final Path latestVersionFile = getCacheResourceLatestVersionFile(resourceCacheId).toPath();
+        Path temporaryFile = null;
+        try {
+            temporaryFile = java.nio.file.Files.createTempFile(
+                latestVersionFile.getParent(),
+                LATEST_VERSION_FILE_NAME,
+                TEMPORARY_FILE_SUFFIX
+            );
+            java.nio.file.Files.write(
+                temporaryFile,
+                Long.toString(resourceLastModified).getBytes(StandardCharsets.UTF_8)
+            );
+            java.nio.file.Files.move(
+                temporaryFile,
+                latestVersionFile,
+                StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING
+            );
+        } catch (final IOException e) {
+            log.warn("Unable to record the latest version of resource {}", resourceCacheId, e);
+            if (temporaryFile != null) {
+                FileSystemUtils.deleteRecursively(temporaryFile.toFile());
+            }
+        }
+    }
+
+    /* Place the cached data file at the destination using the configured strategy. Once a strategy other than a copy
+     * fails (e.g. the cache and job directory are on different file systems) every later call copies directly as the
+     * cache and job directories don't change for the life of the agent.
+     */
+    private void materialize(final File cachedDataFile, final File destinationFile) throws IOException {
+        final FetchingCacheServiceProperties.MaterializationStrategy strategy
+            = this.properties.getMaterializationStrategy();
+        if (strategy != FetchingCacheServiceProperties.MaterializationStrategy.COPY && !this.materializationFallback) {
+            final Path source = cachedDataFile.toPath().toAbsolutePath();
+            final Path destination = destinationFile.toPath();
+            try {
+                java.nio.file.Files.deleteIfExists(destination);
+                switch (strategy) {
+                    case HARD_LINK:
+                        java.nio.file.Files.createLink(destination, source);
+                        return;
+                    case REFLINK:
+                        reflink(source, destination);
+                        return;
+                    default:
+                        throw new IllegalStateException("Unhandled materialization strategy: " + strategy);
+                }
+            } catch (final IOException | UnsupportedOperationException e) {
+                log.warn(
+                    "Unable to materialize {} at {} with strategy {}. Copying resources from now on",
+                    source,
+                    destination,
+                    strategy,
+                    e
+                );
+                this.materializationFallback = true;
+            }
+        }
+        Files.copy(cachedDataFile, destinationFile);
+    }
+
+    private void reflink(final Path source, final Path destination) throws IOException {
+        final Process process = new ProcessBuilder(
+            "cp",
+            "--reflink=always",
+            source.toString(),
+            destination.toString()
+        )
+            .redirectErrorStream(true)
+            .start();
+        final String output;
+        final int exitCode;
+        try (InputStream processOutput = process.getInputStream()) {
+            output = StreamUtils.copyToString(processOutput, StandardCharsets.UTF_8).trim();
+            exitCode = process.waitFor();
+        } catch (final InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while cloning " + source, e);
+        }
+        if (exitCode != 0) {
+            java.nio.file.Files.deleteIfExists(destination);
+            throw new IOException("Cloning " + source + " failed with exit code " + exitCode + ": " + output);
+        }
     }
 
     @VisibleForTesting
@@ -269,7 +640,7 @@ class FetchingCacheServiceImpl implements FetchingCacheService {
     ) throws IOException, LockException {
 
         //Get all versions of a resource in the cache
-        final File[] files = getCacheResourceDir(resourceCacheId).listFiles();
+        final File[] files = getCacheResourceDir(resourceCacheId).listFiles(File::isDirectory);
 
         //Remove all the versions older than the supplied version - lastDownloadedResourceModifiedTimestamp
         if (files != null) {
@@ -307,23 +678,127 @@ class FetchingCacheServiceImpl implements FetchingCacheService {
             //critical section begin
             lock.lock();
 
-            //Remove the data file. If last download was successful for the resource, only
-            //data file would exist
-            FileSystemUtils.deleteRecursively(getCacheResourceVersionDataFile(resourceVersionDir));
-
-            //data.tmp file could exist if the last download of the resource failed in the middle
-            //and after that a newer version was downloaded. So, delete it too
-            FileSystemUtils.deleteRecursively(getCacheResourceVersionDownloadFile(resourceVersionDir));
+            deleteResourceVersionData(resourceVersionDir);
 
             //critical section end
         }
     }
 
+    /* Delete the data of a resource version. Must be called while holding the lock of the version */
+    private void deleteResourceVersionData(final File resourceVersionDir) {
+        //Remove the data file. If last download was successful for the resource, only
+        //data file would exist
+        FileSystemUtils.deleteRecursively(getCacheResourceVersionDataFile(resourceVersionDir));
+
+        //data.tmp file could exist if the last download of the resource failed in the middle
+        //and after that a newer version was downloaded. So, delete it too
+        FileSystemUtils.deleteRecursively(getCacheResourceVersionDownloadFile(resourceVersionDir));
+    }
+
+    private void scheduleEviction() {
+        if (this.properties.getMaxSize() <= 0 && this.properties.getMaxAge() <= 0) {
+            return;
+        }
+        if (this.evictionRunning.compareAndSet(false, true)) {
+            this.cleanUpTaskExecutor.execute(new EvictionTask());
+        }
+    }
+
+    /**
+     * Evict the data of resource versions unused for longer than the maximum age and then of the least recently used
+     * versions until the cache fits in its maximum size.
+     */
+    @VisibleForTesting
+    void evictResourceVersions() {
+        final long maxSize = this.properties.getMaxSize();
+        final long maxAge = this.properties.getMaxAge();
+        final long now = System.currentTimeMillis();
+
+        final List<CacheEntry> entries = new ArrayList<>();
+        final File[] resourceDirs = this.cacheDirectory.listFiles(File::isDirectory);
+        if (resourceDirs != null) {
+            for (final File resourceDir : resourceDirs) {
+                final File[] resourceVersionDirs = resourceDir.listFiles(File::isDirectory);
+                if (resourceVersionDirs == null) {
+                    continue;
+                }
+                for (final File resourceVersionDir : resourceVersionDirs) {
+                    final File lockFile = getCacheResourceVersionLockFile(resourceVersionDir);
+                    // File.length() is 0 for files that don't exist
+                    final long size = getCacheResourceVersionDataFile(resourceVersionDir).length()
+                        + getCacheResourceVersionDownloadFile(resourceVersionDir).length();
+                    if (lockFile.exists() && size > 0) {
+                        entries.add(new CacheEntry(resourceVersionDir, lockFile.lastModified(), size));
+                    }
+                }
+            }
+        }
+        entries.sort(Comparator.comparingLong(CacheEntry::getLastUsed));
+
+        long totalSize = entries.stream().mapToLong(CacheEntry::getSize).sum();
+        int evictedEntries = 0;
+        long evictedBytes = 0;
+        for (final CacheEntry entry : entries) {
+            final boolean expired = maxAge > 0 && now - entry.getLastUsed() > maxAge;
+            final boolean oversized = maxSize > 0 && totalSize > maxSize;
+            if (!expired && !oversized) {
+                // Entries are sorted least recently used first so none of the remaining ones are expired either
+                break;
+            }
+            try {
+                if (evictResourceVersion(entry)) {
+                    totalSize -= entry.getSize();
+                    evictedEntries++;
+                    evictedBytes += entry.getSize();
+                }
+            } catch (final IOException | LockException e) {
+                log.warn("Failed to evict resource version {}", entry.getResourceVersionDir(), e);
+            }
+        }
+
+        log.info(
+            "Dependency cache {} holds {} bytes in {} resource versions after evicting {} ({} bytes). "
+                + "This agent had {} hits and {} misses and waited {} ms for cache locks",
+            this.cacheDirectory,
+            totalSize,
+            entries.size() - evictedEntries,
+            evictedEntries,
+            evictedBytes,
+            this.hits.get(),
+            this.misses.get(),
+            this.lockWaitMillis.get()
+        );
+    }
+
+    /* Delete the data of a resource version unless it was used since the sweep looked at it */
+    private boolean evictResourceVersion(final CacheEntry entry) throws IOException, LockException {
+        // Don't touch the lock file as that would mark the version as used
+        final File lockFile = getCacheResourceVersionLockFile(entry.getResourceVersionDir());
+        try (CloseableLock lock = fileLockFactory.getLock(lockFile)) {
+            //critical section begin
+            lock.lock();
+
+            if (lockFile.lastModified() > entry.getLastUsed()) {
+                log.debug("Not evicting {} as it was used during the sweep", entry.getResourceVersionDir());
+                return false;
+            }
+            log.debug("Evicting {} ({} bytes)", entry.getResourceVersionDir(), entry.getSize());
+            deleteResourceVersionData(entry.getResourceVersionDir());
+            return true;
+        }
+    }
+
     /* Returns a handle to the directory for a resource */
     private File getCacheResourceDir(final String resourceCacheId) {
         return new File(cacheDirectory, resourceCacheId);
     }
 
+    /* Returns a handle to the file recording the latest validated version of a resource */
+    @VisibleForTesting
+    File getCacheResourceLatestVersionFile(final String resourceCacheId) {
+        return new File(getCacheResourceDir(resourceCacheId), LATEST_VERSION_FILE_NAME);
+    }
+
     /* Returns a handle to the directory for a resource version */
     @VisibleForTesting
     File getCacheResourceVersionDir(final String resourceCacheId, final long lastModifiedTimestamp) {
@@ -421,4 +896,32 @@ class FetchingCacheServiceImpl implements FetchingCacheService {
             }
         }
     }
+
+    /**
+     * Task to evict resources from the cache.
+     */
+    private class EvictionTask implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                evictResourceVersions();
+            } catch (Throwable throwable) {
+                log.error("Error evicting resources from the cache", throwable);
+            } finally {
+                evictionRunning.set(false);
+            }
+        }
+    }
+
+    /**
+     * A resource version in the cache as seen by an eviction sweep.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class CacheEntry {
+        private final File resourceVersionDir;
+        private final long lastUsed;
+        private final long size;
+    }
 }
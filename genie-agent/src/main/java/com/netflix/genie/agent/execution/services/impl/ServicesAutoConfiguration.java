@@ -22,12 +22,14 @@ import com.netflix.genie.agent.execution.services.DownloadService;
 import com.netflix.genie.agent.execution.services.FetchingCacheService;
 import com.netflix.genie.agent.execution.services.JobSetupService;
 import com.netflix.genie.agent.execution.services.KillService;
+import com.netflix.genie.agent.properties.FetchingCacheServiceProperties;
 import com.netflix.genie.agent.utils.locks.impl.FileLockFactory;
 import com.netflix.genie.common.internal.configs.AwsAutoConfiguration;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -46,6 +48,11 @@ import java.io.IOException;
 //TODO this class lacks a test
 @Configuration
 @AutoConfigureAfter(AwsAutoConfiguration.class)
+@EnableConfigurationProperties(
+    {
+        FetchingCacheServiceProperties.class,
+    }
+)
 @Slf4j
 public class ServicesAutoConfiguration {
 
@@ -69,6 +76,7 @@ public class ServicesAutoConfiguration {
      * @param cacheArguments  The cache command line arguments to use
      * @param fileLockFactory The file lock factory to use
      * @param taskExecutor    The task executor to use
+     * @param properties      The properties of the service
      * @return A {@link FetchingCacheServiceImpl} instance
      * @throws IOException On error creating the instance
      */
@@ -79,13 +87,15 @@ public class ServicesAutoConfiguration {
         final ResourceLoader resourceLoader,
         final ArgumentDelegates.CacheArguments cacheArguments,
         final FileLockFactory fileLockFactory,
-        @Qualifier("sharedAgentTaskExecutor") final TaskExecutor taskExecutor
+        @Qualifier("sharedAgentTaskExecutor") final TaskExecutor taskExecutor,
+        final FetchingCacheServiceProperties properties
     ) throws IOException {
         return new FetchingCacheServiceImpl(
             resourceLoader,
             cacheArguments,
             fileLockFactory,
-            taskExecutor
+            taskExecutor,
+            properties
         );
     }
 
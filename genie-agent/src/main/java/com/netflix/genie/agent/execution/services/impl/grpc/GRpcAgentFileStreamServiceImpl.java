@@ -20,6 +20,8 @@ package com.netflix.genie.agent.execution.services.impl.grpc;
 import com.google.common.collect.Sets;
 import com.google.protobuf.ByteString;
 import com.netflix.genie.agent.execution.services.AgentFileStreamService;
+import com.netflix.genie.agent.properties.FileStreamServiceProperties;
+import com.netflix.genie.common.internal.dtos.DirectoryManifest;
 import com.netflix.genie.common.internal.dtos.v4.converters.JobDirectoryManifestProtoConverter;
 import com.netflix.genie.common.internal.exceptions.checked.GenieConversionException;
 import com.netflix.genie.common.internal.services.JobDirectoryManifestCreatorService;
@@ -42,7 +44,9 @@ import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ConcurrentModificationException;
+import java.util.Deque;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
@@ -52,18 +56,17 @@ import java.util.concurrent.atomic.AtomicBoolean;
 /**
  * Implementation of {@link AgentFileStreamService} over gRPC.
  * Sets up a persistent 2-way stream ('sync') to push manifest updates and receive file requests.
- * When a file request is received, a creates a new 2 way stream ('transmit') and pushes file chunks, waits for ACK,
- * sends the next chunk, ... until the file range requested is transmitted. Then the stream is shut down.
+ * The first manifest pushed on a stream is complete, later ones only carry the changes since the previous push unless
+ * the server asks for a resync.
+ * When a file request is received, a creates a new 2 way stream ('transmit') and pushes file chunks, keeping up to a
+ * configured number of them in flight, sending the next chunk whenever one is acknowledged, ... until the file range
+ * requested is transmitted and acknowledged. Then the stream is shut down.
  *
  * @author mprimi
  * @since 4.0.0
  */
 @Slf4j
 public class GRpcAgentFileStreamServiceImpl implements AgentFileStreamService {
-    private static final boolean ENABLE_COMPRESSION = true; //TODO make configurable
-    private static final int MAX_DATA_CHUNK_SIZE = 1024 * 1024; //TODO make configurable
-    private static final int MAX_CONCURRENT_TRANSMIT_STREAMS = 5;  //TODO make configurable
-
     private final FileStreamServiceGrpc.FileStreamServiceStub fileStreamServiceStub;
     private final TaskScheduler taskScheduler;
     private final ExponentialBackOffTrigger trigger;
@@ -72,23 +75,28 @@ public class GRpcAgentFileStreamServiceImpl implements AgentFileStreamService {
     private final Semaphore concurrentTransfersSemaphore;
     private final Set<FileTransfer> activeFileTransfers;
     private final JobDirectoryManifestCreatorService jobDirectoryManifestCreatorService;
+    private final FileStreamServiceProperties properties;
 
     private StreamObserver<AgentManifestMessage> controlStreamObserver;
     private String jobId;
     private Path jobDirectoryPath;
     private AtomicBoolean started = new AtomicBoolean();
     private ScheduledFuture<?> scheduledTask;
+    private DirectoryManifest lastPushedManifest;
+    private long manifestSequenceNumber;
 
     GRpcAgentFileStreamServiceImpl(
         final FileStreamServiceGrpc.FileStreamServiceStub fileStreamServiceStub,
         final TaskScheduler taskScheduler,
         final JobDirectoryManifestProtoConverter manifestProtoConverter,
-        final JobDirectoryManifestCreatorService jobDirectoryManifestCreatorService
+        final JobDirectoryManifestCreatorService jobDirectoryManifestCreatorService,
+        final FileStreamServiceProperties properties
     ) {
         this.fileStreamServiceStub = fileStreamServiceStub;
         this.taskScheduler = taskScheduler;
         this.manifestProtoConverter = manifestProtoConverter;
         this.jobDirectoryManifestCreatorService = jobDirectoryManifestCreatorService;
+        this.properties = properties;
         this.trigger = new ExponentialBackOffTrigger(
             ExponentialBackOffTrigger.DelayType.FROM_PREVIOUS_EXECUTION_BEGIN,
             1000, //TODO make configurable
@@ -96,7 +104,7 @@ public class GRpcAgentFileStreamServiceImpl implements AgentFileStreamService {
             1.1f //TODO make configurable
         );
         this.responseObserver = new ServerControlStreamObserver(this);
-        this.concurrentTransfersSemaphore = new Semaphore(MAX_CONCURRENT_TRANSMIT_STREAMS);
+        this.concurrentTransfersSemaphore = new Semaphore(properties.getMaxConcurrentTransmitStreams());
         this.activeFileTransfers = Sets.newConcurrentHashSet();
     }
 
@@ -154,12 +162,25 @@ public class GRpcAgentFileStreamServiceImpl implements AgentFileStreamService {
 
     private synchronized void pushManifest() {
         if (started.get()) {
+            final DirectoryManifest manifest;
+            final long sequenceNumber = this.manifestSequenceNumber + 1;
             final AgentManifestMessage jobFileManifest;
             try {
-                jobFileManifest = manifestProtoConverter.manifestToProtoMessage(
-                    this.jobId,
-                    this.jobDirectoryManifestCreatorService.getDirectoryManifest(this.jobDirectoryPath)
-                );
+                manifest = this.jobDirectoryManifestCreatorService.getDirectoryManifest(this.jobDirectoryPath);
+                if (this.lastPushedManifest == null) {
+                    jobFileManifest = manifestProtoConverter.manifestToProtoMessage(
+                        this.jobId,
+                        manifest,
+                        sequenceNumber
+                    );
+                } else {
+                    jobFileManifest = manifestProtoConverter.manifestDeltaToProtoMessage(
+                        this.jobId,
+                        this.lastPushedManifest,
+                        manifest,
+                        sequenceNumber
+                    );
+                }
             } catch (final IOException e) {
                 log.error("Failed to construct manifest", e);
                 return;
@@ -171,14 +192,24 @@ public class GRpcAgentFileStreamServiceImpl implements AgentFileStreamService {
             if (this.controlStreamObserver == null) {
                 this.controlStreamObserver = fileStreamServiceStub.sync(this.responseObserver);
                 if (this.controlStreamObserver instanceof ClientCallStreamObserver) {
-                    ((ClientCallStreamObserver) this.controlStreamObserver).setMessageCompression(ENABLE_COMPRESSION);
+                    ((ClientCallStreamObserver) this.controlStreamObserver).setMessageCompression(
+                        this.properties.isEnableCompression()
+                    );
                 }
             }
 
             this.controlStreamObserver.onNext(jobFileManifest);
+            this.manifestSequenceNumber = sequenceNumber;
+            this.lastPushedManifest = manifest;
         }
     }
 
+    private synchronized void handleManifestResyncRequest() {
+        log.info("Server requested a complete manifest");
+        // Keep numbering messages on this stream but make the next one a complete manifest
+        this.lastPushedManifest = null;
+    }
+
     private void handleControlStreamError(final Throwable t) {
         log.warn("Manifest stream error: {}", t.getMessage(), t);
         this.trigger.reset();
@@ -197,13 +228,16 @@ public class GRpcAgentFileStreamServiceImpl implements AgentFileStreamService {
             }
             this.controlStreamObserver = null;
         }
+        // A new stream starts over with a complete manifest
+        this.lastPushedManifest = null;
+        this.manifestSequenceNumber = 0;
     }
 
     private synchronized void handleFileRequest(
         final String streamId,
         final String relativePath,
-        final int startOffset,
-        final int endOffset
+        final long startOffset,
+        final long endOffset
     ) {
         log.info(
             "Server is requesting file {} (range: [{}, {}), streamId: {})",
@@ -259,6 +293,8 @@ public class GRpcAgentFileStreamServiceImpl implements AgentFileStreamService {
                     fileRequest.getStartOffset(),
                     fileRequest.getEndOffset()
                 );
+            } else if (value.getMessageCase() == ServerControlMessage.MessageCase.SERVER_MANIFEST_RESYNC_REQUEST) {
+                this.gRpcAgentFileManifestService.handleManifestResyncRequest();
             } else {
                 log.warn("Unknown message type: " + value.getMessageCase().name());
             }
@@ -279,40 +315,48 @@ public class GRpcAgentFileStreamServiceImpl implements AgentFileStreamService {
         private final GRpcAgentFileStreamServiceImpl gRpcAgentFileStreamService;
         private final String streamId;
         private final Path absolutePath;
-        private final int startOffset;
-        private final int endOffset;
+        private final long startOffset;
+        private final int maxChunksInFlight;
         private final StreamObserver<AgentFileMessage> outboundStreamObserver;
         private final ByteBuffer readBuffer;
         private final AtomicBoolean completed = new AtomicBoolean();
-        private int watermark;
+        // The end offset of each chunk sent and not acknowledged yet, in the order they were sent
+        private final Deque<Long> chunksInFlight = new ArrayDeque<>();
+        private long endOffset;
+        private long watermark;
+        private FileChannel channel;
 
         FileTransfer(
             final GRpcAgentFileStreamServiceImpl gRpcAgentFileStreamService,
             final String streamId,
             final Path absolutePath,
-            final int startOffset,
-            final int endOffset
+            final long startOffset,
+            final long endOffset
         ) {
             this.gRpcAgentFileStreamService = gRpcAgentFileStreamService;
             this.streamId = streamId;
             this.absolutePath = absolutePath;
             this.startOffset = startOffset;
             this.endOffset = endOffset;
+            this.maxChunksInFlight = gRpcAgentFileStreamService.properties.getMaxChunksInFlight();
             this.outboundStreamObserver = this.gRpcAgentFileStreamService.fileStreamServiceStub.transmit(this);
             this.watermark = startOffset;
-            this.readBuffer = ByteBuffer.allocate(GRpcAgentFileStreamServiceImpl.MAX_DATA_CHUNK_SIZE);
+            this.readBuffer = ByteBuffer.allocate(gRpcAgentFileStreamService.properties.getDataChunkMaxSize());
         }
 
-        void start() {
+        synchronized void start() {
             try {
-                this.sendChunk();
+                if (this.watermark < this.endOffset) {
+                    this.channel = FileChannel.open(this.absolutePath, StandardOpenOption.READ);
+                }
+                this.sendChunks();
             } catch (IOException e) {
                 log.warn("Failed to send first chunk");
                 this.completeTransfer(true, e);
             }
         }
 
-        private void completeTransfer(final boolean shutdownStream, @Nullable final Exception error) {
+        private synchronized void completeTransfer(final boolean shutdownStream, @Nullable final Exception error) {
             if (this.completed.compareAndSet(false, true)) {
                 if (shutdownStream) {
                     if (error != null) {
@@ -322,39 +366,70 @@ public class GRpcAgentFileStreamServiceImpl implements AgentFileStreamService {
                     }
                 }
 
+                if (this.channel != null) {
+                    try {
+                        this.channel.close();
+                    } catch (IOException e) {
+                        log.warn("Failed to close file: {}", this.absolutePath, e);
+                    }
+                }
+
                 this.gRpcAgentFileStreamService.handleTransferComplete(this);
             }
         }
 
-        private void sendChunk() throws IOException {
-
-            if (this.watermark < this.endOffset - 1) {
-                final int bytesRead;
-                try (FileChannel channel = FileChannel.open(this.absolutePath, StandardOpenOption.READ)) {
-                    channel.position(this.watermark);
-                    bytesRead = channel.read(readBuffer);
+        private void sendChunks() throws IOException {
+            // Fill the window
+            while (!this.completed.get()
+                && this.watermark < this.endOffset
+                && this.chunksInFlight.size() < this.maxChunksInFlight) {
+                this.readBuffer.clear();
+                this.readBuffer.limit((int) Math.min(this.readBuffer.capacity(), this.endOffset - this.watermark));
+                final int bytesRead = this.channel.read(this.readBuffer, this.watermark);
+
+                if (bytesRead <= 0) {
+                    log.warn("File {} is shorter than the range requested, ending at {}", absolutePath, watermark);
+                    this.endOffset = this.watermark;
+                    break;
                 }
 
-                // Reset mark before reading!
-                readBuffer.rewind();
+                this.readBuffer.flip();
 
                 final AgentFileMessage chunkMessage = AgentFileMessage.newBuilder()
                     .setStreamId(this.streamId)
-                    .setData(ByteString.copyFrom(readBuffer, bytesRead))
+                    .setOffset(this.watermark)
+                    .setData(ByteString.copyFrom(this.readBuffer))
                     .build();
 
                 this.outboundStreamObserver.onNext(chunkMessage);
 
                 this.watermark += bytesRead;
-            } else {
+                this.chunksInFlight.addLast(this.watermark);
+            }
+
+            if (this.watermark >= this.endOffset && this.chunksInFlight.isEmpty()) {
                 this.completeTransfer(true, null);
             }
         }
 
+        private void handleAck(final ServerAckMessage ack) {
+            final long acknowledgedOffset = ack.getAcknowledgedOffset();
+            if (acknowledgedOffset > this.startOffset) {
+                // Acknowledgements are cumulative, release every chunk up to the offset
+                while (!this.chunksInFlight.isEmpty() && this.chunksInFlight.peekFirst() <= acknowledgedOffset) {
+                    this.chunksInFlight.removeFirst();
+                }
+            } else {
+                // Servers which don't report an offset acknowledge chunks one by one
+                this.chunksInFlight.pollFirst();
+            }
+        }
+
         @Override
-        public void onNext(final ServerAckMessage value) {
+        public synchronized void onNext(final ServerAckMessage value) {
             try {
-                sendChunk();
+                this.handleAck(value);
+                this.sendChunks();
             } catch (IOException e) {
                 log.warn("Failed to send chunk");
                 this.completeTransfer(true, e);
@@ -30,6 +30,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Download dependencies such as binaries and configurations attached to the job and its dependent entities.
@@ -63,14 +64,20 @@ public class DownloadDependenciesStage extends ExecutionStage {
         assert jobDirectory != null;
 
         log.info("Downloading job dependencies");
+        final long start = System.nanoTime();
         final Set<File> downloaded;
         try {
             downloaded = this.jobSetupService.downloadJobResources(jobSpecification, jobDirectory);
         } catch (SetUpJobException e) {
+            log.error(
+                "Failed to download job dependencies after {} ms",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+            );
             throw createFatalException(e);
         }
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
 
-        UserConsole.getLogger().info("Downloaded dependencies ({} files)", downloaded.size());
+        UserConsole.getLogger().info("Downloaded dependencies ({} files) in {} ms", downloaded.size(), elapsedMillis);
 
     }
 }
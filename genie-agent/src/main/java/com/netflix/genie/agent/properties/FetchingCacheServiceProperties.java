@@ -0,0 +1,104 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.agent.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Properties of the service downloading job dependencies into the local cache of the agent.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@ConfigurationProperties(prefix = FetchingCacheServiceProperties.PROPERTY_PREFIX)
+@Getter
+@Setter
+@Validated
+public class FetchingCacheServiceProperties {
+
+    /**
+     * The property prefix for all properties in this group.
+     */
+    public static final String PROPERTY_PREFIX = "genie.agent.runtime.fetching-cache-service";
+
+    /**
+     * The maximum number of distinct resources downloaded at the same time. 1 downloads them one after the other.
+     */
+    @Min(value = 1, message = "At least one download must be allowed")
+    private int maxConcurrentDownloads = 4;
+
+    /**
+     * How a cached resource is placed at its destination in the job directory.
+     */
+    @NotNull(message = "A materialization strategy is required")
+    private MaterializationStrategy materializationStrategy = MaterializationStrategy.COPY;
+
+    /**
+     * The maximum number of bytes of resources kept in the cache directory, shared by all agents using it. Once
+     * exceeded the least recently used resources are evicted after a download. 0 means unbounded.
+     */
+    @Min(value = 0, message = "The maximum size can't be negative")
+    private long maxSize;
+
+    /**
+     * How long (in milliseconds) a resource can go unused by any agent before it is evicted from the cache directory.
+     * 0 means resources are kept until a newer version is downloaded or the cache exceeds its maximum size.
+     */
+    @Min(value = 0, message = "The maximum age can't be negative")
+    private long maxAge;
+
+    /**
+     * How long (in milliseconds) the latest version of a resource found remotely is trusted without looking up the
+     * remote resource again. A newer remote version isn't picked up until this expires. 0 looks up every resource.
+     */
+    @Min(value = 0, message = "The metadata TTL can't be negative")
+    private long metadataTtl;
+
+    /**
+     * The ways a resource in the cache can be materialized in a job directory. Every strategy but {@link #COPY}
+     * falls back to a copy when it isn't supported between the cache and job directories (e.g. they are on different
+     * file systems).
+     *
+     * @author agent
+     * @since 4.0.0
+     */
+    public enum MaterializationStrategy {
+        /**
+         * Copy the bytes of the cached file.
+         */
+        COPY,
+
+        /**
+         * Hard link the cached file. No bytes are written but the job shares the file with the cache so it must not
+         * modify it in place.
+         */
+        HARD_LINK,
+
+        /**
+         * Clone the cached file copy-on-write on file systems supporting it (e.g. btrfs, XFS) using
+         * {@code cp --reflink=always}.
+         */
+        REFLINK
+    }
+}
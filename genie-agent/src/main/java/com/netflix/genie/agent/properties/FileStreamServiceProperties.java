@@ -0,0 +1,67 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.agent.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Properties of the service pushing manifests and streaming files from the job directory to the server.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@ConfigurationProperties(prefix = FileStreamServiceProperties.PROPERTY_PREFIX)
+@Getter
+@Setter
+@Validated
+public class FileStreamServiceProperties {
+
+    /**
+     * The property prefix for all properties in this group.
+     */
+    public static final String PROPERTY_PREFIX = "genie.agent.runtime.file-stream-service";
+
+    /**
+     * Whether messages sent to the server over the manifest stream are compressed.
+     */
+    private boolean enableCompression = true;
+
+    /**
+     * The maximum number of bytes of a file sent in a single message.
+     */
+    @Min(value = 1, message = "Chunks must contain at least one byte")
+    private int dataChunkMaxSize = 1024 * 1024;
+
+    /**
+     * The number of chunks of a file sent ahead of the server acknowledging them. 1 waits for each chunk to be
+     * acknowledged before sending the next one.
+     */
+    @Min(value = 1, message = "At least one chunk must be allowed in flight")
+    private int maxChunksInFlight = 4;
+
+    /**
+     * The maximum number of files transferred to the server at the same time.
+     */
+    @Min(value = 1, message = "At least one transfer must be allowed")
+    private int maxConcurrentTransmitStreams = 5;
+}
@@ -35,18 +35,31 @@ public class FileLock implements CloseableLock {
 
     //Refer to https://docs.oracle.com/javase/7/docs/api/java/io/RandomAccessFile.html
     private static final String FILE_ACCESS_MODE = "rws";
+    private final boolean shared;
     private FileChannel fileChannel;
     //Maintain a link to the underlying nio file lock because of
     //https://bugs.openjdk.java.net/browse/JDK-8166253
     private java.nio.channels.FileLock nioFileLock;
 
     /**
-     * Create a lock for the provided file.
+     * Create an exclusive lock for the provided file.
      *
      * @param file file to be locked
      * @throws LockException in case there is a problem creating a File CloseableLock
      */
     public FileLock(final File file) throws LockException {
+        this(file, false);
+    }
+
+    /**
+     * Create a lock for the provided file.
+     *
+     * @param file   file to be locked
+     * @param shared whether the lock can be held by other shared locks at the same time rather than exclusively
+     * @throws LockException in case there is a problem creating a File CloseableLock
+     */
+    public FileLock(final File file, final boolean shared) throws LockException {
+        this.shared = shared;
 
         if (file == null || !file.exists()) {
             throw new LockException("File is null or does not exist");
@@ -79,7 +92,7 @@ public class FileLock implements CloseableLock {
     @Override
     public void lock() throws LockException {
         try {
-            nioFileLock = fileChannel.lock();
+            nioFileLock = fileChannel.lock(0L, Long.MAX_VALUE, shared);
         } catch (Exception e) {
             throw new LockException("Error locking file ", e);
         }
@@ -43,4 +43,16 @@ public class FileLockFactory {
     public CloseableLock getLock(final File file) throws LockException {
         return new FileLock(file);
     }
+
+    /**
+     * Get a shared lock locking the provided File object. Any number of shared locks can be held on a file at the same
+     * time but none while an exclusive lock from {@link #getLock(File)} is held.
+     *
+     * @param file file to be locked
+     * @return a shared lock locking the file
+     * @throws LockException in case of a problem getting a lock for the file
+     */
+    public CloseableLock getSharedLock(final File file) throws LockException {
+        return new FileLock(file, true);
+    }
 }
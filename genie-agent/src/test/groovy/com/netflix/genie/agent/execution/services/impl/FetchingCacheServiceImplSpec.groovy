@@ -19,6 +19,7 @@ package com.netflix.genie.agent.execution.services.impl
 
 import com.netflix.genie.agent.cli.ArgumentDelegates
 import com.netflix.genie.agent.execution.exceptions.DownloadException
+import com.netflix.genie.agent.properties.FetchingCacheServiceProperties
 import com.netflix.genie.agent.utils.locks.CloseableLock
 import com.netflix.genie.agent.utils.locks.impl.FileLockFactory
 import org.apache.commons.lang3.tuple.Pair
@@ -30,8 +31,10 @@ import org.springframework.core.io.ResourceLoader
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor
 import spock.lang.Shared
 import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
 
 import java.nio.charset.StandardCharsets
+import java.nio.file.Files
 import java.util.concurrent.locks.ReentrantLock
 
 class FetchingCacheServiceImplSpec extends Specification {
@@ -69,6 +72,7 @@ class FetchingCacheServiceImplSpec extends Specification {
         fileLockFactory = Mock();
         lock = Mock()
         fileLockFactory.getLock(_ as File) >> lock
+        fileLockFactory.getSharedLock(_ as File) >> lock
         lock.lock() >> reentrantLock.lock()
         lock.close() >> reentrantLock.unlock()
         cache = new FetchingCacheServiceImpl(resourceLoader, cacheArguments, fileLockFactory, fetchingCacheServiceCleanUpTaskExecutor)
@@ -161,6 +165,71 @@ class FetchingCacheServiceImplSpec extends Specification {
 
     }
 
+    def "Cached resources are copied under a shared lock"() {
+        setup:
+        String fileContents = "example file contents\n"
+        File targetFile = new File(temporaryFolder.getRoot(), "target")
+        File targetFile2 = new File(temporaryFolder.getRoot(), "target2")
+        CloseableLock sharedLock = Mock(CloseableLock)
+
+        when:
+        cache.get(uri, targetFile)
+
+        then:
+        1 * resourceLoader.getResource(_ as String) >> resource
+        1 * resource.exists() >> true
+        1 * resource.lastModified() >> DEFAULT_RESOURCE_LAST_MODIFIED_TS
+        1 * resource.getInputStream() >> new ByteArrayInputStream(fileContents.getBytes(StandardCharsets.UTF_8))
+        1 * fileLockFactory.getLock(_ as File) >> lock
+        0 * fileLockFactory.getSharedLock(_ as File)
+
+        when:
+        cache.get(uri, targetFile2)
+
+        then:
+        1 * resourceLoader.getResource(_ as String) >> resource
+        1 * resource.exists() >> true
+        1 * resource.lastModified() >> DEFAULT_RESOURCE_LAST_MODIFIED_TS
+        0 * resource.getInputStream()
+        0 * fileLockFactory.getLock(_ as File)
+        1 * fileLockFactory.getSharedLock(_ as File) >> sharedLock
+        1 * sharedLock.lock()
+        1 * sharedLock.close()
+        targetFile2.getText(StandardCharsets.UTF_8.toString()) == fileContents
+    }
+
+    def "Resources downloaded by another agent while waiting for the exclusive lock are copied under a shared lock"() {
+        setup:
+        String fileContents = "example file contents\n"
+        File targetFile = new File(temporaryFolder.getRoot(), "target")
+        File cachedFile = cache.getCacheResourceVersionDataFile(cache.getResourceCacheId(uri), DEFAULT_RESOURCE_LAST_MODIFIED_TS)
+        CloseableLock exclusiveLock = Mock(CloseableLock)
+        CloseableLock sharedLock = Mock(CloseableLock)
+
+        when:
+        cache.get(uri, targetFile)
+
+        then:
+        1 * resourceLoader.getResource(_ as String) >> resource
+        1 * resource.exists() >> true
+        1 * resource.lastModified() >> DEFAULT_RESOURCE_LAST_MODIFIED_TS
+        0 * resource.getInputStream()
+        1 * fileLockFactory.getLock(_ as File) >> exclusiveLock
+        1 * exclusiveLock.lock() >> {
+            // Another agent finishes downloading the resource while this one waits for the lock
+            cachedFile.setText(fileContents, StandardCharsets.UTF_8.toString())
+        }
+
+        then:
+        1 * exclusiveLock.close()
+
+        then:
+        1 * fileLockFactory.getSharedLock(_ as File) >> sharedLock
+        1 * sharedLock.lock()
+        1 * sharedLock.close()
+        targetFile.getText(StandardCharsets.UTF_8.toString()) == fileContents
+    }
+
     def "Get resource nonexistent"() {
         setup:
         File targetFile = new File(temporaryFolder.getRoot(), "target")
@@ -233,6 +302,233 @@ class FetchingCacheServiceImplSpec extends Specification {
         targetFiles[2].getText(StandardCharsets.UTF_8.toString()) == uris[2].toString()
     }
 
+    def "GetAll fetches duplicate resources once"() {
+        setup:
+        URI[] uris = [
+            new URI("https://my-server.com/path/to/config/config.xml"),
+            new URI("https://my-server.com/path/to/setup/setup.sh")
+        ]
+        File[] targetFiles = [
+            new File(temporaryFolder.newFolder("cluster"), "config.xml"),
+            new File(temporaryFolder.newFolder("command"), "config.xml"),
+            new File(temporaryFolder.getRoot(), "setup.sh")
+        ]
+        Resource[] resources = [
+            Mock(Resource),
+            Mock(Resource)
+        ]
+
+        when:
+        cache.get(Sets.newHashSet([
+            Pair.of(uris[0], targetFiles[0]),
+            Pair.of(uris[0], targetFiles[1]),
+            Pair.of(uris[1], targetFiles[2]),
+        ]))
+
+        then:
+        1 * resourceLoader.getResource(uris[0].toString()) >> resources[0]
+        1 * resourceLoader.getResource(uris[1].toString()) >> resources[1]
+        1 * resources[0].exists() >> true
+        1 * resources[1].exists() >> true
+        1 * resources[0].lastModified() >> DEFAULT_RESOURCE_LAST_MODIFIED_TS
+        1 * resources[1].lastModified() >> DEFAULT_RESOURCE_LAST_MODIFIED_TS
+        1 * resources[0].getInputStream() >> new ByteArrayInputStream(uris[0].toString().getBytes(StandardCharsets.UTF_8))
+        1 * resources[1].getInputStream() >> new ByteArrayInputStream(uris[1].toString().getBytes(StandardCharsets.UTF_8))
+        targetFiles[0].getText(StandardCharsets.UTF_8.toString()) == uris[0].toString()
+        targetFiles[1].getText(StandardCharsets.UTF_8.toString()) == uris[0].toString()
+        targetFiles[2].getText(StandardCharsets.UTF_8.toString()) == uris[1].toString()
+    }
+
+    def "GetAll fails on the first missing resource"() {
+        setup:
+        FetchingCacheServiceProperties properties = new FetchingCacheServiceProperties()
+        properties.setMaxConcurrentDownloads(maxConcurrentDownloads)
+        cache = new FetchingCacheServiceImpl(
+            resourceLoader,
+            cacheArguments,
+            fileLockFactory,
+            fetchingCacheServiceCleanUpTaskExecutor,
+            properties
+        )
+        URI missingUri = new URI("https://my-server.com/path/to/missing.sh")
+        Resource missingResource = Mock(Resource) {
+            exists() >> false
+        }
+        resource.exists() >> true
+        resource.lastModified() >> DEFAULT_RESOURCE_LAST_MODIFIED_TS
+        resource.getInputStream() >> { new ByteArrayInputStream("contents".getBytes(StandardCharsets.UTF_8)) }
+
+        when:
+        cache.get(Sets.newHashSet([
+            Pair.of(uri, new File(temporaryFolder.getRoot(), "config.xml")),
+            Pair.of(missingUri, new File(temporaryFolder.getRoot(), "missing.sh")),
+        ]))
+
+        then:
+        (0..1) * resourceLoader.getResource(uri.toString()) >> resource
+        1 * resourceLoader.getResource(missingUri.toString()) >> missingResource
+        thrown(DownloadException)
+
+        where:
+        maxConcurrentDownloads << [1, 4]
+    }
+
+    def "Materialize cached resource with strategy #strategy"() {
+        setup:
+        FetchingCacheServiceProperties properties = new FetchingCacheServiceProperties()
+        properties.setMaterializationStrategy(strategy)
+        cache = new FetchingCacheServiceImpl(
+            resourceLoader,
+            cacheArguments,
+            fileLockFactory,
+            fetchingCacheServiceCleanUpTaskExecutor,
+            properties
+        )
+        String fileContents = "example file contents\n"
+        File targetFile = temporaryFolder.newFile("target")
+        File cachedFile = cache.getCacheResourceVersionDataFile(cache.getResourceCacheId(uri), DEFAULT_RESOURCE_LAST_MODIFIED_TS)
+
+        when:
+        cache.get(uri, targetFile)
+
+        then:
+        1 * resourceLoader.getResource(_ as String) >> resource
+        1 * resource.exists() >> true
+        1 * resource.lastModified() >> DEFAULT_RESOURCE_LAST_MODIFIED_TS
+        1 * resource.getInputStream() >> new ByteArrayInputStream(fileContents.getBytes(StandardCharsets.UTF_8))
+        targetFile.getText(StandardCharsets.UTF_8.toString()) == fileContents
+        !Files.isSymbolicLink(targetFile.toPath())
+        Files.isSameFile(targetFile.toPath(), cachedFile.toPath()) == sameFile
+
+        where:
+        strategy                                                         | sameFile
+        FetchingCacheServiceProperties.MaterializationStrategy.COPY      | false
+        FetchingCacheServiceProperties.MaterializationStrategy.HARD_LINK | true
+        FetchingCacheServiceProperties.MaterializationStrategy.REFLINK   | false
+    }
+
+    def "Evict resources by size and age"() {
+        setup:
+        FetchingCacheServiceProperties properties = new FetchingCacheServiceProperties()
+        properties.setMaxSize(maxSize)
+        properties.setMaxAge(maxAge)
+        cache = new FetchingCacheServiceImpl(
+            resourceLoader,
+            cacheArguments,
+            fileLockFactory,
+            fetchingCacheServiceCleanUpTaskExecutor,
+            properties
+        )
+        long now = System.currentTimeMillis()
+        File oldest = createCachedResourceVersion("oldest", now - 30_000)
+        File older = createCachedResourceVersion("older", now - 20_000)
+        File newest = createCachedResourceVersion("newest", now - 10_000)
+
+        when:
+        cache.evictResourceVersions()
+
+        then:
+        oldest.exists() == oldestKept
+        older.exists() == olderKept
+        newest.exists()
+
+        where:
+        maxSize | maxAge | oldestKept | olderKept
+        0       | 0      | true       | true
+        300     | 0      | true       | true
+        200     | 0      | false      | true
+        150     | 0      | false      | false
+        0       | 25_000 | false      | true
+        250     | 15_000 | false      | false
+    }
+
+    def "Eviction is scheduled after fetching resources when bounded"() {
+        setup:
+        FetchingCacheServiceProperties properties = new FetchingCacheServiceProperties()
+        properties.setMaxSize(1)
+        cache = new FetchingCacheServiceImpl(
+            resourceLoader,
+            cacheArguments,
+            fileLockFactory,
+            fetchingCacheServiceCleanUpTaskExecutor,
+            properties
+        )
+        File targetFile = new File(temporaryFolder.getRoot(), "target")
+        File cachedFile = cache.getCacheResourceVersionDataFile(cache.getResourceCacheId(uri), DEFAULT_RESOURCE_LAST_MODIFIED_TS)
+        PollingConditions conditions = new PollingConditions(timeout: 5)
+
+        when:
+        cache.get(uri, targetFile)
+
+        then:
+        1 * resourceLoader.getResource(_ as String) >> resource
+        1 * resource.exists() >> true
+        1 * resource.lastModified() >> DEFAULT_RESOURCE_LAST_MODIFIED_TS
+        1 * resource.getInputStream() >> new ByteArrayInputStream("example file contents\n".getBytes(StandardCharsets.UTF_8))
+        targetFile.exists()
+        conditions.eventually {
+            assert !cachedFile.exists()
+        }
+    }
+
+    def "Trust the latest version of resources for the metadata TTL"() {
+        setup:
+        FetchingCacheServiceProperties properties = new FetchingCacheServiceProperties()
+        properties.setMetadataTtl(60_000)
+        cache = new FetchingCacheServiceImpl(
+            resourceLoader,
+            cacheArguments,
+            fileLockFactory,
+            fetchingCacheServiceCleanUpTaskExecutor,
+            properties
+        )
+        String fileContents = "example file contents\n"
+        File targetFile = new File(temporaryFolder.getRoot(), "target")
+        File targetFile2 = new File(temporaryFolder.getRoot(), "target2")
+        File latestVersionFile = cache.getCacheResourceLatestVersionFile(cache.getResourceCacheId(uri))
+
+        when:
+        cache.get(uri, targetFile)
+
+        then:
+        1 * resourceLoader.getResource(_ as String) >> resource
+        1 * resource.exists() >> true
+        1 * resource.lastModified() >> DEFAULT_RESOURCE_LAST_MODIFIED_TS
+        1 * resource.getInputStream() >> new ByteArrayInputStream(fileContents.getBytes(StandardCharsets.UTF_8))
+        targetFile.getText(StandardCharsets.UTF_8.toString()) == fileContents
+        latestVersionFile.getText(StandardCharsets.UTF_8.toString()) == Long.toString(DEFAULT_RESOURCE_LAST_MODIFIED_TS)
+
+        when: "The version was validated recently"
+        cache.get(uri, targetFile2)
+
+        then: "The remote resource isn't looked up"
+        0 * resourceLoader.getResource(_ as String)
+        targetFile2.getText(StandardCharsets.UTF_8.toString()) == fileContents
+
+        when: "The TTL expired"
+        latestVersionFile.setLastModified(System.currentTimeMillis() - 120_000)
+        cache.get(uri, targetFile2)
+
+        then: "The remote resource is looked up again"
+        1 * resourceLoader.getResource(_ as String) >> resource
+        1 * resource.exists() >> true
+        1 * resource.lastModified() >> DEFAULT_RESOURCE_LAST_MODIFIED_TS
+        0 * resource.getInputStream()
+        targetFile2.getText(StandardCharsets.UTF_8.toString()) == fileContents
+        System.currentTimeMillis() - latestVersionFile.lastModified() < 60_000
+    }
+
+    private File createCachedResourceVersion(final String name, final long lastUsed) {
+        String resourceCacheId = cache.getResourceCacheId(new URI("https://my-server.com/" + name))
+        cache.getCacheResourceVersionDir(resourceCacheId, DEFAULT_RESOURCE_LAST_MODIFIED_TS).mkdirs()
+        File dataFile = cache.getCacheResourceVersionDataFile(resourceCacheId, DEFAULT_RESOURCE_LAST_MODIFIED_TS)
+        dataFile.bytes = new byte[100]
+        File lockFile = cache.getCacheResourceVersionLockFile(resourceCacheId, DEFAULT_RESOURCE_LAST_MODIFIED_TS)
+        lockFile.createNewFile()
+        lockFile.setLastModified(lastUsed)
+        return dataFile
+    }
+
     def "Construct: fail to create cache dir"() {
         setup:
         ArgumentDelegates.CacheArguments badCacheArguments = Mock()
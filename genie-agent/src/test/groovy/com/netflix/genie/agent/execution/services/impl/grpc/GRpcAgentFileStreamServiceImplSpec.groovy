@@ -19,6 +19,7 @@ package com.netflix.genie.agent.execution.services.impl.grpc
 
 import com.google.common.collect.Maps
 import com.netflix.genie.agent.execution.services.AgentFileStreamService
+import com.netflix.genie.agent.properties.FileStreamServiceProperties
 import com.netflix.genie.common.internal.dtos.DirectoryManifest
 import com.netflix.genie.common.internal.dtos.v4.converters.JobDirectoryManifestProtoConverter
 import com.netflix.genie.common.internal.exceptions.checked.GenieConversionException
@@ -29,6 +30,7 @@ import com.netflix.genie.proto.FileStreamServiceGrpc
 import com.netflix.genie.proto.ServerAckMessage
 import com.netflix.genie.proto.ServerControlMessage
 import com.netflix.genie.proto.ServerFileRequestMessage
+import com.netflix.genie.proto.ServerManifestResyncRequestMessage
 import io.grpc.stub.StreamObserver
 import io.grpc.testing.GrpcServerRule
 import org.assertj.core.util.Lists
@@ -74,7 +76,8 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
             client,
             taskScheduler,
             converter,
-            jobDirectoryManifestService
+            jobDirectoryManifestService,
+            new FileStreamServiceProperties()
         )
     }
 
@@ -138,7 +141,7 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
 
         then: "A sync channel is open and a manifest is transmitted"
         1 * jobDirectoryManifestService.getDirectoryManifest(temporaryFolder.getRoot().toPath()) >> manifest
-        1 * converter.manifestToProtoMessage(jobId, manifest) >> manifestMessage
+        1 * converter.manifestToProtoMessage(jobId, manifest, 1L) >> manifestMessage
         1 == remoteService.activeSyncStreams.size()
         1 == remoteService.manifestMessageReceived.size()
         manifestMessage == remoteService.manifestMessageReceived.get(0)
@@ -148,7 +151,7 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
 
         then: "Handle manifest creation exception"
         1 * jobDirectoryManifestService.getDirectoryManifest(temporaryFolder.getRoot().toPath()) >> manifest
-        1 * converter.manifestToProtoMessage(jobId, manifest) >> { throw new IOException("...") }
+        1 * converter.manifestDeltaToProtoMessage(jobId, manifest, manifest, 2L) >> { throw new IOException("...") }
         1 == remoteService.activeSyncStreams.size()
 
         when:
@@ -156,7 +159,7 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
 
         then: "Handle manifest message conversion exception"
         1 * jobDirectoryManifestService.getDirectoryManifest(temporaryFolder.getRoot().toPath()) >> manifest
-        1 * converter.manifestToProtoMessage(jobId, manifest) >> {
+        1 * converter.manifestDeltaToProtoMessage(jobId, manifest, manifest, 2L) >> {
             throw new GenieConversionException("...")
         }
         1 == remoteService.activeSyncStreams.size()
@@ -166,7 +169,7 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
 
         then: "Another manifest is transmitted over the existing sync channel"
         1 * jobDirectoryManifestService.getDirectoryManifest(temporaryFolder.getRoot().toPath()) >> manifest
-        1 * converter.manifestToProtoMessage(jobId, manifest) >> manifestMessage
+        1 * converter.manifestDeltaToProtoMessage(jobId, manifest, manifest, 2L) >> manifestMessage
         1 == remoteService.activeSyncStreams.size()
         2 == remoteService.manifestMessageReceived.size()
         manifestMessage == remoteService.manifestMessageReceived.get(1)
@@ -177,7 +180,7 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
         then:
         1 * this.jobDirectoryManifestService.invalidateCachedDirectoryManifest(temporaryFolder.getRoot().toPath())
         1 * jobDirectoryManifestService.getDirectoryManifest(temporaryFolder.getRoot().toPath()) >> manifest
-        1 * converter.manifestToProtoMessage(jobId, manifest) >> manifestMessage
+        1 * converter.manifestDeltaToProtoMessage(jobId, manifest, manifest, 3L) >> manifestMessage
         1 == remoteService.activeSyncStreams.size()
         3 == remoteService.manifestMessageReceived.size()
         manifestMessage == remoteService.manifestMessageReceived.get(2)
@@ -188,7 +191,7 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
 
         then:
         1 * jobDirectoryManifestService.getDirectoryManifest(temporaryFolder.getRoot().toPath()) >> manifest
-        1 * converter.manifestToProtoMessage(jobId, manifest) >> manifestMessage
+        1 * converter./manifest.*ToProtoMessage/(*_) >> manifestMessage
 
         when:
         agentFileStreamService.stop()
@@ -200,6 +203,54 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
         1 == remoteService.erroredSyncStreams.size()
     }
 
+    def "Resend the complete manifest when the server asks for it"() {
+
+        setup:
+        Runnable runnableCapture
+        AgentManifestMessage manifestMessage = AgentManifestMessage.getDefaultInstance()
+
+        when:
+        agentFileStreamService.start(jobId, temporaryFolder.getRoot().toPath())
+
+        then:
+        1 * this.taskScheduler.schedule(_ as Runnable, _ as Trigger) >> {
+            args ->
+                runnableCapture = args[0] as Runnable
+                return scheduledTask
+        }
+        runnableCapture != null
+
+        when:
+        runnableCapture.run()
+        runnableCapture.run()
+
+        then: "A complete manifest is followed by a delta"
+        2 * jobDirectoryManifestService.getDirectoryManifest(temporaryFolder.getRoot().toPath()) >> manifest
+        1 * converter.manifestToProtoMessage(jobId, manifest, 1L) >> manifestMessage
+        1 * converter.manifestDeltaToProtoMessage(jobId, manifest, manifest, 2L) >> manifestMessage
+        2 == remoteService.manifestMessageReceived.size()
+
+        when: "The server asks for a resync"
+        remoteService.activeSyncStreams.entrySet().iterator().next().getValue().onNext(
+            ServerControlMessage.newBuilder()
+                .setServerManifestResyncRequest(ServerManifestResyncRequestMessage.getDefaultInstance())
+                .build()
+        )
+        runnableCapture.run()
+
+        then: "The next manifest is complete"
+        1 * jobDirectoryManifestService.getDirectoryManifest(temporaryFolder.getRoot().toPath()) >> manifest
+        1 * converter.manifestToProtoMessage(jobId, manifest, 3L) >> manifestMessage
+        0 * converter.manifestDeltaToProtoMessage(_, _, _, _)
+        3 == remoteService.manifestMessageReceived.size()
+
+        when:
+        agentFileStreamService.stop()
+
+        then:
+        1 * scheduledTask.cancel(false)
+    }
+
     def "Reconnect after stream closed from server"() {
 
         setup:
@@ -222,7 +273,7 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
 
         then: "A sync channel is open and a manifest is transmitted"
         1 * jobDirectoryManifestService.getDirectoryManifest(temporaryFolder.getRoot().toPath()) >> manifest
-        1 * converter.manifestToProtoMessage(jobId, manifest) >> manifestMessage
+        1 * converter.manifestToProtoMessage(jobId, manifest, 1L) >> manifestMessage
         1 == remoteService.activeSyncStreams.size()
         1 == remoteService.manifestMessageReceived.size()
         manifestMessage == remoteService.manifestMessageReceived.get(0)
@@ -271,7 +322,7 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
 
         then: "A sync channel is open and a manifest is transmitted"
         1 * jobDirectoryManifestService.getDirectoryManifest(temporaryFolder.getRoot().toPath()) >> manifest
-        1 * converter.manifestToProtoMessage(jobId, manifest) >> manifestMessage
+        1 * converter.manifestToProtoMessage(jobId, manifest, 1L) >> manifestMessage
         1 == remoteService.activeSyncStreams.size()
         1 == remoteService.manifestMessageReceived.size()
         manifestMessage == remoteService.manifestMessageReceived.get(0)
@@ -345,7 +396,7 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
         1 == remoteService.fileMessageReceived.size()
 
         when: "More files are requested than the service is allowed to stream concurrently"
-        for (int i = 0; i < GRpcAgentFileStreamServiceImpl.MAX_CONCURRENT_TRANSMIT_STREAMS; i++) {
+        for (int i = 0; i < new FileStreamServiceProperties().getMaxConcurrentTransmitStreams(); i++) {
             observer.onNext(
                 ServerControlMessage.newBuilder()
                     .setServerFileRequest(
@@ -424,6 +475,88 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
         1 == remoteService.completedSyncStreams.size()
     }
 
+    def "Transmit a file with several chunks in flight"() {
+        setup:
+        File file = temporaryFolder.newFile("file.txt")
+        file.write("0123456789" * 13)
+        def properties = new FileStreamServiceProperties()
+        properties.setDataChunkMaxSize(10)
+        properties.setMaxChunksInFlight(2)
+        agentFileStreamService = new GRpcAgentFileStreamServiceImpl(
+            client,
+            taskScheduler,
+            converter,
+            jobDirectoryManifestService,
+            properties
+        )
+        Runnable runnableCapture
+
+        when:
+        agentFileStreamService.start(jobId, temporaryFolder.getRoot().toPath())
+
+        then:
+        1 * this.taskScheduler.schedule(_ as Runnable, _ as Trigger) >> {
+            args ->
+                runnableCapture = args[0] as Runnable
+                return scheduledTask
+        }
+
+        when:
+        runnableCapture.run()
+
+        then:
+        1 * jobDirectoryManifestService.getDirectoryManifest(temporaryFolder.getRoot().toPath()) >> manifest
+        1 * converter.manifestToProtoMessage(jobId, manifest, 1L) >> AgentManifestMessage.getDefaultInstance()
+
+        when: "A file range spanning several chunks is requested"
+        remoteService.activeSyncStreams.values().iterator().next().onNext(
+            ServerControlMessage.newBuilder()
+                .setServerFileRequest(
+                    ServerFileRequestMessage.newBuilder()
+                        .setRelativePath("file.txt")
+                        .setStreamId(UUID.randomUUID().toString())
+                        .setStartOffset(5)
+                        .setEndOffset(52)
+                        .build()
+                )
+                .build()
+        )
+        def ackObserver = remoteService.activeTransmitStreams.values().iterator().next()
+
+        then: "The window is filled without waiting for acknowledgements"
+        remoteService.fileMessageReceived*.getOffset() == [5L, 15L]
+
+        when: "The first chunk is acknowledged"
+        ackObserver.onNext(ServerAckMessage.newBuilder().setAcknowledgedOffset(15).build())
+
+        then:
+        remoteService.fileMessageReceived*.getOffset() == [5L, 15L, 25L]
+
+        when: "Acknowledgements are cumulative"
+        ackObserver.onNext(ServerAckMessage.newBuilder().setAcknowledgedOffset(35).build())
+
+        then: "The last chunk is cut at the end of the range"
+        remoteService.fileMessageReceived*.getOffset() == [5L, 15L, 25L, 35L, 45L]
+        remoteService.fileMessageReceived.last().getData().size() == 7
+        remoteService.fileMessageReceived*.getData().inject { a, b -> a.concat(b) }.toStringUtf8() ==
+            ("0123456789" * 13).substring(5, 52)
+        1 == remoteService.activeTransmitStreams.size()
+
+        when: "A server which doesn't report offsets acknowledges chunks one by one"
+        ackObserver.onNext(ServerAckMessage.getDefaultInstance())
+
+        then:
+        1 == remoteService.activeTransmitStreams.size()
+
+        when:
+        ackObserver.onNext(ServerAckMessage.getDefaultInstance())
+
+        then: "The transfer completes once everything is acknowledged"
+        0 == remoteService.activeTransmitStreams.size()
+        1 == remoteService.completedTransmitStreams.size()
+        5 == remoteService.fileMessageReceived.size()
+    }
+
     class RemoteService extends FileStreamServiceGrpc.FileStreamServiceImplBase {
 
         Map<StreamObserver<AgentManifestMessage>, StreamObserver<ServerControlMessage>> activeSyncStreams = Maps.newHashMap()
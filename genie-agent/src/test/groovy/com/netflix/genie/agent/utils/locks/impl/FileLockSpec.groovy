@@ -41,6 +41,27 @@ class FileLockSpec extends Specification {
         lock != null
     }
 
+    def "Shared lock can be acquired and released"() {
+        setup:
+        File file = temporaryFolder.newFile()
+        FileLock sharedLock = new FileLock(file, true)
+
+        when:
+        sharedLock.lock()
+        sharedLock.close()
+
+        then:
+        noExceptionThrown()
+
+        when: "The file can be locked exclusively once released"
+        FileLock exclusiveLock = new FileLock(file)
+        exclusiveLock.lock()
+        exclusiveLock.close()
+
+        then:
+        noExceptionThrown()
+    }
+
     def "Throws exception for bad file"() {
         when:
         new FileLock(null)
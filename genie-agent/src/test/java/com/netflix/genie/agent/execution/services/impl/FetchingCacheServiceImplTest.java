@@ -133,12 +133,15 @@ public class FetchingCacheServiceImplTest {
             return null;
         }).when(resourceLock).close();
 
-        //Mock locking factory to use the reentrant lock backed lock
+        //Mock locking factory to use the reentrant lock backed lock, for shared locks too
         final FileLockFactory fileLockFactory = Mockito.mock(FileLockFactory.class);
 
         Mockito.when(
             fileLockFactory.getLock(Mockito.any())
         ).thenReturn(resourceLock);
+        Mockito.when(
+            fileLockFactory.getSharedLock(Mockito.any())
+        ).thenReturn(resourceLock);
 
         final ResourceLoader resourceLoader2 = Mockito.mock(ResourceLoader.class);
         final Resource resource2 = Mockito.mock(Resource.class);
@@ -265,12 +268,15 @@ public class FetchingCacheServiceImplTest {
             return null;
         }).when(resourceLock).close();
 
-        //Mock locking facrory to use the reentrant lock backed lock
+        //Mock locking facrory to use the reentrant lock backed lock, for shared locks too
         final FileLockFactory fileLockFactory = Mockito.mock(FileLockFactory.class);
 
         Mockito.when(
             fileLockFactory.getLock(Mockito.any())
         ).thenReturn(resourceLock);
+        Mockito.when(
+            fileLockFactory.getSharedLock(Mockito.any())
+        ).thenReturn(resourceLock);
 
         final ResourceLoader resourceLoader2 = Mockito.mock(ResourceLoader.class);
         final Resource resource2 = Mockito.mock(Resource.class);
@@ -423,12 +429,15 @@ public class FetchingCacheServiceImplTest {
             return null;
         }).when(resourceLock).close();
 
-        //Mock locking factory to use the reentrant lock backed lock
+        //Mock locking factory to use the reentrant lock backed lock, for shared locks too
         final FileLockFactory fileLockFactory = Mockito.mock(FileLockFactory.class);
 
         Mockito.when(
             fileLockFactory.getLock(Mockito.any())
         ).thenReturn(resourceLock);
+        Mockito.when(
+            fileLockFactory.getSharedLock(Mockito.any())
+        ).thenReturn(resourceLock);
 
         //Latch to represent that download was started
         final CountDownLatch downloadBegin = new CountDownLatch(1);
@@ -572,12 +581,15 @@ public class FetchingCacheServiceImplTest {
             return null;
         }).when(resourceLock).close();
 
-        //Mock locking factory to use the reentrant lock backed lock
+        //Mock locking factory to use the reentrant lock backed lock, for shared locks too
         final FileLockFactory fileLockFactory = Mockito.mock(FileLockFactory.class);
 
         Mockito.when(
             fileLockFactory.getLock(Mockito.any())
         ).thenReturn(resourceLock);
+        Mockito.when(
+            fileLockFactory.getSharedLock(Mockito.any())
+        ).thenReturn(resourceLock);
 
         //Set up first cache
         Mockito.when(
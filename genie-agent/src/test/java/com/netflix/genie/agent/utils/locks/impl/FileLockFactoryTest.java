@@ -61,4 +61,17 @@ public class FileLockFactoryTest {
             fileLockFactory.getLock(temporaryFolder.newFile()) instanceof FileLock
         );
     }
+
+    /**
+     * Make sure getSharedLock returns a lock of the right type.
+     *
+     * @throws IOException   when the file is bad
+     * @throws LockException when there is a problem getting lock on the file
+     */
+    @Test
+    public void canGetSharedLock() throws IOException, LockException {
+        Assert.assertTrue(
+            fileLockFactory.getSharedLock(temporaryFolder.newFile()) instanceof FileLock
+        );
+    }
 }
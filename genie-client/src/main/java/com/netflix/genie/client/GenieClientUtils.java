@@ -24,6 +24,7 @@ import com.netflix.genie.client.configs.GenieNetworkConfiguration;
 import com.netflix.genie.client.exceptions.GenieClientException;
 import com.netflix.genie.client.interceptors.ResponseMappingInterceptor;
 import com.netflix.genie.common.external.util.GenieObjectMapper;
+import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import org.apache.commons.lang3.StringUtils;
@@ -36,6 +37,7 @@ import javax.validation.constraints.NotBlank;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -48,6 +50,7 @@ final class GenieClientUtils {
 
     static final String LOCATION_HEADER = "location";
     private static final String SLASH = "/";
+    private static final String CURSOR_PARAMETER = "cursor";
 
     /**
      * Utility class doesn't need a public constructor.
@@ -174,4 +177,26 @@ final class GenieClientUtils {
         }
         return searchList;
     }
+
+    /**
+     * Given the body of a response from a Genie search API using cursor pagination get the cursor of the next page
+     * from the {@literal next} link.
+     *
+     * @param body The response JSON from the server
+     * @return The cursor of the next page or {@link Optional#empty()} if this was the last page
+     */
+    static Optional<String> parseNextCursor(@Nullable final JsonNode body) {
+        if (body == null) {
+            return Optional.empty();
+        }
+        final JsonNode href = body.path("_links").path("next").path("href");
+        if (!href.isTextual()) {
+            return Optional.empty();
+        }
+        final HttpUrl nextUrl = HttpUrl.parse(href.asText());
+        if (nextUrl == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(nextUrl.queryParameter(CURSOR_PARAMETER)).filter(StringUtils::isNotBlank);
+    }
 }
@@ -41,6 +41,7 @@ import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import okio.BufferedSink;
 import org.apache.commons.lang3.StringUtils;
+import retrofit2.Response;
 import retrofit2.Retrofit;
 
 import javax.annotation.Nullable;
@@ -330,6 +331,85 @@ public class JobClient {
         );
     }
 
+    /**
+     * Method to get jobs from Genie for the query parameters specified, newest first, by following the server's
+     * cursors one page at a time. Unlike offset based paging the cost of each page doesn't grow the further into the
+     * results it is so this is the preferred way to walk through large numbers of jobs.
+     *
+     * @param id               id for job
+     * @param name             name of job (can be a SQL-style pattern such as HIVE%)
+     * @param user             user who submitted job
+     * @param statuses         statuses of jobs to find
+     * @param tags             tags for the job
+     * @param clusterName      the name of the cluster
+     * @param clusterId        the id of the cluster
+     * @param commandName      the name of the command run by the job
+     * @param commandId        the id of the command run by the job
+     * @param minStarted       The time which the job had to start after in order to be return (inclusive)
+     * @param maxStarted       The time which the job had to start before in order to be returned (exclusive)
+     * @param minFinished      The time which the job had to finish after in order to be return (inclusive)
+     * @param maxFinished      The time which the job had to finish before in order to be returned (exclusive)
+     * @param grouping         The grouping the job should be a member of
+     * @param groupingInstance The grouping instance the job should be a member of
+     * @param pageSize         The number of jobs to request per page
+     * @param maxResults       The maximum number of jobs to return in total
+     * @return A list of jobs.
+     * @throws GenieClientException If the response received is not 2xx.
+     * @throws IOException          For Network and other IO issues.
+     */
+    public List<JobSearchResult> getJobs(
+        @Nullable final String id,
+        @Nullable final String name,
+        @Nullable final String user,
+        @Nullable final Set<String> statuses,
+        @Nullable final Set<String> tags,
+        @Nullable final String clusterName,
+        @Nullable final String clusterId,
+        @Nullable final String commandName,
+        @Nullable final String commandId,
+        @Nullable final Long minStarted,
+        @Nullable final Long maxStarted,
+        @Nullable final Long minFinished,
+        @Nullable final Long maxFinished,
+        @Nullable final String grouping,
+        @Nullable final String groupingInstance,
+        final int pageSize,
+        final int maxResults
+    ) throws IOException, GenieClientException {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1.");
+        }
+        final List<JobSearchResult> jobs = new ArrayList<>();
+        // An empty cursor requests the first page
+        String cursor = "";
+        while (cursor != null && jobs.size() < maxResults) {
+            final Response<JsonNode> response = this.jobService.getJobsByCursor(
+                id,
+                name,
+                user,
+                statuses,
+                tags,
+                clusterName,
+                clusterId,
+                commandName,
+                commandId,
+                minStarted,
+                maxStarted,
+                minFinished,
+                maxFinished,
+                grouping,
+                groupingInstance,
+                cursor,
+                Math.min(pageSize, maxResults - jobs.size())
+            ).execute();
+            jobs.addAll(
+                GenieClientUtils.parseSearchResultsResponse(response, "jobSearchResultList", JobSearchResult.class)
+            );
+            cursor = GenieClientUtils.parseNextCursor(response.body()).orElse(null);
+        }
+        return jobs;
+    }
+
     /**
      * Method to get a job from Genie.
      *
@@ -115,6 +115,49 @@ public interface JobService {
         @Query("groupingInstance") String groupingInstance
     );
 
+    /**
+     * Method to get one page of jobs from Genie using cursor pagination.
+     *
+     * @param id               id for job
+     * @param name             name of job (can be a SQL-style pattern such as HIVE%)
+     * @param user             user who submitted job
+     * @param statuses         statuses of jobs to find
+     * @param tags             tags for the job
+     * @param clusterName      the name of the cluster
+     * @param clusterId        the id of the cluster
+     * @param commandName      the name of the command run by the job
+     * @param commandId        the id of the command run by the job
+     * @param minStarted       The time which the job had to start after in order to be return (inclusive)
+     * @param maxStarted       The time which the job had to start before in order to be returned (exclusive)
+     * @param minFinished      The time which the job had to finish after in order to be return (inclusive)
+     * @param maxFinished      The time which the job had to finish before in order to be returned (exclusive)
+     * @param grouping         The grouping the job should be a member of
+     * @param groupingInstance The grouping instance the job should be a member of
+     * @param cursor           The cursor of the page to get. Empty for the first page.
+     * @param size             The maximum number of jobs in the page
+     * @return A callable object.
+     */
+    @GET(JOBS_URL_SUFFIX)
+    Call<JsonNode> getJobsByCursor(
+        @Query("id") String id,
+        @Query("name") String name,
+        @Query("user") String user,
+        @Query("status") Set<String> statuses,
+        @Query("tag") Set<String> tags,
+        @Query("clusterName") String clusterName,
+        @Query("clusterId") String clusterId,
+        @Query("commandName") String commandName,
+        @Query("commandId") String commandId,
+        @Query("minStarted") Long minStarted,
+        @Query("maxStarted") Long maxStarted,
+        @Query("minFinished") Long minFinished,
+        @Query("maxFinished") Long maxFinished,
+        @Query("grouping") String grouping,
+        @Query("groupingInstance") String groupingInstance,
+        @Query("cursor") String cursor,
+        @Query("size") int size
+    );
+
     /**
      * Method to fetch a single job from Genie.
      *
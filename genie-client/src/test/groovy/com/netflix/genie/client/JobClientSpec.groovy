@@ -67,4 +67,61 @@ class JobClientSpec extends Specification {
         "{\"_embedded\": {\"jobSearchResultList\": {}}}" | _
         "{\"_embedded\": {\"jobSearchResultList\": []}}" | _
     }
+
+    def "Can follow cursors to get jobs"() {
+        setup:
+        def server = new MockWebServer()
+        def job = "{\"id\": \"job%d\", \"name\": \"name\", \"user\": \"user\", \"status\": \"SUCCEEDED\"}"
+        server.enqueue(
+            new MockResponse().setBody(
+                "{\"_embedded\": {\"jobSearchResultList\": [" + String.format(job, 1) + ", " + String.format(job, 2)
+                    + "]}, \"_links\": {\"next\": {\"href\": \"http://genie/api/v3/jobs?cursor=abc&size=2\"}}}"
+            )
+        )
+        server.enqueue(
+            new MockResponse().setBody(
+                "{\"_embedded\": {\"jobSearchResultList\": [" + String.format(job, 3) + "]}, \"_links\": {}}"
+            )
+        )
+        server.start()
+        def retrofit = new Retrofit.Builder()
+            .baseUrl(server.url(""))
+            .client(new OkHttpClient.Builder().build())
+            .addConverterFactory(JacksonConverterFactory.create(GenieObjectMapper.getMapper()))
+            .build()
+        def jobClient = new JobClient(retrofit, 5)
+
+        when:
+        def jobs = jobClient.getJobs(
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            2,
+            10
+        )
+        def firstRequest = server.takeRequest()
+        def secondRequest = server.takeRequest()
+
+        then:
+        jobs*.id == ["job1", "job2", "job3"]
+        server.getRequestCount() == 2
+        firstRequest.getRequestUrl().queryParameter("cursor") == ""
+        firstRequest.getRequestUrl().queryParameter("size") == "2"
+        secondRequest.getRequestUrl().queryParameter("cursor") == "abc"
+
+        cleanup:
+        server.shutdown()
+    }
 }
@@ -21,19 +21,29 @@ import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.netflix.genie.common.internal.dtos.DirectoryManifest;
 import com.netflix.genie.common.internal.jobs.JobConstants;
+import com.netflix.genie.common.internal.properties.JobDirectoryManifestCacheProperties;
+import com.netflix.genie.common.internal.properties.MimeTypeDetectionProperties;
 import com.netflix.genie.common.internal.services.JobArchiveService;
 import com.netflix.genie.common.internal.services.JobArchiver;
 import com.netflix.genie.common.internal.services.JobDirectoryManifestCreatorService;
 import com.netflix.genie.common.internal.services.impl.FileSystemJobArchiverImpl;
 import com.netflix.genie.common.internal.services.impl.JobArchiveServiceImpl;
 import com.netflix.genie.common.internal.services.impl.JobDirectoryManifestCreatorServiceImpl;
+import com.netflix.genie.common.internal.util.DirectoryTreeWatcher;
+import com.netflix.genie.common.internal.util.MimeTypeDetector;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
@@ -47,6 +57,12 @@ import java.util.regex.Pattern;
  * @since 4.0.0
  */
 @Configuration
+@EnableConfigurationProperties(
+    {
+        JobDirectoryManifestCacheProperties.class,
+        MimeTypeDetectionProperties.class,
+    }
+)
 public class CommonServicesAutoConfiguration {
 
     /**
@@ -87,46 +103,109 @@ public class CommonServicesAutoConfiguration {
      * Provide a {@link JobDirectoryManifestCreatorService} if no override is defined.
      * The manifest produced by this service do not include checksum for entries and caches manifests recently created.
      *
-     * @param directoryManifestFactory the factory to produce the manifest if needed
-     * @param cache                    the cache to use
+     * @param directoryManifestFactory     the factory to produce the manifest if needed
+     * @param cache                        the cache to use
+     * @param cacheProperties              the manifest cache properties, also bounding the previous manifests kept
+     * @param directoryTreeWatcherProvider the watcher invalidating cached manifests, if enabled
      * @return a {@link JobDirectoryManifestCreatorService}
      */
     @Bean
     @ConditionalOnMissingBean(JobDirectoryManifestCreatorService.class)
     public JobDirectoryManifestCreatorServiceImpl jobDirectoryManifestCreatorService(
         final DirectoryManifest.Factory directoryManifestFactory,
-        @Qualifier("jobDirectoryManifestCache") final Cache<Path, DirectoryManifest> cache
+        @Qualifier("jobDirectoryManifestCache") final Cache<Path, DirectoryManifest> cache,
+        final JobDirectoryManifestCacheProperties cacheProperties,
+        final ObjectProvider<DirectoryTreeWatcher> directoryTreeWatcherProvider
     ) {
-        return new JobDirectoryManifestCreatorServiceImpl(directoryManifestFactory, cache, false);
+        return new JobDirectoryManifestCreatorServiceImpl(
+            directoryManifestFactory,
+            cache,
+            false,
+            directoryTreeWatcherProvider.getIfAvailable(),
+            cacheProperties.getMaxEntries()
+        );
     }
 
     /**
      * Provide a {@code Cache<Path, DirectoryManifest>} named "jobDirectoryManifestCache" if no override is defined.
+     * The cache is bounded by the total number of entries of the manifests it holds, so a few very large directories
+     * can't take over the heap. Directories of manifests removed from the cache stop being watched, if enabled.
      *
+     * @param cacheProperties              the manifest cache properties
+     * @param directoryTreeWatcherProvider the watcher of the cached manifests, if enabled
      * @return a {@link Cache}
      */
     @Bean(name = "jobDirectoryManifestCache")
     @ConditionalOnMissingBean(name = "jobDirectoryManifestCache")
-    public Cache<Path, DirectoryManifest> jobDirectoryManifestCache() {
-        // TODO hardcoded configuration values
+    public Cache<Path, DirectoryManifest> jobDirectoryManifestCache(
+        final JobDirectoryManifestCacheProperties cacheProperties,
+        @Qualifier("jobDirectoryManifestCacheWatcher") final ObjectProvider<DirectoryTreeWatcher>
+            directoryTreeWatcherProvider
+    ) {
+        // The watcher is looked up lazily as it depends on the cache itself
         return Caffeine.newBuilder()
-            .maximumSize(100)
-            .expireAfterWrite(30, TimeUnit.SECONDS)
+            .maximumWeight(cacheProperties.getMaxEntries())
+            .weigher(JobDirectoryManifestCreatorServiceImpl.MANIFEST_WEIGHER)
+            .expireAfterAccess(cacheProperties.getExpireAfterAccess(), TimeUnit.MILLISECONDS)
+            .expireAfterWrite(cacheProperties.getExpireAfterWrite(), TimeUnit.MILLISECONDS)
+            .writer(JobDirectoryManifestCreatorServiceImpl.unwatchingCacheWriter(
+                directoryTreeWatcherProvider::getIfAvailable
+            ))
             .build();
     }
 
+    /**
+     * Provide a {@link DirectoryTreeWatcher} named "jobDirectoryManifestCacheWatcher" invalidating the manifests in
+     * the "jobDirectoryManifestCache" when files are created or deleted, if enabled.
+     *
+     * @param cache           the manifest cache to invalidate entries of
+     * @param cacheProperties the manifest cache properties
+     * @return a {@link DirectoryTreeWatcher}
+     * @throws IOException if the watcher can't be created
+     */
+    @Bean(name = "jobDirectoryManifestCacheWatcher")
+    @ConditionalOnProperty(name = JobDirectoryManifestCacheProperties.WATCH_ENABLED_PROPERTY, havingValue = "true")
+    @ConditionalOnMissingBean(name = "jobDirectoryManifestCacheWatcher")
+    public DirectoryTreeWatcher jobDirectoryManifestCacheWatcher(
+        @Qualifier("jobDirectoryManifestCache") final Cache<Path, DirectoryManifest> cache,
+        final JobDirectoryManifestCacheProperties cacheProperties
+    ) throws IOException {
+        return new DirectoryTreeWatcher(cache::invalidate, cacheProperties.getMaxWatchedDirectories());
+    }
+
     /**
      * Provide a {@link DirectoryManifest.Factory} if no override is defined.
      *
      * @param directoryManifestFilter the filter used during manifest creation
+     * @param mimeTypeDetector        the detector of the mime type of files added to manifests
      * @return a directory manifest factory
      */
     @Bean
     @ConditionalOnMissingBean(DirectoryManifest.Factory.class)
     public DirectoryManifest.Factory directoryManifestFactory(
-        final DirectoryManifest.Filter directoryManifestFilter
+        final DirectoryManifest.Filter directoryManifestFilter,
+        final MimeTypeDetector mimeTypeDetector
+    ) {
+        return new DirectoryManifest.Factory(directoryManifestFilter, mimeTypeDetector);
+    }
+
+    /**
+     * Provide a {@link MimeTypeDetector} if no override is defined.
+     *
+     * @param mimeTypeDetectionProperties the mime type detection properties
+     * @param meterRegistryProvider       the meter registry, if any. Metrics go to the global registry otherwise
+     * @return a mime type detector
+     */
+    @Bean
+    @ConditionalOnMissingBean(MimeTypeDetector.class)
+    public MimeTypeDetector mimeTypeDetector(
+        final MimeTypeDetectionProperties mimeTypeDetectionProperties,
+        final ObjectProvider<MeterRegistry> meterRegistryProvider
     ) {
-        return new DirectoryManifest.Factory(directoryManifestFilter);
+        return new MimeTypeDetector(
+            mimeTypeDetectionProperties,
+            meterRegistryProvider.getIfAvailable(() -> Metrics.globalRegistry)
+        );
     }
 
     /**
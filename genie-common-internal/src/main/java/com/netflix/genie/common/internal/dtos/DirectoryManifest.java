@@ -21,41 +21,47 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.netflix.genie.common.internal.util.MimeTypeDetector;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.tika.config.TikaConfig;
-import org.apache.tika.exception.TikaException;
-import org.apache.tika.io.TikaInputStream;
-import org.apache.tika.metadata.Metadata;
-import org.apache.tika.mime.MediaType;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 
 import javax.annotation.Nullable;
 import javax.validation.constraints.Min;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystemLoopException;
-import java.nio.file.FileVisitOption;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.util.Collection;
-import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A manifest of all the files and subdirectories in a directory.
@@ -76,43 +82,6 @@ public class DirectoryManifest {
     private final int numDirectories;
     private final long totalSizeOfFiles;
 
-    private DirectoryManifest(
-        final Path directory,
-        final boolean calculateFileChecksums,
-        final Filter filter
-    ) throws IOException {
-        // Walk the directory
-        final ImmutableMap.Builder<String, ManifestEntry> builder = ImmutableMap.builder();
-        final ManifestVisitor manifestVisitor = new ManifestVisitor(
-            directory,
-            builder,
-            calculateFileChecksums,
-            filter
-        );
-        final EnumSet<FileVisitOption> options = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
-        Files.walkFileTree(directory, options, Integer.MAX_VALUE, manifestVisitor);
-        this.entries = builder.build();
-
-        final ImmutableSet.Builder<ManifestEntry> filesBuilder = ImmutableSet.builder();
-        final ImmutableSet.Builder<ManifestEntry> directoriesBuilder = ImmutableSet.builder();
-
-        long sizeOfFiles = 0L;
-        for (final ManifestEntry entry : this.entries.values()) {
-            if (entry.isDirectory()) {
-                directoriesBuilder.add(entry);
-            } else {
-                filesBuilder.add(entry);
-                sizeOfFiles += entry.getSize();
-            }
-        }
-
-        this.totalSizeOfFiles = sizeOfFiles;
-        this.directories = directoriesBuilder.build();
-        this.files = filesBuilder.build();
-        this.numDirectories = this.directories.size();
-        this.numFiles = this.files.size();
-    }
-
     /**
      * Create a manifest from an existing set of entries. Generally this should be used to regenerate an in memory
      * manifest instance from JSON.
@@ -273,12 +242,22 @@ public class DirectoryManifest {
 
     /**
      * Factory that encapsulates directory manifest creation.
+     * <p>
+     * Subdirectories, and batches of files within a directory, are walked in parallel. Factories share a single pool
+     * with as many threads as there are processors unless they are created with an explicit parallelism, in which
+     * case they own a pool which is shut down when the factory is closed. When the previous manifest of the same
+     * directory is provided, files whose size and modification time didn't change reuse its mime type and checksum
+     * instead of being read again, so the cost of refreshing a manifest depends on what changed rather than on the
+     * size of the directory.
      */
-    public static class Factory {
+    public static class Factory implements Closeable {
 
         private static final Filter ACCEPT_ALL_FILTER = new DirectoryManifest.Filter() {
         };
         private final Filter filter;
+        private final MimeTypeDetector mimeTypeDetector;
+        private final ForkJoinPool pool;
+        private final boolean ownsPool;
 
         /**
          * Constructor with no filters.
@@ -293,7 +272,36 @@ public class DirectoryManifest {
          * @param filter the manifest filter
          */
         public Factory(final Filter filter) {
+            this(filter, new MimeTypeDetector());
+        }
+
+        /**
+         * Constructor with filter and mime type detector. Walks directories on the pool shared by all factories, which
+         * has as many threads as there are processors.
+         *
+         * @param filter           the manifest filter
+         * @param mimeTypeDetector the detector of the mime type of files
+         */
+        public Factory(final Filter filter, final MimeTypeDetector mimeTypeDetector) {
+            this.filter = filter;
+            this.mimeTypeDetector = mimeTypeDetector;
+            this.pool = SharedPoolHolder.POOL;
+            this.ownsPool = false;
+        }
+
+        /**
+         * Constructor with filter, mime type detector and parallelism. The factory walks directories on a pool of its
+         * own, so it must be closed once no longer used.
+         *
+         * @param filter           the manifest filter
+         * @param mimeTypeDetector the detector of the mime type of files
+         * @param parallelism      the maximum number of threads walking directories at the same time
+         */
+        public Factory(final Filter filter, final MimeTypeDetector mimeTypeDetector, final int parallelism) {
             this.filter = filter;
+            this.mimeTypeDetector = mimeTypeDetector;
+            this.pool = new ForkJoinPool(parallelism);
+            this.ownsPool = true;
         }
 
         /**
@@ -308,99 +316,138 @@ public class DirectoryManifest {
             final Path directory,
             final boolean includeChecksum
         ) throws IOException {
-            return new DirectoryManifest(directory, includeChecksum, this.filter);
+            return this.getDirectoryManifest(directory, includeChecksum, null);
+        }
+
+        /**
+         * Create a manifest from the given job directory, reusing the mime type and checksum of the entries of a
+         * previous manifest of the same directory for files which have the same size and modification time.
+         *
+         * @param directory        The job directory to create a manifest from
+         * @param includeChecksum  Whether or not to calculate checksums for each file added to the manifest
+         * @param previousManifest A manifest previously created from the same directory or {@literal null}
+         * @return a directory manifest
+         * @throws IOException If there is an error reading the directory
+         */
+        public DirectoryManifest getDirectoryManifest(
+            final Path directory,
+            final boolean includeChecksum,
+            @Nullable final DirectoryManifest previousManifest
+        ) throws IOException {
+            final ManifestWalker manifestWalker = new ManifestWalker(
+                directory,
+                includeChecksum,
+                this.filter,
+                this.mimeTypeDetector,
+                previousManifest
+            );
+            return new DirectoryManifest(manifestWalker.walk(this.pool));
+        }
+
+        /**
+         * Shut down the pool of the factory if it owns one. Factories using the shared pool have nothing to release.
+         */
+        @Override
+        public void close() {
+            if (this.ownsPool) {
+                this.pool.shutdown();
+            }
+        }
+
+        /**
+         * Holder of the pool shared by factories, created the first time one is constructed. Its worker threads are
+         * daemon threads which terminate while idle.
+         */
+        private static final class SharedPoolHolder {
+            private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+            private SharedPoolHolder() {
+            }
         }
     }
 
+    /**
+     * Walks a directory like {@link Files#walkFileTree} following links, but visits subdirectories and batches of
+     * files in parallel.
+     */
     @Slf4j
-    private static class ManifestVisitor extends SimpleFileVisitor<Path> {
+    private static final class ManifestWalker {
+
+        private static final int FILES_PER_TASK = 64;
 
         private final Path root;
-        private final ImmutableMap.Builder<String, ManifestEntry> builder;
-        private final Metadata metadata;
-        private final TikaConfig tikaConfig;
         private final boolean checksumFiles;
         private final Filter filter;
+        private final MimeTypeDetector mimeTypeDetector;
+        private final DirectoryManifest previousManifest;
+        private final Map<String, ManifestEntry> entries = Maps.newConcurrentMap();
+        private final AtomicBoolean terminated = new AtomicBoolean(false);
 
-        ManifestVisitor(
+        private ManifestWalker(
             final Path root,
-            final ImmutableMap.Builder<String, ManifestEntry> builder,
             final boolean checksumFiles,
-            final Filter filter
-        ) throws IOException {
+            final Filter filter,
+            final MimeTypeDetector mimeTypeDetector,
+            @Nullable final DirectoryManifest previousManifest
+        ) {
             this.root = root;
-            this.builder = builder;
             this.checksumFiles = checksumFiles;
             this.filter = filter;
-            this.metadata = new Metadata();
+            this.mimeTypeDetector = mimeTypeDetector;
+            this.previousManifest = previousManifest;
+        }
+
+        private Set<ManifestEntry> walk(final ForkJoinPool pool) throws IOException {
+            final BasicFileAttributes attributes;
             try {
-                this.tikaConfig = new TikaConfig();
-            } catch (final TikaException te) {
-                log.error("Unable to create Tika Configuration due to error", te);
-                throw new IOException(te);
+                attributes = readAttributes(this.root);
+            } catch (final IOException ioe) {
+                this.visitFileFailed(this.root, ioe);
+                return ImmutableSet.of();
             }
-        }
 
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
-            final ManifestEntry entry = this.buildEntry(dir, attrs, true);
-            if (this.filter.includeDirectory(dir, attrs)) {
-                this.builder.put(entry.getPath(), entry);
-                log.debug("Created manifest entry for directory {}", entry);
-                if (this.filter.walkDirectory(dir, attrs)) {
-                    return FileVisitResult.CONTINUE;
+            try {
+                if (attributes.isDirectory()) {
+                    pool.invoke(new DirectoryTask(this.root, attributes, null));
+                } else {
+                    this.visitFile(this.root, attributes);
                 }
+            } catch (final UncheckedIOException uioe) {
+                throw uioe.getCause();
             }
-            log.debug("Skipping directory: {}", dir.toAbsolutePath());
-            return FileVisitResult.SKIP_SUBTREE;
-
+            return ImmutableSet.copyOf(this.entries.values());
         }
 
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
-            if (this.filter.includeFile(file, attrs)) {
-                final ManifestEntry entry = this.buildEntry(file, attrs, false);
+        private void visitFile(final Path file, final BasicFileAttributes attributes) throws IOException {
+            if (this.filter.includeFile(file, attributes)) {
+                final ManifestEntry entry = this.buildEntry(file, attributes, false, ImmutableList.of());
                 log.debug("Created manifest entry for file {}", entry);
-                this.builder.put(entry.getPath(), entry);
+                this.entries.put(entry.getPath(), entry);
             } else {
                 log.debug("Skipped manifest entry for file {}", file.toAbsolutePath());
             }
-
-            return FileVisitResult.CONTINUE;
         }
 
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public FileVisitResult visitFileFailed(final Path file, final IOException ioe) {
+        private void visitFileFailed(final Path file, final IOException ioe) {
             if (ioe instanceof FileSystemLoopException) {
                 log.warn("Detected file system cycle visiting while visiting {}. Skipping.", file);
-                return FileVisitResult.SKIP_SUBTREE;
             } else if (ioe instanceof AccessDeniedException) {
                 log.warn("Access denied for file {}. Skipping", file);
-                return FileVisitResult.SKIP_SUBTREE;
             } else if (ioe instanceof NoSuchFileException) {
                 log.warn("File or directory disappeared while visiting {}. Skipping", file);
-                return FileVisitResult.SKIP_SUBTREE;
             } else {
                 log.error("Got unknown error {} while visiting {}. Terminating visitor", ioe.getMessage(), file, ioe);
                 // TODO: Not sure if we should do this or skip subtree or just continue and ignore it?
-                return FileVisitResult.TERMINATE;
+                this.terminated.set(true);
             }
         }
 
         private ManifestEntry buildEntry(
             final Path entry,
             final BasicFileAttributes attributes,
-            final boolean directory
-        ) throws IOException {
+            final boolean directory,
+            final List<Path> childPaths
+        ) {
             final String path = this.root.relativize(entry).toString();
             final Path fileName = entry.getFileName();
             final String name = fileName == null
@@ -414,25 +461,27 @@ public class DirectoryManifest {
             String md5 = null;
             String mimeType = null;
             if (!directory) {
-                if (this.checksumFiles) {
-                    try (InputStream data = Files.newInputStream(entry, StandardOpenOption.READ)) {
-                        md5 = DigestUtils.md5Hex(data);
-                    } catch (final IOException ioe) {
-                        // For now MD5 isn't critical or required so we'll swallow errors here
-                        log.error("Unable to create MD5 for {} due to error", entry, ioe);
+                final ManifestEntry previousEntry = this.getUnchangedPreviousEntry(path, size, lastModifiedTime);
+                if (previousEntry != null) {
+                    md5 = previousEntry.md5;
+                    mimeType = previousEntry.mimeType;
+                } else {
+                    if (this.checksumFiles) {
+                        try (InputStream data = Files.newInputStream(entry, StandardOpenOption.READ)) {
+                            md5 = DigestUtils.md5Hex(data);
+                        } catch (final IOException ioe) {
+                            // For now MD5 isn't critical or required so we'll swallow errors here
+                            log.error("Unable to create MD5 for {} due to error", entry, ioe);
+                        }
                     }
-                }
 
-                mimeType = this.getMimeType(name, entry);
+                    mimeType = this.mimeTypeDetector.detect(entry, attributes);
+                }
             }
 
             final Set<String> children = Sets.newHashSet();
-            if (directory) {
-                try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(entry)) {
-                    for (final Path child : directoryStream) {
-                        children.add(this.root.relativize(child).toString());
-                    }
-                }
+            for (final Path child : childPaths) {
+                children.add(this.root.relativize(child).toString());
             }
 
             String parent = null;
@@ -456,21 +505,165 @@ public class DirectoryManifest {
             );
         }
 
-        private String getMimeType(final String name, final Path path) {
-            // TODO: Move configuration of special handling cases to external configuration for flexibility
-            //       probably a map of filename -> type or extension -> type or produced mime-type -> desired mime-type
-            switch (name) {
-                case "stdout":
-                case "stderr":
-                case "run":
-                    return MediaType.TEXT_PLAIN.toString();
-                default:
-                    try (TikaInputStream inputStream = TikaInputStream.get(path)) {
-                        return this.tikaConfig.getDetector().detect(inputStream, this.metadata).toString();
+        @Nullable
+        private ManifestEntry getUnchangedPreviousEntry(
+            final String path,
+            final long size,
+            final Instant lastModifiedTime
+        ) {
+            if (this.previousManifest == null) {
+                return null;
+            }
+            final ManifestEntry previousEntry = this.previousManifest.entries.get(path);
+            if (previousEntry == null
+                || previousEntry.isDirectory()
+                || previousEntry.getSize() != size
+                || !previousEntry.getLastModifiedTime().equals(lastModifiedTime)
+                || (this.checksumFiles && previousEntry.md5 == null)
+                || (!this.checksumFiles && previousEntry.md5 != null)) {
+                return null;
+            }
+            return previousEntry;
+        }
+
+        /**
+         * Read the attributes of a file following links, or of the link itself if it's broken.
+         */
+        private static BasicFileAttributes readAttributes(final Path file) throws IOException {
+            try {
+                return Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (final IOException ioe) {
+                return Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            }
+        }
+
+        /**
+         * Adds the entry of a directory and visits its files and subdirectories in parallel.
+         */
+        private final class DirectoryTask extends RecursiveAction {
+            private static final long serialVersionUID = 3370291834530412207L;
+            private final Path directory;
+            private final BasicFileAttributes attributes;
+            private final DirectoryTask parent;
+
+            private DirectoryTask(
+                final Path directory,
+                final BasicFileAttributes attributes,
+                @Nullable final DirectoryTask parent
+            ) {
+                this.directory = directory;
+                this.attributes = attributes;
+                this.parent = parent;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            protected void compute() {
+                if (terminated.get()) {
+                    return;
+                }
+                if (!filter.includeDirectory(this.directory, this.attributes)) {
+                    log.debug("Skipping directory: {}", this.directory.toAbsolutePath());
+                    return;
+                }
+
+                final List<Path> childPaths = Lists.newArrayList();
+                try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(this.directory)) {
+                    directoryStream.forEach(childPaths::add);
+                } catch (final IOException ioe) {
+                    visitFileFailed(this.directory, ioe);
+                    return;
+                } catch (final DirectoryIteratorException die) {
+                    visitFileFailed(this.directory, die.getCause());
+                    return;
+                }
+
+                final ManifestEntry entry = buildEntry(this.directory, this.attributes, true, childPaths);
+                entries.put(entry.getPath(), entry);
+                log.debug("Created manifest entry for directory {}", entry);
+                if (!filter.walkDirectory(this.directory, this.attributes)) {
+                    log.debug("Skipping directory: {}", this.directory.toAbsolutePath());
+                    return;
+                }
+
+                final List<RecursiveAction> subtasks = Lists.newArrayList();
+                List<Pair<Path, BasicFileAttributes>> files = Lists.newArrayList();
+                for (final Path child : childPaths) {
+                    final BasicFileAttributes childAttributes;
+                    try {
+                        childAttributes = readAttributes(child);
                     } catch (final IOException ioe) {
-                        log.error("Unable to detect mime type for {} due to error", path, ioe);
-                        return MediaType.OCTET_STREAM.toString();
+                        visitFileFailed(child, ioe);
+                        continue;
                     }
+                    if (!childAttributes.isDirectory()) {
+                        files.add(ImmutablePair.of(child, childAttributes));
+                        if (files.size() == FILES_PER_TASK) {
+                            subtasks.add(new FilesTask(files));
+                            files = Lists.newArrayList();
+                        }
+                    } else if (this.wouldLoop(child, childAttributes)) {
+                        visitFileFailed(child, new FileSystemLoopException(child.toString()));
+                    } else {
+                        subtasks.add(new DirectoryTask(child, childAttributes, this));
+                    }
+                }
+                if (!files.isEmpty()) {
+                    subtasks.add(new FilesTask(files));
+                }
+                invokeAll(subtasks);
+            }
+
+            private boolean wouldLoop(final Path child, final BasicFileAttributes childAttributes) {
+                final Object key = childAttributes.fileKey();
+                for (DirectoryTask ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+                    final Object ancestorKey = ancestor.attributes.fileKey();
+                    if (key != null && ancestorKey != null) {
+                        if (key.equals(ancestorKey)) {
+                            return true;
+                        }
+                    } else {
+                        try {
+                            if (Files.isSameFile(child, ancestor.directory)) {
+                                return true;
+                            }
+                        } catch (final IOException | SecurityException e) {
+                            // Can't tell, assume it's a different directory like the JDK walker does
+                        }
+                    }
+                }
+                return false;
+            }
+        }
+
+        /**
+         * Adds the entries of a batch of files of the same directory.
+         */
+        private final class FilesTask extends RecursiveAction {
+            private static final long serialVersionUID = 6028339460637711524L;
+            private final List<Pair<Path, BasicFileAttributes>> files;
+
+            private FilesTask(final List<Pair<Path, BasicFileAttributes>> files) {
+                this.files = files;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            protected void compute() {
+                for (final Pair<Path, BasicFileAttributes> file : this.files) {
+                    if (terminated.get()) {
+                        return;
+                    }
+                    try {
+                        visitFile(file.getLeft(), file.getRight());
+                    } catch (final IOException ioe) {
+                        throw new UncheckedIOException(ioe);
+                    }
+                }
             }
         }
     }
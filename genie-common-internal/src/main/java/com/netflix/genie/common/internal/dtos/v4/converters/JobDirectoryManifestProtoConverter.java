@@ -17,19 +17,41 @@
  */
 package com.netflix.genie.common.internal.dtos.v4.converters;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.protobuf.StringValue;
+import com.google.protobuf.Timestamp;
 import com.netflix.genie.common.internal.dtos.DirectoryManifest;
 import com.netflix.genie.common.internal.exceptions.checked.GenieConversionException;
 import com.netflix.genie.proto.AgentManifestMessage;
+import com.netflix.genie.proto.DirectoryManifestMessage;
+import com.netflix.genie.proto.ManifestDelta;
+import com.netflix.genie.proto.ManifestEntryMessage;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.validation.annotation.Validated;
 
 import javax.validation.constraints.NotBlank;
 import java.io.IOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Converts {@link DirectoryManifest} from/to {@link AgentManifestMessage} in order to transport manifests
  * over gRPC.
+ * <p>
+ * A message carries either a complete manifest or, to avoid resending thousands of unchanged entries, only the
+ * entries which changed since the previous message on the same stream.
+ * <p>
+ * Entries are encoded natively in protobuf. Rather than its full path each entry carries its name and a reference to
+ * the directory containing it so the long shared prefixes of deeply nested directories are only sent once. Manifests
+ * serialized to JSON by older agents can still be loaded.
  *
  * @author mprimi
  * @since 4.0.0
@@ -37,12 +59,14 @@ import java.io.IOException;
 @Validated
 public class JobDirectoryManifestProtoConverter {
 
+    private static final String PATH_SEPARATOR = "/";
+
     private final ObjectMapper objectMapper;
 
     /**
      * Constructor.
      *
-     * @param objectMapper an object mapper
+     * @param objectMapper an object mapper used to load manifests serialized to JSON by older agents
      */
     public JobDirectoryManifestProtoConverter(final ObjectMapper objectMapper) {
         this.objectMapper = objectMapper;
@@ -60,17 +84,69 @@ public class JobDirectoryManifestProtoConverter {
         @NotBlank final String claimedJobId,
         final DirectoryManifest manifest
     ) throws GenieConversionException {
-        final String manifestJsonString;
-        try {
-            // Leverage the existing manifest serialization to JSON rather than creating and using a protobuf schema.
-            manifestJsonString = objectMapper.writeValueAsString(manifest);
-        } catch (final JsonProcessingException e) {
-            throw new GenieConversionException("Failed to serialize manifest as JSON string", e);
+        return this.manifestToProtoMessage(claimedJobId, manifest, 0L);
+    }
+
+    /**
+     * Construct a {@link AgentManifestMessage} carrying the complete {@link DirectoryManifest} with the given sequence
+     * number.
+     *
+     * @param claimedJobId   the id of the job this file manifest belongs to
+     * @param manifest       the manifest
+     * @param sequenceNumber the number of this message on the stream
+     * @return a {@link AgentManifestMessage}
+     * @throws GenieConversionException if conversion fails
+     */
+    public AgentManifestMessage manifestToProtoMessage(
+        @NotBlank final String claimedJobId,
+        final DirectoryManifest manifest,
+        final long sequenceNumber
+    ) throws GenieConversionException {
+        return AgentManifestMessage.newBuilder()
+            .setJobId(claimedJobId)
+            .setManifest(
+                DirectoryManifestMessage.newBuilder().addAllEntries(toEntryMessages(getAllEntries(manifest)))
+            )
+            .setSequenceNumber(sequenceNumber)
+            .build();
+    }
+
+    /**
+     * Construct a {@link AgentManifestMessage} carrying only the entries of {@code manifest} which were added,
+     * modified or removed since {@code previousManifest}.
+     *
+     * @param claimedJobId     the id of the job this file manifest belongs to
+     * @param previousManifest the manifest sent in the message with the previous sequence number
+     * @param manifest         the current manifest
+     * @param sequenceNumber   the number of this message on the stream
+     * @return a {@link AgentManifestMessage}
+     * @throws GenieConversionException if conversion fails
+     */
+    public AgentManifestMessage manifestDeltaToProtoMessage(
+        @NotBlank final String claimedJobId,
+        final DirectoryManifest previousManifest,
+        final DirectoryManifest manifest,
+        final long sequenceNumber
+    ) throws GenieConversionException {
+        final List<DirectoryManifest.ManifestEntry> upsertedEntries = Lists.newArrayList();
+        for (final DirectoryManifest.ManifestEntry entry : getAllEntries(manifest)) {
+            final Optional<DirectoryManifest.ManifestEntry> previousEntry = previousManifest.getEntry(entry.getPath());
+            if (!previousEntry.isPresent() || !previousEntry.get().equals(entry)) {
+                upsertedEntries.add(entry);
+            }
+        }
+        final ManifestDelta.Builder deltaBuilder = ManifestDelta.newBuilder()
+            .addAllUpsertedEntries(toEntryMessages(upsertedEntries));
+        for (final DirectoryManifest.ManifestEntry previousEntry : getAllEntries(previousManifest)) {
+            if (!manifest.hasEntry(previousEntry.getPath())) {
+                deltaBuilder.addRemovedPaths(previousEntry.getPath());
+            }
         }
 
         return AgentManifestMessage.newBuilder()
             .setJobId(claimedJobId)
-            .setManifestJson(manifestJsonString)
+            .setSequenceNumber(sequenceNumber)
+            .setDelta(deltaBuilder)
             .build();
     }
 
@@ -82,10 +158,178 @@ public class JobDirectoryManifestProtoConverter {
      * @throws GenieConversionException if loading fails
      */
     public DirectoryManifest toManifest(final AgentManifestMessage message) throws GenieConversionException {
+        if (message.hasManifest()) {
+            return new DirectoryManifest(Sets.newHashSet(toEntries(message.getManifest().getEntriesList())));
+        }
         try {
             return objectMapper.readValue(message.getManifestJson(), DirectoryManifest.class);
         } catch (final IOException e) {
             throw new GenieConversionException("Failed to load manifest", e);
         }
     }
+
+    /**
+     * Apply the changes carried by a delta {@link AgentManifestMessage} to the manifest built from the message with
+     * the previous sequence number.
+     *
+     * @param previousManifest the manifest the delta is relative to
+     * @param message          the delta message
+     * @return a new {@link DirectoryManifest} with the changes applied
+     * @throws GenieConversionException if the message isn't a delta or an entry can't be loaded
+     */
+    public DirectoryManifest applyDelta(
+        final DirectoryManifest previousManifest,
+        final AgentManifestMessage message
+    ) throws GenieConversionException {
+        if (!message.hasDelta()) {
+            throw new GenieConversionException("Message does not contain a manifest delta");
+        }
+        final ManifestDelta delta = message.getDelta();
+        if (delta.getUpsertedEntriesCount() == 0
+            && delta.getUpsertedEntriesJsonCount() == 0
+            && delta.getRemovedPathsCount() == 0) {
+            return previousManifest;
+        }
+
+        final Map<String, DirectoryManifest.ManifestEntry> entries = Maps.newHashMap();
+        for (final DirectoryManifest.ManifestEntry entry : getAllEntries(previousManifest)) {
+            entries.put(entry.getPath(), entry);
+        }
+        delta.getRemovedPathsList().forEach(entries::remove);
+        for (final DirectoryManifest.ManifestEntry entry : toEntries(delta.getUpsertedEntriesList())) {
+            entries.put(entry.getPath(), entry);
+        }
+        try {
+            for (final String entryJson : delta.getUpsertedEntriesJsonList()) {
+                final DirectoryManifest.ManifestEntry entry = objectMapper.readValue(
+                    entryJson,
+                    DirectoryManifest.ManifestEntry.class
+                );
+                entries.put(entry.getPath(), entry);
+            }
+        } catch (final IOException e) {
+            throw new GenieConversionException("Failed to load manifest entry", e);
+        }
+        return new DirectoryManifest(Sets.newHashSet(entries.values()));
+    }
+
+    private static Set<DirectoryManifest.ManifestEntry> getAllEntries(final DirectoryManifest manifest) {
+        return Sets.union(manifest.getDirectories(), manifest.getFiles());
+    }
+
+    private static List<ManifestEntryMessage> toEntryMessages(
+        final Collection<DirectoryManifest.ManifestEntry> entries
+    ) {
+        // A path is always longer than the path of the directory containing it so this puts directories first
+        final List<DirectoryManifest.ManifestEntry> sortedEntries = Lists.newArrayList(entries);
+        sortedEntries.sort(Comparator.comparingInt(entry -> entry.getPath().length()));
+
+        final Map<String, Integer> directoryIndexes = Maps.newHashMap();
+        final List<ManifestEntryMessage> messages = Lists.newArrayListWithCapacity(sortedEntries.size());
+        for (int i = 0; i < sortedEntries.size(); i++) {
+            final DirectoryManifest.ManifestEntry entry = sortedEntries.get(i);
+            final String path = entry.getPath();
+            final ManifestEntryMessage.Builder builder = ManifestEntryMessage.newBuilder()
+                .setName(entry.getName())
+                .setLastModifiedTime(toTimestamp(entry.getLastModifiedTime()))
+                .setLastAccessTime(toTimestamp(entry.getLastAccessTime()))
+                .setCreationTime(toTimestamp(entry.getCreationTime()))
+                .setDirectory(entry.isDirectory())
+                .setSize(entry.getSize());
+
+            final String parent = entry.getParent().orElse(null);
+            final Integer parentIndex = parent == null ? null : directoryIndexes.get(parent);
+            if (parentIndex != null && joinPath(parent, entry.getName()).equals(path)) {
+                builder.setParentIndex(parentIndex + 1);
+            } else {
+                builder.setPath(path);
+                if (parent != null) {
+                    builder.setParent(StringValue.of(parent));
+                }
+            }
+            entry.getMd5().ifPresent(md5 -> builder.setMd5(StringValue.of(md5)));
+            entry.getMimeType().ifPresent(mimeType -> builder.setMimeType(StringValue.of(mimeType)));
+
+            final String childPrefix = joinPath(path, StringUtils.EMPTY);
+            for (final String child : entry.getChildren()) {
+                final String childName = StringUtils.removeStart(child, childPrefix);
+                if (child.startsWith(childPrefix)
+                    && !childName.isEmpty()
+                    && !childName.contains(PATH_SEPARATOR)) {
+                    builder.addChildNames(childName);
+                } else {
+                    builder.addChildPaths(child);
+                }
+            }
+
+            if (entry.isDirectory()) {
+                directoryIndexes.put(path, i);
+            }
+            messages.add(builder.build());
+        }
+        return messages;
+    }
+
+    private static List<DirectoryManifest.ManifestEntry> toEntries(
+        final List<ManifestEntryMessage> messages
+    ) throws GenieConversionException {
+        final String[] paths = new String[messages.size()];
+        final List<DirectoryManifest.ManifestEntry> entries = Lists.newArrayListWithCapacity(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            final ManifestEntryMessage message = messages.get(i);
+            final String path;
+            final String parent;
+            if (message.getParentIndex() > 0) {
+                final int parentIndex = message.getParentIndex() - 1;
+                if (parentIndex >= i) {
+                    throw new GenieConversionException(
+                        "Manifest entry " + i + " references a directory which doesn't precede it"
+                    );
+                }
+                parent = paths[parentIndex];
+                path = joinPath(parent, message.getName());
+            } else {
+                path = message.getPath();
+                parent = message.hasParent() ? message.getParent().getValue() : null;
+            }
+            paths[i] = path;
+
+            final Set<String> children = Sets.newHashSetWithExpectedSize(
+                message.getChildNamesCount() + message.getChildPathsCount()
+            );
+            for (final String childName : message.getChildNamesList()) {
+                children.add(joinPath(path, childName));
+            }
+            children.addAll(message.getChildPathsList());
+
+            entries.add(
+                new DirectoryManifest.ManifestEntry(
+                    path,
+                    message.getName(),
+                    toInstant(message.getLastModifiedTime()),
+                    toInstant(message.getLastAccessTime()),
+                    toInstant(message.getCreationTime()),
+                    message.getDirectory(),
+                    message.getSize(),
+                    message.hasMd5() ? message.getMd5().getValue() : null,
+                    message.hasMimeType() ? message.getMimeType().getValue() : null,
+                    parent,
+                    children
+                )
+            );
+        }
+        return entries;
+    }
+
+    private static String joinPath(final String directory, final String name) {
+        return directory.isEmpty() ? name : directory + PATH_SEPARATOR + name;
+    }
+
+    private static Timestamp toTimestamp(final Instant instant) {
+        return Timestamp.newBuilder().setSeconds(instant.getEpochSecond()).setNanos(instant.getNano()).build();
+    }
+
+    private static Instant toInstant(final Timestamp timestamp) {
+        return Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
+    }
 }
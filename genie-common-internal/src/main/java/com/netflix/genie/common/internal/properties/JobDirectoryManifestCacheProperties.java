@@ -0,0 +1,79 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.internal.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Properties of the cache of manifests of local job directories.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@ConfigurationProperties(prefix = JobDirectoryManifestCacheProperties.PROPERTY_PREFIX)
+@Getter
+@Setter
+@Validated
+public class JobDirectoryManifestCacheProperties {
+
+    /**
+     * The property prefix for all properties in this group.
+     */
+    public static final String PROPERTY_PREFIX = "genie.jobs.files.manifest-cache";
+
+    /**
+     * The property enabling the invalidation of cached manifests when files are created or deleted.
+     */
+    public static final String WATCH_ENABLED_PROPERTY = PROPERTY_PREFIX + ".watch-enabled";
+
+    /**
+     * The maximum number of entries (files and directories) across all the cached manifests. The last manifests of
+     * each directory, kept to build the next ones incrementally, are bounded by the same number.
+     */
+    @Min(value = 0, message = "The maximum number of entries can't be negative")
+    private long maxEntries = 100_000L;
+
+    /**
+     * How long (in milliseconds) a manifest stays cached after it was last used.
+     */
+    @Min(value = 0, message = "The expiration can't be negative")
+    private long expireAfterAccess = 10_000L;
+
+    /**
+     * How long (in milliseconds) a manifest stays cached after it was created, whether it's used or not.
+     */
+    @Min(value = 0, message = "The expiration can't be negative")
+    private long expireAfterWrite = 30_000L;
+
+    /**
+     * Whether cached manifests are invalidated as soon as a file or directory is created or deleted in the job
+     * directory. Allows a longer {@code expireAfterWrite}, which then only bounds how stale the size of files can be.
+     */
+    private boolean watchEnabled;
+
+    /**
+     * The maximum number of directories watched for changes across all the cached manifests.
+     */
+    @Min(value = 1, message = "At least one directory must be watched")
+    private int maxWatchedDirectories = 4_096;
+}
@@ -0,0 +1,77 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.internal.properties;
+
+import com.google.common.collect.Maps;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+import java.util.Map;
+
+/**
+ * Properties related to detecting the mime type of the files in job directories.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@ConfigurationProperties(prefix = MimeTypeDetectionProperties.PROPERTY_PREFIX)
+@Getter
+@Setter
+@Validated
+public class MimeTypeDetectionProperties {
+
+    /**
+     * The property prefix for all properties in this group.
+     */
+    public static final String PROPERTY_PREFIX = "genie.jobs.files.mime-types";
+
+    private static final String TEXT_PLAIN = "text/plain";
+
+    /**
+     * Mime types of files with the given exact names. Takes precedence over the extension.
+     */
+    private Map<String, String> fileNames = Maps.newHashMap();
+
+    /**
+     * Mime types of files with the given extensions (case insensitive, without the leading dot).
+     */
+    private Map<String, String> extensions = Maps.newHashMap();
+
+    /**
+     * The maximum number of mime types detected from the content of files kept in memory, keyed by path, size and
+     * modification time.
+     */
+    @Min(value = 0, message = "The cache size can't be negative")
+    private long cacheSize = 10_000L;
+
+    /**
+     * Constructor.
+     */
+    public MimeTypeDetectionProperties() {
+        this.fileNames.put("stdout", TEXT_PLAIN);
+        this.fileNames.put("stderr", TEXT_PLAIN);
+        this.fileNames.put("run", TEXT_PLAIN);
+        this.extensions.put("log", TEXT_PLAIN);
+        this.extensions.put("out", TEXT_PLAIN);
+        this.extensions.put("err", TEXT_PLAIN);
+        this.extensions.put("txt", TEXT_PLAIN);
+    }
+}
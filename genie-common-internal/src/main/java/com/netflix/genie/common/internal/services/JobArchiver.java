@@ -20,8 +20,11 @@ package com.netflix.genie.common.internal.services;
 import com.netflix.genie.common.internal.exceptions.checked.JobArchiveException;
 import org.springframework.core.io.WritableResource;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.nio.file.Path;
+import java.util.Collection;
 
 /**
  * Implementations of this interface should be able to a write job files to a {@link WritableResource} root location.
@@ -43,4 +46,49 @@ public interface JobArchiver {
      * @throws JobArchiveException If an exception happened during archival
      */
     boolean archiveDirectory(Path directory, URI target) throws JobArchiveException;
+
+    /**
+     * Attempt to archive the given {@code files}, located under {@code directory}, to the {@code target} preserving
+     * their path relative to {@code directory}. The content of each file should be read in full, only once, from the
+     * stream returned by {@code fileOpener} so the caller can process it (e.g. compute a checksum) while it's being
+     * archived. Implementations may read some files directly instead (e.g. large files they can archive faster or more
+     * reliably from the file itself), the caller then processes those separately. Files can be archived concurrently.
+     * <p>
+     * The default implementation doesn't support archiving individual files.
+     *
+     * @param directory  The directory the files belong to
+     * @param files      The files to archive
+     * @param target     The root of a writable location to archive to
+     * @param fileOpener The function to open the stream to read the content of each file from
+     * @return {@code false} if this implementation doesn't support archiving individual files or archiving to
+     * {@code target}. {@code true} if it does and the archival was successful
+     * @throws JobArchiveException If an exception happened during archival
+     */
+    default boolean archiveFiles(
+        final Path directory,
+        final Collection<Path> files,
+        final URI target,
+        final FileOpener fileOpener
+    ) throws JobArchiveException {
+        return false;
+    }
+
+    /**
+     * Opens the stream to read the content of a file to archive from.
+     *
+     * @author agent
+     * @since 4.0.0
+     */
+    @FunctionalInterface
+    interface FileOpener {
+
+        /**
+         * Open a file for reading.
+         *
+         * @param file The file to read
+         * @return The stream to read the content of the file from. Closed by the caller.
+         * @throws IOException If the file can't be opened
+         */
+        InputStream open(Path file) throws IOException;
+    }
 }
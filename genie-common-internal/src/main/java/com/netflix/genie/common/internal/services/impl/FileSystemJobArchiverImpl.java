@@ -22,6 +22,8 @@ import com.netflix.genie.common.internal.services.JobArchiver;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.file.CopyOption;
 import java.nio.file.FileVisitOption;
@@ -32,7 +34,10 @@ import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
 import java.util.EnumSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * An implementation of {@link JobArchiver} which attempts to copy the job directory somewhere else on the file
@@ -45,6 +50,7 @@ import java.util.EnumSet;
 public class FileSystemJobArchiverImpl implements JobArchiver {
 
     private static final String FILE_SCHEME = "file";
+    private static final int COPY_PARALLELISM = 4;
 
     /**
      * {@inheritDoc}
@@ -73,6 +79,75 @@ public class FileSystemJobArchiverImpl implements JobArchiver {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean archiveFiles(
+        final Path directory,
+        final Collection<Path> files,
+        final URI target,
+        final FileOpener fileOpener
+    ) throws JobArchiveException {
+        if (!target.getScheme().equalsIgnoreCase(FILE_SCHEME)) {
+            return false;
+        }
+
+        final String sourceString = directory.toString();
+        final String targetString = target.toString();
+        final Path targetDirectory = Paths.get(target);
+        final ForkJoinPool pool = new ForkJoinPool(COPY_PARALLELISM);
+        try {
+            log.debug(
+                "Attempting to archive {} files of job directory {} to {}",
+                files.size(),
+                sourceString,
+                targetString
+            );
+            pool.submit(
+                () -> files.parallelStream().forEach(
+                    file -> {
+                        try {
+                            copyFile(file, targetDirectory.resolve(directory.relativize(file).toString()), fileOpener);
+                        } catch (final IOException ioe) {
+                            throw new UncheckedIOException(ioe);
+                        }
+                    }
+                )
+            ).get();
+            log.debug("Successfully archived job directory {} to {}", sourceString, targetString);
+            return true;
+        } catch (final ExecutionException ee) {
+            throw new JobArchiveException("Unable to copy " + sourceString + " to " + targetString, ee.getCause());
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new JobArchiveException("Interrupted copying " + sourceString + " to " + targetString, ie);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void copyFile(
+        final Path file,
+        final Path targetFile,
+        final FileOpener fileOpener
+    ) throws IOException {
+        final Path targetParent = targetFile.getParent();
+        if (targetParent != null) {
+            Files.createDirectories(targetParent);
+        }
+        try (InputStream data = fileOpener.open(file)) {
+            Files.copy(data, targetFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        // Same attributes as a copy with COPY_ATTRIBUTES would preserve
+        Files.setLastModifiedTime(targetFile, Files.getLastModifiedTime(file));
+        try {
+            Files.setPosixFilePermissions(targetFile, Files.getPosixFilePermissions(file));
+        } catch (final UnsupportedOperationException uoe) {
+            log.debug("Unable to copy permissions of {} to {} on a non POSIX file system", file, targetFile);
+        }
+    }
+
     @Slf4j
     private static class JobDirectoryCopier extends SimpleFileVisitor<Path> {
 
@@ -18,22 +18,44 @@
 package com.netflix.genie.common.internal.services.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 import com.netflix.genie.common.external.util.GenieObjectMapper;
 import com.netflix.genie.common.internal.dtos.DirectoryManifest;
 import com.netflix.genie.common.internal.exceptions.checked.JobArchiveException;
 import com.netflix.genie.common.internal.services.JobArchiveService;
 import com.netflix.genie.common.internal.services.JobArchiver;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Default implementation of the {@link JobArchiveService}.
+ * <p>
+ * When one of the archivers supports archiving individual files, the checksum of each file is computed from the data
+ * read by the archiver, so most files are read only once, and the manifest is written and archived last. Files the
+ * archiver didn't read through the stream it was given (e.g. large files uploaded from the file) are read again.
+ * Otherwise the manifest, including checksums, is written first and the whole directory is archived after. Either way
+ * the whole directory tree is archived, the manifest filter only limits which files are listed in the manifest.
  *
  * @author tgianos
  * @since 4.0.0
@@ -65,29 +87,62 @@ public class JobArchiveServiceImpl implements JobArchiveService {
     public void archiveDirectory(final Path directory, final URI target) throws JobArchiveException {
         // TODO: This relies highly on convention. Might be nicer to better abstract with database
         //       record that points directly to where the manifest is or other solution?
+        final DirectoryManifest manifest;
         try {
-            final DirectoryManifest manifest = directoryManifestFactory.getDirectoryManifest(directory, true);
-            final Path manifestDirectoryPath = StringUtils.isBlank(JobArchiveService.MANIFEST_DIRECTORY)
-                ? directory
-                : directory.resolve(JobArchiveService.MANIFEST_DIRECTORY);
-            if (Files.notExists(manifestDirectoryPath)) {
-                Files.createDirectories(manifestDirectoryPath);
-            } else if (!Files.isDirectory(manifestDirectoryPath)) {
-                throw new JobArchiveException(
-                    manifestDirectoryPath + " is not a directory. Unable to create job manifest. Unable to archive"
+            manifest = this.directoryManifestFactory.getDirectoryManifest(directory, false);
+        } catch (final IOException ioe) {
+            throw new JobArchiveException("Unable to create job directory manifest. Unable to archive", ioe);
+        }
+
+        final String uriString = target.toString();
+        final List<Path> files = this.listFiles(directory);
+        final Map<String, String> checksums = Maps.newConcurrentMap();
+        final JobArchiver.FileOpener checksumFileOpener = file -> {
+            final String path = directory.relativize(file).toString();
+            final Optional<DirectoryManifest.ManifestEntry> entry = manifest.getEntry(path);
+            if (!entry.isPresent()) {
+                // Files left out of the manifest by its filter are still archived, they just don't get a checksum
+                return Files.newInputStream(file);
+            }
+            return new ChecksumInputStream(
+                Files.newInputStream(file),
+                entry.get().getSize(),
+                checksum -> checksums.put(path, checksum)
+            );
+        };
+
+        for (final JobArchiver archiver : this.jobArchivers) {
+            if (archiver.archiveFiles(directory, files, target, checksumFileOpener)) {
+                final Path manifestPath = this.writeManifest(
+                    directory,
+                    this.addChecksums(directory, manifest, checksums)
                 );
+                if (!archiver.archiveFiles(directory, ImmutableList.of(manifestPath), target, Files::newInputStream)) {
+                    throw new JobArchiveException("Unable to archive job directory manifest " + manifestPath);
+                }
+                log.debug(
+                    "Successfully archived {} files of job directory {} to {} using {}",
+                    files.size(),
+                    directory.toString(),
+                    uriString,
+                    archiver.getClass().getSimpleName()
+                );
+                return;
             }
-            final Path manifestPath = manifestDirectoryPath.resolve(JobArchiveService.MANIFEST_NAME);
-            Files.write(manifestPath, GenieObjectMapper.getMapper().writeValueAsBytes(manifest));
-            log.debug("Wrote job directory manifest to {}", manifestPath);
+        }
+
+        // None of the archivers can archive individual files, write a complete manifest and archive the directory
+        try {
+            this.writeManifest(
+                directory,
+                this.directoryManifestFactory.getDirectoryManifest(directory, true, manifest)
+            );
         } catch (final IOException ioe) {
             throw new JobArchiveException("Unable to create job directory manifest. Unable to archive", ioe);
         }
 
         // Attempt to archive the job directory, now including the manifest file, using available implementations
-        final String uriString = target.toString();
         for (final JobArchiver archiver : this.jobArchivers) {
-            // TODO: Perhaps we should pass the manifest down to the archive implementations if they want to use it?
             if (archiver.archiveDirectory(directory, target)) {
                 log.debug(
                     "Successfully archived job directory {} to {} using {}",
@@ -106,4 +161,186 @@ public class JobArchiveServiceImpl implements JobArchiveService {
             uriString
         );
     }
+
+    /**
+     * List all the regular files under the directory, following links like {@link JobArchiver#archiveDirectory} does.
+     * The manifest filter only applies to what is listed in the manifest, not to what is archived.
+     */
+    private List<Path> listFiles(final Path directory) throws JobArchiveException {
+        try (Stream<Path> paths = Files.walk(directory, FileVisitOption.FOLLOW_LINKS)) {
+            return paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (final IOException | UncheckedIOException e) {
+            throw new JobArchiveException("Unable to list the files of job directory " + directory, e);
+        }
+    }
+
+    private Path writeManifest(final Path directory, final DirectoryManifest manifest) throws JobArchiveException {
+        try {
+            final Path manifestDirectoryPath = StringUtils.isBlank(JobArchiveService.MANIFEST_DIRECTORY)
+                ? directory
+                : directory.resolve(JobArchiveService.MANIFEST_DIRECTORY);
+            if (Files.notExists(manifestDirectoryPath)) {
+                Files.createDirectories(manifestDirectoryPath);
+            } else if (!Files.isDirectory(manifestDirectoryPath)) {
+                throw new JobArchiveException(
+                    manifestDirectoryPath + " is not a directory. Unable to create job manifest. Unable to archive"
+                );
+            }
+            final Path manifestPath = manifestDirectoryPath.resolve(JobArchiveService.MANIFEST_NAME);
+            Files.write(manifestPath, GenieObjectMapper.getMapper().writeValueAsBytes(manifest));
+            log.debug("Wrote job directory manifest to {}", manifestPath);
+            return manifestPath;
+        } catch (final IOException ioe) {
+            throw new JobArchiveException("Unable to create job directory manifest. Unable to archive", ioe);
+        }
+    }
+
+    private DirectoryManifest addChecksums(
+        final Path directory,
+        final DirectoryManifest manifest,
+        final Map<String, String> checksums
+    ) {
+        final Set<DirectoryManifest.ManifestEntry> entries = Sets.newHashSet(manifest.getDirectories());
+        for (final DirectoryManifest.ManifestEntry entry : manifest.getFiles()) {
+            String md5 = checksums.get(entry.getPath());
+            if (md5 == null) {
+                // The archiver didn't read the file in full or read it directly, read it again. Like the checksums
+                // computed while archiving, bytes appended after the manifest was created aren't included
+                try (InputStream data = Files.newInputStream(directory.resolve(entry.getPath()))) {
+                    md5 = DigestUtils.md5Hex(ByteStreams.limit(data, entry.getSize()));
+                } catch (final IOException ioe) {
+                    // For now MD5 isn't critical or required so we'll swallow errors here
+                    log.error("Unable to create MD5 for {} due to error", entry.getPath(), ioe);
+                }
+            }
+            entries.add(
+                new DirectoryManifest.ManifestEntry(
+                    entry.getPath(),
+                    entry.getName(),
+                    entry.getLastModifiedTime(),
+                    entry.getLastAccessTime(),
+                    entry.getCreationTime(),
+                    false,
+                    entry.getSize(),
+                    md5,
+                    entry.getMimeType().orElse(null),
+                    entry.getParent().orElse(null),
+                    entry.getChildren()
+                )
+            );
+        }
+        return new DirectoryManifest(entries);
+    }
+
+    /**
+     * Computes the MD5 of the data read through it and hands it over once the number of bytes in the manifest has been
+     * read.
+     */
+    private static final class ChecksumInputStream extends FilterInputStream {
+        private static final int SKIP_BUFFER_SIZE = 8 * 1024;
+        private final MessageDigest digest = DigestUtils.getMd5Digest();
+        private final Consumer<String> checksumConsumer;
+        private long remainingBytes;
+        private boolean complete;
+
+        private ChecksumInputStream(
+            final InputStream inputStream,
+            final long size,
+            final Consumer<String> checksumConsumer
+        ) {
+            super(inputStream);
+            this.remainingBytes = size;
+            this.checksumConsumer = checksumConsumer;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b != -1) {
+                this.update(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int bytesRead = super.read(b, off, len);
+            if (bytesRead > 0) {
+                this.update(b, off, bytesRead);
+            }
+            return bytesRead;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long skip(final long n) throws IOException {
+            // Skipped bytes still need to go through the digest
+            final byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), SKIP_BUFFER_SIZE)];
+            long skipped = 0;
+            while (skipped < n) {
+                final int bytesRead = this.read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (bytesRead == -1) {
+                    break;
+                }
+                skipped += bytesRead;
+            }
+            return skipped;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized void mark(final int readlimit) {
+            // Not supported
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() throws IOException {
+            // Empty files might never be read
+            this.update(new byte[0], 0, 0);
+            super.close();
+        }
+
+        private void update(final byte[] b, final int off, final int len) {
+            if (this.complete) {
+                return;
+            }
+            // Bytes appended after the manifest was created aren't part of the checksum
+            final int digestLength = (int) Math.min(len, this.remainingBytes);
+            this.digest.update(b, off, digestLength);
+            this.remainingBytes -= digestLength;
+            if (this.remainingBytes == 0) {
+                this.complete = true;
+                this.checksumConsumer.accept(Hex.encodeHexString(this.digest.digest()));
+            }
+        }
+    }
 }
@@ -18,16 +18,33 @@
 package com.netflix.genie.common.internal.services.impl;
 
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Weigher;
 import com.netflix.genie.common.internal.dtos.DirectoryManifest;
 import com.netflix.genie.common.internal.services.JobDirectoryManifestCreatorService;
+import com.netflix.genie.common.internal.util.DirectoryTreeWatcher;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of {@link JobDirectoryManifestCreatorService} that caches manifests produced by the factory for a few
  * seconds, thus avoiding re-calculating the same for subsequent requests (e.g. a user navigating a tree true the UI).
+ * <p>
+ * The last manifest produced for each directory is also kept (for as long as memory allows, within a total number of
+ * entries) after it expires from the cache, so the next one can be built incrementally, only computing checksums and
+ * mime types of files that changed.
+ * <p>
+ * If a {@link DirectoryTreeWatcher} is provided, the directories of each manifest produced are watched and the cached
+ * manifest is invalidated as soon as a file or directory is created or deleted. The cache should then be built with
+ * the {@link #unwatchingCacheWriter(Supplier)}, so directories stop being watched once their manifest is removed from
+ * the cache.
  *
  * @author mprimi
  * @since 4.0.0
@@ -35,9 +52,20 @@ import java.nio.file.Path;
 @Slf4j
 public class JobDirectoryManifestCreatorServiceImpl implements JobDirectoryManifestCreatorService {
 
+    /**
+     * Weighs manifests by their number of entries (files and directories), which is what their size in memory
+     * depends on, so caches of manifests can be bounded by the total number of entries they hold.
+     */
+    public static final Weigher<Path, DirectoryManifest> MANIFEST_WEIGHER =
+        (final Path path, final DirectoryManifest manifest) -> manifest.getNumFiles() + manifest.getNumDirectories();
+
+    private static final long DEFAULT_MAX_PREVIOUS_MANIFEST_ENTRIES = 100_000L;
+
     private final Cache<Path, DirectoryManifest> cache;
     private final DirectoryManifest.Factory factory;
     private final boolean includeChecksum;
+    private final DirectoryTreeWatcher directoryTreeWatcher;
+    private final Cache<Path, DirectoryManifest> previousManifests;
 
     /**
      * Constructor.
@@ -50,10 +78,90 @@ public class JobDirectoryManifestCreatorServiceImpl implements JobDirectoryManif
         final DirectoryManifest.Factory factory,
         final Cache<Path, DirectoryManifest> cache,
         final boolean includeChecksum
+    ) {
+        this(factory, cache, includeChecksum, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param factory              the directory manifest factory
+     * @param cache                the loading cache to use
+     * @param includeChecksum      whether to produce manifests that include checksums
+     * @param directoryTreeWatcher the watcher invalidating cached manifests of changed directories, if any
+     */
+    public JobDirectoryManifestCreatorServiceImpl(
+        final DirectoryManifest.Factory factory,
+        final Cache<Path, DirectoryManifest> cache,
+        final boolean includeChecksum,
+        @Nullable final DirectoryTreeWatcher directoryTreeWatcher
+    ) {
+        this(factory, cache, includeChecksum, directoryTreeWatcher, DEFAULT_MAX_PREVIOUS_MANIFEST_ENTRIES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param factory                    the directory manifest factory
+     * @param cache                      the loading cache to use
+     * @param includeChecksum            whether to produce manifests that include checksums
+     * @param directoryTreeWatcher       the watcher invalidating cached manifests of changed directories, if any
+     * @param maxPreviousManifestEntries the maximum number of entries across the manifests kept to build the next
+     *                                   ones incrementally
+     */
+    public JobDirectoryManifestCreatorServiceImpl(
+        final DirectoryManifest.Factory factory,
+        final Cache<Path, DirectoryManifest> cache,
+        final boolean includeChecksum,
+        @Nullable final DirectoryTreeWatcher directoryTreeWatcher,
+        final long maxPreviousManifestEntries
     ) {
         this.factory = factory;
         this.cache = cache;
         this.includeChecksum = includeChecksum;
+        this.directoryTreeWatcher = directoryTreeWatcher;
+        this.previousManifests = Caffeine.newBuilder()
+            .maximumWeight(maxPreviousManifestEntries)
+            .weigher(MANIFEST_WEIGHER)
+            .softValues()
+            .build();
+    }
+
+    /**
+     * Create a writer for the manifest cache that stops watching the directories of a manifest as soon as it's removed
+     * from the cache, whether it expired, was evicted or was invalidated. Otherwise the directories would stay watched,
+     * and count towards the maximum number of watched directories, until they change.
+     * <p>
+     * Unlike a removal listener, the writer is invoked synchronously with the removal, so an expired manifest stops
+     * being watched before the manifest replacing it is created and watched.
+     *
+     * @param directoryTreeWatcherSupplier supplies the watcher of the cached manifests, if any
+     * @return a {@link CacheWriter} to build the manifest cache with
+     */
+    public static CacheWriter<Path, DirectoryManifest> unwatchingCacheWriter(
+        final Supplier<DirectoryTreeWatcher> directoryTreeWatcherSupplier
+    ) {
+        return new CacheWriter<Path, DirectoryManifest>() {
+            @Override
+            public void write(final Path path, final DirectoryManifest manifest) {
+                // Directories are watched once the manifest is created
+            }
+
+            @Override
+            public void delete(
+                final Path path,
+                @Nullable final DirectoryManifest manifest,
+                final RemovalCause cause
+            ) {
+                if (cause == RemovalCause.REPLACED) {
+                    return;
+                }
+                final DirectoryTreeWatcher directoryTreeWatcher = directoryTreeWatcherSupplier.get();
+                if (directoryTreeWatcher != null) {
+                    directoryTreeWatcher.unwatch(path);
+                }
+            }
+        };
     }
 
     /**
@@ -66,7 +174,23 @@ public class JobDirectoryManifestCreatorServiceImpl implements JobDirectoryManif
                 jobDirectoryPath.normalize().toAbsolutePath(),
                 path -> {
                     try {
-                        return this.factory.getDirectoryManifest(path, this.includeChecksum);
+                        final DirectoryManifest manifest = this.factory.getDirectoryManifest(
+                            path,
+                            this.includeChecksum,
+                            this.previousManifests.getIfPresent(path)
+                        );
+                        this.previousManifests.put(path, manifest);
+                        if (this.directoryTreeWatcher != null) {
+                            this.directoryTreeWatcher.watch(
+                                path,
+                                manifest
+                                    .getDirectories()
+                                    .stream()
+                                    .map(entry -> path.resolve(entry.getPath()))
+                                    .collect(Collectors.toList())
+                            );
+                        }
+                        return manifest;
                     } catch (IOException e) {
                         throw new RuntimeException("Failed to create manifest", e);
                     }
@@ -86,6 +210,6 @@ public class JobDirectoryManifestCreatorServiceImpl implements JobDirectoryManif
      */
     @Override
     public void invalidateCachedDirectoryManifest(final Path jobDirectoryPath) {
-        this.cache.invalidate(jobDirectoryPath);
+        this.cache.invalidate(jobDirectoryPath.normalize().toAbsolutePath());
     }
 }
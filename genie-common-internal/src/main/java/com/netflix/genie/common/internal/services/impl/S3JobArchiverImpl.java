@@ -18,17 +18,31 @@
 package com.netflix.genie.common.internal.services.impl;
 
 import com.amazonaws.services.s3.AmazonS3URI;
+import com.amazonaws.services.s3.internal.Mimetypes;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.transfer.MultipleFileUpload;
 import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.Upload;
 import com.netflix.genie.common.internal.aws.s3.S3ClientFactory;
 import com.netflix.genie.common.internal.exceptions.checked.JobArchiveException;
 import com.netflix.genie.common.internal.services.JobArchiveService;
 import com.netflix.genie.common.internal.services.JobArchiver;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 
 import javax.validation.constraints.NotNull;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
 
 /**
  * Implementation of {@link JobArchiveService} for S3 destinations.
@@ -40,6 +54,9 @@ import java.nio.file.Path;
 @Slf4j
 public class S3JobArchiverImpl implements JobArchiver {
 
+    private static final String KEY_SEPARATOR = "/";
+    private static final int MAX_IN_FLIGHT_UPLOADS = 32;
+
     private final S3ClientFactory s3ClientFactory;
 
     /**
@@ -91,4 +108,110 @@ public class S3JobArchiverImpl implements JobArchiver {
             throw new JobArchiveException("Error archiving " + directoryString, e);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each file is uploaded to the same key {@link TransferManager#uploadDirectory} would upload it to. Uploads run
+     * in parallel on the transfer manager threads, with a bounded number of files open at the same time.
+     * <p>
+     * Files above the multipart upload threshold are uploaded from the file rather than from the stream of the
+     * {@code fileOpener}, as only then are their parts uploaded in parallel and retried individually. They aren't read
+     * through the {@code fileOpener}, so the caller processes them separately.
+     */
+    @Override
+    public boolean archiveFiles(
+        @NotNull final Path directory,
+        @NotNull final Collection<Path> files,
+        @NotNull final URI target,
+        @NotNull final FileOpener fileOpener
+    ) throws JobArchiveException {
+        final String uriString = target.toString();
+        final AmazonS3URI s3URI;
+        try {
+            s3URI = new AmazonS3URI(target);
+        } catch (final IllegalArgumentException iae) {
+            log.debug("{} is not a valid S3 URI", uriString);
+            return false;
+        }
+        final String directoryString = directory.toString();
+        log.debug(
+            "{} is a valid S3 location. Proceeding to archive {} files of {} to location: {}",
+            uriString,
+            files.size(),
+            directoryString,
+            uriString
+        );
+
+        final Deque<Pair<Upload, InputStream>> inFlightUploads = new ArrayDeque<>();
+        try {
+            final TransferManager transferManager = this.s3ClientFactory.getTransferManager(s3URI);
+            final String keyPrefix = StringUtils.isEmpty(s3URI.getKey()) || s3URI.getKey().endsWith(KEY_SEPARATOR)
+                ? StringUtils.defaultString(s3URI.getKey())
+                : s3URI.getKey() + KEY_SEPARATOR;
+            final long multipartUploadThreshold = transferManager.getConfiguration().getMultipartUploadThreshold();
+            for (final Path file : files) {
+                if (inFlightUploads.size() >= MAX_IN_FLIGHT_UPLOADS) {
+                    waitForCompletion(inFlightUploads.removeFirst());
+                }
+                final long size = Files.size(file);
+                final ObjectMetadata metadata = new ObjectMetadata();
+                metadata.setContentLength(size);
+                metadata.setContentType(Mimetypes.getInstance().getMimetype(file.toFile()));
+                final String key = keyPrefix
+                    + StringUtils.replace(directory.relativize(file).toString(), File.separator, KEY_SEPARATOR);
+                if (size > multipartUploadThreshold) {
+                    // Multipart uploads from a stream are sequential and can't retry parts past the mark limit
+                    inFlightUploads.addLast(
+                        ImmutablePair.of(
+                            transferManager.upload(
+                                new PutObjectRequest(s3URI.getBucket(), key, file.toFile()).withMetadata(metadata)
+                            ),
+                            null
+                        )
+                    );
+                    continue;
+                }
+                final InputStream data = fileOpener.open(file);
+                try {
+                    inFlightUploads.addLast(
+                        ImmutablePair.of(transferManager.upload(s3URI.getBucket(), key, data, metadata), data)
+                    );
+                } catch (final RuntimeException e) {
+                    data.close();
+                    throw e;
+                }
+            }
+            while (!inFlightUploads.isEmpty()) {
+                waitForCompletion(inFlightUploads.removeFirst());
+            }
+            return true;
+        } catch (final Exception e) {
+            log.error("Error archiving to S3 location: {} ", uriString, e);
+            for (final Pair<Upload, InputStream> upload : inFlightUploads) {
+                upload.getLeft().abort();
+                if (upload.getRight() == null) {
+                    continue;
+                }
+                try {
+                    upload.getRight().close();
+                } catch (final IOException ioe) {
+                    log.debug("Unable to close file after aborting upload", ioe);
+                }
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new JobArchiveException("Error archiving " + directoryString, e);
+        }
+    }
+
+    // The stream is null for uploads from a file
+    private static void waitForCompletion(
+        final Pair<Upload, InputStream> upload
+    ) throws IOException, InterruptedException {
+        try (InputStream data = upload.getRight()) {
+            upload.getLeft().waitForCompletion();
+        }
+    }
 }
@@ -0,0 +1,167 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.internal.util;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Watches directory trees, through a {@link WatchService} (inotify on Linux), for entries being created or deleted
+ * in any of their directories.
+ * <p>
+ * A tree is reported to the listener, and then stops being watched, on the first change. Callers watch it again once
+ * they've caught up with the change (e.g. after listing the directories again). Modifications of existing files are
+ * not reported. Trees are only watched as long as the total number of watched directories stays within the limit, so
+ * callers must not rely on being notified of every change.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@Slf4j
+public class DirectoryTreeWatcher implements Closeable {
+
+    private final WatchService watchService;
+    private final Consumer<Path> changeListener;
+    private final int maxWatchedDirectories;
+    private final Map<WatchKey, Path> roots = Maps.newHashMap();
+    private final Map<Path, Set<WatchKey>> keys = Maps.newHashMap();
+    private int watchedDirectories;
+
+    /**
+     * Constructor.
+     *
+     * @param changeListener        Invoked with the root of a watched tree when it changed
+     * @param maxWatchedDirectories The maximum number of directories watched across all trees
+     * @throws IOException If the watch service can't be created
+     */
+    public DirectoryTreeWatcher(
+        final Consumer<Path> changeListener,
+        final int maxWatchedDirectories
+    ) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.changeListener = changeListener;
+        this.maxWatchedDirectories = maxWatchedDirectories;
+        final Thread watchThread = new Thread(this::processEvents, "genie-directory-tree-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * Watch a directory tree, replacing any previous watch of the same tree.
+     *
+     * @param root        The root of the tree
+     * @param directories The directories of the tree, including the root
+     * @return {@code true} if the tree is being watched. {@code false} if it would exceed the maximum number of
+     * watched directories or some directory couldn't be watched.
+     */
+    public synchronized boolean watch(final Path root, final Collection<Path> directories) {
+        this.unwatch(root);
+        if (this.watchedDirectories + directories.size() > this.maxWatchedDirectories) {
+            log.debug("Not watching {} as its {} directories exceed the limit", root, directories.size());
+            return false;
+        }
+        final Set<WatchKey> rootKeys = Sets.newHashSet();
+        this.keys.put(root, rootKeys);
+        try {
+            for (final Path directory : directories) {
+                final WatchKey key = directory.register(
+                    this.watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE
+                );
+                if (rootKeys.add(key)) {
+                    this.roots.put(key, root);
+                    this.watchedDirectories++;
+                }
+            }
+            return true;
+        } catch (final IOException | ClosedWatchServiceException e) {
+            log.warn("Unable to watch {} for changes", root, e);
+            this.unwatch(root);
+            return false;
+        }
+    }
+
+    /**
+     * Stop watching a directory tree. Does nothing if it isn't being watched.
+     *
+     * @param root The root of the tree
+     */
+    public synchronized void unwatch(final Path root) {
+        final Set<WatchKey> rootKeys = this.keys.remove(root);
+        if (rootKeys != null) {
+            for (final WatchKey key : rootKeys) {
+                key.cancel();
+                this.roots.remove(key);
+            }
+            this.watchedDirectories -= rootKeys.size();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        this.watchService.close();
+    }
+
+    private void processEvents() {
+        while (true) {
+            final WatchKey key;
+            try {
+                key = this.watchService.take();
+            } catch (final ClosedWatchServiceException | InterruptedException e) {
+                log.debug("Stopped watching directory trees");
+                return;
+            }
+            // Any event, including an overflow, means the tree changed
+            key.pollEvents();
+            final Path root;
+            synchronized (this) {
+                root = this.roots.get(key);
+                if (root != null) {
+                    this.unwatch(root);
+                } else {
+                    key.cancel();
+                }
+            }
+            if (root != null) {
+                try {
+                    this.changeListener.accept(root);
+                } catch (final RuntimeException e) {
+                    log.error("Error notifying change of {}", root, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.internal.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.ImmutableMap;
+import com.netflix.genie.common.internal.properties.MimeTypeDetectionProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.apache.commons.lang3.tuple.Triple;
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.detect.Detector;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.mime.MediaType;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects the mime type of files in job directories.
+ * <p>
+ * The type is looked up by file name and then by extension in the configured tables. Only files matching neither
+ * have their content sniffed, and the result is cached by path, size and modification time so unchanged files are
+ * read only once no matter how many manifests include them.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@Slf4j
+public class MimeTypeDetector {
+
+    static final String DETECTION_TIMER_NAME = "genie.files.mimeTypes.detection.timer";
+    static final String SOURCE_TAG = "source";
+    static final String FILE_NAME_SOURCE = "fileName";
+    static final String EXTENSION_SOURCE = "extension";
+    static final String CACHE_SOURCE = "cache";
+    static final String CONTENT_SOURCE = "content";
+
+    private final Map<String, String> fileNameTypes;
+    private final Map<String, String> extensionTypes;
+    private final Cache<Triple<Path, Long, Instant>, String> detectedTypes;
+    private final Detector detector;
+    private final MeterRegistry registry;
+
+    /**
+     * Constructor with the default properties, publishing metrics to the global registry.
+     */
+    public MimeTypeDetector() {
+        this(new MimeTypeDetectionProperties(), Metrics.globalRegistry);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param properties The mime type detection properties
+     * @param registry   The meter registry
+     */
+    public MimeTypeDetector(final MimeTypeDetectionProperties properties, final MeterRegistry registry) {
+        this.fileNameTypes = ImmutableMap.copyOf(properties.getFileNames());
+        final ImmutableMap.Builder<String, String> extensionTypesBuilder = ImmutableMap.builder();
+        properties.getExtensions().forEach(
+            (extension, type) -> extensionTypesBuilder.put(extension.toLowerCase(Locale.ROOT), type)
+        );
+        this.extensionTypes = extensionTypesBuilder.build();
+        this.detectedTypes = Caffeine.newBuilder().maximumSize(properties.getCacheSize()).build();
+        this.detector = TikaConfig.getDefaultConfig().getDetector();
+        this.registry = registry;
+    }
+
+    /**
+     * Detect the mime type of a file.
+     *
+     * @param file       The file
+     * @param attributes The attributes of the file
+     * @return The mime type of the file, {@code application/octet-stream} if it couldn't be determined
+     */
+    public String detect(final Path file, final BasicFileAttributes attributes) {
+        final long start = System.nanoTime();
+        String source = FILE_NAME_SOURCE;
+        try {
+            final Path fileName = file.getFileName();
+            final String name = fileName == null ? "" : fileName.toString();
+            String mimeType = this.fileNameTypes.get(name);
+            if (mimeType != null) {
+                return mimeType;
+            }
+
+            source = EXTENSION_SOURCE;
+            final int extensionIndex = name.lastIndexOf('.');
+            if (extensionIndex > 0) {
+                mimeType = this.extensionTypes.get(name.substring(extensionIndex + 1).toLowerCase(Locale.ROOT));
+                if (mimeType != null) {
+                    return mimeType;
+                }
+            }
+
+            source = CACHE_SOURCE;
+            final Triple<Path, Long, Instant> key = ImmutableTriple.of(
+                file.toAbsolutePath().normalize(),
+                attributes.size(),
+                attributes.lastModifiedTime().toInstant()
+            );
+            mimeType = this.detectedTypes.getIfPresent(key);
+            if (mimeType != null) {
+                return mimeType;
+            }
+
+            source = CONTENT_SOURCE;
+            mimeType = this.detectContentType(file);
+            if (mimeType == null) {
+                return MediaType.OCTET_STREAM.toString();
+            }
+            this.detectedTypes.put(key, mimeType);
+            return mimeType;
+        } finally {
+            this.registry
+                .timer(DETECTION_TIMER_NAME, SOURCE_TAG, source)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Nullable
+    private String detectContentType(final Path file) {
+        try (TikaInputStream inputStream = TikaInputStream.get(file)) {
+            return this.detector.detect(inputStream, new Metadata()).toString();
+        } catch (final IOException ioe) {
+            log.error("Unable to detect mime type for {} due to error", file, ioe);
+            return null;
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package com.netflix.genie.common.internal.dtos
 
 import com.netflix.genie.common.external.util.GenieObjectMapper
+import com.netflix.genie.common.internal.util.MimeTypeDetector
 import org.apache.commons.codec.digest.DigestUtils
 import org.junit.Rule
 import org.junit.rules.TemporaryFolder
@@ -204,6 +205,84 @@ class DirectoryManifestSpec extends Specification {
         manifest.hasEntry(this.stdOutSymLink)
     }
 
+    def "walking with a single thread creates the same manifest"() {
+        setup:
+        def sequentialFactory = new DirectoryManifest.Factory(new DirectoryManifest.Filter() {
+        }, new MimeTypeDetector(), 1)
+
+        when:
+        def manifest = new DirectoryManifest.Factory().getDirectoryManifest(this.rootPath, true)
+        def sequentialManifest = sequentialFactory.getDirectoryManifest(this.rootPath, true)
+
+        then:
+        manifest == sequentialManifest
+        verifyManifest(sequentialManifest, true)
+
+        when: "The factory is closed its pool is shut down"
+        sequentialFactory.close()
+
+        then:
+        sequentialFactory.@pool.isShutdown()
+    }
+
+    def "factories without an explicit parallelism share a pool which closing them doesn't shut down"() {
+        setup:
+        def factory = new DirectoryManifest.Factory()
+        def otherFactory = new DirectoryManifest.Factory()
+
+        when:
+        factory.close()
+
+        then:
+        factory.@pool.is(otherFactory.@pool)
+        !factory.@pool.isShutdown()
+        otherFactory.getDirectoryManifest(this.rootPath, false) != null
+    }
+
+    def "can reuse checksum and mime type of unchanged files from a previous manifest"() {
+        def factory = new DirectoryManifest.Factory()
+        def previousEntries = factory.getDirectoryManifest(this.rootPath, true).getEntries().collect {
+            // Tamper with the previous file entries so reuse is observable
+            it.isDirectory() ? it : new DirectoryManifest.ManifestEntry(
+                it.getPath(),
+                it.getName(),
+                it.getLastModifiedTime(),
+                it.getLastAccessTime(),
+                it.getCreationTime(),
+                false,
+                it.getSize(),
+                "reused",
+                "application/x-reused",
+                it.getParent().orElse(null),
+                it.getChildren()
+            )
+        } as Set
+        def previousManifest = new DirectoryManifest(previousEntries)
+        Files.write(this.stderrPath, "A longer line than before".getBytes(StandardCharsets.UTF_8))
+
+        when:
+        def manifest = factory.getDirectoryManifest(this.rootPath, true, previousManifest)
+
+        then:
+        manifest.getEntries().size() == 13
+        manifest.getEntry(this.stdout).get().getMd5().get() == "reused"
+        manifest.getEntry(this.stdout).get().getMimeType().get() == "application/x-reused"
+        manifest.getEntry(this.envFile).get().getMd5().get() == "reused"
+        manifest.getEntry(this.stderr).get().getMd5().get() == DigestUtils.md5Hex(Files.readAllBytes(this.stderrPath))
+        manifest.getEntry(this.stderr).get().getMimeType().get() == "text/plain"
+
+        when: "The previous manifest has no checksums"
+        Files.write(this.stderrPath, UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8))
+        manifest = factory.getDirectoryManifest(
+            this.rootPath,
+            true,
+            factory.getDirectoryManifest(this.rootPath, false)
+        )
+
+        then:
+        verifyManifest(manifest, true)
+    }
+
     void verifyManifest(DirectoryManifest manifest, boolean expectMd5Present) {
         assert manifest.getEntries().size() == 13
         assert manifest.getFiles().size() == 8
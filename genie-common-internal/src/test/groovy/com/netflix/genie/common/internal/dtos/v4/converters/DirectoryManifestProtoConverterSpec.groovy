@@ -17,17 +17,28 @@
  */
 package com.netflix.genie.common.internal.dtos.v4.converters
 
-import com.fasterxml.jackson.core.JsonProcessingException
 import com.fasterxml.jackson.databind.ObjectMapper
+import com.google.common.collect.Sets
+import com.netflix.genie.common.external.util.GenieObjectMapper
 import com.netflix.genie.common.internal.dtos.DirectoryManifest
 import com.netflix.genie.common.internal.exceptions.checked.GenieConversionException
 import com.netflix.genie.proto.AgentManifestMessage
+import com.netflix.genie.proto.DirectoryManifestMessage
+import com.netflix.genie.proto.ManifestDelta
+import com.netflix.genie.proto.ManifestEntryMessage
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import spock.lang.Requires
 import spock.lang.Specification
 
+import java.time.Instant
+import java.util.concurrent.TimeUnit
+
 class DirectoryManifestProtoConverterSpec extends Specification {
+    private static final Logger LOG = LoggerFactory.getLogger(DirectoryManifestProtoConverterSpec)
+
     ObjectMapper objectMapper
     JobDirectoryManifestProtoConverter converter
-    static final String JSON_MANIFEST = "{ fake json serialization of manifest }"
 
     void setup() {
         this.objectMapper = Mock(ObjectMapper)
@@ -36,37 +47,69 @@ class DirectoryManifestProtoConverterSpec extends Specification {
 
     def "Manifest to message to manifest"() {
         setup:
-        String jobId = "123456"
-        DirectoryManifest manifest = Mock(DirectoryManifest)
+        def realConverter = new JobDirectoryManifestProtoConverter(GenieObjectMapper.getMapper())
+        def manifest = nestedManifest()
 
         when:
-        AgentManifestMessage message = this.converter.manifestToProtoMessage(jobId, manifest)
+        AgentManifestMessage message = realConverter.manifestToProtoMessage("123456", manifest)
 
         then:
-        1 * objectMapper.writeValueAsString(manifest) >> JSON_MANIFEST
-        message.getJobId() == jobId
-        message.getManifestJson() == JSON_MANIFEST
+        message.getJobId() == "123456"
+        message.hasManifest()
+        message.getManifestJson().isEmpty()
+        message.getManifest().getEntriesCount() == 6
+        message.getManifest().getEntries(0).getPath() == ""
+        message.getManifest().getEntriesList().count { it.getParentIndex() > 0 } == 5
+        message.getManifest().getEntriesList().every { it.getParentIndex() == 0 || it.getPath().isEmpty() }
 
         when:
-        DirectoryManifest loadedManifest = converter.toManifest(message)
+        DirectoryManifest loadedManifest = realConverter.toManifest(message)
 
         then:
-        1 * objectMapper.readValue(JSON_MANIFEST, DirectoryManifest.class) >> manifest
         loadedManifest == manifest
     }
 
-    def "Manifest JSON serialization error"() {
+    def "Entries which can't be expressed relative to their directory are sent with explicit paths"() {
         setup:
-        DirectoryManifest manifest = Mock(DirectoryManifest)
-        Exception exception = new JsonProcessingException("...")
+        def realConverter = new JobDirectoryManifestProtoConverter(GenieObjectMapper.getMapper())
+        def now = Instant.ofEpochSecond(1_577_836_800L, 123_456_789L)
+        def manifest = new DirectoryManifest(
+            Sets.newHashSet(
+                directory(["a", "orphan/b.txt"] as Set, now),
+                new DirectoryManifest.ManifestEntry("a", "a", now, now, now, true, 0L, null, null, "", [] as Set),
+                new DirectoryManifest.ManifestEntry(
+                    "orphan/b.txt", "b.txt", now, now, now, false, 1L, "abc", "text/plain", "orphan", [] as Set
+                )
+            )
+        )
 
         when:
-        this.converter.manifestToProtoMessage("...", manifest)
+        AgentManifestMessage message = realConverter.manifestToProtoMessage("123456", manifest)
+        def orphan = message.getManifest().getEntriesList().find { it.getName() == "b.txt" }
 
         then:
-        1 * objectMapper.writeValueAsString(manifest) >> { throw exception }
-        Exception e = thrown(GenieConversionException)
-        e.getCause() == exception
+        orphan.getParentIndex() == 0
+        orphan.getPath() == "orphan/b.txt"
+        orphan.getParent().getValue() == "orphan"
+        message.getManifest().getEntries(0).getChildNamesList() == ["a"]
+        message.getManifest().getEntries(0).getChildPathsList() == ["orphan/b.txt"]
+        realConverter.toManifest(message) == manifest
+    }
+
+    def "Entries referencing a directory which doesn't precede them are rejected"() {
+        setup:
+        def message = AgentManifestMessage.newBuilder()
+            .setManifest(
+                DirectoryManifestMessage.newBuilder()
+                    .addEntries(ManifestEntryMessage.newBuilder().setParentIndex(1).setName("a"))
+            )
+            .build()
+
+        when:
+        this.converter.toManifest(message)
+
+        then:
+        thrown(GenieConversionException)
     }
 
     def "Manifest JSON parsing error"() {
@@ -81,4 +124,277 @@ class DirectoryManifestProtoConverterSpec extends Specification {
         Exception e = thrown(GenieConversionException)
         e.getCause() == exception
     }
+
+    def "Manifest delta round trip"() {
+        setup:
+        def realConverter = new JobDirectoryManifestProtoConverter(GenieObjectMapper.getMapper())
+        def now = Instant.ofEpochSecond(1_577_836_800L)
+        def unchanged = entry("unchanged.txt", 10L, now)
+        def previous = new DirectoryManifest(
+            Sets.newHashSet(
+                directory(["unchanged.txt", "modified.txt", "removed.txt"] as Set, now),
+                unchanged,
+                entry("modified.txt", 10L, now),
+                entry("removed.txt", 10L, now)
+            )
+        )
+        def current = new DirectoryManifest(
+            Sets.newHashSet(
+                directory(["unchanged.txt", "modified.txt", "added.txt"] as Set, now),
+                unchanged,
+                entry("modified.txt", 20L, now.plusSeconds(1)),
+                entry("added.txt", 5L, now)
+            )
+        )
+
+        when:
+        def message = realConverter.manifestDeltaToProtoMessage("123456", previous, current, 2L)
+
+        then:
+        message.getJobId() == "123456"
+        message.getSequenceNumber() == 2L
+        message.hasDelta()
+        message.getManifestJson().isEmpty()
+        message.getDelta().getUpsertedEntriesCount() == 3
+        message.getDelta().getUpsertedEntriesJsonCount() == 0
+        message.getDelta().getRemovedPathsList() == ["removed.txt"]
+
+        when:
+        def applied = realConverter.applyDelta(previous, message)
+
+        then:
+        applied == current
+
+        when: "Nothing changed"
+        message = realConverter.manifestDeltaToProtoMessage("123456", current, current, 3L)
+
+        then:
+        message.hasDelta()
+        message.getDelta().getUpsertedEntriesCount() == 0
+        message.getDelta().getRemovedPathsCount() == 0
+        realConverter.applyDelta(current, message).is(current)
+    }
+
+    def "Full manifest messages carry the sequence number"() {
+        when:
+        AgentManifestMessage message = this.converter.manifestToProtoMessage("123456", nestedManifest(), 1L)
+
+        then:
+        0 * objectMapper._
+        message.hasManifest()
+        message.getSequenceNumber() == 1L
+        !message.hasDelta()
+    }
+
+    def "Deltas sent by older agents are still applied"() {
+        setup:
+        def realConverter = new JobDirectoryManifestProtoConverter(GenieObjectMapper.getMapper())
+        def now = Instant.ofEpochSecond(1_577_836_800L)
+        def previous = new DirectoryManifest(Sets.newHashSet(directory(["a.txt"] as Set, now), entry("a.txt", 1L, now)))
+        def modified = entry("a.txt", 2L, now)
+        def message = AgentManifestMessage.newBuilder()
+            .setSequenceNumber(2L)
+            .setDelta(
+                ManifestDelta.newBuilder()
+                    .addUpsertedEntriesJson(GenieObjectMapper.getMapper().writeValueAsString(modified))
+            )
+            .build()
+
+        when:
+        def applied = realConverter.applyDelta(previous, message)
+
+        then:
+        applied.getEntry("a.txt").get() == modified
+    }
+
+    def "Applying a message which isn't a delta fails"() {
+        when:
+        this.converter.applyDelta(Mock(DirectoryManifest), AgentManifestMessage.getDefaultInstance())
+
+        then:
+        thrown(GenieConversionException)
+    }
+
+    def "Manifest entry JSON parsing error"() {
+        setup:
+        Exception exception = new IOException("...")
+        def message = AgentManifestMessage.newBuilder()
+            .setDelta(ManifestDelta.newBuilder().addUpsertedEntriesJson("{ fake json }"))
+            .build()
+
+        when:
+        this.converter.applyDelta(new DirectoryManifest(Sets.newHashSet()), message)
+
+        then:
+        1 * objectMapper.readValue("{ fake json }", DirectoryManifest.ManifestEntry.class) >> { throw exception }
+        Exception e = thrown(GenieConversionException)
+        e.getCause() == exception
+    }
+
+    def "Native encoding of a nested manifest is smaller than JSON and round trips"() {
+        setup:
+        def mapper = GenieObjectMapper.getMapper()
+        def realConverter = new JobDirectoryManifestProtoConverter(mapper)
+        def manifest = largeManifest(Instant.ofEpochSecond(1_577_836_800L), 5, 2)
+
+        when:
+        def jsonBytes = AgentManifestMessage.newBuilder()
+            .setManifestJson(mapper.writeValueAsString(manifest))
+            .build()
+            .toByteArray()
+        def nativeBytes = realConverter.manifestToProtoMessage("123456", manifest).toByteArray()
+
+        then:
+        manifest.getFiles().size() + manifest.getDirectories().size() > 1_000
+        realConverter.toManifest(AgentManifestMessage.parseFrom(jsonBytes)) == manifest
+        realConverter.toManifest(AgentManifestMessage.parseFrom(nativeBytes)) == manifest
+        nativeBytes.length < jsonBytes.length / 2
+    }
+
+    // Benchmark, only run when GENIE_BENCHMARKS is set in the environment. Timings are reported rather than asserted on
+    @Requires({ env["GENIE_BENCHMARKS"] })
+    def "Compare the size and speed of the native and JSON encodings of a large nested manifest"() {
+        setup:
+        def mapper = GenieObjectMapper.getMapper()
+        def realConverter = new JobDirectoryManifestProtoConverter(mapper)
+        def manifest = largeManifest(Instant.ofEpochSecond(1_577_836_800L), 10, 3)
+        def iterations = 5
+        def jsonBytes = new byte[0]
+        def nativeBytes = new byte[0]
+        def jsonEncodeNanos = 0L
+        def jsonDecodeNanos = 0L
+        def nativeEncodeNanos = 0L
+        def nativeDecodeNanos = 0L
+
+        when: "Both encodings are warmed up and then timed over a few round trips"
+        for (int i = 0; i < iterations * 2; i++) {
+            def start = System.nanoTime()
+            jsonBytes = AgentManifestMessage.newBuilder()
+                .setManifestJson(mapper.writeValueAsString(manifest))
+                .build()
+                .toByteArray()
+            def jsonEncoded = System.nanoTime()
+            realConverter.toManifest(AgentManifestMessage.parseFrom(jsonBytes))
+            def jsonDecoded = System.nanoTime()
+            nativeBytes = realConverter.manifestToProtoMessage("123456", manifest).toByteArray()
+            def nativeEncoded = System.nanoTime()
+            realConverter.toManifest(AgentManifestMessage.parseFrom(nativeBytes))
+            def nativeDecoded = System.nanoTime()
+            if (i >= iterations) {
+                jsonEncodeNanos += jsonEncoded - start
+                jsonDecodeNanos += jsonDecoded - jsonEncoded
+                nativeEncodeNanos += nativeEncoded - jsonDecoded
+                nativeDecodeNanos += nativeDecoded - nativeEncoded
+            }
+        }
+        def entries = manifest.getFiles().size() + manifest.getDirectories().size()
+        LOG.info(
+            "Manifest of {} entries. JSON: {} bytes, encode {} ms, decode {} ms. Native: {} bytes, encode {} ms, "
+                + "decode {} ms",
+            entries,
+            jsonBytes.length,
+            TimeUnit.NANOSECONDS.toMillis(jsonEncodeNanos.intdiv(iterations)),
+            TimeUnit.NANOSECONDS.toMillis(jsonDecodeNanos.intdiv(iterations)),
+            nativeBytes.length,
+            TimeUnit.NANOSECONDS.toMillis(nativeEncodeNanos.intdiv(iterations)),
+            TimeUnit.NANOSECONDS.toMillis(nativeDecodeNanos.intdiv(iterations))
+        )
+
+        then:
+        entries >= 50_000
+        nativeBytes.length < jsonBytes.length / 2
+    }
+
+    private static DirectoryManifest largeManifest(final Instant now, final int fanOut, final int depth) {
+        def entries = Sets.newHashSet()
+        def addDirectory
+        addDirectory = { String path, String name, String parent, int level ->
+            def children = [] as Set
+            if (level < depth) {
+                for (int i = 0; i < fanOut; i++) {
+                    def childName = "application-module-" + i
+                    def childPath = path.isEmpty() ? childName : path + "/" + childName
+                    children.add(childPath)
+                    addDirectory(childPath, childName, path, level + 1)
+                }
+            } else {
+                for (int i = 0; i < 49; i++) {
+                    def fileName = "part-" + String.format("%05d", i) + ".log"
+                    def filePath = path + "/" + fileName
+                    children.add(filePath)
+                    entries.add(
+                        new DirectoryManifest.ManifestEntry(
+                            filePath, fileName, now, now.plusSeconds(i), now, false, 1024L * i, null, "text/plain",
+                            path, [] as Set
+                        )
+                    )
+                }
+            }
+            entries.add(
+                new DirectoryManifest.ManifestEntry(path, name, now, now, now, true, 0L, null, null, parent, children)
+            )
+        }
+        addDirectory("", "job", null, 0)
+        return new DirectoryManifest(entries)
+    }
+
+    private static DirectoryManifest nestedManifest() {
+        def now = Instant.ofEpochSecond(1_577_836_800L, 42L)
+        return new DirectoryManifest(
+            Sets.newHashSet(
+                new DirectoryManifest.ManifestEntry(
+                    "", "job", now, now, now, true, 0L, null, null, null, ["genie"] as Set
+                ),
+                new DirectoryManifest.ManifestEntry(
+                    "genie", "genie", now, now, now, true, 0L, null, null, "", ["genie/logs", "genie/env.sh"] as Set
+                ),
+                new DirectoryManifest.ManifestEntry(
+                    "genie/env.sh", "env.sh", now, now, now, false, 10L, "d41d8cd9", "text/x-sh", "genie", [] as Set
+                ),
+                new DirectoryManifest.ManifestEntry(
+                    "genie/logs", "logs", now, now, now, true, 0L, null, null, "genie",
+                    ["genie/logs/genie.log", "genie/logs/empty"] as Set
+                ),
+                new DirectoryManifest.ManifestEntry(
+                    "genie/logs/genie.log", "genie.log", now, now.plusMillis(5), now, false, 1024L, null, "text/plain",
+                    "genie/logs", [] as Set
+                ),
+                new DirectoryManifest.ManifestEntry(
+                    "genie/logs/empty", "empty", now, now, now, true, 0L, null, null, "genie/logs", [] as Set
+                )
+            )
+        )
+    }
+
+    private static DirectoryManifest.ManifestEntry entry(final String path, final long size, final Instant modified) {
+        return new DirectoryManifest.ManifestEntry(
+            path,
+            path,
+            modified,
+            modified,
+            modified,
+            false,
+            size,
+            null,
+            "text/plain",
+            "",
+            Sets.newHashSet()
+        )
+    }
+
+    private static DirectoryManifest.ManifestEntry directory(final Set<String> children, final Instant modified) {
+        return new DirectoryManifest.ManifestEntry(
+            "",
+            "",
+            modified,
+            modified,
+            modified,
+            true,
+            0L,
+            null,
+            null,
+            null,
+            children
+        )
+    }
 }
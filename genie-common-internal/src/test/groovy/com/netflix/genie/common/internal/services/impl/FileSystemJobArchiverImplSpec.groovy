@@ -76,6 +76,57 @@ class FileSystemJobArchiverImplSpec extends Specification {
         result
     }
 
+    def "Can archive individual files through the given streams"() {
+        def source = this.temporaryFolder.newFolder().toPath()
+        def target = this.temporaryFolder.getRoot().toPath().resolve(UUID.randomUUID().toString())
+        def stdout = Files.write(
+            source.resolve("stdout"),
+            UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8)
+        )
+        def genieSubDir = Files.createDirectories(source.resolve("genie").resolve("subdir"))
+        def exit = Files.write(
+            genieSubDir.resolve("exit"),
+            UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8)
+        )
+        def openedFiles = [].asSynchronized()
+        def archiver = new FileSystemJobArchiverImpl()
+
+        when:
+        def result = archiver.archiveFiles(
+            source,
+            [stdout, exit],
+            target.toUri(),
+            { file ->
+                openedFiles.add(file)
+                return Files.newInputStream(file)
+            }
+        )
+
+        then:
+        result
+        openedFiles as Set == [stdout, exit] as Set
+        Files.readAllBytes(target.resolve("stdout")) == Files.readAllBytes(stdout)
+        Files.readAllBytes(target.resolve("genie").resolve("subdir").resolve("exit")) == Files.readAllBytes(exit)
+        Files.getLastModifiedTime(target.resolve("stdout")) == Files.getLastModifiedTime(stdout)
+
+        when: "The target isn't on the file system"
+        result = archiver.archiveFiles(source, [stdout], new URI("s3://bucket/key"), { Files.newInputStream(it) })
+
+        then:
+        !result
+
+        when: "A file can't be read"
+        archiver.archiveFiles(
+            source,
+            [source.resolve(UUID.randomUUID().toString())],
+            target.toUri(),
+            { Files.newInputStream(it) }
+        )
+
+        then:
+        thrown(JobArchiveException)
+    }
+
     def "Test error cases"() {
         def archiver = new FileSystemJobArchiverImpl()
 
@@ -30,6 +30,7 @@ import spock.lang.Specification
 import java.nio.charset.StandardCharsets
 import java.nio.file.Files
 import java.nio.file.Path
+import java.nio.file.attribute.BasicFileAttributes
 
 /**
  * Specifications for {@link JobArchiveServiceImpl}.
@@ -41,7 +42,7 @@ class JobArchiveServiceImplSpec extends Specification {
     @Rule
     TemporaryFolder temporaryFolder = new TemporaryFolder()
 
-    def "When archiveDirectory is invoked a valid manifest is written into the expected directory"() {
+    def "When no archiver can archive individual files a valid manifest is written before the directory is archived"() {
         def archiver = new JobArchiver() {
             @Override
             boolean archiveDirectory(final Path directory, final URI target) throws JobArchiveException {
@@ -58,13 +59,15 @@ class JobArchiveServiceImplSpec extends Specification {
             ? jobDirectory
             : jobDirectory.resolve(JobArchiveService.MANIFEST_DIRECTORY)
         def manifestPath = manifestDirectoryPath.resolve(JobArchiveService.MANIFEST_NAME)
+        def metadataManifest = new DirectoryManifest.Factory().getDirectoryManifest(jobDirectory, false)
         def originalManifest = new DirectoryManifest.Factory().getDirectoryManifest(jobDirectory, true)
 
         when:
         service.archiveDirectory(jobDirectory, target)
 
         then:
-        1 * directoryManifestFactory.getDirectoryManifest(jobDirectory, true) >> originalManifest
+        1 * directoryManifestFactory.getDirectoryManifest(jobDirectory, false) >> metadataManifest
+        1 * directoryManifestFactory.getDirectoryManifest(jobDirectory, true, metadataManifest) >> originalManifest
         Files.exists(manifestPath)
 
         when:
@@ -75,4 +78,153 @@ class JobArchiveServiceImplSpec extends Specification {
         manifest.getNumFiles() == 1
         manifest == originalManifest
     }
+
+    def "When an archiver can archive individual files checksums are computed as they are archived"() {
+        def archivedFiles = []
+        def readCounts = [:]
+        def archiver = new JobArchiver() {
+            @Override
+            boolean archiveDirectory(final Path directory, final URI target) throws JobArchiveException {
+                throw new IllegalStateException("Shouldn't be archiving the whole directory")
+            }
+
+            @Override
+            boolean archiveFiles(
+                final Path directory,
+                final Collection<Path> files,
+                final URI target,
+                final JobArchiver.FileOpener fileOpener
+            ) throws JobArchiveException {
+                files.each { file ->
+                    fileOpener.open(file).withCloseable { it.bytes }
+                    archivedFiles.add(file)
+                    readCounts.put(file, readCounts.getOrDefault(file, 0) + 1)
+                }
+                return true
+            }
+        }
+        def service = new JobArchiveServiceImpl([archiver], new DirectoryManifest.Factory())
+        def jobDirectory = this.temporaryFolder.newFolder().toPath()
+        Files.write(jobDirectory.resolve("someFile"), UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8))
+        Files.createDirectory(jobDirectory.resolve("subDir"))
+        Files.write(jobDirectory.resolve("subDir").resolve("empty"), new byte[0])
+        def manifestDirectoryPath = StringUtils.isBlank(JobArchiveService.MANIFEST_DIRECTORY)
+            ? jobDirectory
+            : jobDirectory.resolve(JobArchiveService.MANIFEST_DIRECTORY)
+        def manifestPath = manifestDirectoryPath.resolve(JobArchiveService.MANIFEST_NAME)
+        def expectedManifest = new DirectoryManifest.Factory().getDirectoryManifest(jobDirectory, true)
+
+        when:
+        service.archiveDirectory(jobDirectory, this.temporaryFolder.newFolder().toURI())
+        def manifest = GenieObjectMapper.getMapper().readValue(manifestPath.toFile(), DirectoryManifest)
+
+        then: "Access times aside, the manifest is the same as one computing checksums up front"
+        manifest.getEntries().collect { [it.getPath(), it.getSize(), it.getMd5().orElse(null)] } as Set ==
+            expectedManifest.getEntries().collect { [it.getPath(), it.getSize(), it.getMd5().orElse(null)] } as Set
+        manifest.getEntry("someFile").get().getMd5().isPresent()
+        manifest.getEntry("subDir/empty").get().getMd5().isPresent()
+        archivedFiles.size() == 3
+        archivedFiles.last() == manifestPath
+        readCounts.values().every { it == 1 }
+    }
+
+    def "Checksums of files the archiver uploads without reading them through the opener are still computed"() {
+        def openedFiles = []
+        def archiver = new JobArchiver() {
+            @Override
+            boolean archiveDirectory(final Path directory, final URI target) throws JobArchiveException {
+                throw new IllegalStateException("Shouldn't be archiving the whole directory")
+            }
+
+            @Override
+            boolean archiveFiles(
+                final Path directory,
+                final Collection<Path> files,
+                final URI target,
+                final JobArchiver.FileOpener fileOpener
+            ) throws JobArchiveException {
+                files.findAll { it.getFileName().toString() != "largeFile" }.each { file ->
+                    fileOpener.open(file).withCloseable { it.bytes }
+                    openedFiles.add(file)
+                }
+                return true
+            }
+        }
+        def service = new JobArchiveServiceImpl([archiver], new DirectoryManifest.Factory())
+        def jobDirectory = this.temporaryFolder.newFolder().toPath()
+        Files.write(jobDirectory.resolve("someFile"), UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8))
+        Files.write(jobDirectory.resolve("largeFile"), UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8))
+        def manifestDirectoryPath = StringUtils.isBlank(JobArchiveService.MANIFEST_DIRECTORY)
+            ? jobDirectory
+            : jobDirectory.resolve(JobArchiveService.MANIFEST_DIRECTORY)
+        def manifestPath = manifestDirectoryPath.resolve(JobArchiveService.MANIFEST_NAME)
+        def expectedManifest = new DirectoryManifest.Factory().getDirectoryManifest(jobDirectory, true)
+
+        when:
+        service.archiveDirectory(jobDirectory, this.temporaryFolder.newFolder().toURI())
+        def manifest = GenieObjectMapper.getMapper().readValue(manifestPath.toFile(), DirectoryManifest)
+
+        then:
+        !openedFiles.contains(jobDirectory.resolve("largeFile"))
+        manifest.getEntry("largeFile").get().getMd5() == expectedManifest.getEntry("largeFile").get().getMd5()
+        manifest.getEntry("someFile").get().getMd5() == expectedManifest.getEntry("someFile").get().getMd5()
+    }
+
+    def "Files and directories left out of the manifest by its filter are still archived"() {
+        def archivedFiles = []
+        def archiver = new JobArchiver() {
+            @Override
+            boolean archiveDirectory(final Path directory, final URI target) throws JobArchiveException {
+                throw new IllegalStateException("Shouldn't be archiving the whole directory")
+            }
+
+            @Override
+            boolean archiveFiles(
+                final Path directory,
+                final Collection<Path> files,
+                final URI target,
+                final JobArchiver.FileOpener fileOpener
+            ) throws JobArchiveException {
+                files.each { file ->
+                    fileOpener.open(file).withCloseable { it.bytes }
+                    archivedFiles.add(directory.relativize(file).toString())
+                }
+                return true
+            }
+        }
+        def filter = new DirectoryManifest.Filter() {
+            @Override
+            boolean includeFile(final Path filePath, final BasicFileAttributes attrs) {
+                return filePath.getFileName().toString() != "excluded"
+            }
+
+            @Override
+            boolean walkDirectory(final Path dirPath, final BasicFileAttributes attrs) {
+                return dirPath.getFileName().toString() != "dependencies"
+            }
+        }
+        def service = new JobArchiveServiceImpl([archiver], new DirectoryManifest.Factory(filter))
+        def jobDirectory = this.temporaryFolder.newFolder().toPath()
+        Files.write(jobDirectory.resolve("someFile"), UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8))
+        Files.write(jobDirectory.resolve("excluded"), UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8))
+        Files.createDirectory(jobDirectory.resolve("dependencies"))
+        Files.write(
+            jobDirectory.resolve("dependencies").resolve("dependency.jar"),
+            UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8)
+        )
+        def manifestDirectoryPath = StringUtils.isBlank(JobArchiveService.MANIFEST_DIRECTORY)
+            ? jobDirectory
+            : jobDirectory.resolve(JobArchiveService.MANIFEST_DIRECTORY)
+        def manifestPath = manifestDirectoryPath.resolve(JobArchiveService.MANIFEST_NAME)
+
+        when:
+        service.archiveDirectory(jobDirectory, this.temporaryFolder.newFolder().toURI())
+        def manifest = GenieObjectMapper.getMapper().readValue(manifestPath.toFile(), DirectoryManifest)
+
+        then:
+        archivedFiles.containsAll(["someFile", "excluded", "dependencies/dependency.jar"])
+        manifest.getEntry("someFile").get().getMd5().isPresent()
+        !manifest.getEntry("excluded").isPresent()
+        !manifest.getEntry("dependencies/dependency.jar").isPresent()
+    }
 }
@@ -22,6 +22,7 @@ import com.github.benmanes.caffeine.cache.Caffeine
 import com.github.benmanes.caffeine.cache.Ticker
 import com.netflix.genie.common.internal.dtos.DirectoryManifest
 import com.netflix.genie.common.internal.services.JobDirectoryManifestCreatorService
+import com.netflix.genie.common.internal.util.DirectoryTreeWatcher
 import spock.lang.Specification
 import spock.lang.Unroll
 
@@ -60,7 +61,7 @@ class JobDirectoryManifestCreatorServiceImplSpec extends Specification {
         }
 
         then:
-        1 * factory.getDirectoryManifest(Paths.get("/temp/foo"), includeChecksum) >> Mock(DirectoryManifest)
+        1 * factory.getDirectoryManifest(Paths.get("/temp/foo"), includeChecksum, null) >> Mock(DirectoryManifest)
 
         where:
         includeChecksum | _
@@ -82,7 +83,7 @@ class JobDirectoryManifestCreatorServiceImplSpec extends Specification {
         service.getDirectoryManifest(Paths.get("/temp/foo"))
 
         then:
-        1 * factory.getDirectoryManifest(Paths.get("/temp/foo"), includeChecksum) >> { throw factoryException }
+        1 * factory.getDirectoryManifest(Paths.get("/temp/foo"), includeChecksum, null) >> { throw factoryException }
         def t = thrown(Exception)
         expectedExceptionType.isInstance(t)
         if (expectedException != null) {
@@ -106,6 +107,9 @@ class JobDirectoryManifestCreatorServiceImplSpec extends Specification {
             .ticker(ticker)
             .build()
         JobDirectoryManifestCreatorService service = new JobDirectoryManifestCreatorServiceImpl(factory, cache, false)
+        def manifest1 = Mock(DirectoryManifest)
+        def manifest2 = Mock(DirectoryManifest)
+        def manifest3 = Mock(DirectoryManifest)
 
         when:
         for (int i = 0; i < 10; i++) {
@@ -113,22 +117,164 @@ class JobDirectoryManifestCreatorServiceImplSpec extends Specification {
         }
 
         then:
-        1 * factory.getDirectoryManifest(Paths.get("/temp/foo"), false) >> Mock(DirectoryManifest)
+        1 * factory.getDirectoryManifest(Paths.get("/temp/foo"), false, null) >> manifest1
         _ * ticker.read() >> 0
 
         when:
-        service.invalidateCachedDirectoryManifest(Paths.get("/temp/foo"))
-        service.getDirectoryManifest(Paths.get("/temp/foo"))
+        service.invalidateCachedDirectoryManifest(Paths.get("/temp/bar/../foo"))
+        def manifest = service.getDirectoryManifest(Paths.get("/temp/foo"))
 
         then:
-        1 * factory.getDirectoryManifest(Paths.get("/temp/foo"), false) >> Mock(DirectoryManifest)
+        1 * factory.getDirectoryManifest(Paths.get("/temp/foo"), false, manifest1) >> manifest2
         _ * ticker.read() >> 0
+        manifest == manifest2
 
         when:
-        service.getDirectoryManifest(Paths.get("/temp/foo"))
+        manifest = service.getDirectoryManifest(Paths.get("/temp/foo"))
+
+        then:
+        _ * ticker.read() >> TimeUnit.HOURS.toNanos(1) + 1
+        1 * factory.getDirectoryManifest(Paths.get("/temp/foo"), false, manifest2) >> manifest3
+        manifest == manifest3
+    }
+
+    def "Directories of the manifests created are watched for changes"() {
+        def watcher = Mock(DirectoryTreeWatcher)
+        def manifest = Mock(DirectoryManifest)
+        def root = Mock(DirectoryManifest.ManifestEntry)
+        def subDirectory = Mock(DirectoryManifest.ManifestEntry)
+        def service = new JobDirectoryManifestCreatorServiceImpl(factory, cache, false, watcher)
+
+        when:
+        def result = service.getDirectoryManifest(Paths.get("/temp/foo"))
+
+        then:
+        1 * factory.getDirectoryManifest(Paths.get("/temp/foo"), false, null) >> manifest
+        1 * manifest.getDirectories() >> ([root, subDirectory] as Set)
+        _ * root.getPath() >> ""
+        _ * subDirectory.getPath() >> "genie"
+        1 * watcher.watch(
+            Paths.get("/temp/foo"),
+            { it as Set == [Paths.get("/temp/foo"), Paths.get("/temp/foo/genie")] as Set }
+        )
+        result == manifest
+    }
+
+    def "Directories of manifests removed from the cache stop being watched"() {
+        def ticker = Mock(Ticker)
+        def watcher = Mock(DirectoryTreeWatcher)
+        def cache = Caffeine.newBuilder()
+            .maximumSize(100)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .ticker(ticker)
+            .executor({ it.run() })
+            .writer(JobDirectoryManifestCreatorServiceImpl.unwatchingCacheWriter({ watcher }))
+            .build()
+        def service = new JobDirectoryManifestCreatorServiceImpl(factory, cache, false, watcher)
+        def path = Paths.get("/temp/foo")
+        def manifest1 = Mock(DirectoryManifest)
+        def manifest2 = Mock(DirectoryManifest)
+
+        when:
+        service.getDirectoryManifest(path)
+
+        then:
+        _ * ticker.read() >> 0
+        1 * factory.getDirectoryManifest(path, false, null) >> manifest1
+        1 * watcher.watch(path, _)
+        0 * watcher.unwatch(_)
+
+        when: "The manifest expires"
+        cache.cleanUp()
+
+        then:
+        _ * ticker.read() >> TimeUnit.HOURS.toNanos(1) + 1
+        1 * watcher.unwatch(path)
+        cache.getIfPresent(path) == null
+
+        when: "The manifest is created and invalidated again"
+        service.getDirectoryManifest(path)
+        service.invalidateCachedDirectoryManifest(path)
+
+        then:
+        _ * ticker.read() >> TimeUnit.HOURS.toNanos(1) + 1
+        1 * factory.getDirectoryManifest(path, false, manifest1) >> manifest2
+
+        then:
+        1 * watcher.watch(path, _)
+
+        then:
+        1 * watcher.unwatch(path)
+    }
+
+    def "The watch of an expired manifest is removed before the manifest replacing it is watched"() {
+        def ticker = Mock(Ticker)
+        def watcher = Mock(DirectoryTreeWatcher)
+        def cache = Caffeine.newBuilder()
+            .maximumSize(100)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .ticker(ticker)
+            .executor({ it.run() })
+            .writer(JobDirectoryManifestCreatorServiceImpl.unwatchingCacheWriter({ watcher }))
+            .build()
+        def service = new JobDirectoryManifestCreatorServiceImpl(factory, cache, false, watcher)
+        def path = Paths.get("/temp/foo")
+        def manifest1 = Mock(DirectoryManifest)
+        def manifest2 = Mock(DirectoryManifest)
+
+        when:
+        service.getDirectoryManifest(path)
+
+        then:
+        _ * ticker.read() >> 0
+        1 * factory.getDirectoryManifest(path, false, null) >> manifest1
+        1 * watcher.watch(path, _)
+
+        when:
+        def manifest = service.getDirectoryManifest(path)
 
         then:
         _ * ticker.read() >> TimeUnit.HOURS.toNanos(1) + 1
-        1 * factory.getDirectoryManifest(Paths.get("/temp/foo"), false) >> Mock(DirectoryManifest)
+        1 * watcher.unwatch(path)
+
+        then:
+        1 * factory.getDirectoryManifest(path, false, manifest1) >> manifest2
+        1 * watcher.watch(path, _)
+        0 * watcher.unwatch(_)
+        manifest == manifest2
+    }
+
+    def "Previous manifests are kept within the maximum number of entries"() {
+        setup:
+        def service = new JobDirectoryManifestCreatorServiceImpl(factory, cache, false, null, 10)
+        def smallPath = Paths.get("/temp/small")
+        def largePath = Paths.get("/temp/large")
+        def smallManifest = Mock(DirectoryManifest) {
+            _ * getNumFiles() >> 4
+            _ * getNumDirectories() >> 1
+        }
+        def largeManifest = Mock(DirectoryManifest) {
+            _ * getNumFiles() >> 20
+            _ * getNumDirectories() >> 1
+        }
+
+        when:
+        service.getDirectoryManifest(smallPath)
+        service.getDirectoryManifest(largePath)
+        service.@previousManifests.cleanUp()
+
+        then:
+        1 * factory.getDirectoryManifest(smallPath, false, null) >> smallManifest
+        1 * factory.getDirectoryManifest(largePath, false, null) >> largeManifest
+
+        when: "The manifests are created again"
+        service.invalidateCachedDirectoryManifest(smallPath)
+        service.invalidateCachedDirectoryManifest(largePath)
+        service.getDirectoryManifest(smallPath)
+        service.getDirectoryManifest(largePath)
+
+        then: "Only the manifest within the limit was kept to build the next one incrementally"
+        1 * factory.getDirectoryManifest(smallPath, false, smallManifest) >> smallManifest
+        1 * factory.getDirectoryManifest(largePath, false, null) >> largeManifest
     }
 }
@@ -19,8 +19,12 @@ package com.netflix.genie.common.internal.services.impl
 
 import com.amazonaws.AmazonServiceException
 import com.amazonaws.services.s3.AmazonS3URI
+import com.amazonaws.services.s3.model.ObjectMetadata
+import com.amazonaws.services.s3.model.PutObjectRequest
 import com.amazonaws.services.s3.transfer.MultipleFileUpload
 import com.amazonaws.services.s3.transfer.TransferManager
+import com.amazonaws.services.s3.transfer.TransferManagerConfiguration
+import com.amazonaws.services.s3.transfer.Upload
 import com.netflix.genie.common.internal.aws.s3.S3ClientFactory
 import com.netflix.genie.common.internal.exceptions.checked.JobArchiveException
 import org.junit.Rule
@@ -37,6 +41,7 @@ class S3JobArchiverImplSpec extends Specification {
     TemporaryFolder temporaryFolder
     S3ClientFactory s3ClientFactory
     TransferManager transferManager
+    TransferManagerConfiguration transferManagerConfiguration
     S3JobArchiverImpl s3ArchivalService
 
     File jobDir
@@ -63,6 +68,8 @@ class S3JobArchiverImplSpec extends Specification {
     void setup() {
         this.s3ClientFactory = Mock(S3ClientFactory)
         this.transferManager = Mock(TransferManager)
+        this.transferManagerConfiguration = new TransferManagerConfiguration()
+        this.transferManager.getConfiguration() >> this.transferManagerConfiguration
         this.s3ArchivalService = new S3JobArchiverImpl(this.s3ClientFactory)
         this.jobDir = this.temporaryFolder.newFolder()
         this.stdout = new File(jobDir, "stdout")
@@ -134,6 +141,113 @@ class S3JobArchiverImplSpec extends Specification {
         result
     }
 
+    def "Archiving individual files uploads each of them from the given streams"() {
+        def upload = Mock(Upload)
+        def streams = [:]
+        def closedFiles = []
+        def files = [this.stdout.toPath(), this.hadoopCoreSite.toPath(), this.logFile.toPath()]
+        def keyPrefix = this.archivalLocationS3URI.getKey() + "/"
+
+        when:
+        def result = this.s3ArchivalService.archiveFiles(
+            this.jobDir.toPath(),
+            files,
+            this.archivalLocationS3URI.getURI(),
+            { file ->
+                def stream = new ByteArrayInputStream(file.bytes) {
+                    @Override
+                    void close() throws IOException {
+                        closedFiles.add(file)
+                    }
+                }
+                streams.put(file, stream)
+                return stream
+            }
+        )
+
+        then:
+        1 * this.s3ClientFactory.getTransferManager(_ as AmazonS3URI) >> this.transferManager
+        1 * this.transferManager.upload(
+            this.archivalLocationS3URI.getBucket(),
+            keyPrefix + "stdout",
+            { it == streams.get(this.stdout.toPath()) },
+            { ObjectMetadata metadata -> metadata.getContentLength() == this.stdout.length() }
+        ) >> upload
+        1 * this.transferManager.upload(
+            this.archivalLocationS3URI.getBucket(),
+            keyPrefix + "genie/clusters/hadoopH2/config/core",
+            _ as InputStream,
+            _ as ObjectMetadata
+        ) >> upload
+        1 * this.transferManager.upload(
+            this.archivalLocationS3URI.getBucket(),
+            keyPrefix + "genie/logs/genie.log",
+            _ as InputStream,
+            _ as ObjectMetadata
+        ) >> upload
+        3 * upload.waitForCompletion()
+        result
+        streams.keySet() == files as Set
+        closedFiles as Set == files as Set
+    }
+
+    def "Files above the multipart upload threshold are uploaded from the file"() {
+        def upload = Mock(Upload)
+        def openedFiles = []
+        def keyPrefix = this.archivalLocationS3URI.getKey() + "/"
+        this.transferManagerConfiguration.setMultipartUploadThreshold(this.logFile.length())
+
+        when:
+        def result = this.s3ArchivalService.archiveFiles(
+            this.jobDir.toPath(),
+            [this.hadoopCoreSite.toPath(), this.logFile.toPath()],
+            this.archivalLocationS3URI.getURI(),
+            { file ->
+                openedFiles.add(file)
+                return new ByteArrayInputStream(file.bytes)
+            }
+        )
+
+        then:
+        1 * this.s3ClientFactory.getTransferManager(_ as AmazonS3URI) >> this.transferManager
+        1 * this.transferManager.upload(
+            { PutObjectRequest request ->
+                request.getBucketName() == this.archivalLocationS3URI.getBucket() &&
+                    request.getKey() == keyPrefix + "genie/clusters/hadoopH2/config/core" &&
+                    request.getFile() == this.hadoopCoreSite &&
+                    request.getMetadata().getContentLength() == this.hadoopCoreSite.length()
+            }
+        ) >> upload
+        1 * this.transferManager.upload(
+            this.archivalLocationS3URI.getBucket(),
+            keyPrefix + "genie/logs/genie.log",
+            _ as InputStream,
+            _ as ObjectMetadata
+        ) >> upload
+        2 * upload.waitForCompletion()
+        result
+        openedFiles == [this.logFile.toPath()]
+    }
+
+    def "Failed uploads of individual files are aborted"() {
+        def upload = Mock(Upload)
+
+        when:
+        this.s3ArchivalService.archiveFiles(
+            this.jobDir.toPath(),
+            [this.stdout.toPath(), this.stderr.toPath()],
+            this.archivalLocationS3URI.getURI(),
+            { file -> new ByteArrayInputStream(file.bytes) }
+        )
+
+        then:
+        1 * this.s3ClientFactory.getTransferManager(_ as AmazonS3URI) >> this.transferManager
+        2 * this.transferManager.upload(this.archivalLocationS3URI.getBucket(), _ as String, _, _) >> upload
+        1 * upload.waitForCompletion() >> { throw new AmazonServiceException("test") }
+        1 * upload.abort()
+        thrown(JobArchiveException)
+    }
+
     def "If it is not a valid S3 URI archival is not attempted with this implementation"() {
         when:
         def result = this.s3ArchivalService.archiveDirectory(jobDir.toPath(), new URI("file://abc"))
@@ -0,0 +1,100 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.internal.util
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+
+/**
+ * Specifications for {@link DirectoryTreeWatcher}.
+ *
+ * @author agent
+ */
+class DirectoryTreeWatcherSpec extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+    LinkedBlockingQueue<Path> changedRoots
+    Path root
+    Path subDirectory
+
+    def setup() {
+        this.changedRoots = new LinkedBlockingQueue<>()
+        this.root = this.temporaryFolder.newFolder().toPath()
+        this.subDirectory = Files.createDirectory(this.root.resolve("genie"))
+    }
+
+    def "Trees are reported once when an entry is created in any of their directories"() {
+        def watcher = new DirectoryTreeWatcher({ this.changedRoots.add(it) }, 10)
+        def conditions = new PollingConditions(timeout: 30)
+
+        when:
+        def watched = watcher.watch(this.root, [this.root, this.subDirectory])
+        Files.createFile(this.subDirectory.resolve("stdout"))
+
+        then:
+        watched
+        conditions.eventually {
+            assert this.changedRoots.size() == 1
+        }
+        this.changedRoots.poll() == this.root
+
+        when: "The tree isn't watched anymore until it's watched again"
+        Files.createFile(this.root.resolve("stderr"))
+
+        then:
+        this.changedRoots.poll(1, TimeUnit.SECONDS) == null
+
+        when:
+        watched = watcher.watch(this.root, [this.root, this.subDirectory])
+        Files.delete(this.root.resolve("stderr"))
+
+        then:
+        watched
+        this.changedRoots.poll(30, TimeUnit.SECONDS) == this.root
+
+        cleanup:
+        watcher.close()
+    }
+
+    def "Trees aren't watched beyond the limit or after being unwatched"() {
+        def watcher = new DirectoryTreeWatcher({ this.changedRoots.add(it) }, 1)
+
+        expect:
+        !watcher.watch(this.root, [this.root, this.subDirectory])
+        watcher.watch(this.subDirectory, [this.subDirectory])
+
+        when:
+        watcher.unwatch(this.subDirectory)
+        Files.createFile(this.subDirectory.resolve("stdout"))
+
+        then:
+        this.changedRoots.poll(1, TimeUnit.SECONDS) == null
+        watcher.watch(this.root, [this.root])
+
+        cleanup:
+        watcher.close()
+    }
+}
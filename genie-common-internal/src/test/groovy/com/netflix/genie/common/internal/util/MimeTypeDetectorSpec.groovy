@@ -0,0 +1,106 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.internal.util
+
+import com.netflix.genie.common.internal.properties.MimeTypeDetectionProperties
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.BasicFileAttributes
+import java.nio.file.attribute.FileTime
+
+/**
+ * Specifications for {@link MimeTypeDetector}.
+ *
+ * @author agent
+ */
+class MimeTypeDetectorSpec extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+    SimpleMeterRegistry registry
+    MimeTypeDetectionProperties properties
+
+    def setup() {
+        this.registry = new SimpleMeterRegistry()
+        this.properties = new MimeTypeDetectionProperties()
+    }
+
+    def "File names and extensions are looked up without reading the file"() {
+        this.properties.getExtensions().put("JSON", "application/json")
+        def detector = new MimeTypeDetector(this.properties, this.registry)
+        def missingDirectory = this.temporaryFolder.getRoot().toPath().resolve(UUID.randomUUID().toString())
+        def attributes = Mock(BasicFileAttributes)
+
+        expect:
+        detector.detect(missingDirectory.resolve("stdout"), attributes) == "text/plain"
+        detector.detect(missingDirectory.resolve("spark.LOG"), attributes) == "text/plain"
+        detector.detect(missingDirectory.resolve("result.json"), attributes) == "application/json"
+        detector.detect(missingDirectory.resolve("data.bin"), attributes) == "application/octet-stream"
+        this.timerCount(MimeTypeDetector.FILE_NAME_SOURCE) == 1
+        this.timerCount(MimeTypeDetector.EXTENSION_SOURCE) == 2
+        this.timerCount(MimeTypeDetector.CONTENT_SOURCE) == 1
+    }
+
+    def "Types detected from the content are cached until the file changes"() {
+        def detector = new MimeTypeDetector(this.properties, this.registry)
+        Path file = this.temporaryFolder.newFile("report").toPath()
+        Files.write(file, "%PDF-1.4\n".getBytes(StandardCharsets.UTF_8))
+        def attributes = Files.readAttributes(file, BasicFileAttributes)
+        def changedAttributes = Mock(BasicFileAttributes) {
+            size() >> attributes.size() + 1
+            lastModifiedTime() >> FileTime.from(attributes.lastModifiedTime().toInstant().plusSeconds(1))
+        }
+
+        when:
+        def type = detector.detect(file, attributes)
+
+        then:
+        type == "application/pdf"
+        this.timerCount(MimeTypeDetector.CONTENT_SOURCE) == 1
+
+        when: "The file is deleted the cached type is still returned as long as the attributes are the same"
+        Files.delete(file)
+        type = detector.detect(file, attributes)
+
+        then:
+        type == "application/pdf"
+        this.timerCount(MimeTypeDetector.CACHE_SOURCE) == 1
+
+        when: "The file changed"
+        Files.write(file, "Some text".getBytes(StandardCharsets.UTF_8))
+        type = detector.detect(file, changedAttributes)
+
+        then:
+        type == "text/plain"
+        this.timerCount(MimeTypeDetector.CONTENT_SOURCE) == 2
+    }
+
+    private long timerCount(final String source) {
+        def timer = this.registry
+            .find(MimeTypeDetector.DETECTION_TIMER_NAME)
+            .tag(MimeTypeDetector.SOURCE_TAG, source)
+            .timer()
+        return timer == null ? 0 : timer.count()
+    }
+}
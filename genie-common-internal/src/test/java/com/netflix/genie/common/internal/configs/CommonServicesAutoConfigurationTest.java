@@ -18,11 +18,15 @@
 package com.netflix.genie.common.internal.configs;
 
 import com.netflix.genie.common.internal.dtos.DirectoryManifest;
+import com.netflix.genie.common.internal.properties.JobDirectoryManifestCacheProperties;
+import com.netflix.genie.common.internal.properties.MimeTypeDetectionProperties;
 import com.netflix.genie.common.internal.services.JobArchiveService;
 import com.netflix.genie.common.internal.services.JobArchiver;
 import com.netflix.genie.common.internal.services.JobDirectoryManifestCreatorService;
 import com.netflix.genie.common.internal.services.impl.FileSystemJobArchiverImpl;
 import com.netflix.genie.common.internal.services.impl.S3JobArchiverImpl;
+import com.netflix.genie.common.internal.util.DirectoryTreeWatcher;
+import com.netflix.genie.common.internal.util.MimeTypeDetector;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
@@ -119,6 +123,24 @@ class CommonServicesAutoConfigurationTest {
         );
     }
 
+    /**
+     * Make sure the JobDirectoryManifest cache is only watched for changes when enabled.
+     */
+    @Test
+    void testJobDirectoryManifestCacheWatcher() {
+        this.contextRunner.run(
+            context -> {
+                Assertions.assertThat(context).hasSingleBean(JobDirectoryManifestCacheProperties.class);
+                Assertions.assertThat(context).doesNotHaveBean(DirectoryTreeWatcher.class);
+            }
+        );
+        this.contextRunner
+            .withPropertyValues(JobDirectoryManifestCacheProperties.WATCH_ENABLED_PROPERTY + "=true")
+            .run(
+                context -> Assertions.assertThat(context).hasSingleBean(DirectoryTreeWatcher.class)
+            );
+    }
+
     /**
      * Make sure DirectoryManifest.Factory bean is configured as expected.
      */
@@ -129,6 +151,19 @@ class CommonServicesAutoConfigurationTest {
         );
     }
 
+    /**
+     * Make sure the MimeTypeDetector bean and its properties are configured as expected.
+     */
+    @Test
+    void testMimeTypeDetector() {
+        this.contextRunner.run(
+            context -> {
+                Assertions.assertThat(context).hasSingleBean(MimeTypeDetectionProperties.class);
+                Assertions.assertThat(context).hasSingleBean(MimeTypeDetector.class);
+            }
+        );
+    }
+
     /**
      * Make JobDirectoryManifestService beans are configured as expected.
      */
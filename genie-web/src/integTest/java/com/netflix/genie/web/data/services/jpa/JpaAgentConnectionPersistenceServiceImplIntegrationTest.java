@@ -18,11 +18,16 @@
 package com.netflix.genie.web.data.services.jpa;
 
 import com.github.springtestdbunit.annotation.DatabaseTearDown;
+import com.google.common.collect.Sets;
 import org.apache.commons.lang3.tuple.Pair;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 /**
  * Integration tests for the {@link JpaAgentConnectionPersistenceServiceImpl} class.
  *
@@ -127,6 +132,16 @@ class JpaAgentConnectionPersistenceServiceImplIntegrationTest extends DBIntegrat
                 .isPresent()
                 .contains(hostname);
         }
+
+        // The batch lookup agrees with the single lookups and leaves out jobs without a connection
+        final Map<String, String> expectedServers = Arrays
+            .stream(expectedConnections)
+            .collect(Collectors.toMap(Pair::getLeft, Pair::getRight));
+        Assertions
+            .assertThat(
+                this.agentConnectionPersistenceService.lookupAgentConnectionServers(Sets.newHashSet(JOB1, JOB2, JOB3))
+            )
+            .isEqualTo(expectedServers);
     }
 
     private void verifyAgentConnectionsOnServer(final String hostname, final long expectedNumConnections) {
@@ -56,6 +56,7 @@ import com.netflix.genie.web.data.services.ApplicationPersistenceService;
 import com.netflix.genie.web.data.services.ClusterPersistenceService;
 import com.netflix.genie.web.data.services.CommandPersistenceService;
 import com.netflix.genie.web.data.services.JobSearchService;
+import com.netflix.genie.web.dtos.JobDeletionBatch;
 import com.netflix.genie.web.dtos.JobSubmission;
 import com.netflix.genie.web.dtos.ResolvedJob;
 import com.netflix.genie.web.exceptions.checked.IdAlreadyExistsException;
@@ -233,6 +234,38 @@ class JpaJobPersistenceServiceImplIntegrationTest extends DBIntegrationTestBase
         Assertions.assertThat(this.jobRepository.findByUniqueId(JOB_3_ID)).isPresent();
     }
 
+    @Test
+    @DatabaseSetup("JpaJobPersistenceServiceImplIntegrationTest/init.xml")
+    void canDeleteJobsCreatedInRangeByKeyset() {
+        final Instant from = this.jobPersistenceService
+            .getOldestJobCreationTime()
+            .orElseThrow(IllegalStateException::new);
+        Assertions
+            .assertThat(from)
+            .isEqualTo(ZonedDateTime.of(2015, Month.AUGUST.getValue(), 11, 1, 48, 0, 0, ZoneId.of("UTC")).toInstant());
+        final Instant to = ZonedDateTime
+            .of(2016, Month.JANUARY.getValue(), 1, 0, 0, 0, 0, ZoneId.of("UTC"))
+            .toInstant();
+
+        final JobDeletionBatch first = this.jobPersistenceService.deleteBatchOfJobsCreatedInRange(from, to, 1);
+        Assertions.assertThat(first.getNumDeleted()).isEqualTo(1L);
+        Assertions.assertThat(first.getLastCreated()).contains(from);
+        Assertions.assertThat(this.jobRepository.count()).isEqualTo(2L);
+
+        final JobDeletionBatch second = this.jobPersistenceService.deleteBatchOfJobsCreatedInRange(
+            first.getLastCreated().orElseThrow(IllegalStateException::new),
+            to,
+            10
+        );
+        Assertions.assertThat(second.getNumDeleted()).isEqualTo(1L);
+        Assertions.assertThat(this.jobRepository.count()).isEqualTo(1L);
+        Assertions.assertThat(this.jobRepository.findByUniqueId(JOB_3_ID)).isPresent();
+
+        final JobDeletionBatch third = this.jobPersistenceService.deleteBatchOfJobsCreatedInRange(from, to, 10);
+        Assertions.assertThat(third.getNumDeleted()).isEqualTo(0L);
+        Assertions.assertThat(third.getLastCreated()).isNotPresent();
+    }
+
     @Test
     @DatabaseSetup("JpaJobPersistenceServiceImplIntegrationTest/init.xml")
     void canPersistAndGetAJob() throws GenieException {
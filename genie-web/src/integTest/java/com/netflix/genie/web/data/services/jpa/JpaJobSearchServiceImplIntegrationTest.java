@@ -29,6 +29,8 @@ import com.netflix.genie.common.dto.search.BaseSearchResult;
 import com.netflix.genie.common.dto.search.JobSearchResult;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.web.dtos.CursorPage;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,6 +39,8 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -189,6 +193,121 @@ class JpaJobSearchServiceImplIntegrationTest extends DBIntegrationTestBase {
         Assertions.assertThat(jobs.getContent()).isEmpty();
     }
 
+    @Test
+    @DatabaseSetup("JpaJobSearchServiceImplIntegrationTest/init.xml")
+    void canFindJobsByCursor() throws GenieException {
+        final List<String> jobIds = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            final CursorPage<JobSearchResult> page = this.service.findJobsByCursor(
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                cursor,
+                2
+            );
+            Assertions.assertThat(page.getContent()).hasSizeLessThanOrEqualTo(2);
+            page.getContent().stream().map(BaseSearchResult::getId).forEach(jobIds::add);
+            cursor = page.getNextCursor().orElse(null);
+            pages++;
+        } while (cursor != null);
+
+        Assertions.assertThat(pages).isEqualTo(3);
+        Assertions.assertThat(jobIds).hasSize(5).doesNotHaveDuplicates();
+
+        final CursorPage<JobSearchResult> runningJobs = this.service.findJobsByCursor(
+            null,
+            null,
+            null,
+            Sets.newHashSet(JobStatus.RUNNING),
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            10
+        );
+        Assertions.assertThat(runningJobs.getNextCursor()).isNotPresent();
+        Assertions
+            .assertThat(runningJobs.getContent())
+            .hasSize(3)
+            .extracting(BaseSearchResult::getId)
+            .contains(JOB_3_ID);
+
+        Assertions
+            .assertThatExceptionOfType(GeniePreconditionException.class)
+            .isThrownBy(
+                () -> this.service.findJobsByCursor(
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    "not a cursor",
+                    2
+                )
+            );
+    }
+
+    @Test
+    @DatabaseSetup("JpaJobSearchServiceImplIntegrationTest/init.xml")
+    void canExportJobs() {
+        final List<String> jobIds = new ArrayList<>();
+        Assertions
+            .assertThat(
+                this.service.exportJobs(
+                    null,
+                    null,
+                    null,
+                    Sets.newHashSet(JobStatus.RUNNING),
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    job -> jobIds.add(job.getId())
+                )
+            )
+            .isEqualTo(3L);
+        Assertions.assertThat(jobIds).hasSize(3).contains(JOB_3_ID);
+    }
+
     @Test
     @DatabaseSetup("JpaJobSearchServiceImplIntegrationTest/init.xml")
     void canFindJobsByClusterAndCommand() {
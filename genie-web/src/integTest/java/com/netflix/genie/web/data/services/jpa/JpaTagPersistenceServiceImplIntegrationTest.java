@@ -130,4 +130,29 @@ class JpaTagPersistenceServiceImplIntegrationTest extends DBIntegrationTestBase
         tags = this.tagPersistenceService.getTags(Sets.newHashSet(tag1, UUID.randomUUID().toString()));
         Assertions.assertThat(tags).hasSize(1).contains(tagEntity1);
     }
+
+    @Test
+    void canCreateAndGetTags() {
+        Assertions.assertThat(this.tagRepository.count()).isEqualTo(0L);
+        final String tag1 = UUID.randomUUID().toString();
+        final String tag2 = UUID.randomUUID().toString();
+        final String tag3 = UUID.randomUUID().toString();
+        this.tagPersistenceService.createTagIfNotExists(tag1);
+        final TagEntity tagEntity1 = this.tagPersistenceService.getTag(tag1).orElseThrow(IllegalArgumentException::new);
+
+        final Set<TagEntity> tags = this.tagPersistenceService.createAndGetTags(Sets.newHashSet(tag1, tag2, tag3));
+        Assertions.assertThat(tags).hasSize(3).contains(tagEntity1);
+        Assertions
+            .assertThat(tags)
+            .extracting(TagEntity::getTag)
+            .containsExactlyInAnyOrder(tag1, tag2, tag3);
+        Assertions.assertThat(this.tagRepository.count()).isEqualTo(3L);
+
+        Assertions
+            .assertThat(this.tagPersistenceService.createAndGetTags(Sets.newHashSet(tag2, tag3)))
+            .hasSize(2)
+            .extracting(TagEntity::getId)
+            .doesNotContain(0L);
+        Assertions.assertThat(this.tagRepository.count()).isEqualTo(3L);
+    }
 }
@@ -30,13 +30,18 @@ import com.netflix.genie.proto.FileStreamServiceGrpc;
 import com.netflix.genie.proto.ServerAckMessage;
 import com.netflix.genie.proto.ServerControlMessage;
 import com.netflix.genie.proto.ServerFileRequestMessage;
+import com.netflix.genie.proto.ServerManifestResyncRequestMessage;
 import com.netflix.genie.web.agent.resources.AgentFileResourceImpl;
 import com.netflix.genie.web.agent.services.AgentFileStreamService;
+import com.netflix.genie.web.properties.AgentFileStreamProperties;
 import com.netflix.genie.web.util.StreamBuffer;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpRange;
 import org.springframework.scheduling.TaskScheduler;
 
 import javax.annotation.Nullable;
@@ -58,12 +63,17 @@ import java.util.concurrent.atomic.AtomicReference;
  * <p>
  * Implementation overview:
  * Each agent maintains a single 'sync' channel, through which manifests are pushed to the server.
+ * After the first complete manifest agents may only push the changes since their previous message, which are applied
+ * to the manifest held for the job. If a message is missed the agent is asked to resend its complete manifest.
  * On top of the same channel, the server can request a file.
  * When a file is requested, the agent opens a separate 'transmit' stream and sends the file in chunks.
- * The server acknowledges a chunk in order to request the next one.
+ * The server acknowledges chunks with the offset in the file up to which it received data, agents keep a window of
+ * chunks in flight and send the next one whenever one is acknowledged.
  * <p>
  * This service returns a resource immediately, but maintains a handle on a buffer where data is written as it is
- * received.
+ * received. Several chunks can be buffered per transfer, once the buffer is full the next chunk is only requested from
+ * the transport (gRPC manual flow control) after the client reading the resource made room. No gRPC thread is ever
+ * blocked waiting for a slow client.
  *
  * @author mprimi
  * @since 4.0.0
@@ -76,6 +86,8 @@ public class GRpcAgentFileStreamServiceImpl
     private static final long FILE_TRANSFER_BEGIN_TIMEOUT_MILLIS = 3000;
     private static final String PENDING_TRANSFERS_GAUGE_NAME = "genie.agents.fileTransfers.pending.gauge";
     private static final String IN_PROGRESS_TRANSFERS_GAUGE_NAME = "genie.agents.fileTransfers.inProgress.gauge";
+    private static final String BUFFERED_BYTES_GAUGE_NAME = "genie.agents.fileTransfers.bufferedBytes.gauge";
+    private static final String PAUSED_TRANSFERS_COUNTER_NAME = "genie.agents.fileTransfers.paused.counter";
 
     private final Map<String, ControlStreamObserver> jobIdControlStreamMap = Maps.newConcurrentMap();
     private final Map<String, StreamBuffer> pendingTransferBuffersMap = Maps.newConcurrentMap();
@@ -83,32 +95,49 @@ public class GRpcAgentFileStreamServiceImpl
     private final Map<String, StreamBuffer> inProgressTransferBuffersMap = Maps.newConcurrentMap();
     private final JobDirectoryManifestProtoConverter converter;
     private final TaskScheduler taskScheduler;
+    private final AgentFileStreamProperties properties;
     private final MeterRegistry registry;
+    private final Counter pausedTransfersCounter;
 
     /**
      * Constructor.
      *
      * @param converter     The {@link JobDirectoryManifestProtoConverter} instance to use
      * @param taskScheduler A {@link TaskScheduler} instance to use
+     * @param properties    The {@link AgentFileStreamProperties} to use
      * @param registry      The meter registry
      */
     public GRpcAgentFileStreamServiceImpl(
         final JobDirectoryManifestProtoConverter converter,
         final TaskScheduler taskScheduler,
+        final AgentFileStreamProperties properties,
         final MeterRegistry registry
     ) {
         this.converter = converter;
         this.taskScheduler = taskScheduler;
+        this.properties = properties;
         this.registry = registry;
         this.registry.gaugeMapSize(PENDING_TRANSFERS_GAUGE_NAME, Sets.newHashSet(), pendingTransferBuffersMap);
         this.registry.gaugeMapSize(IN_PROGRESS_TRANSFERS_GAUGE_NAME, Sets.newHashSet(), inProgressTransferBuffersMap);
+        this.registry.gauge(
+            BUFFERED_BYTES_GAUGE_NAME,
+            Sets.newHashSet(),
+            this.inProgressTransferBuffersMap,
+            buffers -> buffers.values().stream().mapToLong(StreamBuffer::getBufferedBytes).sum()
+        );
+        this.pausedTransfersCounter = this.registry.counter(PAUSED_TRANSFERS_COUNTER_NAME);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Optional<AgentFileResource> getResource(final String jobId, final Path relativePath, final URI uri) {
+    public Optional<AgentFileResource> getResource(
+        final String jobId,
+        final Path relativePath,
+        final URI uri,
+        @Nullable final HttpRange range
+    ) {
 
         final ControlStreamObserver streamObserver = this.jobIdControlStreamMap.get(jobId);
         if (streamObserver == null) {
@@ -138,13 +167,24 @@ public class GRpcAgentFileStreamServiceImpl
         // A unique ID for this file transfer
         final String fileTransferId = UUID.randomUUID().toString();
 
-        // TODO: code upstream of here assumes files is requested in its entirety.
-        // But rest of the code downstream actually treats everything as a range request.
-        final int startOffset = 0;
-        final int endOffset = Math.toIntExact(manifestEntry.getSize());
+        // Only request the range which will be served, the offsets are resolved against the same size reported by the
+        // resource so they match the region computed by the HTTP layer
+        final long size = manifestEntry.getSize();
+        long startOffset = 0;
+        long endOffset = size;
+        if (range != null) {
+            try {
+                startOffset = range.getRangeStart(size);
+                endOffset = Math.max(startOffset, range.getRangeEnd(size) + 1);
+            } catch (final IllegalArgumentException e) {
+                log.warn("Invalid range {} for file {} of size {}, requesting all of it", range, relativePath, size);
+                startOffset = 0;
+                endOffset = size;
+            }
+        }
 
         // Allocate and park the buffer that will store the data in transit.
-        final StreamBuffer buffer = new StreamBuffer();
+        final StreamBuffer buffer = new StreamBuffer(this.properties.getMaxBufferedBytesPerTransfer());
 
         if (endOffset - startOffset == 0) {
             // When requesting an empty file (or a range of 0 bytes), short-circuit and just return an empty resource.
@@ -154,7 +194,7 @@ public class GRpcAgentFileStreamServiceImpl
             this.pendingTransferBuffersMap.put(fileTransferId, buffer);
 
             // Request file over control channel
-            streamObserver.responseObserver.onNext(
+            streamObserver.send(
                 ServerControlMessage.newBuilder()
                     .setServerFileRequest(
                         ServerFileRequestMessage.newBuilder()
@@ -188,7 +228,8 @@ public class GRpcAgentFileStreamServiceImpl
             manifestEntry.getLastModifiedTime(),
             Paths.get(manifestEntry.getPath()),
             jobId,
-            buffer.getInputStream()
+            buffer.getInputStream(),
+            startOffset
         );
 
         return Optional.of(resource);
@@ -258,7 +299,8 @@ public class GRpcAgentFileStreamServiceImpl
         }
     }
 
-    private void handleFileTransferChunk(
+    @Nullable
+    private StreamBuffer handleFileTransferChunk(
         final FileTransferStreamObserver fileTransferStreamObserver,
         final String streamId,
         final ByteString data
@@ -284,6 +326,7 @@ public class GRpcAgentFileStreamServiceImpl
         if (streamBuffer != null) {
             streamBuffer.write(data);
         }
+        return streamBuffer;
     }
 
     private void handleFileTransferError(
@@ -328,8 +371,12 @@ public class GRpcAgentFileStreamServiceImpl
     private static class ControlStreamObserver implements StreamObserver<AgentManifestMessage> {
         private final GRpcAgentFileStreamServiceImpl gRpcAgentFileStreamService;
         private final StreamObserver<ServerControlMessage> responseObserver;
+        // Guards the response observer, which isn't thread safe, without waiting on manifest updates
+        private final Object responseObserverLock = new Object();
         private final AtomicReference<DirectoryManifest> manifestRef = new AtomicReference<>();
         private final AtomicReference<String> jobIdRef = new AtomicReference<>();
+        private long lastSequenceNumber;
+        private boolean resyncRequested;
 
         ControlStreamObserver(
             final GRpcAgentFileStreamServiceImpl gRpcAgentFileStreamService,
@@ -351,13 +398,71 @@ public class GRpcAgentFileStreamServiceImpl
                 this.gRpcAgentFileStreamService.registerControlStream(jobId, this);
             }
 
-            // Save the manifest just received
-            try {
-                manifestRef.set(
-                    this.gRpcAgentFileStreamService.converter.toManifest(value)
+            this.updateManifest(jobId, value);
+        }
+
+        // Messages on a stream are delivered one at a time but synchronize to publish the sequence state safely
+        private synchronized void updateManifest(final String jobId, final AgentManifestMessage value) {
+            final long sequenceNumber = value.getSequenceNumber();
+            final JobDirectoryManifestProtoConverter converter = this.gRpcAgentFileStreamService.converter;
+
+            if (!value.hasDelta()) {
+                // Save the complete manifest just received
+                try {
+                    manifestRef.set(converter.toManifest(value));
+                    this.lastSequenceNumber = sequenceNumber;
+                    this.resyncRequested = false;
+                } catch (GenieConversionException e) {
+                    log.warn("Failed to parse manifest for job id: {}", jobId, e);
+                    this.resyncRequested = false;
+                    this.requestResync(jobId);
+                }
+                return;
+            }
+
+            final DirectoryManifest previousManifest = manifestRef.get();
+            if (this.resyncRequested) {
+                log.debug("Ignoring manifest delta {} for job id: {} until resynced", sequenceNumber, jobId);
+                return;
+            }
+            if (previousManifest == null || sequenceNumber != this.lastSequenceNumber + 1) {
+                log.warn(
+                    "Manifest delta {} for job id: {} doesn't follow {}",
+                    sequenceNumber,
+                    jobId,
+                    this.lastSequenceNumber
                 );
+                this.requestResync(jobId);
+                return;
+            }
+
+            // Apply the changes just received to the saved manifest
+            try {
+                manifestRef.set(converter.applyDelta(previousManifest, value));
+                this.lastSequenceNumber = sequenceNumber;
             } catch (GenieConversionException e) {
-                log.warn("Failed to parse manifest for job id: {}", jobId, e);
+                log.warn("Failed to apply manifest delta for job id: {}", jobId, e);
+                this.requestResync(jobId);
+            }
+        }
+
+        private void requestResync(final String jobId) {
+            // Deltas are ignored until the complete manifest arrives so only ask for it once
+            if (!this.resyncRequested) {
+                log.info("Requesting a complete manifest for job id: {}", jobId);
+                this.resyncRequested = true;
+                this.send(
+                    ServerControlMessage.newBuilder()
+                        .setServerManifestResyncRequest(ServerManifestResyncRequestMessage.getDefaultInstance())
+                        .build()
+                );
+            }
+        }
+
+        // Control messages are sent from gRPC, HTTP and file tail threads, one at a time
+        private void send(final ServerControlMessage message) {
+            synchronized (this.responseObserverLock) {
+                this.responseObserver.onNext(message);
             }
         }
 
@@ -385,6 +490,7 @@ public class GRpcAgentFileStreamServiceImpl
     private static class FileTransferStreamObserver implements StreamObserver<AgentFileMessage> {
         private final GRpcAgentFileStreamServiceImpl gRpcAgentFileStreamService;
         private final StreamObserver<ServerAckMessage> responseObserver;
+        private final ServerCallStreamObserver<ServerAckMessage> flowControlledObserver;
         private final AtomicReference<String> streamId = new AtomicReference<>();
 
         FileTransferStreamObserver(
@@ -393,15 +499,33 @@ public class GRpcAgentFileStreamServiceImpl
         ) {
             this.gRpcAgentFileStreamService = gRpcAgentFileStreamService;
             this.responseObserver = responseObserver;
+            if (responseObserver instanceof ServerCallStreamObserver) {
+                // Incoming chunks are requested one at the time once there is room to buffer them
+                this.flowControlledObserver = (ServerCallStreamObserver<ServerAckMessage>) responseObserver;
+                this.flowControlledObserver.disableAutoInboundFlowControl();
+                this.flowControlledObserver.request(1);
+            } else {
+                this.flowControlledObserver = null;
+            }
         }
 
         @Override
         public void onNext(final AgentFileMessage value) {
+            StreamBuffer streamBuffer = null;
+            try {
+                streamBuffer = this.handleChunk(value);
+            } finally {
+                this.requestNextChunk(streamBuffer);
+            }
+        }
+
+        @Nullable
+        private StreamBuffer handleChunk(final AgentFileMessage value) {
             final String messageStreamId = value.getStreamId();
 
             if (StringUtils.isBlank(messageStreamId)) {
                 log.warn("Received file chunk with empty stream identifier");
-                return;
+                return null;
             }
 
             if (streamId.compareAndSet(null, messageStreamId)) {
@@ -414,11 +538,11 @@ public class GRpcAgentFileStreamServiceImpl
                     messageStreamId,
                     streamId.get()
                 );
-                return;
+                return null;
             }
 
-            // May block if the queue of chunks is full
-            this.gRpcAgentFileStreamService.handleFileTransferChunk(
+            // Never blocks, the buffer grows past its limit by at most this chunk as the next one isn't requested yet
+            final StreamBuffer streamBuffer = this.gRpcAgentFileStreamService.handleFileTransferChunk(
                 this,
                 value.getStreamId(),
                 value.getData()
@@ -426,8 +550,24 @@ public class GRpcAgentFileStreamServiceImpl
 
             // Send ACK after successfully enqueuing chunk for consumption
             this.responseObserver.onNext(
-                ServerAckMessage.newBuilder().build()
+                ServerAckMessage.newBuilder()
+                    .setAcknowledgedOffset(value.getOffset() + value.getData().size())
+                    .build()
             );
+            return streamBuffer;
+        }
+
+        private void requestNextChunk(@Nullable final StreamBuffer streamBuffer) {
+            if (this.flowControlledObserver == null) {
+                return;
+            }
+            if (streamBuffer == null) {
+                // Nowhere to put data for this stream, let the agent drain it
+                this.flowControlledObserver.request(1);
+            } else if (!streamBuffer.whenWritable(() -> this.flowControlledObserver.request(1))) {
+                log.debug("Buffer for file stream: {} is full, pausing until the client reads", this.streamId.get());
+                this.gRpcAgentFileStreamService.pausedTransfersCounter.increment();
+            }
         }
 
         @Override
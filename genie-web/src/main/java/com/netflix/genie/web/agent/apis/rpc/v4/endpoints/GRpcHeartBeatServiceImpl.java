@@ -17,27 +17,43 @@
  */
 package com.netflix.genie.web.agent.apis.rpc.v4.endpoints;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.netflix.genie.proto.AgentHeartBeat;
 import com.netflix.genie.proto.HeartBeatServiceGrpc;
 import com.netflix.genie.proto.ServerHeartBeat;
 import com.netflix.genie.web.agent.services.AgentRoutingService;
+import com.netflix.genie.web.properties.HeartBeatProperties;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.TaskScheduler;
 
+import javax.annotation.Nullable;
 import javax.annotation.PreDestroy;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An edge gRPC service that uses bi-directional streaming.
  * This is useful to reliably track which connection is handled by which server and to detect disconnections on both
  * ends.
+ * <p>
+ * Streams are kept in a concurrent registry so no agent waits on another. Heartbeats are sent in parallel shards of
+ * streams and only to streams which gRPC flow control reports as ready, a stream which isn't gets its heartbeat once
+ * it becomes ready. Connections and disconnections are recorded with the {@link AgentRoutingService} on the task
+ * executor instead of the gRPC callback thread, in order for any given job.
  *
  * @author mprimi
  * @since 4.0.0
@@ -45,33 +61,53 @@ import java.util.concurrent.ScheduledFuture;
 @Slf4j
 public class GRpcHeartBeatServiceImpl extends HeartBeatServiceGrpc.HeartBeatServiceImplBase {
 
-    private static final long HEART_BEAT_PERIOD_MILLIS = 5_000L; // TODO make configurable
     private static final String HEARTBEATING_GAUGE_NAME = "genie.agents.heartbeating.gauge";
-    private final Map<String, AgentStreamRecord> activeStreamsMap = Maps.newHashMap();
+    private static final String SEND_HEARTBEATS_TIMER_NAME = "genie.agents.heartbeats.send.timer";
+    private static final String DEFERRED_HEARTBEATS_COUNTER_NAME = "genie.agents.heartbeats.deferred.counter";
+    // Stripes to order the routing updates of each job while updating different jobs in parallel
+    private static final int ROUTING_UPDATE_STRIPES = 64;
+    private final Map<String, AgentStreamRecord> activeStreamsMap = new ConcurrentHashMap<>();
     private final ScheduledFuture<?> sendHeartbeatsFuture;
-    private MeterRegistry registry;
+    private final MeterRegistry registry;
     private final AgentRoutingService agentRoutingService;
+    private final TaskExecutor taskExecutor;
+    private final int shardSize;
+    private final Counter deferredHeartbeatsCounter;
+    private final Object[] routingUpdateLocks = new Object[ROUTING_UPDATE_STRIPES];
+    private final CompletableFuture<?>[] routingUpdates = new CompletableFuture<?>[ROUTING_UPDATE_STRIPES];
 
     /**
      * Constructor.
      *
      * @param agentRoutingService The {@link AgentRoutingService} implementation to use
      * @param taskScheduler       The {@link TaskScheduler} instance to use
+     * @param taskExecutor        The {@link TaskExecutor} to send heartbeats and update agent routes on
+     * @param properties          The {@link HeartBeatProperties} to use
      * @param registry            The meter registry
      */
     public GRpcHeartBeatServiceImpl(
         final AgentRoutingService agentRoutingService,
         final TaskScheduler taskScheduler,
+        final TaskExecutor taskExecutor,
+        final HeartBeatProperties properties,
         final MeterRegistry registry
     ) {
         this.agentRoutingService = agentRoutingService;
-        this.sendHeartbeatsFuture = taskScheduler.scheduleWithFixedDelay(
-            this::sendHeartbeats,
-            HEART_BEAT_PERIOD_MILLIS
-        );
+        this.taskExecutor = taskExecutor;
+        this.shardSize = properties.getShardSize();
+        for (int i = 0; i < ROUTING_UPDATE_STRIPES; i++) {
+            this.routingUpdateLocks[i] = new Object();
+            this.routingUpdates[i] = CompletableFuture.completedFuture(null);
+        }
         this.registry = registry;
+        this.deferredHeartbeatsCounter = this.registry.counter(DEFERRED_HEARTBEATS_COUNTER_NAME);
 
         this.registry.gaugeMapSize(HEARTBEATING_GAUGE_NAME, Sets.newHashSet(), activeStreamsMap);
+
+        this.sendHeartbeatsFuture = taskScheduler.scheduleWithFixedDelay(
+            this::sendHeartbeats,
+            properties.getSendInterval()
+        );
     }
 
     /**
@@ -83,14 +119,14 @@ public class GRpcHeartBeatServiceImpl extends HeartBeatServiceGrpc.HeartBeatServ
             sendHeartbeatsFuture.cancel(false);
         }
 
-        synchronized (activeStreamsMap) {
-            for (final AgentStreamRecord agentStreamRecord : activeStreamsMap.values()) {
-                agentStreamRecord.responseObserver.onCompleted();
+        for (final String streamId : activeStreamsMap.keySet()) {
+            final AgentStreamRecord agentStreamRecord = activeStreamsMap.remove(streamId);
+            if (agentStreamRecord != null) {
+                agentStreamRecord.complete(null);
                 if (agentStreamRecord.hasJobId()) {
                     notifyAgentDisconnected(agentStreamRecord.getJobId());
                 }
             }
-            activeStreamsMap.clear();
         }
     }
 
@@ -99,10 +135,25 @@ public class GRpcHeartBeatServiceImpl extends HeartBeatServiceGrpc.HeartBeatServ
      * Using the connection ensures server-side eventually detects a broken connection.
      */
     private void sendHeartbeats() {
-        synchronized (activeStreamsMap) {
-            for (final AgentStreamRecord agentStreamRecord : activeStreamsMap.values()) {
-                agentStreamRecord.responseObserver.onNext(ServerHeartBeat.getDefaultInstance());
-            }
+        final long start = System.nanoTime();
+        final List<AgentStreamRecord> agentStreamRecords = Lists.newArrayList(activeStreamsMap.values());
+        final List<CompletableFuture<Void>> shards = Lists.newArrayList();
+        for (final List<AgentStreamRecord> shard : Iterables.partition(agentStreamRecords, this.shardSize)) {
+            shards.add(
+                CompletableFuture.runAsync(
+                    () -> shard.forEach(AgentStreamRecord::sendHeartbeat),
+                    this.taskExecutor
+                )
+            );
+        }
+        try {
+            CompletableFuture.allOf(shards.toArray(new CompletableFuture[0])).join();
+        } catch (final Exception e) {
+            log.error("Failed to send heartbeats to some agents", e);
+        } finally {
+            this.registry
+                .timer(SEND_HEARTBEATS_TIMER_NAME)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 
@@ -116,11 +167,20 @@ public class GRpcHeartBeatServiceImpl extends HeartBeatServiceGrpc.HeartBeatServ
         // Handle new stream / client connection
         final String streamId = UUID.randomUUID().toString();
         final RequestObserver requestObserver = new RequestObserver(this, streamId);
-        synchronized (activeStreamsMap) {
+        final AgentStreamRecord agentStreamRecord = new AgentStreamRecord(
+            responseObserver,
+            this.deferredHeartbeatsCounter
+        );
 
-            // Create a record for this connection
-            activeStreamsMap.put(streamId, new AgentStreamRecord(responseObserver));
+        // Send a deferred heartbeat as soon as the transport can take it
+        if (responseObserver instanceof ServerCallStreamObserver) {
+            ((ServerCallStreamObserver<ServerHeartBeat>) responseObserver).setOnReadyHandler(
+                agentStreamRecord::onReady
+            );
         }
+
+        // Create a record for this connection
+        activeStreamsMap.put(streamId, agentStreamRecord);
         return requestObserver;
     }
 
@@ -129,10 +189,7 @@ public class GRpcHeartBeatServiceImpl extends HeartBeatServiceGrpc.HeartBeatServ
         final AgentHeartBeat agentHeartBeat
     ) {
         // Pull the record, if one exists
-        final AgentStreamRecord agentStreamRecord;
-        synchronized (activeStreamsMap) {
-            agentStreamRecord = activeStreamsMap.get(streamId);
-        }
+        final AgentStreamRecord agentStreamRecord = activeStreamsMap.get(streamId);
 
         final String claimedJobId = agentHeartBeat.getClaimedJobId();
         if (agentStreamRecord == null) {
@@ -151,15 +208,12 @@ public class GRpcHeartBeatServiceImpl extends HeartBeatServiceGrpc.HeartBeatServ
 
     private void handleStreamCompletion(final String streamId) {
         // Pull the record, if one exists
-        final AgentStreamRecord agentStreamRecord;
-        synchronized (activeStreamsMap) {
-            agentStreamRecord = activeStreamsMap.remove(streamId);
-        }
+        final AgentStreamRecord agentStreamRecord = activeStreamsMap.remove(streamId);
 
         if (agentStreamRecord == null) {
             log.warn("Received completion from an unknown stream");
         } else {
-            agentStreamRecord.responseObserver.onCompleted();
+            agentStreamRecord.complete(null);
             if (agentStreamRecord.hasJobId()) {
                 notifyAgentDisconnected(agentStreamRecord.getJobId());
             }
@@ -168,15 +222,12 @@ public class GRpcHeartBeatServiceImpl extends HeartBeatServiceGrpc.HeartBeatServ
 
     private void handleStreamError(final String streamId, final Throwable t) {
         // Pull the record, if one exists
-        final AgentStreamRecord agentStreamRecord;
-        synchronized (activeStreamsMap) {
-            agentStreamRecord = activeStreamsMap.remove(streamId);
-        }
+        final AgentStreamRecord agentStreamRecord = activeStreamsMap.remove(streamId);
 
         if (agentStreamRecord == null) {
             log.warn("Received error from an unknown stream");
         } else {
-            agentStreamRecord.responseObserver.onError(t);
+            agentStreamRecord.complete(t);
             if (agentStreamRecord.hasJobId()) {
                 notifyAgentDisconnected(agentStreamRecord.getJobId());
             }
@@ -184,21 +235,44 @@ public class GRpcHeartBeatServiceImpl extends HeartBeatServiceGrpc.HeartBeatServ
     }
 
     private void notifyAgentConnected(final String jobId) {
-        agentRoutingService.handleClientConnected(jobId);
+        updateRoute(jobId, () -> agentRoutingService.handleClientConnected(jobId));
     }
 
     private void notifyAgentDisconnected(final String jobId) {
-        agentRoutingService.handleClientDisconnected(jobId);
+        updateRoute(jobId, () -> agentRoutingService.handleClientDisconnected(jobId));
+    }
+
+    private void updateRoute(final String jobId, final Runnable update) {
+        // Chain the update behind the previous ones for jobs in the same stripe so a disconnection is never recorded
+        // before the connection it ends
+        final int stripe = Math.floorMod(jobId.hashCode(), ROUTING_UPDATE_STRIPES);
+        synchronized (this.routingUpdateLocks[stripe]) {
+            this.routingUpdates[stripe] = this.routingUpdates[stripe].thenRunAsync(
+                () -> {
+                    try {
+                        update.run();
+                    } catch (final Exception e) {
+                        log.error("Failed to update the route to the agent running job {}", jobId, e);
+                    }
+                },
+                this.taskExecutor
+            );
+        }
     }
 
     private static class AgentStreamRecord {
         private final StreamObserver<ServerHeartBeat> responseObserver;
-        private String claimedJobId;
+        private final Counter deferredHeartbeatsCounter;
+        private volatile String claimedJobId;
+        private boolean heartbeatPending;
+        private boolean completed;
 
         AgentStreamRecord(
-            final StreamObserver<ServerHeartBeat> responseObserver
+            final StreamObserver<ServerHeartBeat> responseObserver,
+            final Counter deferredHeartbeatsCounter
         ) {
             this.responseObserver = responseObserver;
+            this.deferredHeartbeatsCounter = deferredHeartbeatsCounter;
         }
 
         synchronized boolean updateRecord(final String jobId) {
@@ -217,6 +291,47 @@ public class GRpcHeartBeatServiceImpl extends HeartBeatServiceGrpc.HeartBeatServ
         boolean hasJobId() {
             return !StringUtils.isBlank(claimedJobId);
         }
+
+        synchronized void sendHeartbeat() {
+            if (this.completed) {
+                return;
+            }
+            if (!this.isReady()) {
+                // Don't queue up more messages for a slow connection, one heartbeat is enough once it catches up
+                this.heartbeatPending = true;
+                this.deferredHeartbeatsCounter.increment();
+                return;
+            }
+            this.heartbeatPending = false;
+            try {
+                this.responseObserver.onNext(ServerHeartBeat.getDefaultInstance());
+            } catch (final Exception e) {
+                log.warn("Failed to send heartbeat to agent running job {}", this.claimedJobId, e);
+            }
+        }
+
+        synchronized void onReady() {
+            if (this.heartbeatPending) {
+                this.sendHeartbeat();
+            }
+        }
+
+        synchronized void complete(@Nullable final Throwable t) {
+            if (this.completed) {
+                return;
+            }
+            this.completed = true;
+            if (t == null) {
+                this.responseObserver.onCompleted();
+            } else {
+                this.responseObserver.onError(t);
+            }
+        }
+
+        private boolean isReady() {
+            return !(this.responseObserver instanceof ServerCallStreamObserver)
+                || ((ServerCallStreamObserver<ServerHeartBeat>) this.responseObserver).isReady();
+        }
     }
 
     private static class RequestObserver implements StreamObserver<AgentHeartBeat> {
@@ -22,6 +22,7 @@ import org.springframework.core.io.Resource;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -102,6 +103,32 @@ public final class AgentFileResourceImpl implements AgentFileStreamService.Agent
         final Path relativePath,
         final String jobId,
         final InputStream inputStream
+    ) {
+        return forAgentFile(uri, size, lastModifiedTime, relativePath, jobId, inputStream, 0L);
+    }
+
+    /**
+     * Factory method to create a resource for a remote file of which only the data from a given offset was requested.
+     * The resource still describes the whole file but readers of its input stream must skip to the offset first,
+     * as done when serving a single HTTP range, before reading any data.
+     *
+     * @param uri              the resource URI
+     * @param size             the size of the file, as per latest manifest
+     * @param lastModifiedTime the last modification time, as per latest manifest
+     * @param relativePath     the path of the file relative to the root of the job directory
+     * @param jobId            the id of the job this file belongs to
+     * @param inputStream      the input stream to read this file content from the start offset
+     * @param startOffset      the offset in the file of the first byte of the input stream
+     * @return a {@link AgentFileStreamService.AgentFileResource}
+     */
+    public static AgentFileStreamService.AgentFileResource forAgentFile(
+        final URI uri,
+        final long size,
+        final Instant lastModifiedTime,
+        final Path relativePath,
+        final String jobId,
+        final InputStream inputStream,
+        final long startOffset
     ) {
         final String description = AgentFileResourceImpl.class.getSimpleName()
             + " ["
@@ -122,7 +149,7 @@ public final class AgentFileResourceImpl implements AgentFileStreamService.Agent
             lastModifiedTime.toEpochMilli(),
             filenamePath.toString(),
             description,
-            inputStream
+            startOffset == 0 ? inputStream : new OffsetInputStream(inputStream, startOffset)
         );
     }
 
@@ -232,4 +259,62 @@ public final class AgentFileResourceImpl implements AgentFileStreamService.Agent
         }
         return this.inputStream;
     }
+
+    /**
+     * An input stream positioned at the start of the file whose data starts at an offset. Skipping up to the offset
+     * is free, reading anything before it fails.
+     */
+    private static final class OffsetInputStream extends FilterInputStream {
+        private long bytesToOffset;
+
+        private OffsetInputStream(final InputStream inputStream, final long offset) {
+            super(inputStream);
+            this.bytesToOffset = offset;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read() throws IOException {
+            this.checkOffsetReached();
+            return super.read();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            this.checkOffsetReached();
+            return super.read(b, off, len);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long skip(final long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            final long skipped = Math.min(n, this.bytesToOffset);
+            this.bytesToOffset -= skipped;
+            return skipped == n ? skipped : skipped + super.skip(n - skipped);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void checkOffsetReached() throws IOException {
+            if (this.bytesToOffset > 0) {
+                throw new IOException("Data before the requested offset is not available");
+            }
+        }
+    }
 }
@@ -19,7 +19,9 @@ package com.netflix.genie.web.agent.services;
 
 import com.netflix.genie.common.internal.dtos.DirectoryManifest;
 import org.springframework.core.io.Resource;
+import org.springframework.http.HttpRange;
 
+import javax.annotation.Nullable;
 import javax.validation.constraints.NotBlank;
 import java.net.URI;
 import java.nio.file.Path;
@@ -46,7 +48,28 @@ public interface AgentFileStreamService {
      * @param uri          the file uri //TODO redundant
      * @return an optional {@link Resource}
      */
-    Optional<AgentFileResource> getResource(@NotBlank String jobId, Path relativePath, URI uri);
+    default Optional<AgentFileResource> getResource(@NotBlank String jobId, Path relativePath, URI uri) {
+        return this.getResource(jobId, relativePath, uri, null);
+    }
+
+    /**
+     * Returns a Resource for the given job file boxed in an {@link Optional}, like
+     * {@link #getResource(String, Path, URI)}, but only requests the given byte range of the file from the agent.
+     * The resource still describes the whole file, its input stream has to be skipped to the start of the range before
+     * reading.
+     *
+     * @param jobId        the job id
+     * @param relativePath the relative path in the job directory
+     * @param uri          the file uri
+     * @param range        the range of the file to request or {@literal null} to request all of it
+     * @return an optional {@link Resource}
+     */
+    Optional<AgentFileResource> getResource(
+        @NotBlank String jobId,
+        Path relativePath,
+        URI uri,
+        @Nullable HttpRange range
+    );
 
     /**
      * Returns the manifest for a given job, boxed in an {@link Optional}.
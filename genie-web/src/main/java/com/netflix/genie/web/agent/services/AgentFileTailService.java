@@ -0,0 +1,86 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.agent.services;
+
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.NotBlank;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Service to follow files of running jobs as they grow, like {@code tail -f}, without polling them.
+ * All the viewers of the same file share a single reader of the data sent by the agent.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@Validated
+public interface AgentFileTailService {
+
+    /**
+     * Start following a file of a job whose agent is connected to this node.
+     * The listener first receives the end of the file as it currently is, then any data appended to it until the
+     * subscription is cancelled, the agent goes away or the maximum follow duration is reached.
+     *
+     * @param jobId        the job id
+     * @param relativePath the path of the file relative to the root of the job directory
+     * @param listener     the listener receiving the data
+     * @return the subscription boxed in an {@link Optional}, empty if the agent is not connected to this node or the
+     * file doesn't exist
+     */
+    Optional<Subscription> follow(@NotBlank String jobId, Path relativePath, Listener listener);
+
+    /**
+     * Receives the data of a followed file.
+     * Callbacks are never invoked concurrently for the same listener.
+     *
+     * @author agent
+     * @since 4.0.0
+     */
+    interface Listener {
+
+        /**
+         * Data was appended to the file.
+         *
+         * @param data the data, in order
+         * @throws IOException if the data can't be delivered, the listener is then unsubscribed
+         */
+        void onData(byte[] data) throws IOException;
+
+        /**
+         * The file won't be followed anymore and no more data will be received.
+         */
+        void onCompleted();
+    }
+
+    /**
+     * Handle on a listener following a file.
+     *
+     * @author agent
+     * @since 4.0.0
+     */
+    interface Subscription {
+
+        /**
+         * Stop following the file. The listener won't be invoked anymore.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.agent.services.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.netflix.genie.common.internal.dtos.DirectoryManifest;
+import com.netflix.genie.web.agent.resources.AgentFileProtocolResolver;
+import com.netflix.genie.web.agent.services.AgentFileStreamService;
+import com.netflix.genie.web.agent.services.AgentFileTailService;
+import com.netflix.genie.web.properties.AgentFileStreamProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpRange;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.NotBlank;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Implementation of {@link AgentFileTailService} on top of the {@link AgentFileStreamService}.
+ * <p>
+ * Agents periodically push their manifest to the server they are connected to. Each followed file is checked against
+ * the latest manifest held in memory and whenever it grew, only the appended range is requested from the agent. The
+ * data is then sent to all the listeners following the file, so there is at most one transfer in progress per file
+ * no matter how many viewers there are. Data is sent to the listeners one after the other, a slow listener holds back
+ * the others following the same file.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@Validated
+@Slf4j
+public class AgentFileTailServiceImpl implements AgentFileTailService {
+
+    private static final String FOLLOWED_FILES_GAUGE_NAME = "genie.agents.fileTails.followedFiles.gauge";
+    private static final String SUBSCRIPTIONS_GAUGE_NAME = "genie.agents.fileTails.subscriptions.gauge";
+    private static final String TRANSFERRED_BYTES_COUNTER_NAME = "genie.agents.fileTails.transferredBytes.counter";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Map<Pair<String, String>, FileTail> fileTails = Maps.newConcurrentMap();
+    private final AgentFileStreamService agentFileStreamService;
+    private final TaskScheduler taskScheduler;
+    private final TaskExecutor taskExecutor;
+    private final AgentFileStreamProperties properties;
+    private final Counter transferredBytesCounter;
+
+    /**
+     * Constructor.
+     *
+     * @param agentFileStreamService the {@link AgentFileStreamService} to get manifests and files from
+     * @param taskScheduler          the {@link TaskScheduler} to check the followed files for growth on
+     * @param taskExecutor           the {@link TaskExecutor} to read the appended data and send it to listeners on
+     * @param properties             the {@link AgentFileStreamProperties} to use
+     * @param registry               the {@link MeterRegistry} to publish metrics to
+     */
+    public AgentFileTailServiceImpl(
+        final AgentFileStreamService agentFileStreamService,
+        final TaskScheduler taskScheduler,
+        final TaskExecutor taskExecutor,
+        final AgentFileStreamProperties properties,
+        final MeterRegistry registry
+    ) {
+        this.agentFileStreamService = agentFileStreamService;
+        this.taskScheduler = taskScheduler;
+        this.taskExecutor = taskExecutor;
+        this.properties = properties;
+        this.transferredBytesCounter = registry.counter(TRANSFERRED_BYTES_COUNTER_NAME);
+        registry.gaugeMapSize(FOLLOWED_FILES_GAUGE_NAME, Sets.newHashSet(), this.fileTails);
+        registry.gauge(
+            SUBSCRIPTIONS_GAUGE_NAME,
+            Sets.newHashSet(),
+            this.fileTails,
+            tails -> tails.values().stream().mapToInt(FileTail::getNumSubscriptions).sum()
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Subscription> follow(
+        @NotBlank final String jobId,
+        final Path relativePath,
+        final Listener listener
+    ) {
+        final String path = relativePath.toString();
+        final Optional<DirectoryManifest.ManifestEntry> manifestEntry = this.getFileEntry(jobId, path);
+        if (!manifestEntry.isPresent()) {
+            log.debug("File {} of job {} is not available on this node", path, jobId);
+            return Optional.empty();
+        }
+
+        final URI uri;
+        try {
+            uri = AgentFileProtocolResolver.createUri(jobId, "/" + path);
+        } catch (final URISyntaxException e) {
+            log.warn("Invalid path {} for job {}", path, jobId, e);
+            return Optional.empty();
+        }
+
+        // Viewers joining a file which is already followed get the data from where the other viewers are
+        final long startOffset = Math.max(0, manifestEntry.get().getSize() - this.properties.getFollowInitialBytes());
+        final Pair<String, String> key = ImmutablePair.of(jobId, path);
+        final FollowSubscription subscription = new FollowSubscription(listener);
+        FileTail fileTail;
+        do {
+            fileTail = this.fileTails.computeIfAbsent(key, k -> new FileTail(k, uri, startOffset));
+        } while (!fileTail.subscribe(subscription));
+
+        subscription.start(fileTail);
+        return Optional.of(subscription);
+    }
+
+    private Optional<DirectoryManifest.ManifestEntry> getFileEntry(final String jobId, final String path) {
+        return this.agentFileStreamService
+            .getManifest(jobId)
+            .flatMap(manifest -> manifest.getEntry(path))
+            .filter(entry -> !entry.isDirectory());
+    }
+
+    /**
+     * A file being followed by at least one listener.
+     */
+    private final class FileTail implements Runnable {
+        private final Pair<String, String> key;
+        private final URI uri;
+        private final Set<FollowSubscription> subscriptions = Sets.newConcurrentHashSet();
+        private long offset;
+        private boolean transferInProgress;
+        private boolean closed;
+        private ScheduledFuture<?> refreshFuture;
+
+        private FileTail(final Pair<String, String> key, final URI uri, final long offset) {
+            this.key = key;
+            this.uri = uri;
+            this.offset = offset;
+        }
+
+        private int getNumSubscriptions() {
+            return this.subscriptions.size();
+        }
+
+        private synchronized boolean subscribe(final FollowSubscription subscription) {
+            if (this.closed) {
+                return false;
+            }
+            this.subscriptions.add(subscription);
+            if (this.refreshFuture == null) {
+                this.refreshFuture = taskScheduler.scheduleWithFixedDelay(
+                    this,
+                    properties.getFollowRefreshInterval()
+                );
+            }
+            return true;
+        }
+
+        private synchronized void unsubscribe(final FollowSubscription subscription) {
+            this.subscriptions.remove(subscription);
+            if (this.subscriptions.isEmpty()) {
+                this.close();
+            }
+        }
+
+        private synchronized void close() {
+            if (!this.closed) {
+                this.closed = true;
+                if (this.refreshFuture != null) {
+                    this.refreshFuture.cancel(false);
+                }
+                fileTails.remove(this.key, this);
+            }
+        }
+
+        /**
+         * Check the latest manifest for data appended to the file and start transferring it if there is any.
+         */
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (this.closed || this.transferInProgress) {
+                    return;
+                }
+            }
+
+            final String jobId = this.key.getLeft();
+            final String path = this.key.getRight();
+            final Optional<DirectoryManifest.ManifestEntry> manifestEntry = getFileEntry(jobId, path);
+            if (!manifestEntry.isPresent()) {
+                // The job completed, its agent moved to another node or the file was deleted
+                log.debug("File {} of job {} is not available anymore", path, jobId);
+                this.complete();
+                return;
+            }
+
+            final long size = manifestEntry.get().getSize();
+            final long startOffset;
+            synchronized (this) {
+                if (this.closed || this.transferInProgress) {
+                    return;
+                }
+                if (size < this.offset) {
+                    log.debug("File {} of job {} was truncated, following it from the start", path, jobId);
+                    this.offset = 0;
+                }
+                if (size == this.offset) {
+                    return;
+                }
+                startOffset = this.offset;
+                this.transferInProgress = true;
+            }
+
+            try {
+                taskExecutor.execute(() -> this.transfer(startOffset, size));
+            } catch (final TaskRejectedException e) {
+                log.warn("Can't transfer data appended to file {} of job {}: {}", path, jobId, e.getMessage());
+                synchronized (this) {
+                    this.transferInProgress = false;
+                }
+            }
+        }
+
+        private void transfer(final long startOffset, final long endOffset) {
+            final String jobId = this.key.getLeft();
+            final String path = this.key.getRight();
+            long position = startOffset;
+            try {
+                final Optional<AgentFileStreamService.AgentFileResource> resource = agentFileStreamService.getResource(
+                    jobId,
+                    Paths.get(path),
+                    this.uri,
+                    HttpRange.createByteRange(startOffset, endOffset - 1)
+                );
+                if (resource.isPresent()) {
+                    try (InputStream inputStream = resource.get().getInputStream()) {
+                        ByteStreams.skipFully(inputStream, startOffset);
+                        final byte[] buffer = new byte[(int) Math.min(READ_BUFFER_SIZE, endOffset - startOffset)];
+                        while (position < endOffset) {
+                            final int bytesRead = inputStream.read(
+                                buffer,
+                                0,
+                                (int) Math.min(buffer.length, endOffset - position)
+                            );
+                            if (bytesRead == -1) {
+                                break;
+                            }
+                            position += bytesRead;
+                            this.deliver(Arrays.copyOf(buffer, bytesRead));
+                        }
+                    }
+                }
+            } catch (final IOException | RuntimeException e) {
+                log.warn("Failed to transfer data appended to file {} of job {}: {}", path, jobId, e.getMessage());
+            } finally {
+                synchronized (this) {
+                    this.offset = position;
+                    this.transferInProgress = false;
+                }
+            }
+        }
+
+        private void deliver(final byte[] data) {
+            transferredBytesCounter.increment(data.length);
+            for (final FollowSubscription subscription : this.subscriptions) {
+                if (!subscription.deliver(data)) {
+                    this.unsubscribe(subscription);
+                }
+            }
+        }
+
+        private void complete() {
+            final List<FollowSubscription> completedSubscriptions;
+            synchronized (this) {
+                this.close();
+                completedSubscriptions = ImmutableList.copyOf(this.subscriptions);
+                this.subscriptions.clear();
+            }
+            completedSubscriptions.forEach(FollowSubscription::complete);
+        }
+    }
+
+    /**
+     * A listener following a file.
+     */
+    private final class FollowSubscription implements Subscription {
+        private final Listener listener;
+        private FileTail fileTail;
+        private ScheduledFuture<?> expirationFuture;
+        private boolean done;
+
+        private FollowSubscription(final Listener listener) {
+            this.listener = listener;
+        }
+
+        private synchronized void start(final FileTail followedFileTail) {
+            this.fileTail = followedFileTail;
+            if (!this.done) {
+                this.expirationFuture = taskScheduler.schedule(
+                    this::expire,
+                    Instant.now().plusMillis(properties.getFollowMaxDuration())
+                );
+            }
+        }
+
+        private synchronized boolean deliver(final byte[] data) {
+            if (this.done) {
+                return true;
+            }
+            try {
+                this.listener.onData(data);
+                return true;
+            } catch (final IOException | RuntimeException e) {
+                log.debug("Failed to send data to listener, unsubscribing it: {}", e.getMessage());
+                this.done = true;
+                this.cancelExpiration();
+                return false;
+            }
+        }
+
+        private synchronized void complete() {
+            if (!this.done) {
+                this.done = true;
+                this.cancelExpiration();
+                this.listener.onCompleted();
+            }
+        }
+
+        private void expire() {
+            this.unsubscribe();
+            this.complete();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                this.done = true;
+                this.cancelExpiration();
+            }
+            this.unsubscribe();
+        }
+
+        private void unsubscribe() {
+            final FileTail followedFileTail;
+            synchronized (this) {
+                followedFileTail = this.fileTail;
+            }
+            if (followedFileTail != null) {
+                followedFileTail.unsubscribe(this);
+            }
+        }
+
+        private void cancelExpiration() {
+            if (this.expirationFuture != null) {
+                this.expirationFuture.cancel(false);
+            }
+        }
+    }
+}
@@ -17,17 +17,36 @@
  */
 package com.netflix.genie.web.agent.services.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 import com.netflix.genie.common.internal.util.GenieHostInfo;
 import com.netflix.genie.web.agent.services.AgentRoutingService;
 import com.netflix.genie.web.data.services.AgentConnectionPersistenceService;
+import com.netflix.genie.web.properties.AgentRoutingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.validation.annotation.Validated;
 
 import javax.validation.constraints.NotBlank;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation of {@link AgentRoutingService}.
+ * <p>
+ * Routes are served from an in-memory routing table instead of querying the database on every lookup. Connections
+ * to this server are known exactly as they are added and removed as agents connect and disconnect. Connections to
+ * other servers are read from the database on a miss and kept in a bounded cache which is refreshed in bulk
+ * periodically, so a route to an agent which moved to another server can be stale for up to the refresh interval.
  *
  * @author mprimi
  * @since 4.0.0
@@ -36,21 +55,50 @@ import java.util.Optional;
 @Slf4j
 public class AgentRoutingServiceImpl implements AgentRoutingService {
 
+    private static final String LOOKUP_COUNTER = "genie.agents.routing.lookup.counter";
+    private static final String LOCAL_CONNECTIONS_GAUGE = "genie.agents.routing.localConnections.gauge";
+    private static final String RESULT_TAG = "result";
+    private static final int REFRESH_BATCH_SIZE = 500;
+
     private final AgentConnectionPersistenceService agentConnectionPersistenceService;
     private final GenieHostInfo genieHostInfo;
+    private final Set<String> localJobIds = ConcurrentHashMap.newKeySet();
+    private final Cache<String, String> remoteRoutes;
+    private final Counter localCounter;
+    private final Counter hitCounter;
+    private final Counter missCounter;
 
     /**
-     * Constructor.
+     * Constructor. Schedules the periodic bulk refresh of the cached routes to other servers.
      *
      * @param agentConnectionPersistenceService agent connection persistence service
      * @param genieHostInfo                     local genie node host information
+     * @param taskScheduler                     the {@link TaskScheduler} to run the route refreshes on
+     * @param properties                        the {@link AgentRoutingProperties} to use
+     * @param registry                          the {@link MeterRegistry} to publish routing metrics to
      */
     public AgentRoutingServiceImpl(
         final AgentConnectionPersistenceService agentConnectionPersistenceService,
-        final GenieHostInfo genieHostInfo
+        final GenieHostInfo genieHostInfo,
+        final TaskScheduler taskScheduler,
+        final AgentRoutingProperties properties,
+        final MeterRegistry registry
     ) {
         this.agentConnectionPersistenceService = agentConnectionPersistenceService;
         this.genieHostInfo = genieHostInfo;
+        this.remoteRoutes = Caffeine
+            .newBuilder()
+            .maximumSize(properties.getMaximumSize())
+            .expireAfterWrite(properties.getExpireAfterWrite(), TimeUnit.MILLISECONDS)
+            // Evict on the calling thread so a disabled (0 sized) cache never serves an entry
+            .executor(Runnable::run)
+            .build();
+        this.localCounter = registry.counter(LOOKUP_COUNTER, RESULT_TAG, "local");
+        this.hitCounter = registry.counter(LOOKUP_COUNTER, RESULT_TAG, "hit");
+        this.missCounter = registry.counter(LOOKUP_COUNTER, RESULT_TAG, "miss");
+        registry.gaugeCollectionSize(LOCAL_CONNECTIONS_GAUGE, Collections.emptySet(), this.localJobIds);
+
+        taskScheduler.scheduleWithFixedDelay(this::refreshRemoteRoutes, properties.getRefreshInterval());
     }
 
     /**
@@ -58,7 +106,26 @@ public class AgentRoutingServiceImpl implements AgentRoutingService {
      */
     @Override
     public Optional<String> getHostnameForAgentConnection(final @NotBlank String jobId) {
-        return this.agentConnectionPersistenceService.lookupAgentConnectionServer(jobId);
+        final String localHostname = this.genieHostInfo.getHostname();
+        if (this.localJobIds.contains(jobId)) {
+            this.localCounter.increment();
+            return Optional.of(localHostname);
+        }
+
+        final String cachedHostname = this.remoteRoutes.getIfPresent(jobId);
+        if (cachedHostname != null) {
+            this.hitCounter.increment();
+            return Optional.of(cachedHostname);
+        }
+
+        this.missCounter.increment();
+        final Optional<String> hostname = this.agentConnectionPersistenceService.lookupAgentConnectionServer(jobId);
+        // Only routes to other servers are cached, local connections are tracked exactly. A record pointing at this
+        // server for a job which isn't connected is a leftover which will be cleaned up so don't hold on to it.
+        hostname
+            .filter(server -> !server.equals(localHostname))
+            .ifPresent(server -> this.remoteRoutes.put(jobId, server));
+        return hostname;
     }
 
     /**
@@ -66,8 +133,11 @@ public class AgentRoutingServiceImpl implements AgentRoutingService {
      */
     @Override
     public boolean isAgentConnectionLocal(final @NotBlank String jobId) {
-        final Optional<String> hostname = getHostnameForAgentConnection(jobId);
-        return hostname.isPresent() && hostname.get().equals(genieHostInfo.getHostname());
+        final boolean local = this.localJobIds.contains(jobId);
+        if (local) {
+            this.localCounter.increment();
+        }
+        return local;
     }
 
     /**
@@ -77,6 +147,8 @@ public class AgentRoutingServiceImpl implements AgentRoutingService {
     public void handleClientConnected(@NotBlank final String jobId) {
         log.info("Agent executing job {} connected", jobId);
         this.agentConnectionPersistenceService.saveAgentConnection(jobId, genieHostInfo.getHostname());
+        this.localJobIds.add(jobId);
+        this.remoteRoutes.invalidate(jobId);
     }
 
     /**
@@ -85,6 +157,37 @@ public class AgentRoutingServiceImpl implements AgentRoutingService {
     @Override
     public void handleClientDisconnected(@NotBlank final String jobId) {
         log.info("Agent executing job {} disconnected", jobId);
+        this.localJobIds.remove(jobId);
+        this.remoteRoutes.invalidate(jobId);
         this.agentConnectionPersistenceService.removeAgentConnection(jobId, genieHostInfo.getHostname());
     }
+
+    /**
+     * Re-read all the cached routes to other servers from the database in a few batched queries. Routes which no
+     * longer exist, or which now point at this server, are dropped.
+     */
+    void refreshRemoteRoutes() {
+        final Set<String> cachedJobIds = Sets.newHashSet(this.remoteRoutes.asMap().keySet());
+        if (cachedJobIds.isEmpty()) {
+            return;
+        }
+        final String localHostname = this.genieHostInfo.getHostname();
+        try {
+            for (final List<String> batch : Iterables.partition(cachedJobIds, REFRESH_BATCH_SIZE)) {
+                final Map<String, String> servers = this.agentConnectionPersistenceService.lookupAgentConnectionServers(
+                    Sets.newHashSet(batch)
+                );
+                for (final String jobId : batch) {
+                    final String server = servers.get(jobId);
+                    if (server == null || server.equals(localHostname)) {
+                        this.remoteRoutes.invalidate(jobId);
+                    } else {
+                        this.remoteRoutes.put(jobId, server);
+                    }
+                }
+            }
+        } catch (final Exception e) {
+            log.warn("Failed to refresh agent routes, cached routes will expire instead", e);
+        }
+    }
 }
@@ -17,7 +17,10 @@
  */
 package com.netflix.genie.web.apis.rest.v3.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.google.common.io.ByteStreams;
 import com.netflix.genie.common.dto.Application;
@@ -32,15 +35,18 @@ import com.netflix.genie.common.dto.JobStatusMessages;
 import com.netflix.genie.common.dto.search.JobSearchResult;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.common.exceptions.GenieServerUnavailableException;
 import com.netflix.genie.common.external.dtos.v4.ApiClientMetadata;
 import com.netflix.genie.common.external.dtos.v4.JobRequestMetadata;
+import com.netflix.genie.common.external.util.GenieObjectMapper;
 import com.netflix.genie.common.internal.dtos.v4.converters.DtoConverters;
 import com.netflix.genie.common.internal.exceptions.checked.GenieCheckedException;
 import com.netflix.genie.common.internal.exceptions.unchecked.GenieJobNotFoundException;
 import com.netflix.genie.common.internal.jobs.JobConstants;
 import com.netflix.genie.common.internal.util.GenieHostInfo;
+import com.netflix.genie.web.agent.services.AgentFileTailService;
 import com.netflix.genie.web.agent.services.AgentRoutingService;
 import com.netflix.genie.web.apis.rest.v3.hateoas.assemblers.ApplicationModelAssembler;
 import com.netflix.genie.web.apis.rest.v3.hateoas.assemblers.ClusterModelAssembler;
@@ -54,6 +60,7 @@ import com.netflix.genie.web.apis.rest.v3.hateoas.assemblers.JobSearchResultMode
 import com.netflix.genie.web.data.services.DataServices;
 import com.netflix.genie.web.data.services.JobPersistenceService;
 import com.netflix.genie.web.data.services.JobSearchService;
+import com.netflix.genie.web.dtos.CursorPage;
 import com.netflix.genie.web.dtos.JobSubmission;
 import com.netflix.genie.web.properties.JobsProperties;
 import com.netflix.genie.web.services.AttachmentService;
@@ -72,7 +79,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.hateoas.PagedModel;
@@ -99,7 +108,9 @@ import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.annotation.Nullable;
@@ -109,8 +120,12 @@ import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -138,6 +153,14 @@ public class JobRestController {
     private static final String NAME_HEADER_COOKIE = "cookie";
     private static final String JOB_API_BASE_PATH = "/api/v3/jobs/";
     private static final String COMMA = ",";
+    private static final String CURSOR_PARAM = "cursor";
+    private static final String FOLLOW_PARAM = "follow";
+    // The duration of followed output and exports is bounded by the tail service and by the number of jobs rather than
+    // by the async request timeout
+    private static final long NO_TIMEOUT = -1L;
+    private static final int FORWARD_BUFFER_SIZE = 8 * 1024;
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    private static final char NEW_LINE = '\n';
 
     private final JobLaunchService jobLaunchService;
     private final JobSearchService jobSearchService;
@@ -152,9 +175,11 @@ public class JobRestController {
     private final JobSearchResultModelAssembler jobSearchResultModelAssembler;
     private final String hostname;
     private final RestTemplate restTemplate;
+    private final RestTemplate followRestTemplate;
     private final JobDirectoryServerService jobDirectoryServerService;
     private final JobsProperties jobsProperties;
     private final AgentRoutingService agentRoutingService;
+    private final AgentFileTailService agentFileTailService;
     private final JobPersistenceService jobPersistenceService;
     private final Environment environment;
 
@@ -175,10 +200,12 @@ public class JobRestController {
      * @param entityModelAssemblers     The encapsulation of all the V3 resource assemblers
      * @param genieHostInfo             Information about the host that the Genie process is running on
      * @param restTemplate              The rest template for http requests
+     * @param followRestTemplate        The rest template for forwarding requests following the output of jobs
      * @param jobDirectoryServerService The service to handle serving back job directory resources
      * @param jobsProperties            All the properties associated with jobs
      * @param registry                  The metrics registry to use
      * @param agentRoutingService       Agent routing service
+     * @param agentFileTailService      The service to follow files of running agent jobs
      * @param environment               The application environment to pull dynamic properties from
      * @param attachmentService         The attachment service to use to save attachments.
      * @param jobExecutionModeSelector  The execution mode (agent vs. embedded) mode selector
@@ -192,10 +219,12 @@ public class JobRestController {
         final EntityModelAssemblers entityModelAssemblers,
         final GenieHostInfo genieHostInfo,
         @Qualifier("genieRestTemplate") final RestTemplate restTemplate,
+        @Qualifier("genieFollowRestTemplate") final RestTemplate followRestTemplate,
         final JobDirectoryServerService jobDirectoryServerService,
         final JobsProperties jobsProperties,
         final MeterRegistry registry,
         final AgentRoutingService agentRoutingService,
+        final AgentFileTailService agentFileTailService,
         final Environment environment,
         final AttachmentService attachmentService,
         final JobExecutionModeSelector jobExecutionModeSelector
@@ -213,9 +242,11 @@ public class JobRestController {
         this.jobSearchResultModelAssembler = entityModelAssemblers.getJobSearchResultModelAssembler();
         this.hostname = genieHostInfo.getHostname();
         this.restTemplate = restTemplate;
+        this.followRestTemplate = followRestTemplate;
         this.jobDirectoryServerService = jobDirectoryServerService;
         this.jobsProperties = jobsProperties;
         this.agentRoutingService = agentRoutingService;
+        this.agentFileTailService = agentFileTailService;
         this.jobPersistenceService = dataServices.getJobPersistenceService();
         this.environment = environment;
 
@@ -431,15 +462,7 @@ public class JobRestController {
             page
         );
 
-        Set<JobStatus> enumStatuses = null;
-        if (statuses != null && !statuses.isEmpty()) {
-            enumStatuses = EnumSet.noneOf(JobStatus.class);
-            for (final String status : statuses) {
-                if (StringUtils.isNotBlank(status)) {
-                    enumStatuses.add(JobStatus.parse(status));
-                }
-            }
-        }
+        final Set<JobStatus> enumStatuses = toJobStatuses(statuses);
 
         // Build the self link which will be used for the next, previous, etc links
         final Link self = WebMvcLinkBuilder
@@ -491,6 +514,271 @@ public class JobRestController {
         );
     }
 
+    /**
+     * Get jobs for given filter criteria using keyset (cursor) pagination. Selected over
+     * {@link #findJobs} when the {@literal cursor} parameter is present. Pass an empty cursor to get the first page and
+     * then follow the {@literal next} links. No total count is computed so deep pages cost the same as the first one.
+     *
+     * @param id               id for job
+     * @param name             name of job (can be a SQL-style pattern such as HIVE%)
+     * @param user             user who submitted job
+     * @param statuses         statuses of jobs to find
+     * @param tags             tags for the job
+     * @param clusterName      the name of the cluster
+     * @param clusterId        the id of the cluster
+     * @param commandName      the name of the command run by the job
+     * @param commandId        the id of the command run by the job
+     * @param minStarted       The time which the job had to start after in order to be return (inclusive)
+     * @param maxStarted       The time which the job had to start before in order to be returned (exclusive)
+     * @param minFinished      The time which the job had to finish after in order to be return (inclusive)
+     * @param maxFinished      The time which the job had to finish before in order to be returned (exclusive)
+     * @param grouping         The grouping the job should be a member of
+     * @param groupingInstance The grouping instance the job should be a member of
+     * @param cursor           The cursor from the previous page's next link or empty for the first page
+     * @param size             The maximum number of jobs to return in the page
+     * @return successful response, or one with HTTP error code
+     * @throws GenieException For any error
+     */
+    @GetMapping(produces = MediaTypes.HAL_JSON_VALUE, params = CURSOR_PARAM)
+    @ResponseStatus(HttpStatus.OK)
+    @SuppressWarnings("checkstyle:parameternumber")
+    public CollectionModel<EntityModel<JobSearchResult>> findJobsByCursor(
+        @RequestParam(value = "id", required = false) @Nullable final String id,
+        @RequestParam(value = "name", required = false) @Nullable final String name,
+        @RequestParam(value = "user", required = false) @Nullable final String user,
+        @RequestParam(value = "status", required = false) @Nullable final Set<String> statuses,
+        @RequestParam(value = "tag", required = false) @Nullable final Set<String> tags,
+        @RequestParam(value = "clusterName", required = false) @Nullable final String clusterName,
+        @RequestParam(value = "clusterId", required = false) @Nullable final String clusterId,
+        @RequestParam(value = "commandName", required = false) @Nullable final String commandName,
+        @RequestParam(value = "commandId", required = false) @Nullable final String commandId,
+        @RequestParam(value = "minStarted", required = false) @Nullable final Long minStarted,
+        @RequestParam(value = "maxStarted", required = false) @Nullable final Long maxStarted,
+        @RequestParam(value = "minFinished", required = false) @Nullable final Long minFinished,
+        @RequestParam(value = "maxFinished", required = false) @Nullable final Long maxFinished,
+        @RequestParam(value = "grouping", required = false) @Nullable final String grouping,
+        @RequestParam(value = "groupingInstance", required = false) @Nullable final String groupingInstance,
+        @RequestParam(value = CURSOR_PARAM) final String cursor,
+        @RequestParam(value = "size", defaultValue = "20") final int size
+    ) throws GenieException {
+        log.info(
+            "[findJobsByCursor] Called with "
+                + "[id | jobName | user | statuses | clusterName "
+                + "| clusterId | minStarted | maxStarted | minFinished | maxFinished | grouping | groupingInstance "
+                + "| cursor | size]\n"
+                + "{} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {}",
+            id,
+            name,
+            user,
+            statuses,
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished,
+            grouping,
+            groupingInstance,
+            cursor,
+            size
+        );
+
+        final CursorPage<JobSearchResult> page = this.jobSearchService.findJobsByCursor(
+            id,
+            name,
+            user,
+            toJobStatuses(statuses),
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted == null ? null : Instant.ofEpochMilli(minStarted),
+            maxStarted == null ? null : Instant.ofEpochMilli(maxStarted),
+            minFinished == null ? null : Instant.ofEpochMilli(minFinished),
+            maxFinished == null ? null : Instant.ofEpochMilli(maxFinished),
+            grouping,
+            groupingInstance,
+            cursor,
+            size
+        );
+
+        final Link self = WebMvcLinkBuilder
+            .linkTo(
+                WebMvcLinkBuilder
+                    .methodOn(JobRestController.class)
+                    .findJobsByCursor(
+                        id,
+                        name,
+                        user,
+                        statuses,
+                        tags,
+                        clusterName,
+                        clusterId,
+                        commandName,
+                        commandId,
+                        minStarted,
+                        maxStarted,
+                        minFinished,
+                        maxFinished,
+                        grouping,
+                        groupingInstance,
+                        cursor,
+                        size
+                    )
+            ).withSelfRel();
+
+        final Optional<String> nextCursor = page.getNextCursor();
+        Link next = null;
+        if (nextCursor.isPresent()) {
+            next = WebMvcLinkBuilder
+                .linkTo(
+                    WebMvcLinkBuilder
+                        .methodOn(JobRestController.class)
+                        .findJobsByCursor(
+                            id,
+                            name,
+                            user,
+                            statuses,
+                            tags,
+                            clusterName,
+                            clusterId,
+                            commandName,
+                            commandId,
+                            minStarted,
+                            maxStarted,
+                            minFinished,
+                            maxFinished,
+                            grouping,
+                            groupingInstance,
+                            nextCursor.get(),
+                            size
+                        )
+                ).withRel(IanaLinkRelations.NEXT);
+        }
+
+        return this.jobSearchResultModelAssembler.toCursorModel(page.getContent(), self, next);
+    }
+
+    /**
+     * Export all the jobs matching the given filter criteria as newline delimited JSON. Selected over
+     * {@link #findJobs} when the client accepts {@literal application/x-ndjson}. Results are written to the response
+     * as they are read from the database without paging, counting or HAL links so memory use is constant regardless
+     * of how many jobs match. Use the started and finished bounds to limit the time window of the export.
+     * <p>
+     * The export is written off the request thread and isn't subject to the async request timeout, so it isn't cut
+     * off however long it takes.
+     *
+     * @param id               id for job
+     * @param name             name of job (can be a SQL-style pattern such as HIVE%)
+     * @param user             user who submitted job
+     * @param statuses         statuses of jobs to find
+     * @param tags             tags for the job
+     * @param clusterName      the name of the cluster
+     * @param clusterId        the id of the cluster
+     * @param commandName      the name of the command run by the job
+     * @param commandId        the id of the command run by the job
+     * @param minStarted       The time which the job had to start after in order to be return (inclusive)
+     * @param maxStarted       The time which the job had to start before in order to be returned (exclusive)
+     * @param minFinished      The time which the job had to finish after in order to be return (inclusive)
+     * @param maxFinished      The time which the job had to finish before in order to be returned (exclusive)
+     * @param grouping         The grouping the job should be a member of
+     * @param groupingInstance The grouping instance the job should be a member of
+     * @param response         The servlet response to stream the matching jobs to
+     * @return The task streaming the matching jobs one JSON document per line
+     * @throws GenieException For any error
+     */
+    @GetMapping(produces = NDJSON_MEDIA_TYPE)
+    @ResponseStatus(HttpStatus.OK)
+    @SuppressWarnings("checkstyle:parameternumber")
+    public WebAsyncTask<Void> exportJobs(
+        @RequestParam(value = "id", required = false) @Nullable final String id,
+        @RequestParam(value = "name", required = false) @Nullable final String name,
+        @RequestParam(value = "user", required = false) @Nullable final String user,
+        @RequestParam(value = "status", required = false) @Nullable final Set<String> statuses,
+        @RequestParam(value = "tag", required = false) @Nullable final Set<String> tags,
+        @RequestParam(value = "clusterName", required = false) @Nullable final String clusterName,
+        @RequestParam(value = "clusterId", required = false) @Nullable final String clusterId,
+        @RequestParam(value = "commandName", required = false) @Nullable final String commandName,
+        @RequestParam(value = "commandId", required = false) @Nullable final String commandId,
+        @RequestParam(value = "minStarted", required = false) @Nullable final Long minStarted,
+        @RequestParam(value = "maxStarted", required = false) @Nullable final Long maxStarted,
+        @RequestParam(value = "minFinished", required = false) @Nullable final Long minFinished,
+        @RequestParam(value = "maxFinished", required = false) @Nullable final Long maxFinished,
+        @RequestParam(value = "grouping", required = false) @Nullable final String grouping,
+        @RequestParam(value = "groupingInstance", required = false) @Nullable final String groupingInstance,
+        final HttpServletResponse response
+    ) throws GenieException {
+        log.info(
+            "[exportJobs] Called with "
+                + "[id | jobName | user | statuses | clusterName "
+                + "| clusterId | minStarted | maxStarted | minFinished | maxFinished | grouping | groupingInstance]\n"
+                + "{} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {}",
+            id,
+            name,
+            user,
+            statuses,
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished,
+            grouping,
+            groupingInstance
+        );
+
+        // Validate before the response is committed so bad input still gets an error status
+        final Set<JobStatus> enumStatuses = toJobStatuses(statuses);
+
+        response.setContentType(NDJSON_MEDIA_TYPE);
+        return new WebAsyncTask<>(NO_TIMEOUT, () -> {
+            final ObjectWriter writer = GenieObjectMapper
+                .getMapper()
+                .writerFor(JobSearchResult.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            try (JsonGenerator generator = writer.getFactory().createGenerator(response.getOutputStream())) {
+                generator.setRootValueSeparator(null);
+                final long exported = this.jobSearchService.exportJobs(
+                    id,
+                    name,
+                    user,
+                    enumStatuses,
+                    tags,
+                    clusterName,
+                    clusterId,
+                    commandName,
+                    commandId,
+                    minStarted == null ? null : Instant.ofEpochMilli(minStarted),
+                    maxStarted == null ? null : Instant.ofEpochMilli(maxStarted),
+                    minFinished == null ? null : Instant.ofEpochMilli(minFinished),
+                    maxFinished == null ? null : Instant.ofEpochMilli(maxFinished),
+                    grouping,
+                    groupingInstance,
+                    job -> {
+                        try {
+                            writer.writeValue(generator, job);
+                            generator.writeRaw(NEW_LINE);
+                        } catch (final IOException ioe) {
+                            throw new UncheckedIOException(ioe);
+                        }
+                    }
+                );
+                log.debug("[exportJobs] Exported {} jobs", exported);
+            } catch (final UncheckedIOException uioe) {
+                // Most likely the client went away. Unwrap so the container treats it as a write failure.
+                throw uioe.getCause();
+            }
+            return null;
+        });
+    }
+
     /**
      * Kill job based on given job ID.
      *
@@ -700,32 +988,13 @@ public class JobRestController {
             if (!this.hostname.equals(jobHostname)) {
                 log.info("Job {} is not run on this node. Forwarding to {}", id, jobHostname);
                 final String forwardHost = this.buildForwardHost(jobHostname);
-                try {
-                    this.restTemplate.execute(
-                        forwardHost + JOB_API_BASE_PATH + id + "/output/" + path,
-                        HttpMethod.GET,
-                        forwardRequest -> copyRequestHeaders(request, forwardRequest),
-                        (ResponseExtractor<Void>) forwardResponse -> {
-                            response.setStatus(forwardResponse.getStatusCode().value());
-                            copyResponseHeaders(response, forwardResponse);
-                            // Documentation I could find pointed to the HttpEntity reading the bytes off
-                            // the stream so this should resolve memory problems if the file returned is large
-                            ByteStreams.copy(forwardResponse.getBody(), response.getOutputStream());
-                            return null;
-                        }
-                    );
-                } catch (final HttpClientErrorException.NotFound e) {
-                    throw new GenieNotFoundException("Not Found (via: " + forwardHost + ")", e);
-                } catch (final HttpStatusCodeException e) {
-                    throw new GenieException(
-                        e.getStatusCode().value(),
-                        "Proxied request failed: " + e.getMessage(),
-                        e
-                    );
-                } catch (final Exception e) {
-                    log.error("Failed getting the remote job output from {}. Error: {}", forwardHost, e.getMessage());
-                    throw new GenieServerException("Proxied request error:" + e.getMessage(), e);
-                }
+                this.forwardOutputRequest(
+                    forwardHost,
+                    forwardHost + JOB_API_BASE_PATH + id + "/output/" + path,
+                    request,
+                    response,
+                    false
+                );
 
                 //No need to search on this node
                 return;
@@ -736,6 +1005,84 @@ public class JobRestController {
         this.jobDirectoryServerService.serveResource(id, baseUrl, path, request, response);
     }
 
+    /**
+     * Follow a file in the output directory of a running agent job, like {@code tail -f}. The end of the file is sent
+     * first, then data appended to it is streamed as the agent reports it until the job completes.
+     * <p>
+     * Requests for jobs running on another node are forwarded there off the request thread, so viewers following
+     * output for a long time don't hold on to container threads of this node.
+     *
+     * @param id            The id of the job to follow output of
+     * @param forwardedFrom The host this request was forwarded from if present
+     * @param request       the servlet request
+     * @param response      the servlet response
+     * @return The {@link ResponseBodyEmitter} streaming the file or the {@link WebAsyncTask} forwarding the request to
+     * the node running the job
+     * @throws GenieException on any Genie internal error
+     */
+    @GetMapping(value = "/{id}/output/**", params = FOLLOW_PARAM)
+    public Object followJobOutput(
+        @PathVariable("id") final String id,
+        @RequestHeader(name = JobConstants.GENIE_FORWARDED_FROM_HEADER, required = false)
+        @Nullable final String forwardedFrom,
+        final HttpServletRequest request,
+        final HttpServletResponse response
+    ) throws GenieException {
+        final String path = ControllerUtils.getRemainingPath(request);
+        log.info("[followJobOutput] Called to follow output path \"{}\" for job with id \"{}\"", path, id);
+
+        final boolean isV4 = this.jobPersistenceService.isV4(id);
+        final com.netflix.genie.common.external.dtos.v4.JobStatus jobStatus
+            = this.jobPersistenceService.getJobStatus(id);
+        if (!isV4 || !jobStatus.isActive()) {
+            throw new GeniePreconditionException(
+                "Only the output of running agent jobs can be followed. Job " + id + " is " + jobStatus
+            );
+        }
+
+        if (this.jobsProperties.getForwarding().isEnabled() && forwardedFrom == null) {
+            final String jobHostname = this.getJobOwnerHostname(id, true);
+            if (!this.hostname.equals(jobHostname)) {
+                log.info("Job {} is not run on this node. Forwarding to {}", id, jobHostname);
+                final String forwardHost = this.buildForwardHost(jobHostname);
+                return new WebAsyncTask<Void>(NO_TIMEOUT, () -> {
+                    this.forwardOutputRequest(
+                        forwardHost,
+                        forwardHost + JOB_API_BASE_PATH + id + "/output/" + path + "?" + FOLLOW_PARAM,
+                        request,
+                        response,
+                        true
+                    );
+                    return null;
+                });
+            }
+        }
+
+        final ResponseBodyEmitter emitter = new ResponseBodyEmitter(NO_TIMEOUT);
+        final AgentFileTailService.Subscription subscription = this.agentFileTailService
+            .follow(id, Paths.get(path), new EmitterListener(emitter))
+            .orElseThrow(() -> new GenieNotFoundException("No file " + path + " of job " + id + " on this node"));
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        return emitter;
+    }
+
+    @Nullable
+    private static Set<JobStatus> toJobStatuses(@Nullable final Set<String> statuses) throws GenieException {
+        if (statuses == null || statuses.isEmpty()) {
+            return null;
+        }
+        final Set<JobStatus> enumStatuses = EnumSet.noneOf(JobStatus.class);
+        for (final String status : statuses) {
+            if (StringUtils.isNotBlank(status)) {
+                enumStatuses.add(JobStatus.parse(status));
+            }
+        }
+        return enumStatuses;
+    }
+
     private String buildForwardHost(final String jobHostname) {
         return this.jobsProperties.getForwarding().getScheme()
             + "://"
@@ -744,6 +1091,61 @@ public class JobRestController {
             + this.jobsProperties.getForwarding().getPort();
     }
 
+    private void forwardOutputRequest(
+        final String forwardHost,
+        final String url,
+        final HttpServletRequest request,
+        final HttpServletResponse response,
+        final boolean flushEachRead
+    ) throws GenieException {
+        // Followed output can be quiet for longer than the regular read timeout
+        final RestTemplate template = flushEachRead ? this.followRestTemplate : this.restTemplate;
+        try {
+            template.execute(
+                url,
+                HttpMethod.GET,
+                forwardRequest -> copyRequestHeaders(request, forwardRequest),
+                (ResponseExtractor<Void>) forwardResponse -> {
+                    response.setStatus(forwardResponse.getStatusCode().value());
+                    copyResponseHeaders(response, forwardResponse);
+                    if (flushEachRead) {
+                        // Followed output must reach the client as soon as it's received
+                        copyFlushingEachRead(forwardResponse.getBody(), response.getOutputStream());
+                    } else {
+                        // Documentation I could find pointed to the HttpEntity reading the bytes off
+                        // the stream so this should resolve memory problems if the file returned is large
+                        ByteStreams.copy(forwardResponse.getBody(), response.getOutputStream());
+                    }
+                    return null;
+                }
+            );
+        } catch (final HttpClientErrorException.NotFound e) {
+            throw new GenieNotFoundException("Not Found (via: " + forwardHost + ")", e);
+        } catch (final HttpStatusCodeException e) {
+            throw new GenieException(
+                e.getStatusCode().value(),
+                "Proxied request failed: " + e.getMessage(),
+                e
+            );
+        } catch (final Exception e) {
+            log.error("Failed getting the remote job output from {}. Error: {}", forwardHost, e.getMessage());
+            throw new GenieServerException("Proxied request error:" + e.getMessage(), e);
+        }
+    }
+
+    private static void copyFlushingEachRead(
+        final InputStream inputStream,
+        final OutputStream outputStream
+    ) throws IOException {
+        final byte[] buffer = new byte[FORWARD_BUFFER_SIZE];
+        int bytesRead = inputStream.read(buffer);
+        while (bytesRead != -1) {
+            outputStream.write(buffer, 0, bytesRead);
+            outputStream.flush();
+            bytesRead = inputStream.read(buffer);
+        }
+    }
+
     private void copyRequestHeaders(final HttpServletRequest request, final ClientHttpRequest forwardRequest) {
         // Copy all the headers (necessary for ACCEPT and security headers especially). Do not copy the cookie header.
         final HttpHeaders headers = forwardRequest.getHeaders();
@@ -937,4 +1339,31 @@ public class JobRestController {
 
         return this.jobLaunchService.launchJob(jobSubmissionBuilder.build());
     }
+
+    /**
+     * Sends the data of a followed file to the client of a {@link #followJobOutput} request.
+     */
+    private static final class EmitterListener implements AgentFileTailService.Listener {
+        private final ResponseBodyEmitter emitter;
+
+        private EmitterListener(final ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onData(final byte[] data) throws IOException {
+            this.emitter.send(data, MediaType.TEXT_PLAIN);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onCompleted() {
+            this.emitter.complete();
+        }
+    }
 }
@@ -20,11 +20,15 @@ package com.netflix.genie.web.apis.rest.v3.hateoas.assemblers;
 import com.netflix.genie.common.dto.search.JobSearchResult;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.web.apis.rest.v3.controllers.JobRestController;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
 
 /**
  * Assembles Job resources out of job search result DTOs.
@@ -58,4 +62,27 @@ public class JobSearchResultModelAssembler
 
         return jobSearchResultModel;
     }
+
+    /**
+     * Assemble a page of job search results fetched with a cursor. Rather than the paging metadata of a
+     * {@link org.springframework.hateoas.PagedModel} the model only has a {@literal next} link if there are more
+     * results for clients to follow.
+     *
+     * @param jobs The job search results in the page
+     * @param self The link to this page
+     * @param next The link to the next page or {@literal null} if this is the last page
+     * @return The collection model of the job search results
+     */
+    public CollectionModel<EntityModel<JobSearchResult>> toCursorModel(
+        final List<JobSearchResult> jobs,
+        final Link self,
+        @Nullable final Link next
+    ) {
+        final CollectionModel<EntityModel<JobSearchResult>> model = this.toCollectionModel(jobs);
+        model.add(self);
+        if (next != null) {
+            model.add(next);
+        }
+        return model;
+    }
 }
@@ -19,6 +19,7 @@ package com.netflix.genie.web.data.entities;
 
 import com.google.common.collect.Lists;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.web.data.entities.listeners.ResolutionIndexEntityListener;
 import com.netflix.genie.web.data.entities.projections.ClusterCommandsProjection;
 import lombok.Getter;
 import lombok.Setter;
@@ -26,6 +27,7 @@ import lombok.ToString;
 
 import javax.annotation.Nullable;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
@@ -52,6 +54,12 @@ import java.util.Set;
     doNotUseGetters = true
 )
 @Entity
+@EntityListeners(
+    {
+        // Can't decouple through interface or abstract class or configuration, only concrete classes work.
+        ResolutionIndexEntityListener.class
+    }
+)
 @Table(name = "clusters")
 public class ClusterEntity extends BaseEntity implements ClusterCommandsProjection {
 
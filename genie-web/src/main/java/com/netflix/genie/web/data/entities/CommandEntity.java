@@ -19,6 +19,7 @@ package com.netflix.genie.web.data.entities;
 
 import com.netflix.genie.common.dto.Command;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.web.data.entities.listeners.ResolutionIndexEntityListener;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -30,6 +31,7 @@ import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
@@ -60,6 +62,12 @@ import java.util.Set;
     doNotUseGetters = true
 )
 @Entity
+@EntityListeners(
+    {
+        // Can't decouple through interface or abstract class or configuration, only concrete classes work.
+        ResolutionIndexEntityListener.class
+    }
+)
 @Table(name = "commands")
 public class CommandEntity extends BaseEntity {
 
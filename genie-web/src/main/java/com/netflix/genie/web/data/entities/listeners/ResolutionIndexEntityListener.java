@@ -0,0 +1,78 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.data.entities.listeners;
+
+import com.netflix.genie.web.data.entities.BaseEntity;
+import com.netflix.genie.web.data.entities.ClusterEntity;
+import com.netflix.genie.web.data.entities.CommandEntity;
+import com.netflix.genie.web.data.services.jpa.ClusterCommandResolutionIndex;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Listener for the {@link ClusterEntity} and {@link CommandEntity} JPA entities which notifies the
+ * {@link ClusterCommandResolutionIndex}, if one is configured, of every persisted change.
+ * <p>
+ * Changes to the tags or commands of a cluster bump the entity version so they are also reported as updates.
+ * <p>
+ * N.B. Spring configuration.
+ * - This class does not appear in any AutoConfiguration as bean.
+ * It is referenced as {@link java.util.EventListener} by the entities.
+ * - The index is looked up lazily via an {@link ObjectProvider} as it only exists when enabled.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+public class ResolutionIndexEntityListener {
+
+    private final ObjectProvider<ClusterCommandResolutionIndex> resolutionIndexProvider;
+
+    /**
+     * Constructor.
+     *
+     * @param resolutionIndexProvider Provider of the {@link ClusterCommandResolutionIndex} to notify if present
+     */
+    public ResolutionIndexEntityListener(
+        final ObjectProvider<ClusterCommandResolutionIndex> resolutionIndexProvider
+    ) {
+        this.resolutionIndexProvider = resolutionIndexProvider;
+    }
+
+    /**
+     * Persistence callback invoked after a cluster or command has been inserted, updated or deleted.
+     *
+     * @param entity The cluster or command entity which changed
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void resourceChanged(final BaseEntity entity) {
+        final ClusterCommandResolutionIndex resolutionIndex = this.resolutionIndexProvider.getIfAvailable();
+        if (resolutionIndex == null) {
+            return;
+        }
+        if (entity instanceof ClusterEntity) {
+            resolutionIndex.clusterChanged(entity.getUniqueId());
+        } else if (entity instanceof CommandEntity) {
+            resolutionIndex.commandChanged(entity.getUniqueId());
+        }
+    }
+}
@@ -17,24 +17,36 @@
  */
 package com.netflix.genie.web.data.repositories.jpa;
 
+import com.google.common.collect.ImmutableSet;
 import com.netflix.genie.common.external.dtos.v4.ClusterStatus;
 import com.netflix.genie.common.external.dtos.v4.CommandStatus;
 import com.netflix.genie.common.external.dtos.v4.Criterion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
 import lombok.Getter;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.Nonnull;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Implementations of the {@link CriteriaResolutionRepository} interface.
  * <p>
  * Works as a fragment.
  * See <a href="https://tinyurl.com/yctelbfh">Spring Data JPA Documentation</a> for more.
+ * <p>
+ * Criterion values are never concatenated into the SQL. Instead the statement text only depends on the shape of the
+ * criteria (which fields are present and how many tags there are, rounded up to a power of two) and every value is a
+ * bind parameter. This keeps the number of distinct statements small so the driver and database statement caches
+ * are effective. Built statements are kept in an in-memory library keyed by shape.
  *
  * @author tgianos
  * @since 4.0.0
@@ -64,9 +76,34 @@ public class CriteriaResolutionRepositoryImpl implements CriteriaResolutionRepos
             + "    cc.command_order = cluster_id_order.command_order join"
             + "  commands c on cc.command_id = c.id;";
 
+    private static final String STATEMENT_LIBRARY_COUNTER = "genie.data.criteriaResolution.statementLibrary.counter";
+    private static final String STATEMENT_LIBRARY_SIZE_GAUGE = "genie.data.criteriaResolution.statementLibrary.gauge";
+    private static final String HIT_TAG = "hit";
+
+    private final Map<String, String> statementLibrary = new ConcurrentHashMap<>();
+    private final Counter statementLibraryHitCounter;
+    private final Counter statementLibraryMissCounter;
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    /**
+     * Constructor.
+     *
+     * @param registry The {@link MeterRegistry} to publish statement library metrics to
+     */
+    public CriteriaResolutionRepositoryImpl(final MeterRegistry registry) {
+        this.statementLibraryHitCounter = registry.counter(
+            STATEMENT_LIBRARY_COUNTER,
+            ImmutableSet.of(Tag.of(HIT_TAG, "true"))
+        );
+        this.statementLibraryMissCounter = registry.counter(
+            STATEMENT_LIBRARY_COUNTER,
+            ImmutableSet.of(Tag.of(HIT_TAG, "false"))
+        );
+        registry.gauge(STATEMENT_LIBRARY_SIZE_GAUGE, this.statementLibrary, Map::size);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -77,91 +114,142 @@ public class CriteriaResolutionRepositoryImpl implements CriteriaResolutionRepos
         final Criterion clusterCriterion,
         final Criterion commandCriterion
     ) {
-        return this.entityManager
-            .createNativeQuery(
-                RESOLVE_CLUSTERS_AND_COMMANDS_QUERY
-                    .replace(CLUSTER_QUERY_STRING, this.buildEntityQueryForType(clusterCriterion, CriteriaType.CLUSTER))
-                    .replace(COMMAND_QUERY_STRING, this.buildEntityQueryForType(commandCriterion, CriteriaType.COMMAND))
-            )
-            .getResultList();
+        final CriterionShape clusterShape = new CriterionShape(clusterCriterion, CriteriaType.CLUSTER);
+        final CriterionShape commandShape = new CriterionShape(commandCriterion, CriteriaType.COMMAND);
+
+        final Query query = this.entityManager.createNativeQuery(this.getStatement(clusterShape, commandShape));
+        clusterShape.bind(query);
+        commandShape.bind(query);
+        return query.getResultList();
     }
 
-    private String buildEntityQueryForType(final Criterion criterion, final CriteriaType criteriaType) {
-        final Set<String> tags = criterion.getTags();
-        final boolean hasTags = !tags.isEmpty();
-        final StringBuilder query = new StringBuilder();
-        query
-            .append("SELECT c.id as id FROM ")
-            .append(criteriaType.getPrimaryTable())
-            .append(" c");
+    private String getStatement(final CriterionShape clusterShape, final CriterionShape commandShape) {
+        final String key = clusterShape.getKey() + commandShape.getKey();
+        final String cached = this.statementLibrary.get(key);
+        if (cached != null) {
+            this.statementLibraryHitCounter.increment();
+            return cached;
+        }
+        this.statementLibraryMissCounter.increment();
+        return this.statementLibrary.computeIfAbsent(
+            key,
+            ignored -> RESOLVE_CLUSTERS_AND_COMMANDS_QUERY
+                .replace(CLUSTER_QUERY_STRING, clusterShape.buildQuery())
+                .replace(COMMAND_QUERY_STRING, commandShape.buildQuery())
+        );
+    }
 
-        if (hasTags) {
-            query
-                .append(" join ")
-                .append(criteriaType.getTagTable())
-                .append(" ct on c.id = ct.")
-                .append(criteriaType.getTagJoinColumn())
-                .append(" join tags t on ct.tag_id = t.id");
+    /**
+     * The parts of a criterion which determine the text of the statement used to resolve it plus the values to bind.
+     */
+    private static final class CriterionShape {
+        private final CriteriaType criteriaType;
+        private final String id;
+        private final String name;
+        private final String version;
+        private final String status;
+        private final List<String> tags;
+        private final int tagSlots;
+
+        private CriterionShape(final Criterion criterion, final CriteriaType criteriaType) {
+            this.criteriaType = criteriaType;
+            this.id = criterion.getId().filter(StringUtils::isNotBlank).orElse(null);
+            this.name = criterion.getName().filter(StringUtils::isNotBlank).orElse(null);
+            this.version = criterion.getVersion().filter(StringUtils::isNotBlank).orElse(null);
+            this.status = criterion.getStatus().filter(StringUtils::isNotBlank).orElse(criteriaType.getDefaultStatus());
+            this.tags = new ArrayList<>(criterion.getTags());
+            Collections.sort(this.tags);
+            this.tagSlots = toTagSlots(this.tags.size());
         }
 
-        query.append(" WHERE");
+        /**
+         * Round the number of tags up to the next power of two so that criteria with similar numbers of tags share a
+         * statement. Unused slots are bound to a duplicate tag which doesn't change the result of the IN clause.
+         */
+        private static int toTagSlots(final int tagCount) {
+            return tagCount <= 1 ? tagCount : Integer.highestOneBit(tagCount - 1) << 1;
+        }
 
-        criterion.getId().ifPresent(
-            id -> {
-                if (StringUtils.isNotBlank(id)) {
-                    query.append(" c.unique_id = '").append(id).append("' AND");
-                }
+        private String getKey() {
+            return this.criteriaType.name()
+                + (this.id != null ? "i" : "")
+                + (this.name != null ? "n" : "")
+                + (this.version != null ? "v" : "")
+                + "t" + this.tagSlots;
+        }
+
+        private String parameter(final String field) {
+            return this.criteriaType.getParameterPrefix() + field;
+        }
+
+        private String buildQuery() {
+            final boolean hasTags = this.tagSlots > 0;
+            final StringBuilder query = new StringBuilder();
+            query
+                .append("SELECT c.id as id FROM ")
+                .append(this.criteriaType.getPrimaryTable())
+                .append(" c");
+
+            if (hasTags) {
+                query
+                    .append(" join ")
+                    .append(this.criteriaType.getTagTable())
+                    .append(" ct on c.id = ct.")
+                    .append(this.criteriaType.getTagJoinColumn())
+                    .append(" join tags t on ct.tag_id = t.id");
             }
-        );
-        criterion.getName().ifPresent(
-            name -> {
-                if (StringUtils.isNotBlank(name)) {
-                    query.append(" c.name = '").append(name).append("' AND");
-                }
+
+            query.append(" WHERE");
+
+            if (this.id != null) {
+                query.append(" c.unique_id = :").append(this.parameter("Id")).append(" AND");
             }
-        );
-        criterion.getVersion().ifPresent(
-            version -> {
-                if (StringUtils.isNotBlank(version)) {
-                    query.append(" c.version = '").append(version).append("' AND");
+            if (this.name != null) {
+                query.append(" c.name = :").append(this.parameter("Name")).append(" AND");
+            }
+            if (this.version != null) {
+                query.append(" c.version = :").append(this.parameter("Version")).append(" AND");
+            }
+
+            if (hasTags) {
+                query.append(" t.tag IN (");
+                for (int i = 0; i < this.tagSlots; i++) {
+                    if (i > 0) {
+                        query.append(", ");
+                    }
+                    query.append(":").append(this.parameter("Tag")).append(i);
                 }
+                query.append(") AND");
             }
-        );
 
-        if (hasTags) {
-            query
-                .append(" t.tag IN (")
-                .append(
-                    criterion
-                        .getTags()
-                        .stream()
-                        .map(tag -> "'" + tag + "'")
-                        .reduce((first, second) -> first + ", " + second)
-                        .orElse("")
-                )
-                .append(") AND");
-        }
+            query.append(" c.status = :").append(this.parameter("Status"));
 
-        final String status;
-        final Optional<String> criterionStatus = criterion.getStatus();
-        if (criterionStatus.isPresent()) {
-            final String unwrappedStatus = criterionStatus.get();
-            status = StringUtils.isBlank(unwrappedStatus) ? criteriaType.getDefaultStatus() : unwrappedStatus;
-        } else {
-            status = criteriaType.getDefaultStatus();
-        }
-        query
-            .append(" c.status = '")
-            .append(status)
-            .append("'");
+            if (hasTags) {
+                query.append(" GROUP BY c.id HAVING COUNT(c.id) = :").append(this.parameter("TagCount"));
+            }
 
-        if (hasTags) {
-            query
-                .append(" GROUP BY c.id HAVING COUNT(c.id) = ")
-                .append(criterion.getTags().size());
+            return query.toString();
         }
 
-        return query.toString();
+        private void bind(final Query query) {
+            if (this.id != null) {
+                query.setParameter(this.parameter("Id"), this.id);
+            }
+            if (this.name != null) {
+                query.setParameter(this.parameter("Name"), this.name);
+            }
+            if (this.version != null) {
+                query.setParameter(this.parameter("Version"), this.version);
+            }
+            if (this.tagSlots > 0) {
+                final int lastTag = this.tags.size() - 1;
+                for (int i = 0; i < this.tagSlots; i++) {
+                    query.setParameter(this.parameter("Tag") + i, this.tags.get(Math.min(i, lastTag)));
+                }
+                query.setParameter(this.parameter("TagCount"), this.tags.size());
+            }
+            query.setParameter(this.parameter("Status"), this.status);
+        }
     }
 
     /**
@@ -174,25 +262,28 @@ public class CriteriaResolutionRepositoryImpl implements CriteriaResolutionRepos
     @Getter
     private enum CriteriaType {
 
-        CLUSTER("clusters", "clusters_tags", "cluster_id", ClusterStatus.UP.name()),
+        CLUSTER("clusters", "clusters_tags", "cluster_id", ClusterStatus.UP.name(), "cluster"),
 
-        COMMAND("commands", "commands_tags", "command_id", CommandStatus.ACTIVE.name());
+        COMMAND("commands", "commands_tags", "command_id", CommandStatus.ACTIVE.name(), "command");
 
         private final String primaryTable;
         private final String tagTable;
         private final String tagJoinColumn;
         private final String defaultStatus;
+        private final String parameterPrefix;
 
         CriteriaType(
             final String primaryTable,
             final String tagTable,
             final String tagJoinColumn,
-            final String defaultStatus
+            final String defaultStatus,
+            final String parameterPrefix
         ) {
             this.primaryTable = primaryTable;
             this.tagTable = tagTable;
             this.tagJoinColumn = tagJoinColumn;
             this.defaultStatus = defaultStatus;
+            this.parameterPrefix = parameterPrefix;
         }
     }
 }
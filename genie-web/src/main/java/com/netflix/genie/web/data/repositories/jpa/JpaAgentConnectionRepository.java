@@ -20,7 +20,9 @@ package com.netflix.genie.web.data.repositories.jpa;
 import com.netflix.genie.web.data.entities.AgentConnectionEntity;
 
 import javax.validation.constraints.NotBlank;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * JPA repository for active agent-to-server connections.
@@ -38,6 +40,14 @@ public interface JpaAgentConnectionRepository extends JpaIdRepository<AgentConne
      */
     Optional<AgentConnectionEntity> findByJobId(@NotBlank String jobId);
 
+    /**
+     * Find the entities for all the given job ids which have an active connection.
+     *
+     * @param jobIds The job ids
+     * @return The connections for the job ids which have one. Job ids without a connection are absent.
+     */
+    List<AgentConnectionEntity> findByJobIdIn(Set<String> jobIds);
+
     /**
      * Find the number of agents currently connected to the given server identified by {@code serverHostName}.
      *
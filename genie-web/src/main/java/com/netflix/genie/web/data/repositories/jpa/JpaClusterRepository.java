@@ -16,9 +16,12 @@
 package com.netflix.genie.web.data.repositories.jpa;
 
 import com.netflix.genie.web.data.entities.ClusterEntity;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -38,6 +41,33 @@ public interface JpaClusterRepository extends JpaBaseRepository<ClusterEntity>,
             + "AND status = 'TERMINATED' "
             + "FOR UPDATE;";
 
+    /**
+     * The SQL to load the fields of clusters used for criteria resolution. One row per cluster tag.
+     */
+    String FIND_RESOLUTION_INDEX_CLUSTERS_SQL =
+        "SELECT c.id, c.unique_id, c.name, c.version, c.status, t.tag "
+            + "FROM clusters c "
+            + "LEFT JOIN clusters_tags ct ON c.id = ct.cluster_id "
+            + "LEFT JOIN tags t ON ct.tag_id = t.id";
+
+    /**
+     * The SQL to load the ordered command ids attached to clusters.
+     */
+    String FIND_RESOLUTION_INDEX_CLUSTER_COMMANDS_SQL =
+        "SELECT cc.cluster_id, cc.command_id "
+            + "FROM clusters_commands cc "
+            + "JOIN clusters c ON cc.cluster_id = c.id";
+
+    /**
+     * The clause restricting resolution index queries to a set of cluster unique ids.
+     */
+    String RESOLUTION_INDEX_UNIQUE_IDS_CLAUSE = " WHERE c.unique_id IN (:uniqueIds)";
+
+    /**
+     * The clause ordering cluster commands by cluster and then priority.
+     */
+    String RESOLUTION_INDEX_COMMAND_ORDER_CLAUSE = " ORDER BY cc.cluster_id, cc.command_order";
+
     /**
      * Find the ids of all clusters that are in a terminated state and aren't attached to any jobs.
      *
@@ -54,4 +84,81 @@ public interface JpaClusterRepository extends JpaBaseRepository<ClusterEntity>,
      */
     @Modifying
     Long deleteByIdIn(Set<Long> ids);
+
+    /**
+     * Find the clusters with the given ids and initialize their tags and setup file in the same query.
+     * <p>
+     * The collections of a cluster are deliberately fetched by separate queries to avoid a cartesian product. See
+     * {@link #findWithConfigsByIdIn(Set)} and {@link #findWithDependenciesByIdIn(Set)}.
+     *
+     * @param ids The ids of the clusters to find
+     * @return The clusters found. May contain the same cluster more than once.
+     */
+    @EntityGraph(attributePaths = {"tags", "setupFile"})
+    List<ClusterEntity> findWithTagsAndSetupFileByIdIn(Set<Long> ids);
+
+    /**
+     * Find the clusters with the given ids and initialize their configuration files in the same query.
+     *
+     * @param ids The ids of the clusters to find
+     * @return The clusters found. May contain the same cluster more than once.
+     */
+    @EntityGraph(attributePaths = "configs")
+    List<ClusterEntity> findWithConfigsByIdIn(Set<Long> ids);
+
+    /**
+     * Find the clusters with the given ids and initialize their dependency files in the same query.
+     *
+     * @param ids The ids of the clusters to find
+     * @return The clusters found. May contain the same cluster more than once.
+     */
+    @EntityGraph(attributePaths = "dependencies")
+    List<ClusterEntity> findWithDependenciesByIdIn(Set<Long> ids);
+
+    /**
+     * Load the id, unique id, name, version, status and tag of every cluster for the in-memory resolution index.
+     * Clusters with multiple tags return multiple rows. Clusters with no tags return a single row with a null tag.
+     *
+     * @return The rows in the above order
+     */
+    @Query(value = FIND_RESOLUTION_INDEX_CLUSTERS_SQL + ";", nativeQuery = true)
+    List<Object[]> findResolutionIndexClusters();
+
+    /**
+     * Same as {@link #findResolutionIndexClusters()} but restricted to the clusters with the given unique ids.
+     *
+     * @param uniqueIds The unique ids of the clusters to load
+     * @return The rows for the clusters which still exist
+     */
+    @Query(
+        value = FIND_RESOLUTION_INDEX_CLUSTERS_SQL + RESOLUTION_INDEX_UNIQUE_IDS_CLAUSE + ";",
+        nativeQuery = true
+    )
+    List<Object[]> findResolutionIndexClusters(@Param("uniqueIds") Set<String> uniqueIds);
+
+    /**
+     * Load the {@code (cluster id, command id)} pairs for all clusters ordered by cluster and command priority.
+     *
+     * @return The rows in the above order
+     */
+    @Query(
+        value = FIND_RESOLUTION_INDEX_CLUSTER_COMMANDS_SQL + RESOLUTION_INDEX_COMMAND_ORDER_CLAUSE + ";",
+        nativeQuery = true
+    )
+    List<Object[]> findResolutionIndexClusterCommands();
+
+    /**
+     * Same as {@link #findResolutionIndexClusterCommands()} but restricted to the clusters with the given unique ids.
+     *
+     * @param uniqueIds The unique ids of the clusters to load commands for
+     * @return The rows in the above order
+     */
+    @Query(
+        value = FIND_RESOLUTION_INDEX_CLUSTER_COMMANDS_SQL
+            + RESOLUTION_INDEX_UNIQUE_IDS_CLAUSE
+            + RESOLUTION_INDEX_COMMAND_ORDER_CLAUSE
+            + ";",
+        nativeQuery = true
+    )
+    List<Object[]> findResolutionIndexClusterCommands(@Param("uniqueIds") Set<String> uniqueIds);
 }
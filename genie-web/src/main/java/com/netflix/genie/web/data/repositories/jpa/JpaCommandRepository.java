@@ -21,6 +21,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -60,6 +61,15 @@ public interface JpaCommandRepository extends JpaBaseRepository<CommandEntity> {
             + ")"
             + " AND id NOT IN (SELECT DISTINCT(command_id) FROM clusters_commands);";
 
+    /**
+     * The SQL to load the fields of commands used for criteria resolution. One row per command tag.
+     */
+    String FIND_RESOLUTION_INDEX_COMMANDS_SQL =
+        "SELECT c.id, c.unique_id, c.name, c.version, c.status, t.tag"
+            + " FROM commands c"
+            + " LEFT JOIN commands_tags ct ON c.id = ct.command_id"
+            + " LEFT JOIN tags t ON ct.tag_id = t.id";
+
     /**
      * Bulk set the status of commands which match the given inputs. Considers whether a command was used in some
      * period of time till now.
@@ -96,4 +106,22 @@ public interface JpaCommandRepository extends JpaBaseRepository<CommandEntity> {
         @Param("deleteStatuses") Set<String> deleteStatuses,
         @Param("commandCreatedThreshold") Instant commandCreatedThreshold
     );
+
+    /**
+     * Load the id, unique id, name, version, status and tag of every command for the in-memory resolution index.
+     * Commands with multiple tags return multiple rows. Commands with no tags return a single row with a null tag.
+     *
+     * @return The rows in the above order
+     */
+    @Query(value = FIND_RESOLUTION_INDEX_COMMANDS_SQL + ";", nativeQuery = true)
+    List<Object[]> findResolutionIndexCommands();
+
+    /**
+     * Same as {@link #findResolutionIndexCommands()} but restricted to the commands with the given unique ids.
+     *
+     * @param uniqueIds The unique ids of the commands to load
+     * @return The rows for the commands which still exist
+     */
+    @Query(value = FIND_RESOLUTION_INDEX_COMMANDS_SQL + " WHERE c.unique_id IN (:uniqueIds);", nativeQuery = true)
+    List<Object[]> findResolutionIndexCommands(@Param("uniqueIds") Set<String> uniqueIds);
 }
@@ -19,6 +19,7 @@ import com.netflix.genie.common.dto.JobStatus;
 import com.netflix.genie.web.data.entities.JobEntity;
 import com.netflix.genie.web.data.entities.aggregates.UserJobResourcesAggregate;
 import com.netflix.genie.web.data.entities.projections.AgentHostnameProjection;
+import com.netflix.genie.web.data.entities.projections.AuditProjection;
 import com.netflix.genie.web.data.entities.projections.IdProjection;
 import com.netflix.genie.web.data.entities.projections.JobProjection;
 import com.netflix.genie.web.data.entities.projections.UniqueIdProjection;
@@ -33,6 +34,7 @@ import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -115,6 +117,36 @@ public interface JpaJobRepository extends JpaBaseRepository<JobEntity> {
     // TODO: Explore deleteFirst{N}ByCreatedBefore
     Slice<IdProjection> findByCreatedBefore(@NotNull Instant date, @NotNull Pageable pageable);
 
+    /**
+     * Returns the ids and creation times of the oldest jobs created within the given range ordered by creation time.
+     * Callers harvest ids by keyset, passing the last creation time seen as the next {@code from}, rather than by
+     * offset.
+     *
+     * @param from     The inclusive lower bound of the creation time
+     * @param to       The exclusive upper bound of the creation time
+     * @param pageable Bounds the number of jobs returned. Only the size should be used, the page number should be 0
+     * @return The jobs found
+     */
+    @Query(
+        "SELECT j.id AS id, j.created AS created, j.updated AS updated"
+            + " FROM JobEntity j"
+            + " WHERE j.created >= :from AND j.created < :to"
+            + " ORDER BY j.created ASC"
+    )
+    List<AuditProjection> findJobsCreatedInRange(
+        @Param("from") Instant from,
+        @Param("to") Instant to,
+        Pageable pageable
+    );
+
+    /**
+     * Get the creation time of the oldest job in the database.
+     *
+     * @return The creation time or {@link Optional#empty()} if there are no jobs
+     */
+    @Query("SELECT MIN(j.created) FROM JobEntity j")
+    Optional<Instant> findOldestCreated();
+
     /**
      * Returns resources usage for each user that has a running job.
      * Only jobs running on Genie servers are considered (i.e. no Agent jobs)
@@ -19,16 +19,23 @@ import com.netflix.genie.web.data.entities.ClusterEntity;
 import com.netflix.genie.web.data.entities.CommandEntity;
 import com.netflix.genie.web.data.entities.JobEntity;
 import com.netflix.genie.web.data.entities.JobEntity_;
+import com.netflix.genie.web.data.entities.TagEntity;
+import com.netflix.genie.web.data.entities.TagEntity_;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.Nullable;
 import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Specifications for JPA queries.
@@ -48,6 +55,7 @@ public final class JpaJobSpecs {
      * Generate a criteria query predicate for a where clause based on the given parameters.
      *
      * @param root             The root to use
+     * @param cq               The query the predicate will be used in. Used to create the tag subquery.
      * @param cb               The criteria builder to use
      * @param id               The job id
      * @param name             The job name
@@ -69,6 +77,7 @@ public final class JpaJobSpecs {
     @SuppressWarnings("checkstyle:parameternumber")
     public static Predicate getFindPredicate(
         final Root<JobEntity> root,
+        final CriteriaQuery<?> cq,
         final CriteriaBuilder cb,
         @Nullable final String id,
         @Nullable final String name,
@@ -106,7 +115,13 @@ public final class JpaJobSpecs {
             );
         }
         if (tags != null && !tags.isEmpty()) {
-            predicates.add(cb.like(root.get(JobEntity_.tagSearchString), JpaSpecificationUtils.getTagLikeString(tags)));
+            final Set<String> searchTags = tags
+                .stream()
+                .filter(StringUtils::isNotBlank)
+                .collect(Collectors.toSet());
+            if (!searchTags.isEmpty()) {
+                predicates.add(getTagsPredicate(root, cq, cb, searchTags));
+            }
         }
         if (cluster != null) {
             predicates.add(cb.equal(root.get(JobEntity_.cluster), cluster));
@@ -152,4 +167,28 @@ public final class JpaJobSpecs {
         }
         return cb.and(predicates.toArray(new Predicate[0]));
     }
+
+    /**
+     * Match jobs which have all the given tags using the normalized jobs_tags relation rather than a LIKE on the
+     * denormalized tag search string. The subquery is resolved with index seeks on the tag and job tag tables instead
+     * of a scan of the entire jobs table.
+     */
+    private static Predicate getTagsPredicate(
+        final Root<JobEntity> root,
+        final CriteriaQuery<?> cq,
+        final CriteriaBuilder cb,
+        final Set<String> tags
+    ) {
+        final Subquery<Long> taggedJobs = cq.subquery(Long.class);
+        final Root<JobEntity> taggedJob = taggedJobs.from(JobEntity.class);
+        final Join<JobEntity, TagEntity> tagJoin = taggedJob.join(JobEntity_.tags);
+        final Path<Long> taggedJobId = taggedJob.get(JobEntity_.id);
+
+        taggedJobs.select(taggedJobId);
+        taggedJobs.where(tagJoin.get(TagEntity_.tag).in(tags));
+        taggedJobs.groupBy(taggedJobId);
+        taggedJobs.having(cb.equal(cb.count(taggedJobId), (long) tags.size()));
+
+        return root.get(JobEntity_.id).in(taggedJobs);
+    }
 }
@@ -91,27 +91,6 @@ public final class JpaSpecificationUtils {
         }
     }
 
-    /**
-     * Get the sorted like statement for tags used in specification queries.
-     *
-     * @param tags The tags to use. Not null.
-     * @return The tags sorted while ignoring case delimited with percent symbol.
-     */
-    static String getTagLikeString(@NotNull final Set<String> tags) {
-        final StringBuilder builder = new StringBuilder();
-        tags.stream()
-            .filter(StringUtils::isNotBlank)
-            .sorted(String.CASE_INSENSITIVE_ORDER)
-            .forEach(
-                tag -> builder
-                    .append(PERCENT)
-                    .append(TAG_DELIMITER)
-                    .append(tag)
-                    .append(TAG_DELIMITER)
-            );
-        return builder.append(PERCENT).toString();
-    }
-
     static <E extends BaseEntity> Predicate createCriterionPredicate(
         final Root<E> root,
         final CriteriaQuery<?> cq,
@@ -20,7 +20,10 @@ package com.netflix.genie.web.data.services;
 import org.springframework.validation.annotation.Validated;
 
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Persistence service to store and lookup which server is a given job/agent connected to.
@@ -64,6 +67,15 @@ public interface AgentConnectionPersistenceService {
         @NotBlank String jobId
     );
 
+    /**
+     * Lookup the hostname/address of the servers with an active connection to any of the given agents in a single
+     * query.
+     *
+     * @param jobIds the ids of the jobs the agents are running
+     * @return A map of job id to server hostname. Jobs without an active connection are absent.
+     */
+    Map<String, String> lookupAgentConnectionServers(@NotNull Set<String> jobIds);
+
     /**
      * Get the number of active agent connections on Genie server with the given {@code hostname}.
      *
@@ -33,6 +33,7 @@ import com.netflix.genie.common.internal.exceptions.unchecked.GenieInvalidStatus
 import com.netflix.genie.common.internal.exceptions.unchecked.GenieJobAlreadyClaimedException;
 import com.netflix.genie.common.internal.exceptions.unchecked.GenieJobNotFoundException;
 import com.netflix.genie.common.internal.exceptions.unchecked.GenieRuntimeException;
+import com.netflix.genie.web.dtos.JobDeletionBatch;
 import com.netflix.genie.web.dtos.JobSubmission;
 import com.netflix.genie.web.dtos.ResolvedJob;
 import com.netflix.genie.web.exceptions.checked.IdAlreadyExistsException;
@@ -157,6 +158,29 @@ public interface JobPersistenceService {
         @Min(1) int pageSize
     );
 
+    /**
+     * Get the creation time of the oldest job in the system.
+     *
+     * @return The creation time or {@link Optional#empty()} if there are no jobs
+     */
+    Optional<Instant> getOldestJobCreationTime();
+
+    /**
+     * Delete a batch of the oldest jobs created within the given time range. Jobs are harvested by creation time
+     * rather than by page so calling this repeatedly with {@link JobDeletionBatch#getLastCreated()} as the next
+     * {@code from} never rescans the part of the range which was already deleted.
+     *
+     * @param from      The inclusive lower bound of the creation time of the jobs to delete
+     * @param to        The exclusive upper bound of the creation time of the jobs to delete
+     * @param batchSize The maximum number of jobs to delete
+     * @return A {@link JobDeletionBatch} with the number of jobs deleted and where the next batch should start
+     */
+    JobDeletionBatch deleteBatchOfJobsCreatedInRange(
+        @NotNull Instant from,
+        @NotNull Instant to,
+        @Min(1) int batchSize
+    );
+
     // V4 APIs
 
     /**
@@ -29,17 +29,22 @@ import com.netflix.genie.common.dto.UserResourcesSummary;
 import com.netflix.genie.common.dto.search.JobSearchResult;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.web.dtos.CursorPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.validation.annotation.Validated;
 
 import javax.annotation.Nullable;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Interface for searching jobs.
@@ -50,6 +55,11 @@ import java.util.Set;
 @Validated
 public interface JobSearchService {
 
+    /**
+     * The largest page which can be requested from {@link #findJobsByCursor}.
+     */
+    int MAX_CURSOR_PAGE_SIZE = 2_000;
+
     /**
      * Search for jobs which match the given filter criteria.
      *
@@ -91,6 +101,96 @@ public interface JobSearchService {
         @NotNull Pageable page
     );
 
+    /**
+     * Search for jobs which match the given filter criteria one page at a time using keyset (cursor) pagination.
+     * <p>
+     * Jobs are returned newest first. No total count is computed and the cost of fetching a page doesn't depend on
+     * how deep into the results it is.
+     *
+     * @param id               id for job
+     * @param name             name of job (can be a SQL-style pattern such as HIVE%)
+     * @param user             user who submitted job
+     * @param statuses         statuses of job
+     * @param tags             tags for the job
+     * @param clusterName      name of cluster for job
+     * @param clusterId        id of cluster for job
+     * @param commandName      name of the command run in the job
+     * @param commandId        id of the command run in the job
+     * @param minStarted       The time which the job had to start after in order to be return (inclusive)
+     * @param maxStarted       The time which the job had to start before in order to be returned (exclusive)
+     * @param minFinished      The time which the job had to finish after in order to be return (inclusive)
+     * @param maxFinished      The time which the job had to finish before in order to be returned (exclusive)
+     * @param grouping         The job grouping to search for
+     * @param groupingInstance The job grouping instance to search for
+     * @param cursor           The cursor returned with the previous page or {@literal null} for the first page
+     * @param pageSize         The maximum number of jobs to return
+     * @return The page of jobs which match the criteria and the cursor of the next page if there is one
+     * @throws GeniePreconditionException If the cursor is invalid
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    CursorPage<JobSearchResult> findJobsByCursor(
+        @Nullable String id,
+        @Nullable String name,
+        @Nullable String user,
+        @Nullable Set<JobStatus> statuses,
+        @Nullable Set<String> tags,
+        @Nullable String clusterName,
+        @Nullable String clusterId,
+        @Nullable String commandName,
+        @Nullable String commandId,
+        @Nullable Instant minStarted,
+        @Nullable Instant maxStarted,
+        @Nullable Instant minFinished,
+        @Nullable Instant maxFinished,
+        @Nullable String grouping,
+        @Nullable String groupingInstance,
+        @Nullable String cursor,
+        @Min(1) @Max(MAX_CURSOR_PAGE_SIZE) int pageSize
+    ) throws GeniePreconditionException;
+
+    /**
+     * Stream every job which matches the given filter criteria to the consumer in a single forward only pass over the
+     * database results. Nothing is counted, sorted by the caller's choice or held in memory so this is suitable for
+     * bulk extraction of large numbers of jobs. The started and finished bounds define the time window of the export.
+     *
+     * @param id               id for job
+     * @param name             name of job (can be a SQL-style pattern such as HIVE%)
+     * @param user             user who submitted job
+     * @param statuses         statuses of job
+     * @param tags             tags for the job
+     * @param clusterName      name of cluster for job
+     * @param clusterId        id of cluster for job
+     * @param commandName      name of the command run in the job
+     * @param commandId        id of the command run in the job
+     * @param minStarted       The time which the job had to start after in order to be return (inclusive)
+     * @param maxStarted       The time which the job had to start before in order to be returned (exclusive)
+     * @param minFinished      The time which the job had to finish after in order to be return (inclusive)
+     * @param maxFinished      The time which the job had to finish before in order to be returned (exclusive)
+     * @param grouping         The job grouping to search for
+     * @param groupingInstance The job grouping instance to search for
+     * @param consumer         The consumer each matching job is passed to in turn
+     * @return The number of jobs passed to the consumer
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    long exportJobs(
+        @Nullable String id,
+        @Nullable String name,
+        @Nullable String user,
+        @Nullable Set<JobStatus> statuses,
+        @Nullable Set<String> tags,
+        @Nullable String clusterName,
+        @Nullable String clusterId,
+        @Nullable String commandName,
+        @Nullable String commandId,
+        @Nullable Instant minStarted,
+        @Nullable Instant maxStarted,
+        @Nullable Instant minFinished,
+        @Nullable Instant maxFinished,
+        @Nullable String grouping,
+        @Nullable String groupingInstance,
+        @NotNull Consumer<JobSearchResult> consumer
+    );
+
     /**
      * Given a hostname return a set of all the jobs currently active on that host.
      *
@@ -0,0 +1,562 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.data.services.jpa;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.external.dtos.v4.ClusterStatus;
+import com.netflix.genie.common.external.dtos.v4.CommandStatus;
+import com.netflix.genie.common.external.dtos.v4.Criterion;
+import com.netflix.genie.web.data.repositories.jpa.JpaClusterRepository;
+import com.netflix.genie.web.data.repositories.jpa.JpaCommandRepository;
+import com.netflix.genie.web.properties.ResolutionIndexProperties;
+import com.netflix.genie.web.util.MetricsUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.Nullable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-memory index of clusters, commands, their tags and the priority order of commands attached to clusters which
+ * can answer the same question as
+ * {@link com.netflix.genie.web.data.repositories.jpa.CriteriaResolutionRepository#resolveClustersAndCommands} without
+ * a trip to the database.
+ * <p>
+ * Each resource type is stored as a dense table with inverted indices from status, name and tag to a {@link BitSet}
+ * of matching rows so a criterion is resolved with a handful of bitwise intersections.
+ * <p>
+ * The index is refreshed incrementally. Write paths report the unique id of the cluster or command they modified and
+ * once the surrounding transaction commits those resources are reloaded on the task scheduler. While any change is
+ * pending {@link #resolve(Criterion, Criterion)} returns {@link Optional#empty()} so callers fall back to the database
+ * rather than act on stale data. The whole index is also periodically reloaded as a safety net for writes which don't
+ * go through the entity layer.
+ * <p>
+ * N.B. Matching is exact. Databases configured with case insensitive collations may return different results. Use the
+ * {@link ResolutionIndexProperties#DUAL_MODE_ENABLED_PROPERTY} mode to compare before relying on the index.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@Slf4j
+public class ClusterCommandResolutionIndex {
+
+    private static final String RESOLVE_TIMER = "genie.data.resolutionIndex.resolve.timer";
+    private static final String REFRESH_TIMER = "genie.data.resolutionIndex.refresh.timer";
+    private static final String DUAL_MODE_COUNTER = "genie.data.resolutionIndex.dualMode.counter";
+    private static final String CLUSTERS_GAUGE = "genie.data.resolutionIndex.clusters.gauge";
+    private static final String COMMANDS_GAUGE = "genie.data.resolutionIndex.commands.gauge";
+
+    private static final String RESULT_TAG = "result";
+    private static final Tag RESULT_TAG_HIT = Tag.of(RESULT_TAG, "hit");
+    private static final Tag RESULT_TAG_STALE = Tag.of(RESULT_TAG, "stale");
+    private static final String REFRESH_TYPE_TAG = "type";
+    private static final Tag REFRESH_TYPE_TAG_FULL = Tag.of(REFRESH_TYPE_TAG, "full");
+    private static final Tag REFRESH_TYPE_TAG_INCREMENTAL = Tag.of(REFRESH_TYPE_TAG, "incremental");
+    private static final String MATCHED_TAG = "matched";
+    private static final Set<Tag> MATCHED_TAGS_TRUE = ImmutableSet.of(Tag.of(MATCHED_TAG, "true"));
+    private static final Set<Tag> MATCHED_TAGS_FALSE = ImmutableSet.of(Tag.of(MATCHED_TAG, "false"));
+
+    // Past this many changed resources it's cheaper to reload everything than to build large IN clauses
+    private static final int MAX_INCREMENTAL_CHANGES = 500;
+
+    private final JpaClusterRepository clusterRepository;
+    private final JpaCommandRepository commandRepository;
+    private final TaskScheduler taskScheduler;
+    private final MeterRegistry registry;
+    private final Environment environment;
+
+    private final Set<String> changedClusters = ConcurrentHashMap.newKeySet();
+    private final Set<String> changedCommands = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean fullRefreshRequested = new AtomicBoolean(true);
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean(false);
+    private final AtomicLong changeCount = new AtomicLong();
+    private final Object refreshLock = new Object();
+
+    private volatile long appliedChangeCount = -1L;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * Constructor. Schedules the periodic full reload of the index which also performs the initial load.
+     *
+     * @param clusterRepository The {@link JpaClusterRepository} to load cluster data from
+     * @param commandRepository The {@link JpaCommandRepository} to load command data from
+     * @param taskScheduler     The {@link TaskScheduler} to run refreshes on
+     * @param properties        The {@link ResolutionIndexProperties} to use
+     * @param registry          The {@link MeterRegistry} to publish metrics to
+     * @param environment       The Spring application {@link Environment} for dynamic property resolution
+     */
+    public ClusterCommandResolutionIndex(
+        final JpaClusterRepository clusterRepository,
+        final JpaCommandRepository commandRepository,
+        final TaskScheduler taskScheduler,
+        final ResolutionIndexProperties properties,
+        final MeterRegistry registry,
+        final Environment environment
+    ) {
+        this.clusterRepository = clusterRepository;
+        this.commandRepository = commandRepository;
+        this.taskScheduler = taskScheduler;
+        this.registry = registry;
+        this.environment = environment;
+
+        this.registry.gauge(CLUSTERS_GAUGE, this, index -> index.snapshot.clusters.size());
+        this.registry.gauge(COMMANDS_GAUGE, this, index -> index.snapshot.commands.size());
+
+        this.taskScheduler.scheduleWithFixedDelay(this::fullRefresh, properties.getRefreshInterval());
+    }
+
+    /**
+     * Notify the index that the cluster with the given unique id was created, modified or deleted. If called within a
+     * transaction the cluster is only reloaded once the transaction commits.
+     *
+     * @param uniqueId The unique id of the cluster
+     */
+    public void clusterChanged(final String uniqueId) {
+        this.afterCommit(() -> this.recordChange(this.changedClusters, uniqueId));
+    }
+
+    /**
+     * Notify the index that the command with the given unique id was created, modified or deleted. If called within a
+     * transaction the command is only reloaded once the transaction commits.
+     *
+     * @param uniqueId The unique id of the command
+     */
+    public void commandChanged(final String uniqueId) {
+        this.afterCommit(() -> this.recordChange(this.changedCommands, uniqueId));
+    }
+
+    /**
+     * Notify the index that an unknown set of clusters or commands was modified (e.g. by a bulk query) and the entire
+     * index should be reloaded. If called within a transaction the reload happens once the transaction commits.
+     */
+    public void invalidate() {
+        this.afterCommit(
+            () -> {
+                this.fullRefreshRequested.set(true);
+                this.changeCount.incrementAndGet();
+                this.scheduleRefresh();
+            }
+        );
+    }
+
+    /**
+     * Resolve the clusters matching the cluster criterion and, for each, the highest priority command attached to it
+     * which matches the command criterion.
+     *
+     * @param clusterCriterion The criterion for selecting a cluster
+     * @param commandCriterion The criterion for selecting a command attached to the selected cluster
+     * @return Map of the database id of each matching cluster to the unique id of its selected command or
+     * {@link Optional#empty()} if the index is not current and the database should be queried instead
+     */
+    public Optional<Map<Long, String>> resolve(final Criterion clusterCriterion, final Criterion commandCriterion) {
+        final long start = System.nanoTime();
+        final Set<Tag> tags = Sets.newHashSet();
+        try {
+            if (this.appliedChangeCount != this.changeCount.get()) {
+                tags.add(RESULT_TAG_STALE);
+                return Optional.empty();
+            }
+            final Map<Long, String> result = this.snapshot.resolve(clusterCriterion, commandCriterion);
+            tags.add(RESULT_TAG_HIT);
+            return Optional.of(result);
+        } finally {
+            this.registry
+                .timer(RESOLVE_TIMER, tags)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Whether results from the index should only be compared against the results from the database rather than used.
+     *
+     * @return {@literal true} if dual mode is enabled
+     */
+    public boolean isDualModeEnabled() {
+        return this.environment.getProperty(ResolutionIndexProperties.DUAL_MODE_ENABLED_PROPERTY, Boolean.class, false);
+    }
+
+    /**
+     * Record whether the index and database returned the same resolution for the given criteria.
+     *
+     * @param clusterCriterion The cluster criterion that was resolved
+     * @param commandCriterion The command criterion that was resolved
+     * @param indexResult      The result computed by {@link #resolve(Criterion, Criterion)}
+     * @param databaseResult   The result computed by the database query
+     */
+    public void recordDualModeResult(
+        final Criterion clusterCriterion,
+        final Criterion commandCriterion,
+        final Map<Long, String> indexResult,
+        final Map<Long, String> databaseResult
+    ) {
+        if (indexResult.equals(databaseResult)) {
+            this.registry.counter(DUAL_MODE_COUNTER, MATCHED_TAGS_TRUE).increment();
+        } else {
+            log.info(
+                "Resolution index mismatch for cluster criterion {} and command criterion {}. Index: {} Database: {}",
+                clusterCriterion,
+                commandCriterion,
+                indexResult,
+                databaseResult
+            );
+            this.registry.counter(DUAL_MODE_COUNTER, MATCHED_TAGS_FALSE).increment();
+        }
+    }
+
+    /**
+     * Apply all pending changes to the index. Reloads everything if a full refresh was requested or too many resources
+     * changed, otherwise only the changed clusters and commands are reloaded.
+     */
+    public void refresh() {
+        synchronized (this.refreshLock) {
+            final long start = System.nanoTime();
+            // Read the counter before draining so that changes recorded during the reload leave the index stale
+            final long targetChangeCount = this.changeCount.get();
+            final boolean full = this.fullRefreshRequested.getAndSet(false)
+                || this.changedClusters.size() + this.changedCommands.size() > MAX_INCREMENTAL_CHANGES;
+            final Set<Tag> tags = Sets.newHashSet(full ? REFRESH_TYPE_TAG_FULL : REFRESH_TYPE_TAG_INCREMENTAL);
+            final Set<String> clusterIds = drain(this.changedClusters);
+            final Set<String> commandIds = drain(this.changedCommands);
+            try {
+                this.snapshot = full ? this.loadAll() : this.loadChanges(this.snapshot, clusterIds, commandIds);
+                this.appliedChangeCount = targetChangeCount;
+                MetricsUtils.addSuccessTags(tags);
+            } catch (final RuntimeException e) {
+                // Leave the index stale so callers keep using the database until a reload succeeds
+                log.error("Unable to refresh the cluster and command resolution index", e);
+                this.fullRefreshRequested.set(true);
+                MetricsUtils.addFailureTagsWithException(tags, e);
+            } finally {
+                this.registry
+                    .timer(REFRESH_TIMER, tags)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private static Set<String> drain(final Set<String> changes) {
+        final Set<String> drained = new HashSet<>();
+        final Iterator<String> iterator = changes.iterator();
+        while (iterator.hasNext()) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    private static Map<String, IndexedResource> toResources(final List<Object[]> rows) {
+        final Map<String, IndexedResource> resources = new LinkedHashMap<>();
+        for (final Object[] row : rows) {
+            final IndexedResource resource = resources.computeIfAbsent(
+                (String) row[1],
+                uniqueId -> new IndexedResource(
+                    ((Number) row[0]).longValue(),
+                    uniqueId,
+                    (String) row[2],
+                    (String) row[3],
+                    (String) row[4]
+                )
+            );
+            if (row[5] != null) {
+                resource.tags.add((String) row[5]);
+            }
+        }
+        return resources;
+    }
+
+    private static Map<Long, long[]> toClusterCommands(final List<Object[]> rows) {
+        // Rows are ordered by cluster and then command priority so insertion order is the priority order
+        final Map<Long, List<Long>> commandIds = new HashMap<>();
+        for (final Object[] row : rows) {
+            commandIds
+                .computeIfAbsent(((Number) row[0]).longValue(), clusterId -> new ArrayList<>())
+                .add(((Number) row[1]).longValue());
+        }
+        final Map<Long, long[]> clusterCommands = new HashMap<>();
+        commandIds.forEach(
+            (clusterId, ids) -> clusterCommands.put(clusterId, ids.stream().mapToLong(Long::longValue).toArray())
+        );
+        return clusterCommands;
+    }
+
+    private void fullRefresh() {
+        this.fullRefreshRequested.set(true);
+        this.refresh();
+    }
+
+    private void recordChange(final Set<String> changes, final String uniqueId) {
+        // Add before incrementing so a concurrent refresh which observes the new count also observes the id
+        changes.add(uniqueId);
+        this.changeCount.incrementAndGet();
+        this.scheduleRefresh();
+    }
+
+    private void scheduleRefresh() {
+        if (this.refreshScheduled.compareAndSet(false, true)) {
+            this.taskScheduler.schedule(
+                () -> {
+                    this.refreshScheduled.set(false);
+                    this.refresh();
+                },
+                Instant.now()
+            );
+        }
+    }
+
+    private void afterCommit(final Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        action.run();
+                    }
+                }
+            );
+        } else {
+            action.run();
+        }
+    }
+
+    private Snapshot loadAll() {
+        return new Snapshot(
+            toResources(this.clusterRepository.findResolutionIndexClusters()),
+            toResources(this.commandRepository.findResolutionIndexCommands()),
+            toClusterCommands(this.clusterRepository.findResolutionIndexClusterCommands())
+        );
+    }
+
+    private Snapshot loadChanges(
+        final Snapshot previous,
+        final Set<String> clusterIds,
+        final Set<String> commandIds
+    ) {
+        if (clusterIds.isEmpty() && commandIds.isEmpty()) {
+            return previous;
+        }
+
+        final Map<String, IndexedResource> clusters = new HashMap<>(previous.clustersByUniqueId);
+        final Map<String, IndexedResource> commands = new HashMap<>(previous.commandsByUniqueId);
+        final Map<Long, long[]> clusterCommands = new HashMap<>(previous.clusterCommands);
+
+        if (!clusterIds.isEmpty()) {
+            for (final String clusterId : clusterIds) {
+                final IndexedResource removed = clusters.remove(clusterId);
+                if (removed != null) {
+                    clusterCommands.remove(removed.id);
+                }
+            }
+            clusters.putAll(toResources(this.clusterRepository.findResolutionIndexClusters(clusterIds)));
+            clusterCommands.putAll(
+                toClusterCommands(this.clusterRepository.findResolutionIndexClusterCommands(clusterIds))
+            );
+        }
+
+        if (!commandIds.isEmpty()) {
+            commandIds.forEach(commands::remove);
+            commands.putAll(toResources(this.commandRepository.findResolutionIndexCommands(commandIds)));
+        }
+
+        return new Snapshot(clusters, commands, clusterCommands);
+    }
+
+    /**
+     * The minimal fields of a cluster or command needed to evaluate a {@link Criterion}.
+     */
+    private static final class IndexedResource {
+        private final long id;
+        private final String uniqueId;
+        private final String name;
+        private final String version;
+        private final String status;
+        private final Set<String> tags = new HashSet<>();
+
+        private IndexedResource(
+            final long id,
+            final String uniqueId,
+            final String name,
+            final String version,
+            final String status
+        ) {
+            this.id = id;
+            this.uniqueId = uniqueId;
+            this.name = name;
+            this.version = version;
+            this.status = status;
+        }
+    }
+
+    /**
+     * Dense, immutable table of resources of one type with inverted indices from field values to row ordinals.
+     */
+    private static final class ResourceTable {
+        private static final BitSet NO_MATCHES = new BitSet();
+
+        private final IndexedResource[] resources;
+        private final Map<Long, Integer> ordinalsById = new HashMap<>();
+        private final Map<String, Integer> ordinalsByUniqueId = new HashMap<>();
+        private final Map<String, BitSet> statusIndex = new HashMap<>();
+        private final Map<String, BitSet> nameIndex = new HashMap<>();
+        private final Map<String, BitSet> tagIndex = new HashMap<>();
+
+        private ResourceTable(final Collection<IndexedResource> resources) {
+            this.resources = resources.toArray(new IndexedResource[0]);
+            for (int ordinal = 0; ordinal < this.resources.length; ordinal++) {
+                final IndexedResource resource = this.resources[ordinal];
+                this.ordinalsById.put(resource.id, ordinal);
+                this.ordinalsByUniqueId.put(resource.uniqueId, ordinal);
+                this.statusIndex.computeIfAbsent(resource.status, key -> new BitSet()).set(ordinal);
+                this.nameIndex.computeIfAbsent(resource.name, key -> new BitSet()).set(ordinal);
+                for (final String tag : resource.tags) {
+                    this.tagIndex.computeIfAbsent(tag, key -> new BitSet()).set(ordinal);
+                }
+            }
+        }
+
+        private int size() {
+            return this.resources.length;
+        }
+
+        /**
+         * Mirrors the filters of the database query: status (or the default status), unique id, name, version and
+         * every tag must all match.
+         */
+        private BitSet match(final Criterion criterion, final String defaultStatus) {
+            final String status = criterion.getStatus().filter(StringUtils::isNotBlank).orElse(defaultStatus);
+            final BitSet matches = (BitSet) this.statusIndex.getOrDefault(status, NO_MATCHES).clone();
+
+            final Optional<String> id = criterion.getId().filter(StringUtils::isNotBlank);
+            if (id.isPresent()) {
+                final Integer ordinal = this.ordinalsByUniqueId.get(id.get());
+                final boolean matched = ordinal != null && matches.get(ordinal);
+                matches.clear();
+                if (matched) {
+                    matches.set(ordinal);
+                }
+            }
+
+            criterion.getName()
+                .filter(StringUtils::isNotBlank)
+                .ifPresent(name -> matches.and(this.nameIndex.getOrDefault(name, NO_MATCHES)));
+
+            for (final String tag : criterion.getTags()) {
+                if (matches.isEmpty()) {
+                    break;
+                }
+                matches.and(this.tagIndex.getOrDefault(tag, NO_MATCHES));
+            }
+
+            final Optional<String> version = criterion.getVersion().filter(StringUtils::isNotBlank);
+            if (version.isPresent()) {
+                for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+                    if (!version.get().equals(this.resources[ordinal].version)) {
+                        matches.clear(ordinal);
+                    }
+                }
+            }
+
+            return matches;
+        }
+
+        @Nullable
+        private IndexedResource getIfMatched(final long id, final BitSet matches) {
+            final Integer ordinal = this.ordinalsById.get(id);
+            return ordinal != null && matches.get(ordinal) ? this.resources[ordinal] : null;
+        }
+    }
+
+    /**
+     * An immutable point in time view of the index. Replaced wholesale on refresh.
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(
+            Collections.emptyMap(),
+            Collections.emptyMap(),
+            Collections.emptyMap()
+        );
+        private static final long[] NO_COMMANDS = new long[0];
+
+        private final Map<String, IndexedResource> clustersByUniqueId;
+        private final Map<String, IndexedResource> commandsByUniqueId;
+        private final Map<Long, long[]> clusterCommands;
+        private final ResourceTable clusters;
+        private final ResourceTable commands;
+
+        private Snapshot(
+            final Map<String, IndexedResource> clustersByUniqueId,
+            final Map<String, IndexedResource> commandsByUniqueId,
+            final Map<Long, long[]> clusterCommands
+        ) {
+            this.clustersByUniqueId = clustersByUniqueId;
+            this.commandsByUniqueId = commandsByUniqueId;
+            this.clusterCommands = clusterCommands;
+            this.clusters = new ResourceTable(clustersByUniqueId.values());
+            this.commands = new ResourceTable(commandsByUniqueId.values());
+        }
+
+        private Map<Long, String> resolve(final Criterion clusterCriterion, final Criterion commandCriterion) {
+            final Map<Long, String> result = new HashMap<>();
+            final BitSet matchedClusters = this.clusters.match(clusterCriterion, ClusterStatus.UP.name());
+            if (matchedClusters.isEmpty()) {
+                return result;
+            }
+            final BitSet matchedCommands = this.commands.match(commandCriterion, CommandStatus.ACTIVE.name());
+            if (matchedCommands.isEmpty()) {
+                return result;
+            }
+
+            for (int ordinal = matchedClusters.nextSetBit(0);
+                 ordinal >= 0;
+                 ordinal = matchedClusters.nextSetBit(ordinal + 1)) {
+                final IndexedResource cluster = this.clusters.resources[ordinal];
+                // Commands are stored in priority order so the first match is the one the query would pick
+                for (final long commandId : this.clusterCommands.getOrDefault(cluster.id, NO_COMMANDS)) {
+                    final IndexedResource command = this.commands.getIfMatched(commandId, matchedCommands);
+                    if (command != null) {
+                        result.put(cluster.id, command.uniqueId);
+                        break;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.data.services.jpa;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.internal.exceptions.unchecked.GenieRuntimeException;
+import com.netflix.genie.web.data.entities.AuditEntity;
+import com.netflix.genie.web.properties.InterningCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A bounded in-process cache of the entities for shared values like tags and file paths which many resources and jobs
+ * reference. Resolving a set of values to entities costs nothing for values already cached, a single {@code IN} query
+ * for the rest and only creates the values which don't exist yet.
+ * <p>
+ * Entities are only cached once the transaction which read them commits so a rolled back insert never leaves an id
+ * behind which doesn't exist in the database. Cached entities are detached and must only ever be used as the target
+ * of an association, never modified or merged.
+ *
+ * @param <E> The type of entity cached
+ * @author agent
+ * @since 4.0.0
+ */
+class InterningCache<E extends AuditEntity> {
+
+    private static final String LOOKUP_COUNTER = "genie.data.interningCache.lookup.counter";
+    private static final String TYPE_TAG = "type";
+    private static final String HIT_TAG = "hit";
+
+    private final Cache<String, E> cache;
+    private final Function<E, String> valueFunction;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    /**
+     * Constructor.
+     *
+     * @param type          The type of value cached (e.g. {@literal tag}) used to tag metrics
+     * @param valueFunction Function which extracts the unique value from an entity
+     * @param properties    The {@link InterningCacheProperties} to size the cache with
+     * @param registry      The {@link MeterRegistry} to publish cache metrics to
+     */
+    InterningCache(
+        final String type,
+        final Function<E, String> valueFunction,
+        final InterningCacheProperties properties,
+        final MeterRegistry registry
+    ) {
+        this.cache = Caffeine
+            .newBuilder()
+            .maximumSize(properties.getMaximumSize())
+            .expireAfterWrite(properties.getExpireAfterWrite(), TimeUnit.MILLISECONDS)
+            // Evict on the calling thread so a disabled (0 sized) cache never serves an entry
+            .executor(Runnable::run)
+            .build();
+        this.valueFunction = valueFunction;
+        this.hitCounter = registry.counter(LOOKUP_COUNTER, TYPE_TAG, type, HIT_TAG, "true");
+        this.missCounter = registry.counter(LOOKUP_COUNTER, TYPE_TAG, type, HIT_TAG, "false");
+    }
+
+    /**
+     * Get the entities for all the given values creating any which don't exist yet.
+     *
+     * @param values  The values to get entities for
+     * @param finder  Function which finds all the existing entities for a set of values in a single query
+     * @param creator Function which creates the entity for a single value if it doesn't exist yet
+     * @return A mutable set of entities, one per value
+     * @throws GenieRuntimeException If an entity can't be found after it was created
+     */
+    Set<E> createAndGet(
+        final Set<String> values,
+        final Function<Set<String>, Set<E>> finder,
+        final Consumer<String> creator
+    ) {
+        final Set<E> entities = Sets.newHashSetWithExpectedSize(values.size());
+        final Set<String> misses = Sets.newHashSet();
+        for (final String value : values) {
+            final E entity = this.cache.getIfPresent(value);
+            if (entity != null) {
+                entities.add(entity);
+            } else {
+                misses.add(value);
+            }
+        }
+        this.hitCounter.increment(entities.size());
+        this.missCounter.increment(misses.size());
+        if (misses.isEmpty()) {
+            return entities;
+        }
+
+        final Map<String, E> found = Maps.newHashMapWithExpectedSize(misses.size());
+        for (final E entity : finder.apply(misses)) {
+            found.put(this.valueFunction.apply(entity), entity);
+        }
+        final Set<String> missing = Sets.difference(misses, found.keySet()).immutableCopy();
+        if (!missing.isEmpty()) {
+            missing.forEach(creator);
+            for (final E entity : finder.apply(missing)) {
+                found.put(this.valueFunction.apply(entity), entity);
+            }
+            for (final String value : missing) {
+                if (!found.containsKey(value)) {
+                    // This shouldn't ever happen as the contract of the creator states it will exist hence
+                    // throw a Runtime exception as there is no real recovery
+                    throw new GenieRuntimeException("Couldn't find entity for " + value + " after creating it");
+                }
+            }
+        }
+
+        entities.addAll(found.values());
+        afterCommit(() -> this.cache.putAll(found));
+        return entities;
+    }
+
+    /**
+     * Drop every cached entity once the current transaction, if any, commits. To be called whenever entities are
+     * deleted.
+     */
+    void invalidateAll() {
+        afterCommit(this.cache::invalidateAll);
+    }
+
+    private static void afterCommit(final Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        action.run();
+                    }
+                }
+            );
+        } else {
+            action.run();
+        }
+    }
+}
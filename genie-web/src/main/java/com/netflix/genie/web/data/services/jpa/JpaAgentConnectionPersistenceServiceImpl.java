@@ -24,7 +24,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * JPA implementation of AgentConnectionPersistenceService.
@@ -87,6 +92,26 @@ public class JpaAgentConnectionPersistenceServiceImpl implements AgentConnection
         return agentConnectionEntity.map(AgentConnectionEntity::getServerHostname);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, String> lookupAgentConnectionServers(@NotNull final Set<String> jobIds) {
+        if (jobIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return this.agentConnectionRepository
+            .findByJobIdIn(jobIds)
+            .stream()
+            .collect(
+                Collectors.toMap(
+                    AgentConnectionEntity::getJobId,
+                    AgentConnectionEntity::getServerHostname
+                )
+            );
+    }
+
     /**
      * {@inheritDoc}
      */
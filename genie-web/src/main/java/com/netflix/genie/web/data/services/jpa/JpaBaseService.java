@@ -38,10 +38,13 @@ import lombok.extern.slf4j.Slf4j;
 
 import javax.annotation.Nullable;
 import javax.validation.constraints.NotBlank;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Base service for other services to extend for common functionality.
@@ -94,12 +97,13 @@ class JpaBaseService {
      * @throws GenieRuntimeException If we can't find the entity after creation.
      */
     FileEntity createAndGetFileEntity(@NotBlank(message = "File path cannot be blank") final String file) {
-        this.filePersistenceService.createFileIfNotExists(file);
-        return this.filePersistenceService.getFile(file).orElseThrow(
+        return this.filePersistenceService
+            .createAndGetFiles(Sets.newHashSet(file))
+            .stream()
+            .findFirst()
             // This shouldn't ever happen as the contract of previous API call states it will exists hence
             // throw a Runtime exception as there is no real recovery
-            () -> new GenieRuntimeException("Couldn't find file entity for file " + file)
-        );
+            .orElseThrow(() -> new GenieRuntimeException("Couldn't find file entity for file " + file));
     }
 
     /**
@@ -110,11 +114,7 @@ class JpaBaseService {
      * @throws GenieRuntimeException on error
      */
     Set<FileEntity> createAndGetFileEntities(final Set<String> files) {
-        final Set<FileEntity> fileEntities = Sets.newHashSet();
-        for (final String file : files) {
-            fileEntities.add(this.createAndGetFileEntity(file));
-        }
-        return fileEntities;
+        return this.filePersistenceService.createAndGetFiles(files);
     }
 
     /**
@@ -125,12 +125,13 @@ class JpaBaseService {
      * @throws GenieRuntimeException on error
      */
     TagEntity createAndGetTagEntity(@NotBlank(message = "Tag cannot be blank") final String tag) {
-        this.tagPersistenceService.createTagIfNotExists(tag);
-        return this.tagPersistenceService.getTag(tag).orElseThrow(
+        return this.tagPersistenceService
+            .createAndGetTags(Sets.newHashSet(tag))
+            .stream()
+            .findFirst()
             // This shouldn't ever happen as the contract of previous API call states it will exists hence
             // throw a Runtime exception as there is no real recovery
-            () -> new GenieRuntimeException("Couldn't find tag entity for tag " + tag)
-        );
+            .orElseThrow(() -> new GenieRuntimeException("Couldn't find tag entity for tag " + tag));
     }
 
     /**
@@ -141,11 +142,7 @@ class JpaBaseService {
      * @throws GenieRuntimeException on error
      */
     Set<TagEntity> createAndGetTagEntities(final Set<String> tags) {
-        final Set<TagEntity> tagEntities = Sets.newHashSet();
-        for (final String tag : tags) {
-            tagEntities.add(this.createAndGetTagEntity(tag));
-        }
-        return tagEntities;
+        return this.tagPersistenceService.createAndGetTags(tags);
     }
 
     /**
@@ -179,14 +176,16 @@ class JpaBaseService {
         final Consumer<Set<FileEntity>> dependenciesConsumer,
         final Consumer<FileEntity> setupFileConsumer
     ) {
-        // Save all the unowned entities first to avoid unintended flushes
-        configsConsumer.accept(this.createAndGetFileEntities(resources.getConfigs()));
-        dependenciesConsumer.accept(this.createAndGetFileEntities(resources.getDependencies()));
-        setupFileConsumer.accept(
-            resources.getSetupFile().isPresent()
-                ? this.createAndGetFileEntity(resources.getSetupFile().get())
-                : null
-        );
+        // Save all the unowned entities first to avoid unintended flushes. All the files are resolved in one batch.
+        final Set<String> files = Sets.newHashSet(resources.getConfigs());
+        files.addAll(resources.getDependencies());
+        resources.getSetupFile().ifPresent(files::add);
+        final Map<String, FileEntity> fileEntities = this.createAndGetFileEntities(files)
+            .stream()
+            .collect(Collectors.toMap(FileEntity::getFile, Function.identity()));
+        configsConsumer.accept(getFileEntities(resources.getConfigs(), fileEntities));
+        dependenciesConsumer.accept(getFileEntities(resources.getDependencies(), fileEntities));
+        setupFileConsumer.accept(resources.getSetupFile().map(fileEntities::get).orElse(null));
     }
 
     /**
@@ -247,4 +246,11 @@ class JpaBaseService {
         criterionEntity.setTags(this.createAndGetTagEntities(criterion.getTags()));
         return criterionEntity;
     }
+
+    private static Set<FileEntity> getFileEntities(
+        final Set<String> files,
+        final Map<String, FileEntity> fileEntities
+    ) {
+        return files.stream().map(fileEntities::get).collect(Collectors.toSet());
+    }
 }
@@ -70,6 +70,7 @@ import javax.validation.constraints.NotNull;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -92,6 +93,9 @@ import java.util.stream.Collectors;
 @Slf4j
 public class JpaClusterPersistenceServiceImpl extends JpaBaseService implements ClusterPersistenceService {
 
+    @Nullable
+    private final ClusterCommandResolutionIndex resolutionIndex;
+
     /**
      * Default constructor.
      *
@@ -109,6 +113,38 @@ public class JpaClusterPersistenceServiceImpl extends JpaBaseService implements
         final JpaClusterRepository clusterRepository,
         final JpaCommandRepository commandRepository,
         final JpaCriterionRepository criterionRepository
+    ) {
+        this(
+            tagPersistenceService,
+            filePersistenceService,
+            applicationRepository,
+            clusterRepository,
+            commandRepository,
+            criterionRepository,
+            null
+        );
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param tagPersistenceService  The {@link JpaTagPersistenceService} to use
+     * @param filePersistenceService The {@link JpaFilePersistenceService} to use
+     * @param applicationRepository  The {@link JpaApplicationRepository} to use
+     * @param clusterRepository      The {@link JpaClusterRepository} to use
+     * @param commandRepository      The {@link JpaCommandRepository} to use
+     * @param criterionRepository    The {@link JpaCriterionRepository} to use
+     * @param resolutionIndex        The {@link ClusterCommandResolutionIndex} to resolve criteria with before falling
+     *                               back to the database or {@literal null} to always use the database
+     */
+    public JpaClusterPersistenceServiceImpl(
+        final JpaTagPersistenceService tagPersistenceService,
+        final JpaFilePersistenceService filePersistenceService,
+        final JpaApplicationRepository applicationRepository,
+        final JpaClusterRepository clusterRepository,
+        final JpaCommandRepository commandRepository,
+        final JpaCriterionRepository criterionRepository,
+        @Nullable final ClusterCommandResolutionIndex resolutionIndex
     ) {
         super(
             tagPersistenceService,
@@ -118,6 +154,7 @@ public class JpaClusterPersistenceServiceImpl extends JpaBaseService implements
             commandRepository,
             criterionRepository
         );
+        this.resolutionIndex = resolutionIndex;
     }
 
     /**
@@ -565,13 +602,18 @@ public class JpaClusterPersistenceServiceImpl extends JpaBaseService implements
      */
     @Override
     public long deleteTerminatedClusters() {
-        return this.getClusterRepository().deleteByIdIn(
+        final long deleted = this.getClusterRepository().deleteByIdIn(
             this.getClusterRepository()
                 .findTerminatedUnusedClusters()
                 .stream()
                 .map(Number::longValue)
                 .collect(Collectors.toSet())
         );
+        // Bulk deletes bypass the entity listeners
+        if (deleted > 0 && this.resolutionIndex != null) {
+            this.resolutionIndex.invalidate();
+        }
+        return deleted;
     }
 
     /**
@@ -636,31 +678,17 @@ public class JpaClusterPersistenceServiceImpl extends JpaBaseService implements
     ) throws GenieServerException {
         final Map<Cluster, String> foundClusters = Maps.newHashMap();
         for (final Criterion clusterCriterion : clusterCriteria) {
-            final List<Object[]> clusterCommands = this.getClusterRepository().resolveClustersAndCommands(
+            final Map<Long, String> clusterCommandIds = this.resolveClusterCommandIds(
                 clusterCriterion,
                 commandCriterion
             );
 
-            if (!clusterCommands.isEmpty()) {
-                for (final Object[] ids : clusterCommands) {
-                    if (ids.length != 2) {
-                        throw new GenieServerException("Expected result length 2 but got " + ids.length);
-                    }
-                    final long clusterId;
-                    if (ids[0] instanceof Number) {
-                        clusterId = ((Number) ids[0]).longValue();
-                    } else {
-                        throw new GenieServerException("Expected number type but got " + ids[0].getClass().getName());
-                    }
-                    final String commandUniqueId;
-                    if (ids[1] instanceof String) {
-                        commandUniqueId = (String) ids[1];
-                    } else {
-                        throw new GenieServerException("Expected String type but got " + ids[1].getClass().getName());
-                    }
-
-                    final ClusterEntity clusterEntity = this.getClusterRepository().getOne(clusterId);
-                    foundClusters.put(EntityDtoConverters.toV4ClusterDto(clusterEntity), commandUniqueId);
+            if (!clusterCommandIds.isEmpty()) {
+                for (final ClusterEntity clusterEntity : this.fetchClusters(clusterCommandIds.keySet())) {
+                    foundClusters.put(
+                        EntityDtoConverters.toV4ClusterDto(clusterEntity),
+                        clusterCommandIds.get(clusterEntity.getId())
+                    );
                 }
                 return foundClusters;
             }
@@ -670,6 +698,88 @@ public class JpaClusterPersistenceServiceImpl extends JpaBaseService implements
         return foundClusters;
     }
 
+    /**
+     * Load the clusters with the given ids along with every association {@link EntityDtoConverters#toV4ClusterDto}
+     * reads in a constant number of queries instead of lazily initializing each association of each cluster.
+     *
+     * @param ids The ids of the clusters to load
+     * @return The distinct clusters which still exist
+     */
+    private Collection<ClusterEntity> fetchClusters(final Set<Long> ids) {
+        final Map<Long, ClusterEntity> clusters = Maps.newHashMap();
+        for (final ClusterEntity clusterEntity : this.getClusterRepository().findWithTagsAndSetupFileByIdIn(ids)) {
+            clusters.putIfAbsent(clusterEntity.getId(), clusterEntity);
+        }
+        if (!clusters.isEmpty()) {
+            // The persistence context returns the same instances so these initialize the collections of the entities
+            // above. One query per collection avoids the cartesian product of fetching them all at once.
+            this.getClusterRepository().findWithConfigsByIdIn(ids);
+            this.getClusterRepository().findWithDependenciesByIdIn(ids);
+        }
+        return clusters.values();
+    }
+
+    private Map<Long, String> resolveClusterCommandIds(
+        final Criterion clusterCriterion,
+        final Criterion commandCriterion
+    ) throws GenieServerException {
+        if (this.resolutionIndex == null) {
+            return this.queryClusterCommandIds(clusterCriterion, commandCriterion);
+        }
+
+        final Optional<Map<Long, String>> indexResult = this.resolutionIndex.resolve(
+            clusterCriterion,
+            commandCriterion
+        );
+        if (!indexResult.isPresent()) {
+            // Index has pending changes. Database is the source of truth.
+            return this.queryClusterCommandIds(clusterCriterion, commandCriterion);
+        }
+
+        if (this.resolutionIndex.isDualModeEnabled()) {
+            final Map<Long, String> databaseResult = this.queryClusterCommandIds(clusterCriterion, commandCriterion);
+            this.resolutionIndex.recordDualModeResult(
+                clusterCriterion,
+                commandCriterion,
+                indexResult.get(),
+                databaseResult
+            );
+            return databaseResult;
+        }
+
+        return indexResult.get();
+    }
+
+    private Map<Long, String> queryClusterCommandIds(
+        final Criterion clusterCriterion,
+        final Criterion commandCriterion
+    ) throws GenieServerException {
+        final Map<Long, String> clusterCommandIds = Maps.newHashMap();
+        final List<Object[]> clusterCommands = this.getClusterRepository().resolveClustersAndCommands(
+            clusterCriterion,
+            commandCriterion
+        );
+        for (final Object[] ids : clusterCommands) {
+            if (ids.length != 2) {
+                throw new GenieServerException("Expected result length 2 but got " + ids.length);
+            }
+            final long clusterId;
+            if (ids[0] instanceof Number) {
+                clusterId = ((Number) ids[0]).longValue();
+            } else {
+                throw new GenieServerException("Expected number type but got " + ids[0].getClass().getName());
+            }
+            final String commandUniqueId;
+            if (ids[1] instanceof String) {
+                commandUniqueId = (String) ids[1];
+            } else {
+                throw new GenieServerException("Expected String type but got " + ids[1].getClass().getName());
+            }
+            clusterCommandIds.put(clusterId, commandUniqueId);
+        }
+        return clusterCommandIds;
+    }
+
     /**
      * Helper method to find a cluster entity to save code.
      *
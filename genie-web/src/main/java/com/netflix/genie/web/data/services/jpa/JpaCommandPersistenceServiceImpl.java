@@ -92,6 +92,9 @@ import java.util.stream.Collectors;
 @Slf4j
 public class JpaCommandPersistenceServiceImpl extends JpaBaseService implements CommandPersistenceService {
 
+    @Nullable
+    private final ClusterCommandResolutionIndex resolutionIndex;
+
     /**
      * Default constructor.
      *
@@ -109,6 +112,38 @@ public class JpaCommandPersistenceServiceImpl extends JpaBaseService implements
         final JpaClusterRepository clusterRepository,
         final JpaCommandRepository commandRepository,
         final JpaCriterionRepository criterionRepository
+    ) {
+        this(
+            tagPersistenceService,
+            filePersistenceService,
+            applicationRepository,
+            clusterRepository,
+            commandRepository,
+            criterionRepository,
+            null
+        );
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param tagPersistenceService  The {@link JpaTagPersistenceService} to use
+     * @param filePersistenceService The {@link JpaFilePersistenceService} to use
+     * @param applicationRepository  The {@link JpaApplicationRepository} to use
+     * @param clusterRepository      The {@link JpaClusterRepository} to use
+     * @param commandRepository      The {@link JpaCommandRepository} to use
+     * @param criterionRepository    The {@link JpaCriterionRepository} to use
+     * @param resolutionIndex        The {@link ClusterCommandResolutionIndex} to invalidate after bulk modifications
+     *                               or {@literal null} if there isn't one
+     */
+    public JpaCommandPersistenceServiceImpl(
+        final JpaTagPersistenceService tagPersistenceService,
+        final JpaFilePersistenceService filePersistenceService,
+        final JpaApplicationRepository applicationRepository,
+        final JpaClusterRepository clusterRepository,
+        final JpaCommandRepository commandRepository,
+        final JpaCriterionRepository criterionRepository,
+        @Nullable final ClusterCommandResolutionIndex resolutionIndex
     ) {
         super(
             tagPersistenceService,
@@ -118,6 +153,7 @@ public class JpaCommandPersistenceServiceImpl extends JpaBaseService implements
             commandRepository,
             criterionRepository
         );
+        this.resolutionIndex = resolutionIndex;
     }
 
     /**
@@ -686,12 +722,14 @@ public class JpaCommandPersistenceServiceImpl extends JpaBaseService implements
             jobCreatedThreshold,
             desiredStatus
         );
-        return this.getCommandRepository().setUnusedStatus(
+        final int updated = this.getCommandRepository().setUnusedStatus(
             desiredStatus.name(),
             commandCreatedThreshold,
             currentStatuses.stream().map(Enum::name).collect(Collectors.toSet()),
             jobCreatedThreshold
         );
+        this.invalidateResolutionIndex(updated);
+        return updated;
     }
 
     /**
@@ -704,10 +742,23 @@ public class JpaCommandPersistenceServiceImpl extends JpaBaseService implements
             deleteStatuses,
             commandCreatedThreshold
         );
-        return this.getCommandRepository().deleteUnused(
+        final int deleted = this.getCommandRepository().deleteUnused(
             deleteStatuses.stream().map(Enum::name).collect(Collectors.toSet()),
             commandCreatedThreshold
         );
+        this.invalidateResolutionIndex(deleted);
+        return deleted;
+    }
+
+    /**
+     * Bulk queries bypass the entity listeners so the resolution index has to be told to reload everything.
+     *
+     * @param modified The number of commands modified by the bulk query
+     */
+    private void invalidateResolutionIndex(final int modified) {
+        if (modified > 0 && this.resolutionIndex != null) {
+            this.resolutionIndex.invalidate();
+        }
     }
 
     /**
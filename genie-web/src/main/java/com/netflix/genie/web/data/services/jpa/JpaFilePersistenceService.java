@@ -50,4 +50,14 @@ public interface JpaFilePersistenceService extends FilePersistenceService {
      * and "c" are in the database the returned set will contain "b" and "c". The method won't fail.
      */
     Set<FileEntity> getFiles(@NotNull Set<String> files);
+
+    /**
+     * Create any of the given file paths which don't exist yet and get the entities for all of them. Entities which were
+     * read recently may be served from an in-process cache rather than the database.
+     *
+     * @param files The file paths to create and get
+     * @return A mutable set of file entities, one for each of the input file paths
+     * @throws com.netflix.genie.common.internal.exceptions.unchecked.GenieRuntimeException on error
+     */
+    Set<FileEntity> createAndGetFiles(@NotNull Set<String> files);
 }
@@ -19,6 +19,8 @@ package com.netflix.genie.web.data.services.jpa;
 
 import com.netflix.genie.web.data.entities.FileEntity;
 import com.netflix.genie.web.data.repositories.jpa.JpaFileRepository;
+import com.netflix.genie.web.properties.InterningCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.transaction.annotation.Transactional;
@@ -41,14 +43,22 @@ import java.util.stream.Collectors;
 public class JpaFilePersistenceServiceImpl implements JpaFilePersistenceService {
 
     private final JpaFileRepository fileRepository;
+    private final InterningCache<FileEntity> fileCache;
 
     /**
      * Constructor.
      *
-     * @param fileRepository The repository to use to perform CRUD operations on files
+     * @param fileRepository           The repository to use to perform CRUD operations on files
+     * @param interningCacheProperties The {@link InterningCacheProperties} to size the file entity cache with
+     * @param registry                 The {@link MeterRegistry} to publish cache metrics to
      */
-    public JpaFilePersistenceServiceImpl(final JpaFileRepository fileRepository) {
+    public JpaFilePersistenceServiceImpl(
+        final JpaFileRepository fileRepository,
+        final InterningCacheProperties interningCacheProperties,
+        final MeterRegistry registry
+    ) {
         this.fileRepository = fileRepository;
+        this.fileCache = new InterningCache<>("file", FileEntity::getFile, interningCacheProperties, registry);
     }
 
     /**
@@ -76,6 +86,7 @@ public class JpaFilePersistenceServiceImpl implements JpaFilePersistenceService
      */
     @Override
     public long deleteUnusedFiles(@NotNull final Instant createdThreshold) {
+        this.fileCache.invalidateAll();
         return this.fileRepository.deleteByIdIn(
             this.fileRepository
                 .findUnusedFiles(createdThreshold)
@@ -102,4 +113,12 @@ public class JpaFilePersistenceServiceImpl implements JpaFilePersistenceService
     public Set<FileEntity> getFiles(@NotNull final Set<String> files) {
         return this.fileRepository.findByFileIn(files);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<FileEntity> createAndGetFiles(@NotNull final Set<String> files) {
+        return this.fileCache.createAndGet(files, this.fileRepository::findByFileIn, this::createFileIfNotExists);
+    }
 }
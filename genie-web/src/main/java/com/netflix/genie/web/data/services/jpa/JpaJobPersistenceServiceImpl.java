@@ -19,6 +19,7 @@ package com.netflix.genie.web.data.services.jpa;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.netflix.genie.common.dto.ClusterCriteria;
 import com.netflix.genie.common.dto.Job;
 import com.netflix.genie.common.dto.JobExecution;
@@ -56,6 +57,7 @@ import com.netflix.genie.web.data.entities.CommandEntity;
 import com.netflix.genie.web.data.entities.CriterionEntity;
 import com.netflix.genie.web.data.entities.FileEntity;
 import com.netflix.genie.web.data.entities.JobEntity;
+import com.netflix.genie.web.data.entities.projections.AuditProjection;
 import com.netflix.genie.web.data.entities.projections.IdProjection;
 import com.netflix.genie.web.data.entities.projections.JobApiProjection;
 import com.netflix.genie.web.data.entities.projections.JobArchiveLocationProjection;
@@ -71,6 +73,7 @@ import com.netflix.genie.web.data.repositories.jpa.JpaCommandRepository;
 import com.netflix.genie.web.data.repositories.jpa.JpaCriterionRepository;
 import com.netflix.genie.web.data.repositories.jpa.JpaJobRepository;
 import com.netflix.genie.web.data.services.JobPersistenceService;
+import com.netflix.genie.web.dtos.JobDeletionBatch;
 import com.netflix.genie.web.dtos.JobSubmission;
 import com.netflix.genie.web.dtos.ResolvedJob;
 import com.netflix.genie.web.exceptions.checked.IdAlreadyExistsException;
@@ -344,6 +347,42 @@ public class JpaJobPersistenceServiceImpl extends JpaBaseService implements JobP
         return totalAttemptedDeletions;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Instant> getOldestJobCreationTime() {
+        return this.jobRepository.findOldestCreated();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobDeletionBatch deleteBatchOfJobsCreatedInRange(
+        @NotNull final Instant from,
+        @NotNull final Instant to,
+        @Min(1) final int batchSize
+    ) {
+        final List<AuditProjection> jobs = this.jobRepository.findJobsCreatedInRange(
+            from,
+            to,
+            PageRequest.of(0, batchSize)
+        );
+        if (jobs.isEmpty()) {
+            return new JobDeletionBatch(0L, null);
+        }
+
+        final List<Long> ids = jobs.stream().map(AuditProjection::getId).collect(Collectors.toList());
+        log.debug("Attempting to delete {} rows from jobs created between {} and {}...", ids.size(), from, to);
+        final long deletedJobs = this.jobRepository.deleteByIdIn(ids);
+        if (deletedJobs != ids.size()) {
+            log.error("Deleted {} job records but expected to delete {}", deletedJobs, ids.size());
+        }
+        return new JobDeletionBatch(deletedJobs, jobs.get(jobs.size() - 1).getCreated());
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -852,22 +891,24 @@ public class JpaJobPersistenceServiceImpl extends JpaBaseService implements JobP
         final ExecutionEnvironment executionEnvironment,
         @Nullable final Set<URI> savedAttachments
     ) {
-        final FileEntity setupFile = executionEnvironment.getSetupFile().isPresent()
-            ? this.createAndGetFileEntity(executionEnvironment.getSetupFile().get())
-            : null;
-        if (setupFile != null) {
-            jobEntity.setSetupFile(setupFile);
-        }
-        jobEntity.setConfigs(this.createAndGetFileEntities(executionEnvironment.getConfigs()));
-        final Set<FileEntity> dependencies = this.createAndGetFileEntities(executionEnvironment.getDependencies());
+        final Set<String> dependencies = Sets.newHashSet(executionEnvironment.getDependencies());
         if (savedAttachments != null) {
-            dependencies.addAll(
-                this.createAndGetFileEntities(
-                    savedAttachments.stream().map(URI::toString).collect(Collectors.toSet())
-                )
-            );
+            savedAttachments.stream().map(URI::toString).forEach(dependencies::add);
         }
-        jobEntity.setDependencies(dependencies);
+        this.setEntityResources(
+            new ExecutionEnvironment(
+                executionEnvironment.getConfigs(),
+                dependencies,
+                executionEnvironment.getSetupFile().orElse(null)
+            ),
+            jobEntity::setConfigs,
+            jobEntity::setDependencies,
+            setupFile -> {
+                if (setupFile != null) {
+                    jobEntity.setSetupFile(setupFile);
+                }
+            }
+        );
     }
 
     private void setExecutionResourceCriteriaFields(
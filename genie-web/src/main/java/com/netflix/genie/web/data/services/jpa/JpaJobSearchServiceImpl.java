@@ -31,6 +31,7 @@ import com.netflix.genie.common.dto.UserResourcesSummary;
 import com.netflix.genie.common.dto.search.JobSearchResult;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.common.internal.dtos.v4.converters.DtoConverters;
 import com.netflix.genie.web.data.entities.BaseEntity;
@@ -54,7 +55,12 @@ import com.netflix.genie.web.data.repositories.jpa.JpaCommandRepository;
 import com.netflix.genie.web.data.repositories.jpa.JpaJobRepository;
 import com.netflix.genie.web.data.repositories.jpa.specifications.JpaJobSpecs;
 import com.netflix.genie.web.data.services.JobSearchService;
+import com.netflix.genie.web.dtos.CursorPage;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -64,19 +70,26 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.annotation.Nullable;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -108,6 +121,8 @@ public class JpaJobSearchServiceImpl implements JobSearchService {
         .map(Enum::name)
         .collect(Collectors.toSet());
 
+    private static final int EXPORT_FETCH_SIZE = 1_000;
+
     private final JpaJobRepository jobRepository;
     private final JpaClusterRepository clusterRepository;
     private final JpaCommandRepository commandRepository;
@@ -189,6 +204,7 @@ public class JpaJobSearchServiceImpl implements JobSearchService {
         final Predicate whereClause = JpaJobSpecs
             .getFindPredicate(
                 root,
+                countQuery,
                 cb,
                 id,
                 jobName,
@@ -255,6 +271,244 @@ public class JpaJobSearchServiceImpl implements JobSearchService {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("checkstyle:parameternumber")
+    public CursorPage<JobSearchResult> findJobsByCursor(
+        @Nullable final String id,
+        @Nullable final String jobName,
+        @Nullable final String user,
+        @Nullable final Set<JobStatus> statuses,
+        @Nullable final Set<String> tags,
+        @Nullable final String clusterName,
+        @Nullable final String clusterId,
+        @Nullable final String commandName,
+        @Nullable final String commandId,
+        @Nullable final Instant minStarted,
+        @Nullable final Instant maxStarted,
+        @Nullable final Instant minFinished,
+        @Nullable final Instant maxFinished,
+        @Nullable final String grouping,
+        @Nullable final String groupingInstance,
+        @Nullable final String cursor,
+        final int pageSize
+    ) throws GeniePreconditionException {
+        log.debug("called");
+
+        // Decode first so a bad cursor is always reported
+        final Cursor after = StringUtils.isBlank(cursor) ? null : Cursor.decode(cursor);
+
+        ClusterEntity clusterEntity = null;
+        if (clusterId != null) {
+            final Optional<ClusterEntity> optionalClusterEntity
+                = this.getEntityOrNull(this.clusterRepository, clusterId, clusterName);
+            if (!optionalClusterEntity.isPresent()) {
+                // Won't find anything matching the query
+                return new CursorPage<>(Lists.newArrayList(), null);
+            }
+            clusterEntity = optionalClusterEntity.get();
+        }
+        CommandEntity commandEntity = null;
+        if (commandId != null) {
+            final Optional<CommandEntity> optionalCommandEntity
+                = this.getEntityOrNull(this.commandRepository, commandId, commandName);
+            if (!optionalCommandEntity.isPresent()) {
+                // Won't find anything matching the query
+                return new CursorPage<>(Lists.newArrayList(), null);
+            }
+            commandEntity = optionalCommandEntity.get();
+        }
+
+        final CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> contentQuery = cb.createTupleQuery();
+        final Root<JobEntity> root = contentQuery.from(JobEntity.class);
+        final Path<Instant> created = root.get(JobEntity_.created);
+        final Path<Long> jobId = root.get(JobEntity_.id);
+
+        final List<Predicate> predicates = new ArrayList<>();
+        predicates.add(
+            JpaJobSpecs.getFindPredicate(
+                root,
+                contentQuery,
+                cb,
+                id,
+                jobName,
+                user,
+                statuses != null ? statuses.stream().map(Enum::name).collect(Collectors.toSet()) : null,
+                tags,
+                clusterName,
+                clusterEntity,
+                commandName,
+                commandEntity,
+                minStarted,
+                maxStarted,
+                minFinished,
+                maxFinished,
+                grouping,
+                groupingInstance
+            )
+        );
+        if (after != null) {
+            // Seek past the last row of the previous page rather than counting through all the rows before it
+            predicates.add(
+                cb.or(
+                    cb.lessThan(created, after.getCreated()),
+                    cb.and(cb.equal(created, after.getCreated()), cb.lessThan(jobId, after.getId()))
+                )
+            );
+        }
+
+        contentQuery.multiselect(
+            root.get(JobEntity_.uniqueId),
+            root.get(JobEntity_.name),
+            root.get(JobEntity_.user),
+            root.get(JobEntity_.status),
+            root.get(JobEntity_.started),
+            root.get(JobEntity_.finished),
+            root.get(JobEntity_.clusterName),
+            root.get(JobEntity_.commandName),
+            created,
+            jobId
+        );
+        contentQuery.where(predicates.toArray(new Predicate[0]));
+        contentQuery.orderBy(cb.desc(created), cb.desc(jobId));
+
+        // Fetch one extra row to find out if there is another page without needing a count
+        final List<Tuple> rows = this.entityManager
+            .createQuery(contentQuery)
+            .setMaxResults(pageSize + 1)
+            .getResultList();
+
+        final List<JobSearchResult> results = rows
+            .stream()
+            .limit(pageSize)
+            .map(
+                row -> new JobSearchResult(
+                    row.get(0, String.class),
+                    row.get(1, String.class),
+                    row.get(2, String.class),
+                    row.get(3, String.class),
+                    row.get(4, Instant.class),
+                    row.get(5, Instant.class),
+                    row.get(6, String.class),
+                    row.get(7, String.class)
+                )
+            )
+            .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            final Tuple last = rows.get(pageSize - 1);
+            nextCursor = new Cursor(last.get(8, Instant.class), last.get(9, Long.class)).encode();
+        }
+        return new CursorPage<>(results, nextCursor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("checkstyle:parameternumber")
+    public long exportJobs(
+        @Nullable final String id,
+        @Nullable final String jobName,
+        @Nullable final String user,
+        @Nullable final Set<JobStatus> statuses,
+        @Nullable final Set<String> tags,
+        @Nullable final String clusterName,
+        @Nullable final String clusterId,
+        @Nullable final String commandName,
+        @Nullable final String commandId,
+        @Nullable final Instant minStarted,
+        @Nullable final Instant maxStarted,
+        @Nullable final Instant minFinished,
+        @Nullable final Instant maxFinished,
+        @Nullable final String grouping,
+        @Nullable final String groupingInstance,
+        @NotNull final Consumer<JobSearchResult> consumer
+    ) {
+        log.debug("called");
+
+        ClusterEntity clusterEntity = null;
+        if (clusterId != null) {
+            final Optional<ClusterEntity> optionalClusterEntity
+                = this.getEntityOrNull(this.clusterRepository, clusterId, clusterName);
+            if (!optionalClusterEntity.isPresent()) {
+                // Won't find anything matching the query
+                return 0L;
+            }
+            clusterEntity = optionalClusterEntity.get();
+        }
+        CommandEntity commandEntity = null;
+        if (commandId != null) {
+            final Optional<CommandEntity> optionalCommandEntity
+                = this.getEntityOrNull(this.commandRepository, commandId, commandName);
+            if (!optionalCommandEntity.isPresent()) {
+                // Won't find anything matching the query
+                return 0L;
+            }
+            commandEntity = optionalCommandEntity.get();
+        }
+
+        final CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+        final CriteriaQuery<JobSearchResult> exportQuery = cb.createQuery(JobSearchResult.class);
+        final Root<JobEntity> root = exportQuery.from(JobEntity.class);
+        exportQuery.multiselect(
+            root.get(JobEntity_.uniqueId),
+            root.get(JobEntity_.name),
+            root.get(JobEntity_.user),
+            root.get(JobEntity_.status),
+            root.get(JobEntity_.started),
+            root.get(JobEntity_.finished),
+            root.get(JobEntity_.clusterName),
+            root.get(JobEntity_.commandName)
+        );
+        exportQuery.where(
+            JpaJobSpecs.getFindPredicate(
+                root,
+                exportQuery,
+                cb,
+                id,
+                jobName,
+                user,
+                statuses != null ? statuses.stream().map(Enum::name).collect(Collectors.toSet()) : null,
+                tags,
+                clusterName,
+                clusterEntity,
+                commandName,
+                commandEntity,
+                minStarted,
+                maxStarted,
+                minFinished,
+                maxFinished,
+                grouping,
+                groupingInstance
+            )
+        );
+        // Primary key order is the cheapest stable order for the database to produce
+        exportQuery.orderBy(cb.asc(root.get(JobEntity_.id)));
+
+        // Results are scalar projections so nothing accumulates in the persistence context while streaming and the
+        // fetch size keeps the driver from buffering the entire result set
+        long count = 0;
+        try (
+            Stream<JobSearchResult> results = this.entityManager
+                .createQuery(exportQuery)
+                .setHint(QueryHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream()
+        ) {
+            final Iterator<JobSearchResult> iterator = results.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -502,4 +756,44 @@ public class JpaJobSearchServiceImpl implements JobSearchService {
 
         return optionalEntity;
     }
+
+    /**
+     * The position of the last job of a page in the (created, id) ordering used for cursor pagination. Serialized as
+     * an opaque URL safe string so clients don't come to depend on its format.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static final class Cursor {
+        private static final String SEPARATOR = ":";
+
+        private final Instant created;
+        private final long id;
+
+        private static Cursor decode(final String cursor) throws GeniePreconditionException {
+            try {
+                final String[] parts = StringUtils.split(
+                    new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8),
+                    SEPARATOR
+                );
+                if (parts.length != 3) {
+                    throw new GeniePreconditionException("Invalid cursor " + cursor);
+                }
+                return new Cursor(
+                    Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])),
+                    Long.parseLong(parts[2])
+                );
+            } catch (final IllegalArgumentException | DateTimeException e) {
+                throw new GeniePreconditionException("Invalid cursor " + cursor, e);
+            }
+        }
+
+        private String encode() {
+            final String cursor = this.created.getEpochSecond()
+                + SEPARATOR
+                + this.created.getNano()
+                + SEPARATOR
+                + this.id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+        }
+    }
 }
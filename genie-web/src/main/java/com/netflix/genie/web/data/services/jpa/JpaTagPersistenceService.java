@@ -50,4 +50,14 @@ public interface JpaTagPersistenceService extends TagPersistenceService {
      * in the database the returned set will contain "b" and "c". The method won't fail.
      */
     Set<TagEntity> getTags(@NotNull Set<String> tags);
+
+    /**
+     * Create any of the given tags which don't exist yet and get the entities for all of them. Entities which were
+     * read recently may be served from an in-process cache rather than the database.
+     *
+     * @param tags The tags to create and get
+     * @return A mutable set of tag entities, one for each of the input tags
+     * @throws com.netflix.genie.common.internal.exceptions.unchecked.GenieRuntimeException on error
+     */
+    Set<TagEntity> createAndGetTags(@NotNull Set<String> tags);
 }
@@ -19,6 +19,8 @@ package com.netflix.genie.web.data.services.jpa;
 
 import com.netflix.genie.web.data.entities.TagEntity;
 import com.netflix.genie.web.data.repositories.jpa.JpaTagRepository;
+import com.netflix.genie.web.properties.InterningCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.transaction.annotation.Transactional;
@@ -41,14 +43,22 @@ import java.util.stream.Collectors;
 public class JpaTagPersistenceServiceImpl implements JpaTagPersistenceService {
 
     private final JpaTagRepository tagRepository;
+    private final InterningCache<TagEntity> tagCache;
 
     /**
      * Constructor.
      *
-     * @param tagRepository The repository to use to perform CRUD operations on tags
+     * @param tagRepository            The repository to use to perform CRUD operations on tags
+     * @param interningCacheProperties The {@link InterningCacheProperties} to size the tag entity cache with
+     * @param registry                 The {@link MeterRegistry} to publish cache metrics to
      */
-    public JpaTagPersistenceServiceImpl(final JpaTagRepository tagRepository) {
+    public JpaTagPersistenceServiceImpl(
+        final JpaTagRepository tagRepository,
+        final InterningCacheProperties interningCacheProperties,
+        final MeterRegistry registry
+    ) {
         this.tagRepository = tagRepository;
+        this.tagCache = new InterningCache<>("tag", TagEntity::getTag, interningCacheProperties, registry);
     }
 
     /**
@@ -73,6 +83,7 @@ public class JpaTagPersistenceServiceImpl implements JpaTagPersistenceService {
      */
     @Override
     public long deleteUnusedTags(@NotNull final Instant createdThreshold) {
+        this.tagCache.invalidateAll();
         return this.tagRepository.deleteByIdIn(
             this.tagRepository
                 .findUnusedTags(createdThreshold)
@@ -99,4 +110,12 @@ public class JpaTagPersistenceServiceImpl implements JpaTagPersistenceService {
     public Set<TagEntity> getTags(@NotNull final Set<String> tags) {
         return this.tagRepository.findByTagIn(tags);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<TagEntity> createAndGetTags(@NotNull final Set<String> tags) {
+        return this.tagCache.createAndGet(tags, this.tagRepository::findByTagIn, this::createTagIfNotExists);
+    }
 }
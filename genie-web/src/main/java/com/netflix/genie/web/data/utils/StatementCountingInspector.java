@@ -0,0 +1,52 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.data.utils;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * A Hibernate {@link StatementInspector} which leaves statements untouched but counts, per thread, how many were
+ * prepared. Callers take the difference of {@link #getStatementCount()} before and after an operation to find out how
+ * many database round trips it cost.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+public class StatementCountingInspector implements StatementInspector {
+
+    private static final long serialVersionUID = 4195362087133815437L;
+    private static final ThreadLocal<long[]> STATEMENT_COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Get the number of statements Hibernate has prepared on the current thread since it started.
+     *
+     * @return The running count of statements for this thread
+     */
+    public static long getStatementCount() {
+        return STATEMENT_COUNT.get()[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String inspect(final String sql) {
+        STATEMENT_COUNT.get()[0]++;
+        return sql;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.dtos;
+
+import com.google.common.collect.ImmutableList;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A page of search results fetched by keyset (cursor) pagination. Unlike a {@link org.springframework.data.domain.Page}
+ * there is no total count, only an opaque cursor to fetch the page after this one if there is one.
+ *
+ * @param <T> The type of the results in the page
+ * @author agent
+ * @since 4.0.0
+ */
+@Getter
+@EqualsAndHashCode(doNotUseGetters = true)
+@ToString(doNotUseGetters = true)
+@SuppressWarnings("FinalClass")
+public class CursorPage<T> {
+    private final List<T> content;
+    private final String nextCursor;
+
+    /**
+     * Constructor.
+     *
+     * @param content    The results in this page
+     * @param nextCursor The cursor to pass back to fetch the next page or {@literal null} if this is the last page
+     */
+    public CursorPage(final List<T> content, @Nullable final String nextCursor) {
+        this.content = ImmutableList.copyOf(content);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Get the cursor to fetch the next page of results with.
+     *
+     * @return The cursor or {@link Optional#empty()} if there are no more results
+     */
+    public Optional<String> getNextCursor() {
+        return Optional.ofNullable(this.nextCursor);
+    }
+}
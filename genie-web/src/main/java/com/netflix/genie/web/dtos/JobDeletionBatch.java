@@ -0,0 +1,62 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.dtos;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import javax.annotation.Nullable;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * The outcome of deleting one batch of jobs from a creation time range.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@Getter
+@EqualsAndHashCode(doNotUseGetters = true)
+@ToString(doNotUseGetters = true)
+@SuppressWarnings("FinalClass")
+public class JobDeletionBatch {
+    private final long numDeleted;
+    private final Instant lastCreated;
+
+    /**
+     * Constructor.
+     *
+     * @param numDeleted  The number of jobs deleted
+     * @param lastCreated The creation time of the newest job in the batch or {@literal null} if the range was empty
+     */
+    public JobDeletionBatch(final long numDeleted, @Nullable final Instant lastCreated) {
+        this.numDeleted = numDeleted;
+        this.lastCreated = lastCreated;
+    }
+
+    /**
+     * Get the creation time of the newest job in this batch. Every job created before it in the range was deleted so
+     * it's where the next batch should start.
+     *
+     * @return The creation time or {@link Optional#empty()} if there were no jobs left in the range
+     */
+    public Optional<Instant> getLastCreated() {
+        return Optional.ofNullable(this.lastCreated);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Properties related to streaming files from connected agents.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@ConfigurationProperties(prefix = AgentFileStreamProperties.PROPERTY_PREFIX)
+@Getter
+@Setter
+@Validated
+public class AgentFileStreamProperties {
+
+    /**
+     * The property prefix for all properties in this group.
+     */
+    public static final String PROPERTY_PREFIX = "genie.agent.file-stream";
+
+    /**
+     * The number of received bytes held in memory for each file transfer, waiting to be read by the client, before
+     * the server stops requesting more data from the agent.
+     */
+    @Min(value = 1, message = "At least one byte must be buffered")
+    private long maxBufferedBytesPerTransfer = 8L * 1024 * 1024;
+
+    /**
+     * How often (in milliseconds) the latest manifest received from an agent is checked for growth of the files being
+     * followed.
+     */
+    @Min(value = 100, message = "Followed files can't be checked more often than every 100 milliseconds")
+    private long followRefreshInterval = 1_000L;
+
+    /**
+     * The number of bytes from the end of a file sent to viewers when they start following it.
+     */
+    @Min(value = 0, message = "The initial bytes can't be negative")
+    private long followInitialBytes = 8L * 1024;
+
+    /**
+     * For how long (in milliseconds) a viewer can follow a file before its stream is completed.
+     */
+    @Min(value = 1_000, message = "Files must be followed for at least one second")
+    private long followMaxDuration = 60L * 60 * 1_000;
+
+    /**
+     * The number of threads reading the data appended to followed files from agents and sending it to viewers.
+     */
+    @Min(value = 1, message = "At least one thread is required")
+    private int followThreads = 4;
+}
@@ -0,0 +1,62 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Properties related to the routing table used to find which server an agent is connected to.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@ConfigurationProperties(prefix = AgentRoutingProperties.PROPERTY_PREFIX)
+@Getter
+@Setter
+@Validated
+public class AgentRoutingProperties {
+
+    /**
+     * The property prefix for all properties in this group.
+     */
+    public static final String PROPERTY_PREFIX = "genie.agent.routing";
+
+    /**
+     * The maximum number of connections to other servers to keep cached. 0 disables the cache.
+     */
+    @Min(value = 0, message = "Maximum size can't be negative")
+    private long maximumSize = 10_000L;
+
+    /**
+     * How long (in milliseconds) a connection to another server stays cached after it was last read from the
+     * database. Bounds how stale a route can get if refreshes fail.
+     */
+    @Min(value = 1_000, message = "Entries must be cached for at least one second")
+    private long expireAfterWrite = 60_000L;
+
+    /**
+     * How often (in milliseconds) all cached connections to other servers are re-read from the database in bulk.
+     */
+    @Min(value = 1_000, message = "Refresh interval must be at least one second")
+    private long refreshInterval = 15_000L;
+}
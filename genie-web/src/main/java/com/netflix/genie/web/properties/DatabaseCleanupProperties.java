@@ -306,6 +306,17 @@ public class DatabaseCleanupProperties {
          */
         public static final String PAGE_SIZE_PROPERTY = JOB_CLEANUP_PROPERTY_PREFIX + ".pageSize";
 
+        /**
+         * The number of time ranges of the retention window to delete jobs from concurrently. 1 keeps the serial
+         * deletion of batches of the oldest jobs.
+         */
+        public static final String PARALLELISM_PROPERTY = JOB_CLEANUP_PROPERTY_PREFIX + ".parallelism";
+
+        /**
+         * The width, in hours, of each time range the retention window is split into when deleting in parallel.
+         */
+        public static final String PARTITION_HOURS_PROPERTY = JOB_CLEANUP_PROPERTY_PREFIX + ".partitionHours";
+
         /**
          * Skip the Jobs table when performing database cleanup.
          */
@@ -326,6 +337,19 @@ public class DatabaseCleanupProperties {
          * The page size used within each cleanup transaction to iterate through the job records.
          */
         private int pageSize = 1_000;
+
+        /**
+         * The number of time ranges of the retention window to delete jobs from concurrently. 1 keeps the serial
+         * deletion of batches of the oldest jobs.
+         */
+        @Min(1)
+        private int parallelism = 1;
+
+        /**
+         * The width, in hours, of each time range the retention window is split into when deleting in parallel.
+         */
+        @Min(1)
+        private int partitionHours = 24;
     }
 
     /**
@@ -0,0 +1,61 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Properties related to the heartbeats exchanged with connected agents.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@ConfigurationProperties(prefix = HeartBeatProperties.PROPERTY_PREFIX)
+@Getter
+@Setter
+@Validated
+public class HeartBeatProperties {
+
+    /**
+     * The property prefix for all properties in this group.
+     */
+    public static final String PROPERTY_PREFIX = "genie.agent.heart-beat";
+
+    /**
+     * How often (in milliseconds) a heartbeat is sent to every connected agent.
+     */
+    @Min(value = 100, message = "Heartbeats can't be sent more often than every 100 milliseconds")
+    private long sendInterval = 5_000L;
+
+    /**
+     * The number of agent streams each parallel heartbeat sending task is responsible for.
+     */
+    @Min(value = 1, message = "Shards must contain at least one stream")
+    private int shardSize = 250;
+
+    /**
+     * The number of threads used to send heartbeats and to record agent connections and disconnections.
+     */
+    @Min(value = 1, message = "At least one thread is required")
+    private int threads = 4;
+}
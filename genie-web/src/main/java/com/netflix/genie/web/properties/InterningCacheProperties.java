@@ -0,0 +1,56 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Properties related to the in-process caches of tag and file entities which are shared by many resources and jobs.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@ConfigurationProperties(prefix = InterningCacheProperties.PROPERTY_PREFIX)
+@Getter
+@Setter
+@Validated
+public class InterningCacheProperties {
+
+    /**
+     * The property prefix for all properties in this group.
+     */
+    public static final String PROPERTY_PREFIX = "genie.data.interning-cache";
+
+    /**
+     * The maximum number of tag and the maximum number of file entities to keep cached. 0 disables the caches.
+     */
+    @Min(value = 0, message = "Maximum size can't be negative")
+    private long maximumSize = 10_000L;
+
+    /**
+     * How long (in milliseconds) an entity stays cached after it was read from the database. Bounds how long a node
+     * can hold on to a tag or file which was deleted as unused by another node.
+     */
+    @Min(value = 1_000, message = "Entries must be cached for at least one second")
+    private long expireAfterWrite = 600_000L;
+}
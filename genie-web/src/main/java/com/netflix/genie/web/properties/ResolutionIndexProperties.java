@@ -0,0 +1,62 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Properties related to the in-memory index used to resolve clusters and commands for job criteria.
+ *
+ * @author agent
+ * @since 4.0.0
+ */
+@ConfigurationProperties(prefix = ResolutionIndexProperties.PROPERTY_PREFIX)
+@Getter
+@Setter
+@Validated
+public class ResolutionIndexProperties {
+
+    /**
+     * The property prefix for all properties in this group.
+     */
+    public static final String PROPERTY_PREFIX = "genie.data.resolution-index";
+
+    /**
+     * The property key for whether the in-memory resolution index is enabled or not.
+     */
+    public static final String ENABLED_PROPERTY = PROPERTY_PREFIX + ".enabled";
+
+    /**
+     * The property key for whether the index results should be computed and compared against the database query but
+     * the database results used. Read dynamically from the environment.
+     */
+    public static final String DUAL_MODE_ENABLED_PROPERTY = PROPERTY_PREFIX + ".dual-mode.enabled";
+
+    private boolean enabled;
+
+    /**
+     * How often (in milliseconds) the entire index is reloaded from the database regardless of change notifications.
+     */
+    @Min(value = 1_000, message = "Refresh interval must be at least one second")
+    private long refreshInterval = 300_000;
+}
@@ -29,6 +29,7 @@ import com.netflix.genie.common.external.util.GenieObjectMapper;
 import com.netflix.genie.common.internal.dtos.DirectoryManifest;
 import com.netflix.genie.common.internal.services.JobDirectoryManifestCreatorService;
 import com.netflix.genie.web.agent.resources.AgentFileProtocolResolver;
+import com.netflix.genie.web.agent.resources.AgentFileResourceImpl;
 import com.netflix.genie.web.agent.services.AgentFileStreamService;
 import com.netflix.genie.web.data.services.DataServices;
 import com.netflix.genie.web.data.services.JobPersistenceService;
@@ -45,11 +46,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.ResourceHttpMessageConverter;
 import org.springframework.http.converter.ResourceRegionHttpMessageConverter;
 import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
 
+import javax.annotation.Nullable;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -167,8 +170,10 @@ public class JobDirectoryServerServiceImpl implements JobDirectoryServerService
 
         final DirectoryManifest manifest;
         final URI jobDirRoot;
+        final String agentJobId;
 
         if (jobStatus.isActive() && isV4) { // Active V4 job
+            agentJobId = jobId;
             manifest = this.agentFileStreamService.getManifest(jobId).orElseThrow(
                 () -> new GenieServerUnavailableException("Manifest not found for job " + jobId)
             );
@@ -178,6 +183,7 @@ public class JobDirectoryServerServiceImpl implements JobDirectoryServerService
                 throw new GenieServerException("Failed to construct job directory path", e);
             }
         } else if (jobStatus.isActive()) { // Active V3 job
+            agentJobId = null;
             final Resource jobDir = this.jobFileService.getJobFileAsResource(jobId, "");
             if (!jobDir.exists()) {
                 throw new GenieNotFoundException("Job directory does not exist: " + jobDir);
@@ -196,6 +202,7 @@ public class JobDirectoryServerServiceImpl implements JobDirectoryServerService
                 throw new GenieServerException("Failed to construct manifest: " + e.getMessage(), e);
             }
         } else { // Archived job
+            agentJobId = null;
             try {
                 final ArchivedJobMetadata archivedJobMetadata = this.archivedJobService.getArchivedJobMetadata(jobId);
                 manifest = archivedJobMetadata.getManifest();
@@ -211,7 +218,7 @@ public class JobDirectoryServerServiceImpl implements JobDirectoryServerService
 
         // Common handling of
         try {
-            this.handleRequest(baseUri, relativePath, request, response, manifest, jobDirRoot);
+            this.handleRequest(baseUri, relativePath, request, response, manifest, jobDirRoot, agentJobId);
         } catch (IOException e) {
             throw new GenieServerException("Error serving response: " + e.getMessage(), e);
         }
@@ -223,7 +230,8 @@ public class JobDirectoryServerServiceImpl implements JobDirectoryServerService
         final HttpServletRequest request,
         final HttpServletResponse response,
         final DirectoryManifest manifest,
-        final URI jobDirectoryRoot
+        final URI jobDirectoryRoot,
+        @Nullable final String agentJobId
     ) throws IOException, GenieNotFoundException, GenieServerException {
         log.debug(
             "Handle request, baseUri: '{}', relpath: '{}', jobRootUri: '{}'",
@@ -290,7 +298,9 @@ public class JobDirectoryServerServiceImpl implements JobDirectoryServerService
         } else {
             final URI location = jobDirectoryRoot.resolve(entry.getPath());
             log.debug("Get resource: {}", location);
-            final Resource jobResource = this.resourceLoader.getResource(location.toString());
+            final Resource jobResource = agentJobId == null
+                ? this.resourceLoader.getResource(location.toString())
+                : this.getAgentFileResource(agentJobId, entry, location, request);
             // Every file really should have a media type but if not use text/plain
             final String mediaType = entry.getMimeType().orElse(MediaType.TEXT_PLAIN_VALUE);
             final ResourceHttpRequestHandler handler = this.genieResourceHandlerFactory.get(mediaType, jobResource);
@@ -302,6 +312,41 @@ public class JobDirectoryServerServiceImpl implements JobDirectoryServerService
         }
     }
 
+    private Resource getAgentFileResource(
+        final String jobId,
+        final DirectoryManifest.ManifestEntry entry,
+        final URI location,
+        final HttpServletRequest request
+    ) {
+        // Ask the agent for the requested range only so reading the tail of a large file doesn't stream all of it
+        return this.agentFileStreamService
+            .getResource(jobId, Paths.get(entry.getPath()), location, getSingleRange(request, entry.getSize()))
+            .orElseGet(AgentFileResourceImpl::forNonExistingResource);
+    }
+
+    /**
+     * Get the byte range requested if there is exactly one which can be satisfied. Anything else, including
+     * conditional range requests, is left to the resource handler which then needs the whole file.
+     */
+    @Nullable
+    private static HttpRange getSingleRange(final HttpServletRequest request, final long size) {
+        final String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || request.getHeader(HttpHeaders.IF_RANGE) != null) {
+            return null;
+        }
+        try {
+            final List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            if (ranges.size() != 1) {
+                return null;
+            }
+            final HttpRange range = ranges.get(0);
+            return range.getRangeStart(size) <= range.getRangeEnd(size) ? range : null;
+        } catch (final IllegalArgumentException e) {
+            log.debug("Ignoring invalid range header: {}", rangeHeader);
+            return null;
+        }
+    }
+
     private DefaultDirectoryWriter.Entry createEntry(
         final DirectoryManifest.ManifestEntry manifestEntry,
         final URI baseUri
@@ -42,6 +42,7 @@ import com.netflix.genie.web.data.services.ClusterPersistenceService;
 import com.netflix.genie.web.data.services.CommandPersistenceService;
 import com.netflix.genie.web.data.services.DataServices;
 import com.netflix.genie.web.data.services.JobPersistenceService;
+import com.netflix.genie.web.data.utils.StatementCountingInspector;
 import com.netflix.genie.web.dtos.ResolvedJob;
 import com.netflix.genie.web.dtos.ResourceSelectionResult;
 import com.netflix.genie.web.exceptions.checked.ResourceSelectionException;
@@ -97,6 +98,12 @@ public class JobResolverServiceImpl implements JobResolverService {
      */
     private static final String CLUSTER_COMMAND_QUERY_TIMER = "genie.services.jobResolver.clusterCommandQuery.timer";
 
+    /**
+     * How many database statements it takes to find cluster command combinations matching supplied criteria.
+     */
+    private static final String CLUSTER_COMMAND_QUERY_STATEMENTS_SUMMARY
+        = "genie.services.jobResolver.clusterCommandQuery.statements.summary";
+
     /**
      * How long it takes to resolve a cluster for a job given the resolved command and the request criteria.
      */
@@ -434,6 +441,7 @@ public class JobResolverServiceImpl implements JobResolverService {
         final Criterion commandCriterion
     ) throws GenieJobResolutionException {
         final long start = System.nanoTime();
+        final long startStatementCount = StatementCountingInspector.getStatementCount();
         final Set<Tag> tags = Sets.newHashSet();
         try {
             final Map<Cluster, String> clustersAndCommands
@@ -447,6 +455,9 @@ public class JobResolverServiceImpl implements JobResolverService {
             this.registry
                 .timer(CLUSTER_COMMAND_QUERY_TIMER, tags)
                 .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            this.registry
+                .summary(CLUSTER_COMMAND_QUERY_STATEMENTS_SUMMARY, tags)
+                .record(StatementCountingInspector.getStatementCount() - startStatementCount);
         }
     }
 
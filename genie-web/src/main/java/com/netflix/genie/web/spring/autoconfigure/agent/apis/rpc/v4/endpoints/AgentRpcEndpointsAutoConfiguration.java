@@ -34,13 +34,18 @@ import com.netflix.genie.web.agent.apis.rpc.v4.endpoints.JobServiceProtoErrorCom
 import com.netflix.genie.web.agent.services.AgentJobService;
 import com.netflix.genie.web.agent.services.AgentRoutingService;
 import com.netflix.genie.web.data.services.DataServices;
+import com.netflix.genie.web.properties.AgentFileStreamProperties;
+import com.netflix.genie.web.properties.HeartBeatProperties;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 /**
@@ -50,10 +55,17 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
  * @since 4.0.0
  */
 @Configuration
+@EnableConfigurationProperties(
+    {
+        AgentFileStreamProperties.class,
+        HeartBeatProperties.class,
+    }
+)
 @Slf4j
 public class AgentRpcEndpointsAutoConfiguration {
 
     private static final int SINGLE_THREAD = 1;
+    private static final int HEART_BEAT_SERVICE_SHUTDOWN_TIMEOUT_SECONDS = 10;
 
     /**
      * Get the task scheduler used by the HeartBeat Service.
@@ -68,6 +80,24 @@ public class AgentRpcEndpointsAutoConfiguration {
         return scheduler;
     }
 
+    /**
+     * Get the task executor used by the HeartBeat Service to send heartbeats and record agent connections.
+     *
+     * @param heartBeatProperties The {@link HeartBeatProperties} to size the executor with
+     * @return The task executor
+     */
+    @Bean
+    @ConditionalOnMissingBean(name = "heartBeatServiceTaskExecutor")
+    public TaskExecutor heartBeatServiceTaskExecutor(final HeartBeatProperties heartBeatProperties) {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(heartBeatProperties.getThreads());
+        executor.setThreadNamePrefix("genie-heartbeat-");
+        // Let queued disconnections reach the routing service before the executor goes away
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(HEART_BEAT_SERVICE_SHUTDOWN_TIMEOUT_SECONDS);
+        return executor;
+    }
+
     /**
      * Bean for converting errors in the job service to gRPC messages.
      *
@@ -85,6 +115,7 @@ public class AgentRpcEndpointsAutoConfiguration {
      *
      * @param converter     The {@link JobDirectoryManifestProtoConverter} instance to use
      * @param taskScheduler The {@link TaskScheduler} to use to schedule tasks
+     * @param properties    The {@link AgentFileStreamProperties} to use
      * @param registry      The meter registry
      * @return An instance of {@link GRpcAgentFileStreamServiceImpl}
      */
@@ -93,9 +124,10 @@ public class AgentRpcEndpointsAutoConfiguration {
     public GRpcAgentFileStreamServiceImpl gRpcAgentFileStreamService(
         final JobDirectoryManifestProtoConverter converter,
         @Qualifier("genieTaskScheduler") final TaskScheduler taskScheduler,
+        final AgentFileStreamProperties properties,
         final MeterRegistry registry
     ) {
-        return new GRpcAgentFileStreamServiceImpl(converter, taskScheduler, registry);
+        return new GRpcAgentFileStreamServiceImpl(converter, taskScheduler, properties, registry);
     }
 
     /**
@@ -104,6 +136,8 @@ public class AgentRpcEndpointsAutoConfiguration {
      *
      * @param agentRoutingService The {@link AgentRoutingService} implementation to use
      * @param taskScheduler       The {@link TaskScheduler} instance to use
+     * @param taskExecutor        The {@link TaskExecutor} to send heartbeats and record agent connections on
+     * @param heartBeatProperties The {@link HeartBeatProperties} to use
      * @param registry            The meter registry
      * @return A {@link GRpcHeartBeatServiceImpl} instance
      */
@@ -112,9 +146,17 @@ public class AgentRpcEndpointsAutoConfiguration {
     public GRpcHeartBeatServiceImpl gRpcHeartBeatService(
         final AgentRoutingService agentRoutingService,
         @Qualifier("heartBeatServiceTaskScheduler") final TaskScheduler taskScheduler,
+        @Qualifier("heartBeatServiceTaskExecutor") final TaskExecutor taskExecutor,
+        final HeartBeatProperties heartBeatProperties,
         final MeterRegistry registry
     ) {
-        return new GRpcHeartBeatServiceImpl(agentRoutingService, taskScheduler, registry);
+        return new GRpcHeartBeatServiceImpl(
+            agentRoutingService,
+            taskScheduler,
+            taskExecutor,
+            heartBeatProperties,
+            registry
+        );
     }
 
     /**
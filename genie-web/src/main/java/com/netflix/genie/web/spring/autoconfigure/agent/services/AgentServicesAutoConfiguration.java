@@ -19,21 +19,31 @@ package com.netflix.genie.web.spring.autoconfigure.agent.services;
 
 import com.netflix.genie.common.internal.util.GenieHostInfo;
 import com.netflix.genie.web.agent.inspectors.AgentMetadataInspector;
+import com.netflix.genie.web.agent.services.AgentFileStreamService;
+import com.netflix.genie.web.agent.services.AgentFileTailService;
 import com.netflix.genie.web.agent.services.AgentFilterService;
 import com.netflix.genie.web.agent.services.AgentJobService;
 import com.netflix.genie.web.agent.services.AgentMetricsService;
 import com.netflix.genie.web.agent.services.AgentRoutingService;
+import com.netflix.genie.web.agent.services.impl.AgentFileTailServiceImpl;
 import com.netflix.genie.web.agent.services.impl.AgentFilterServiceImpl;
 import com.netflix.genie.web.agent.services.impl.AgentJobServiceImpl;
 import com.netflix.genie.web.agent.services.impl.AgentMetricsServiceImpl;
 import com.netflix.genie.web.agent.services.impl.AgentRoutingServiceImpl;
 import com.netflix.genie.web.data.services.AgentConnectionPersistenceService;
 import com.netflix.genie.web.data.services.DataServices;
+import com.netflix.genie.web.properties.AgentFileStreamProperties;
+import com.netflix.genie.web.properties.AgentRoutingProperties;
 import com.netflix.genie.web.services.JobResolverService;
 import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.List;
 
@@ -44,6 +54,12 @@ import java.util.List;
  * @since 4.0.0
  */
 @Configuration
+@EnableConfigurationProperties(
+    {
+        AgentFileStreamProperties.class,
+        AgentRoutingProperties.class,
+    }
+)
 public class AgentServicesAutoConfiguration {
     /**
      * Get a {@link AgentJobService} instance if there isn't already one.
@@ -75,17 +91,26 @@ public class AgentServicesAutoConfiguration {
      *
      * @param agentConnectionPersistenceService The persistence service to use for agent connections
      * @param genieHostInfo                     The local genie host information
+     * @param taskScheduler                     The {@link TaskScheduler} to refresh cached routes on
+     * @param agentRoutingProperties            The {@link AgentRoutingProperties} to use
+     * @param meterRegistry                     The metrics registry to use
      * @return A {@link AgentRoutingServiceImpl} instance
      */
     @Bean
     @ConditionalOnMissingBean(AgentRoutingService.class)
     public AgentRoutingServiceImpl agentRoutingService(
         final AgentConnectionPersistenceService agentConnectionPersistenceService,
-        final GenieHostInfo genieHostInfo
+        final GenieHostInfo genieHostInfo,
+        @Qualifier("genieTaskScheduler") final TaskScheduler taskScheduler,
+        final AgentRoutingProperties agentRoutingProperties,
+        final MeterRegistry meterRegistry
     ) {
         return new AgentRoutingServiceImpl(
             agentConnectionPersistenceService,
-            genieHostInfo
+            genieHostInfo,
+            taskScheduler,
+            agentRoutingProperties,
+            meterRegistry
         );
     }
 
@@ -122,4 +147,47 @@ public class AgentServicesAutoConfiguration {
     ) {
         return new AgentMetricsServiceImpl(genieHostInfo, agentConnectionPersistenceService, registry);
     }
+
+    /**
+     * Get the task executor used by the {@link AgentFileTailService} to read data appended to followed files.
+     *
+     * @param agentFileStreamProperties The {@link AgentFileStreamProperties} to size the executor with
+     * @return The task executor
+     */
+    @Bean
+    @ConditionalOnMissingBean(name = "agentFileTailTaskExecutor")
+    public TaskExecutor agentFileTailTaskExecutor(final AgentFileStreamProperties agentFileStreamProperties) {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(agentFileStreamProperties.getFollowThreads());
+        executor.setThreadNamePrefix("genie-file-tail-");
+        return executor;
+    }
+
+    /**
+     * Provide an implementation of {@link AgentFileTailService} if one hasn't been provided.
+     *
+     * @param agentFileStreamService    The {@link AgentFileStreamService} to get files from
+     * @param taskScheduler             The {@link TaskScheduler} to check followed files for growth on
+     * @param taskExecutor              The {@link TaskExecutor} to read appended data on
+     * @param agentFileStreamProperties The {@link AgentFileStreamProperties} to use
+     * @param registry                  The metrics repository
+     * @return An instance of {@link AgentFileTailServiceImpl}
+     */
+    @Bean
+    @ConditionalOnMissingBean(AgentFileTailService.class)
+    public AgentFileTailServiceImpl agentFileTailService(
+        final AgentFileStreamService agentFileStreamService,
+        @Qualifier("genieTaskScheduler") final TaskScheduler taskScheduler,
+        @Qualifier("agentFileTailTaskExecutor") final TaskExecutor taskExecutor,
+        final AgentFileStreamProperties agentFileStreamProperties,
+        final MeterRegistry registry
+    ) {
+        return new AgentFileTailServiceImpl(
+            agentFileStreamService,
+            taskScheduler,
+            taskExecutor,
+            agentFileStreamProperties,
+            registry
+        );
+    }
 }
@@ -18,6 +18,7 @@
 package com.netflix.genie.web.spring.autoconfigure.apis;
 
 import com.netflix.genie.common.external.util.GenieObjectMapper;
+import com.netflix.genie.web.properties.AgentFileStreamProperties;
 import com.netflix.genie.web.properties.HttpProperties;
 import com.netflix.genie.web.properties.JobsProperties;
 import com.netflix.genie.web.properties.RetryProperties;
@@ -54,6 +55,7 @@ import java.util.Collections;
 @Configuration
 @EnableConfigurationProperties(
     {
+        AgentFileStreamProperties.class,
         HttpProperties.class,
         RetryProperties.class
     }
@@ -90,6 +92,29 @@ public class ApisAutoConfiguration {
             .build();
     }
 
+    /**
+     * Get RestTemplate for forwarding requests following the output of a job to the Genie node running it. A followed
+     * file may not change for a long time, so instead of the regular read timeout reads are only bounded by how long a
+     * file can be followed.
+     *
+     * @param httpProperties            The properties related to Genie's HTTP client configuration
+     * @param agentFileStreamProperties The properties related to streaming files from agents
+     * @param restTemplateBuilder       The Spring REST template builder to use
+     * @return The rest template to use
+     */
+    @Bean
+    @ConditionalOnMissingBean(name = "genieFollowRestTemplate")
+    public RestTemplate genieFollowRestTemplate(
+        final HttpProperties httpProperties,
+        final AgentFileStreamProperties agentFileStreamProperties,
+        final RestTemplateBuilder restTemplateBuilder
+    ) {
+        return restTemplateBuilder
+            .setConnectTimeout(Duration.of(httpProperties.getConnect().getTimeout(), ChronoUnit.MILLIS))
+            .setReadTimeout(Duration.of(agentFileStreamProperties.getFollowMaxDuration(), ChronoUnit.MILLIS))
+            .build();
+    }
+
     /**
      * Get RetryTemplate.
      *
@@ -34,6 +34,7 @@ import com.netflix.genie.web.data.services.FilePersistenceService;
 import com.netflix.genie.web.data.services.JobPersistenceService;
 import com.netflix.genie.web.data.services.JobSearchService;
 import com.netflix.genie.web.data.services.TagPersistenceService;
+import com.netflix.genie.web.data.services.jpa.ClusterCommandResolutionIndex;
 import com.netflix.genie.web.data.services.jpa.JpaAgentConnectionPersistenceServiceImpl;
 import com.netflix.genie.web.data.services.jpa.JpaApplicationPersistenceServiceImpl;
 import com.netflix.genie.web.data.services.jpa.JpaClusterPersistenceServiceImpl;
@@ -44,12 +45,24 @@ import com.netflix.genie.web.data.services.jpa.JpaJobPersistenceServiceImpl;
 import com.netflix.genie.web.data.services.jpa.JpaJobSearchServiceImpl;
 import com.netflix.genie.web.data.services.jpa.JpaTagPersistenceService;
 import com.netflix.genie.web.data.services.jpa.JpaTagPersistenceServiceImpl;
+import com.netflix.genie.web.data.utils.StatementCountingInspector;
+import com.netflix.genie.web.properties.InterningCacheProperties;
+import com.netflix.genie.web.properties.ResolutionIndexProperties;
 import com.netflix.genie.web.services.AttachmentService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.TaskScheduler;
 
 /**
  * Default auto configuration of data related services and beans for Genie.
@@ -61,6 +74,12 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 // TODO: Create marker class for base classes scanning for compile time check
 @EnableJpaRepositories("com.netflix.genie.web.data.repositories")
 @EntityScan("com.netflix.genie.web.data.entities")
+@EnableConfigurationProperties(
+    {
+        InterningCacheProperties.class,
+        ResolutionIndexProperties.class,
+    }
+)
 public class DataAutoConfiguration {
 
     /**
@@ -103,6 +122,7 @@ public class DataAutoConfiguration {
      * @param clusterRepository      The {@link JpaClusterRepository} to use
      * @param commandRepository      The {@link JpaCommandRepository} to use
      * @param criterionRepository    The {@link JpaCriterionRepository} to use
+     * @param resolutionIndex        The {@link ClusterCommandResolutionIndex} if one is enabled
      * @return A {@link JpaClusterPersistenceServiceImpl} instance
      */
     @Bean
@@ -113,7 +133,8 @@ public class DataAutoConfiguration {
         final JpaApplicationRepository applicationRepository,
         final JpaClusterRepository clusterRepository,
         final JpaCommandRepository commandRepository,
-        final JpaCriterionRepository criterionRepository
+        final JpaCriterionRepository criterionRepository,
+        final ObjectProvider<ClusterCommandResolutionIndex> resolutionIndex
     ) {
         return new JpaClusterPersistenceServiceImpl(
             tagPersistenceService,
@@ -121,7 +142,40 @@ public class DataAutoConfiguration {
             applicationRepository,
             clusterRepository,
             commandRepository,
-            criterionRepository
+            criterionRepository,
+            resolutionIndex.getIfAvailable()
+        );
+    }
+
+    /**
+     * An in-memory index of clusters and commands used to resolve job criteria without querying the database.
+     *
+     * @param clusterRepository The {@link JpaClusterRepository} to use
+     * @param commandRepository The {@link JpaCommandRepository} to use
+     * @param taskScheduler     The {@link TaskScheduler} to refresh the index on
+     * @param properties        The {@link ResolutionIndexProperties} to use
+     * @param registry          The {@link MeterRegistry} to publish metrics to
+     * @param environment       The Spring application {@link Environment}
+     * @return A {@link ClusterCommandResolutionIndex} instance
+     */
+    @Bean
+    @ConditionalOnProperty(value = ResolutionIndexProperties.ENABLED_PROPERTY, havingValue = "true")
+    @ConditionalOnMissingBean(ClusterCommandResolutionIndex.class)
+    public ClusterCommandResolutionIndex clusterCommandResolutionIndex(
+        final JpaClusterRepository clusterRepository,
+        final JpaCommandRepository commandRepository,
+        @Qualifier("genieTaskScheduler") final TaskScheduler taskScheduler,
+        final ResolutionIndexProperties properties,
+        final MeterRegistry registry,
+        final Environment environment
+    ) {
+        return new ClusterCommandResolutionIndex(
+            clusterRepository,
+            commandRepository,
+            taskScheduler,
+            properties,
+            registry,
+            environment
         );
     }
 
@@ -134,6 +188,7 @@ public class DataAutoConfiguration {
      * @param clusterRepository      The {@link JpaClusterRepository} to use
      * @param commandRepository      The {@link JpaCommandRepository} to use
      * @param criterionRepository    The {@link JpaCriterionRepository} to use
+     * @param resolutionIndex        The {@link ClusterCommandResolutionIndex} if one is enabled
      * @return A {@link JpaCommandPersistenceServiceImpl} instance
      */
     @Bean
@@ -144,7 +199,8 @@ public class DataAutoConfiguration {
         final JpaApplicationRepository applicationRepository,
         final JpaClusterRepository clusterRepository,
         final JpaCommandRepository commandRepository,
-        final JpaCriterionRepository criterionRepository
+        final JpaCriterionRepository criterionRepository,
+        final ObjectProvider<ClusterCommandResolutionIndex> resolutionIndex
     ) {
         return new JpaCommandPersistenceServiceImpl(
             tagPersistenceService,
@@ -152,7 +208,8 @@ public class DataAutoConfiguration {
             applicationRepository,
             clusterRepository,
             commandRepository,
-            criterionRepository
+            criterionRepository,
+            resolutionIndex.getIfAvailable()
         );
     }
 
@@ -160,26 +217,38 @@ public class DataAutoConfiguration {
      * A JPA implementation of the {@link FilePersistenceService} interface. Also implements
      * {@link JpaFilePersistenceService}.
      *
-     * @param fileRepository The repository to use to perform CRUD operations on files
+     * @param fileRepository           The repository to use to perform CRUD operations on files
+     * @param interningCacheProperties The {@link InterningCacheProperties} to size the file entity cache with
+     * @param registry                 The {@link MeterRegistry} to publish cache metrics to
      * @return A {@link JpaFilePersistenceServiceImpl} instance
      */
     @Bean
     @ConditionalOnMissingBean(FilePersistenceService.class)
-    public JpaFilePersistenceServiceImpl filePersistenceService(final JpaFileRepository fileRepository) {
-        return new JpaFilePersistenceServiceImpl(fileRepository);
+    public JpaFilePersistenceServiceImpl filePersistenceService(
+        final JpaFileRepository fileRepository,
+        final InterningCacheProperties interningCacheProperties,
+        final MeterRegistry registry
+    ) {
+        return new JpaFilePersistenceServiceImpl(fileRepository, interningCacheProperties, registry);
     }
 
     /**
      * A JPA implementation of the {@link TagPersistenceService} interface. Also implements
      * {@link JpaTagPersistenceService}.
      *
-     * @param tagRepository The repository to use to perform CRUD operations on tags
+     * @param tagRepository            The repository to use to perform CRUD operations on tags
+     * @param interningCacheProperties The {@link InterningCacheProperties} to size the tag entity cache with
+     * @param registry                 The {@link MeterRegistry} to publish cache metrics to
      * @return A {@link JpaTagPersistenceServiceImpl} instance
      */
     @Bean
     @ConditionalOnMissingBean(TagPersistenceService.class)
-    public JpaTagPersistenceServiceImpl tagPersistenceService(final JpaTagRepository tagRepository) {
-        return new JpaTagPersistenceServiceImpl(tagRepository);
+    public JpaTagPersistenceServiceImpl tagPersistenceService(
+        final JpaTagRepository tagRepository,
+        final InterningCacheProperties interningCacheProperties,
+        final MeterRegistry registry
+    ) {
+        return new JpaTagPersistenceServiceImpl(tagRepository, interningCacheProperties, registry);
     }
 
     /**
@@ -252,6 +321,20 @@ public class DataAutoConfiguration {
         return new JpaAgentConnectionPersistenceServiceImpl(jpaAgentConnectionRepository);
     }
 
+    /**
+     * Register a {@link StatementCountingInspector} with Hibernate so the number of statements issued by an operation
+     * can be published as a metric. Any inspector configured explicitly via properties takes precedence.
+     *
+     * @return A {@link HibernatePropertiesCustomizer} which adds the statement inspector
+     */
+    @Bean
+    public HibernatePropertiesCustomizer genieStatementCountingHibernatePropertiesCustomizer() {
+        return hibernateProperties -> hibernateProperties.putIfAbsent(
+            AvailableSettings.STATEMENT_INSPECTOR,
+            new StatementCountingInspector()
+        );
+    }
+
     /**
      * Provide a {@link DataServices} instance if one isn't already in the context.
      *
@@ -17,7 +17,9 @@
  */
 package com.netflix.genie.web.tasks.leader;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.genie.common.external.dtos.v4.CommandStatus;
 import com.netflix.genie.common.internal.jobs.JobConstants;
 import com.netflix.genie.web.data.services.ApplicationPersistenceService;
@@ -27,6 +29,7 @@ import com.netflix.genie.web.data.services.DataServices;
 import com.netflix.genie.web.data.services.FilePersistenceService;
 import com.netflix.genie.web.data.services.JobPersistenceService;
 import com.netflix.genie.web.data.services.TagPersistenceService;
+import com.netflix.genie.web.dtos.JobDeletionBatch;
 import com.netflix.genie.web.properties.DatabaseCleanupProperties;
 import com.netflix.genie.web.tasks.GenieTaskScheduleType;
 import com.netflix.genie.web.tasks.TaskUtils;
@@ -39,10 +42,16 @@ import org.springframework.scheduling.Trigger;
 import org.springframework.scheduling.support.CronTrigger;
 
 import javax.validation.constraints.NotNull;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -88,6 +97,8 @@ public class DatabaseCleanupTask extends LeaderTask {
     private final AtomicLong numDeletedApplications;
     private final AtomicLong numDeletedTags;
     private final AtomicLong numDeletedFiles;
+    private final AtomicLong jobDeletionRate;
+    private final AtomicLong jobDeletionBacklog;
 
     /**
      * Constructor.
@@ -141,6 +152,14 @@ public class DatabaseCleanupTask extends LeaderTask {
             "genie.tasks.databaseCleanup.numDeletedFiles.gauge",
             new AtomicLong()
         );
+        this.jobDeletionRate = this.registry.gauge(
+            "genie.tasks.databaseCleanup.jobDeletion.rowsPerSecond.gauge",
+            new AtomicLong()
+        );
+        this.jobDeletionBacklog = this.registry.gauge(
+            "genie.tasks.databaseCleanup.jobDeletion.backlog.gauge",
+            new AtomicLong()
+        );
     }
 
     /**
@@ -209,6 +228,8 @@ public class DatabaseCleanupTask extends LeaderTask {
         this.numDeletedApplications.set(0L);
         this.numDeletedTags.set(0L);
         this.numDeletedFiles.set(0L);
+        this.jobDeletionRate.set(0L);
+        this.jobDeletionBacklog.set(0L);
     }
 
     /*
@@ -244,22 +265,46 @@ public class DatabaseCleanupTask extends LeaderTask {
                 this.cleanupProperties.getJobCleanup().getPageSize()
             );
 
-            log.info(
-                "Attempting to delete jobs from before {} in batches of {} jobs per iteration",
-                retentionLimit,
-                batchSize
+            final int parallelism = this.environment.getProperty(
+                DatabaseCleanupProperties.JobDatabaseCleanupProperties.PARALLELISM_PROPERTY,
+                Integer.class,
+                this.cleanupProperties.getJobCleanup().getParallelism()
             );
-            long totalDeletedJobs = 0;
-            while (true) {
-                final long numberDeletedJobs = this.jobPersistenceService.deleteBatchOfJobsCreatedBeforeDate(
+
+            final long totalDeletedJobs;
+            if (parallelism > 1) {
+                final int partitionHours = this.environment.getProperty(
+                    DatabaseCleanupProperties.JobDatabaseCleanupProperties.PARTITION_HOURS_PROPERTY,
+                    Integer.class,
+                    this.cleanupProperties.getJobCleanup().getPartitionHours()
+                );
+                totalDeletedJobs = this.deleteJobsInParallel(
                     retentionLimit,
                     batchSize,
-                    pageSize
+                    parallelism,
+                    Duration.ofHours(Math.max(1, partitionHours))
                 );
-                totalDeletedJobs += numberDeletedJobs;
-                if (numberDeletedJobs == 0) {
-                    break;
+            } else {
+                log.info(
+                    "Attempting to delete jobs from before {} in batches of {} jobs per iteration",
+                    retentionLimit,
+                    batchSize
+                );
+                final long start = System.nanoTime();
+                long deletedJobs = 0;
+                while (true) {
+                    final long numberDeletedJobs = this.jobPersistenceService.deleteBatchOfJobsCreatedBeforeDate(
+                        retentionLimit,
+                        batchSize,
+                        pageSize
+                    );
+                    deletedJobs += numberDeletedJobs;
+                    this.recordJobDeletionRate(deletedJobs, start);
+                    if (numberDeletedJobs == 0) {
+                        break;
+                    }
                 }
+                totalDeletedJobs = deletedJobs;
             }
             log.info(
                 "Deleted {} jobs",
@@ -269,6 +314,92 @@ public class DatabaseCleanupTask extends LeaderTask {
         }
     }
 
+    /*
+     * Split everything between the oldest job and the retention limit into time ranges and delete the jobs in each
+     * range with bounded parallelism. Ranges are independent so they never contend on the same rows.
+     */
+    private long deleteJobsInParallel(
+        final Instant retentionLimit,
+        final int batchSize,
+        final int parallelism,
+        final Duration partitionWidth
+    ) {
+        final Instant oldest = this.jobPersistenceService.getOldestJobCreationTime().orElse(retentionLimit);
+        final List<Instant> lowerBounds = Lists.newArrayList();
+        for (
+            Instant lowerBound = oldest.truncatedTo(ChronoUnit.HOURS);
+            lowerBound.isBefore(retentionLimit);
+            lowerBound = lowerBound.plus(partitionWidth)
+        ) {
+            lowerBounds.add(lowerBound);
+        }
+        log.info(
+            "Attempting to delete jobs from before {} in {} ranges of {} with up to {} ranges in parallel",
+            retentionLimit,
+            lowerBounds.size(),
+            partitionWidth,
+            parallelism
+        );
+        this.jobDeletionBacklog.set(lowerBounds.size());
+
+        final long start = System.nanoTime();
+        final AtomicLong deletedJobs = new AtomicLong();
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+            Math.min(parallelism, Math.max(1, lowerBounds.size())),
+            new ThreadFactoryBuilder().setNameFormat("genie-job-cleanup-%d").setDaemon(true).build()
+        );
+        try {
+            final List<CompletableFuture<Void>> ranges = Lists.newArrayListWithExpectedSize(lowerBounds.size());
+            for (final Instant lowerBound : lowerBounds) {
+                final Instant nextLowerBound = lowerBound.plus(partitionWidth);
+                final Instant upperBound = nextLowerBound.isBefore(retentionLimit) ? nextLowerBound : retentionLimit;
+                ranges.add(
+                    CompletableFuture.runAsync(
+                        () -> {
+                            this.deleteJobsCreatedInRange(lowerBound, upperBound, batchSize, deletedJobs, start);
+                            this.jobDeletionBacklog.decrementAndGet();
+                        },
+                        executorService
+                    )
+                );
+            }
+            // Lets every range finish before surfacing the first failure, if any
+            CompletableFuture.allOf(ranges.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executorService.shutdownNow();
+        }
+        return deletedJobs.get();
+    }
+
+    private void deleteJobsCreatedInRange(
+        final Instant from,
+        final Instant to,
+        final int batchSize,
+        final AtomicLong deletedJobs,
+        final long start
+    ) {
+        Instant lowerBound = from;
+        while (true) {
+            final JobDeletionBatch batch = this.jobPersistenceService.deleteBatchOfJobsCreatedInRange(
+                lowerBound,
+                to,
+                batchSize
+            );
+            this.recordJobDeletionRate(deletedJobs.addAndGet(batch.getNumDeleted()), start);
+            final Optional<Instant> lastCreated = batch.getLastCreated();
+            if (!lastCreated.isPresent() || batch.getNumDeleted() < batchSize) {
+                log.debug("Finished deleting jobs created between {} and {}", from, to);
+                return;
+            }
+            lowerBound = lastCreated.get();
+        }
+    }
+
+    private void recordJobDeletionRate(final long deletedJobs, final long start) {
+        final long elapsed = Math.max(1L, System.nanoTime() - start);
+        this.jobDeletionRate.set(deletedJobs * TimeUnit.SECONDS.toNanos(1L) / elapsed);
+    }
+
     /*
      * Delete all clusters that are marked terminated and aren't attached to any jobs after jobs were deleted.
      */
@@ -21,17 +21,21 @@ import com.google.protobuf.ByteString;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.NotImplementedException;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A temporary in-memory structure to hold in-transit data.
  * Provides an {@code InputStream} for reading, reading blocks until data becomes available or the buffer is closed.
  * <p>
- * To avoid in-memory data growing excessively, this buffer stores a single "chunk" at the time.
- * Only after a chunk is consumed, a new one can be appended.
+ * Writing never blocks. Chunks are queued until they are consumed. To avoid in-memory data growing excessively the
+ * writer is expected to stop producing data once the buffer holds its maximum number of bytes and resume once notified
+ * via {@link #whenWritable(Runnable)}, at most one chunk can therefore be written past the limit.
  *
  * @author mprimi
  * @since 4.0.0
@@ -42,21 +46,35 @@ public class StreamBuffer {
 
     private final Object lock = new Object();
     private final AtomicReference<StreamBufferInputStream> inputStreamRef = new AtomicReference<>();
+    private final Deque<ByteString> chunks = new ArrayDeque<>();
+    private final long maxBufferedBytes;
 
     private boolean closed;
-    private ByteString currentChunk;
+    private boolean abandoned;
     private int currentChunkWatermark;
+    private long bufferedBytes;
+    private Runnable writableAction;
 
     /**
-     * Constructor.
+     * Constructor for a buffer with no limit on the number of bytes held.
      */
     public StreamBuffer() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxBufferedBytes the number of unread bytes above which the writer is asked to wait before writing more
+     */
+    public StreamBuffer(final long maxBufferedBytes) {
+        this.maxBufferedBytes = maxBufferedBytes;
         this.inputStreamRef.set(new StreamBufferInputStream(this));
     }
 
     /**
      * Close this buffer before all data is written due to an error.
-     * Reading will return the end of stream marker after the current chunk (if any) has been consumed.
+     * Reading will return the end of stream marker after the data already written (if any) has been consumed.
      *
      * @param t the cause for the buffer to be closed.
      */
@@ -72,38 +90,62 @@ public class StreamBuffer {
     public void closeForCompleted() {
         synchronized (this.lock) {
             this.closed = true;
+            this.writableAction = null;
             this.lock.notifyAll();
         }
     }
 
     /**
      * Append a chunk of data for consumption.
-     * This call may block and not return until some data is read/consumed.
+     * This call never blocks. Data written after the reader closed its input stream is discarded.
      *
      * @param data the data to write into the buffer
      * @throws IllegalStateException if writing is attempted after the buffer has been closed
      */
     public void write(final ByteString data) {
         synchronized (this.lock) {
-            while (true) {
-                if (this.closed) {
-                    throw new IllegalStateException("Attempting to write after closing");
-                } else if (this.currentChunk == null) {
-                    // Save this chunk so it can be consumed
-                    this.currentChunk = data;
-                    this.currentChunkWatermark = 0;
-                    // Wake up reading thread
-                    this.lock.notifyAll();
-                    return;
-                } else {
-                    // Previous chunk of data is still being consumed. Wait.
-                    try {
-                        this.lock.wait();
-                    } catch (InterruptedException e) {
-                        log.warn("Interrupted while waiting to write next chunk of data");
-                    }
-                }
+            if (this.closed) {
+                throw new IllegalStateException("Attempting to write after closing");
+            } else if (this.abandoned || data.isEmpty()) {
+                return;
             }
+            this.chunks.addLast(data);
+            this.bufferedBytes += data.size();
+            // Wake up reading thread
+            this.lock.notifyAll();
+        }
+    }
+
+    /**
+     * Run the given action as soon as the buffer has room for more data.
+     * If it has room already the action is run immediately by the calling thread, otherwise it is run by the thread
+     * which consumes enough data to make room. Only one action can be pending at the time, it replaces any previous
+     * one. The action is dropped if the buffer is closed before it runs.
+     *
+     * @param action the action to run, typically requesting the next chunk of data from its producer
+     * @return {@literal true} if the action was run immediately, {@literal false} if it was deferred
+     */
+    public boolean whenWritable(final Runnable action) {
+        synchronized (this.lock) {
+            if (this.closed) {
+                return false;
+            } else if (this.bufferedBytes >= this.maxBufferedBytes) {
+                this.writableAction = action;
+                return false;
+            }
+        }
+        action.run();
+        return true;
+    }
+
+    /**
+     * Get the number of bytes written into this buffer and not read yet.
+     *
+     * @return the number of bytes held in memory
+     */
+    public long getBufferedBytes() {
+        synchronized (this.lock) {
+            return this.bufferedBytes;
         }
     }
 
@@ -121,39 +163,77 @@ public class StreamBuffer {
         return inputStream;
     }
 
-    private int read(final byte[] destination) {
+    private int read(final byte[] destination, final int offset, final int length) {
+        if (length == 0) {
+            return 0;
+        }
+        final Runnable action;
+        final int bytesRead;
         synchronized (this.lock) {
-            while (true) {
-                if (currentChunk != null) {
-                    // Read from current chunk into destination
-                    final int leftInCurrentChunk = this.currentChunk.size() - this.currentChunkWatermark;
-                    final int bytesRead = Math.min(leftInCurrentChunk, destination.length);
-                    this.currentChunk.copyTo(destination, currentChunkWatermark, 0, bytesRead);
-
-                    // Update watermark
-                    this.currentChunkWatermark += bytesRead;
-
-                    // Is chunk completely consumed?
-                    if (this.currentChunkWatermark == this.currentChunk.size()) {
-                        // Make room for the next one
-                        this.currentChunk = null;
-                        // Wake the writer thread
-                        this.lock.notifyAll();
-                    }
-                    return bytesRead;
-                } else if (this.closed) {
+            while (this.chunks.isEmpty()) {
+                if (this.closed || this.abandoned) {
                     // There won't be another chunk appended
                     return -1;
-                } else {
-                    try {
-                        this.lock.wait();
-                    } catch (InterruptedException e) {
-                        log.warn("Interrupted while attempting read");
-                        return 0;
-                    }
+                }
+                try {
+                    this.lock.wait();
+                } catch (InterruptedException e) {
+                    log.warn("Interrupted while attempting read");
+                    return 0;
+                }
+            }
+
+            // Drain as many queued chunks as fit into destination
+            int totalRead = 0;
+            while (totalRead < length && !this.chunks.isEmpty()) {
+                final ByteString currentChunk = this.chunks.peekFirst();
+                final int leftInCurrentChunk = currentChunk.size() - this.currentChunkWatermark;
+                final int chunkBytesRead = Math.min(leftInCurrentChunk, length - totalRead);
+                currentChunk.copyTo(destination, this.currentChunkWatermark, offset + totalRead, chunkBytesRead);
+                this.currentChunkWatermark += chunkBytesRead;
+                totalRead += chunkBytesRead;
+
+                // Is chunk completely consumed?
+                if (this.currentChunkWatermark == currentChunk.size()) {
+                    this.chunks.removeFirst();
+                    this.currentChunkWatermark = 0;
                 }
             }
+            this.bufferedBytes -= totalRead;
+            bytesRead = totalRead;
+            action = this.takeWritableAction();
         }
+        // Notify the writer outside of the lock
+        if (action != null) {
+            action.run();
+        }
+        return bytesRead;
+    }
+
+    private void abandon() {
+        final Runnable action;
+        synchronized (this.lock) {
+            // Nobody will read the rest, release it and let the writer drain its data
+            this.abandoned = true;
+            this.chunks.clear();
+            this.currentChunkWatermark = 0;
+            this.bufferedBytes = 0;
+            action = this.takeWritableAction();
+            this.lock.notifyAll();
+        }
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    @Nullable
+    private Runnable takeWritableAction() {
+        if (this.writableAction == null || this.bufferedBytes >= this.maxBufferedBytes) {
+            return null;
+        }
+        final Runnable action = this.writableAction;
+        this.writableAction = null;
+        return action;
     }
 
     private static class StreamBufferInputStream extends InputStream {
@@ -182,15 +262,15 @@ public class StreamBuffer {
                 throw new IndexOutOfBoundsException("Invalid read( b[" + b.length + "], " + off + ", " + len + ")");
             }
 
-            final byte[] temporary = new byte[len];
-
-            final int bytesRead = this.streamBuffer.read(temporary);
-
-            if (bytesRead > 0) {
-                System.arraycopy(temporary, 0, b, off, bytesRead);
-            }
+            return this.streamBuffer.read(b, off, len);
+        }
 
-            return bytesRead;
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() {
+            this.streamBuffer.abandon();
         }
     }
 
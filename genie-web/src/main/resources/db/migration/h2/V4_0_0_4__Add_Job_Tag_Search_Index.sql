@@ -0,0 +1,22 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+CREATE INDEX IF NOT EXISTS `JOBS_TAGS_TAG_ID_JOB_ID_INDEX`
+  ON `jobs_tags` (`tag_id`, `job_id`);
+
+DROP INDEX IF EXISTS `JOBS_TAGS_INDEX`;
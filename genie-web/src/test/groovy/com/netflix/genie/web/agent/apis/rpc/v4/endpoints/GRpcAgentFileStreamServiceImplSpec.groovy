@@ -24,19 +24,27 @@ import com.netflix.genie.common.internal.dtos.v4.converters.JobDirectoryManifest
 import com.netflix.genie.common.internal.exceptions.checked.GenieConversionException
 import com.netflix.genie.proto.AgentFileMessage
 import com.netflix.genie.proto.AgentManifestMessage
+import com.netflix.genie.proto.ManifestDelta
 import com.netflix.genie.proto.ServerAckMessage
 import com.netflix.genie.proto.ServerControlMessage
+import com.netflix.genie.web.properties.AgentFileStreamProperties
+import io.grpc.stub.ServerCallStreamObserver
 import io.grpc.stub.StreamObserver
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import org.junit.Rule
 import org.junit.rules.TemporaryFolder
 import org.springframework.core.io.Resource
+import org.springframework.http.HttpRange
 import org.springframework.scheduling.TaskScheduler
 import spock.lang.Specification
 
 import java.nio.ByteBuffer
 import java.nio.file.Paths
 import java.time.Instant
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 class GRpcAgentFileStreamServiceImplSpec extends Specification {
 
@@ -64,6 +72,7 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
         this.service = new GRpcAgentFileStreamServiceImpl(
             converter,
             taskScheduler,
+            new AgentFileStreamProperties(),
             new SimpleMeterRegistry()
         )
         this.serverControlObserver = Mock(StreamObserver)
@@ -145,6 +154,63 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
         noExceptionThrown()
     }
 
+    def "Manifest deltas"() {
+        setup:
+        StreamObserver<AgentManifestMessage> o = service.sync(serverControlObserver)
+        DirectoryManifest updatedManifest = Mock(DirectoryManifest)
+        DirectoryManifest resyncedManifest = Mock(DirectoryManifest)
+        AgentManifestMessage fullMessage = AgentManifestMessage.newBuilder()
+            .setJobId(jobId)
+            .setSequenceNumber(1L)
+            .build()
+        ServerControlMessage c
+
+        when: "Send a complete manifest followed by a delta"
+        o.onNext(fullMessage)
+        o.onNext(deltaMessage(2L))
+
+        then:
+        1 * converter.toManifest(fullMessage) >> manifest
+        1 * converter.applyDelta(manifest, deltaMessage(2L)) >> updatedManifest
+        0 * serverControlObserver.onNext(_)
+        service.getManifest(jobId).get() == updatedManifest
+
+        when: "A delta is missed"
+        o.onNext(deltaMessage(4L))
+        o.onNext(deltaMessage(5L))
+
+        then: "A resync is requested once and deltas are ignored"
+        0 * converter.applyDelta(_, _)
+        1 * serverControlObserver.onNext(_ as ServerControlMessage) >> { args -> c = args[0] as ServerControlMessage }
+        c.getMessageCase() == ServerControlMessage.MessageCase.SERVER_MANIFEST_RESYNC_REQUEST
+        service.getManifest(jobId).get() == updatedManifest
+
+        when: "The complete manifest is sent again"
+        AgentManifestMessage resyncMessage = fullMessage.toBuilder().setSequenceNumber(6L).build()
+        o.onNext(resyncMessage)
+        o.onNext(deltaMessage(7L))
+
+        then:
+        1 * converter.toManifest(resyncMessage) >> resyncedManifest
+        1 * converter.applyDelta(resyncedManifest, deltaMessage(7L)) >> { throw new GenieConversionException("...") }
+        1 * serverControlObserver.onNext(_ as ServerControlMessage)
+        service.getManifest(jobId).get() == resyncedManifest
+
+        when:
+        o.onCompleted()
+
+        then:
+        !service.getManifest(jobId).isPresent()
+    }
+
+    private AgentManifestMessage deltaMessage(final long sequenceNumber) {
+        return AgentManifestMessage.newBuilder()
+            .setJobId(jobId)
+            .setSequenceNumber(sequenceNumber)
+            .setDelta(ManifestDelta.newBuilder().addRemovedPaths("foo1.txt"))
+            .build()
+    }
+
     def "Transfer stream"() {
         StreamObserver<AgentManifestMessage> o
         Optional<Resource> r
@@ -373,4 +439,183 @@ class GRpcAgentFileStreamServiceImplSpec extends Specification {
         noExceptionThrown()
 //        0 * serverTransmitObserver.onNext(ServerAckMessage.getDefaultInstance())
     }
+
+    def "Transfers stop requesting chunks while the buffer is full"() {
+        setup:
+        def registry = new SimpleMeterRegistry()
+        def properties = new AgentFileStreamProperties()
+        properties.setMaxBufferedBytesPerTransfer(5L)
+        def flowControlledService = new GRpcAgentFileStreamServiceImpl(converter, taskScheduler, properties, registry)
+        def flowControlledObserver = Mock(ServerCallStreamObserver)
+        ServerControlMessage c
+        byte[] read = new byte[data.size()]
+
+        flowControlledService.sync(serverControlObserver).onNext(manifestMessage)
+        def r = flowControlledService.getResource(jobId, Paths.get("foo2.txt"), null)
+        def inputStream = r.get().getInputStream()
+
+        when: "Agent initiates stream"
+        def s = flowControlledService.transmit(flowControlledObserver)
+
+        then:
+        1 * converter.toManifest(manifestMessage) >> manifest
+        1 * serverControlObserver.onNext(_ as ServerControlMessage) >> { args -> c = args[0] as ServerControlMessage }
+        1 * flowControlledObserver.disableAutoInboundFlowControl()
+        1 * flowControlledObserver.request(1)
+
+        when: "A chunk larger than the buffer is received"
+        s.onNext(
+            AgentFileMessage.newBuilder()
+                .setStreamId(c.getServerFileRequest().getStreamId())
+                .setData(data.substring(0, 7))
+                .build()
+        )
+
+        then: "It is acknowledged but the next one isn't requested"
+        1 * flowControlledObserver.onNext({ ServerAckMessage ack -> ack.getAcknowledgedOffset() == 7 })
+        0 * flowControlledObserver.request(_)
+        registry.get("genie.agents.fileTransfers.bufferedBytes.gauge").gauge().value() == 7
+        registry.counter("genie.agents.fileTransfers.paused.counter").count() == 1
+
+        when: "The client reads some data but the buffer is still full"
+        def bytesRead = inputStream.read(read, 0, 2)
+
+        then:
+        bytesRead == 2
+        0 * flowControlledObserver.request(_)
+
+        when: "The client reads enough to make room"
+        bytesRead = inputStream.read(read, 2, 2)
+
+        then:
+        bytesRead == 2
+        1 * flowControlledObserver.request(1)
+        registry.get("genie.agents.fileTransfers.bufferedBytes.gauge").gauge().value() == 3
+
+        when: "The rest of the file is received and read in one go"
+        s.onNext(
+            AgentFileMessage.newBuilder()
+                .setStreamId(c.getServerFileRequest().getStreamId())
+                .setOffset(7)
+                .setData(data.substring(7))
+                .build()
+        )
+        bytesRead = inputStream.read(read, 4, data.size() - 4)
+
+        then:
+        1 * flowControlledObserver.onNext({ ServerAckMessage ack -> ack.getAcknowledgedOffset() == data.size() })
+        1 * flowControlledObserver.request(1)
+        bytesRead == data.size() - 4
+        read == data.toByteArray()
+
+        when: "Transfer completed"
+        s.onCompleted()
+
+        then:
+        inputStream.read(read, 0, 1) == -1
+    }
+
+    def "Only the requested range is transferred"() {
+        setup:
+        ServerControlMessage c
+        service.sync(serverControlObserver).onNext(manifestMessage)
+
+        when: "A suffix range is requested"
+        def r = service.getResource(jobId, Paths.get("foo2.txt"), null, HttpRange.createSuffixRange(6))
+
+        then:
+        1 * converter.toManifest(manifestMessage) >> manifest
+        1 * serverControlObserver.onNext(_ as ServerControlMessage) >> { args -> c = args[0] as ServerControlMessage }
+        c.getServerFileRequest().getStartOffset() == data.size() - 6
+        c.getServerFileRequest().getEndOffset() == data.size()
+        r.isPresent()
+        r.get().contentLength() == data.size()
+
+        when: "The agent sends the range"
+        def s = service.transmit(serverTransmitObserver)
+        s.onNext(
+            AgentFileMessage.newBuilder()
+                .setStreamId(c.getServerFileRequest().getStreamId())
+                .setOffset(data.size() - 6)
+                .setData(data.substring(data.size() - 6))
+                .build()
+        )
+        s.onCompleted()
+        def inputStream = r.get().getInputStream()
+
+        then:
+        1 * serverTransmitObserver.onNext({ ServerAckMessage ack -> ack.getAcknowledgedOffset() == data.size() })
+
+        when: "Data before the range is read"
+        inputStream.read()
+
+        then:
+        thrown(IOException)
+
+        when: "The stream is skipped to the start of the range"
+        def skipped = inputStream.skip(data.size() - 6)
+
+        then:
+        skipped == data.size() - 6
+        inputStream.getText() == data.substring(data.size() - 6).toStringUtf8()
+
+        when: "An unsatisfiable range is requested"
+        service.getResource(jobId, Paths.get("foo2.txt"), null, HttpRange.createByteRange(100, 200))
+
+        then: "The whole file is requested"
+        1 * serverControlObserver.onNext(_ as ServerControlMessage) >> { args -> c = args[0] as ServerControlMessage }
+        c.getServerFileRequest().getStartOffset() == 0
+        c.getServerFileRequest().getEndOffset() == data.size()
+    }
+
+    def "Control messages are never sent concurrently"() {
+        setup:
+        def inFlight = new AtomicInteger()
+        def maxInFlight = new AtomicInteger()
+        def sent = new AtomicInteger()
+        def controlObserver = Stub(StreamObserver) {
+            onNext(_ as ServerControlMessage) >> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), { a, b -> Math.max(a, b) })
+                Thread.sleep(1)
+                inFlight.decrementAndGet()
+                sent.incrementAndGet()
+            }
+        }
+        converter.toManifest(manifestMessage) >> manifest
+        def badManifestMessage = manifestMessage.toBuilder().setSequenceNumber(1L).build()
+        converter.toManifest(badManifestMessage) >> { throw new GenieConversionException("...") }
+        StreamObserver<AgentManifestMessage> o = service.sync(controlObserver)
+        o.onNext(manifestMessage)
+        def threads = 4
+        def messagesPerThread = 20
+        def start = new CountDownLatch(1)
+        def executor = Executors.newFixedThreadPool(threads + 1)
+
+        when: "Files are requested from HTTP threads while manifest resyncs are requested from the gRPC thread"
+        def futures = (1..threads).collect {
+            executor.submit({
+                start.await()
+                for (int i = 0; i < messagesPerThread; i++) {
+                    service.getResource(jobId, Paths.get("foo2.txt"), URI.create("file:/foo2.txt"), null)
+                }
+            } as Runnable)
+        }
+        futures.add(
+            executor.submit({
+                start.await()
+                for (int i = 0; i < messagesPerThread; i++) {
+                    o.onNext(badManifestMessage)
+                }
+            } as Runnable)
+        )
+        start.countDown()
+        futures.each { it.get(1, TimeUnit.MINUTES) }
+
+        then:
+        sent.get() == (threads + 1) * messagesPerThread
+        maxInFlight.get() == 1
+
+        cleanup:
+        executor.shutdownNow()
+    }
 }
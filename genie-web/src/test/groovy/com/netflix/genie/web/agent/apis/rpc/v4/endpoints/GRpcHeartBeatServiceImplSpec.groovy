@@ -20,8 +20,11 @@ package com.netflix.genie.web.agent.apis.rpc.v4.endpoints
 import com.netflix.genie.proto.AgentHeartBeat
 import com.netflix.genie.proto.ServerHeartBeat
 import com.netflix.genie.web.agent.services.AgentRoutingService
+import com.netflix.genie.web.properties.HeartBeatProperties
+import io.grpc.stub.ServerCallStreamObserver
 import io.grpc.stub.StreamObserver
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.core.task.SyncTaskExecutor
 import org.springframework.scheduling.TaskScheduler
 import spock.lang.Specification
 
@@ -34,6 +37,7 @@ class GRpcHeartBeatServiceImplSpec extends Specification {
     TaskScheduler taskScheduler
     ScheduledFuture taskFuture
     Runnable task
+    SimpleMeterRegistry registry
 
     void setup() {
         this.taskFuture = Mock(ScheduledFuture)
@@ -46,7 +50,16 @@ class GRpcHeartBeatServiceImplSpec extends Specification {
         }
         this.agentRoutingService = Mock(AgentRoutingService)
         this.responseObserver = Mock(StreamObserver)
-        this.service = new GRpcHeartBeatServiceImpl(agentRoutingService, taskScheduler, new SimpleMeterRegistry())
+        this.registry = new SimpleMeterRegistry()
+        def properties = new HeartBeatProperties()
+        properties.setShardSize(2)
+        this.service = new GRpcHeartBeatServiceImpl(
+            agentRoutingService,
+            taskScheduler,
+            new SyncTaskExecutor(),
+            properties,
+            this.registry
+        )
         assert task != null
     }
 
@@ -258,4 +271,67 @@ class GRpcHeartBeatServiceImplSpec extends Specification {
         1 * responseObserver.onCompleted()
     }
 
+    def "Heartbeats are sent to every shard of streams"() {
+        setup:
+        List<Integer> heartbeatsReceived = [].asSynchronized()
+        (0..<5).each { i ->
+            service.heartbeat(
+                [
+                    onNext     : { heartbeat -> heartbeatsReceived.add(i) },
+                    onError    : { t -> },
+                    onCompleted: {}
+                ] as StreamObserver<ServerHeartBeat>
+            )
+        }
+
+        when:
+        task.run()
+
+        then:
+        heartbeatsReceived.sort() == [0, 1, 2, 3, 4]
+        this.registry.timer("genie.agents.heartbeats.send.timer").count() == 1
+    }
+
+    def "Heartbeats respect flow control"() {
+        setup:
+        ServerCallStreamObserver<ServerHeartBeat> responseObserver = Mock(ServerCallStreamObserver)
+        Runnable onReadyHandler
+
+        when:
+        service.heartbeat(responseObserver)
+
+        then:
+        1 * responseObserver.setOnReadyHandler(_ as Runnable) >> { args -> onReadyHandler = args[0] as Runnable }
+
+        when: "The stream can't take more messages"
+        task.run()
+        task.run()
+
+        then:
+        2 * responseObserver.isReady() >> false
+        0 * responseObserver.onNext(_)
+        this.registry.counter("genie.agents.heartbeats.deferred.counter").count() == 2
+
+        when: "The stream becomes ready"
+        onReadyHandler.run()
+        onReadyHandler.run()
+
+        then: "Only the one deferred heartbeat is sent"
+        1 * responseObserver.isReady() >> true
+        1 * responseObserver.onNext(_ as ServerHeartBeat)
+    }
+
+    def "Nothing is sent to a stream after it completed"() {
+        setup:
+        StreamObserver<ServerHeartBeat> responseObserver = Mock(StreamObserver)
+        StreamObserver<AgentHeartBeat> requestObserver = service.heartbeat(responseObserver)
+
+        when:
+        requestObserver.onCompleted()
+        task.run()
+
+        then:
+        1 * responseObserver.onCompleted()
+        0 * responseObserver.onNext(_)
+    }
 }
@@ -81,6 +81,40 @@ class AgentFileResourceSpec extends Specification {
 
     }
 
+    def "Construct for resource starting at an offset"() {
+        setup:
+        def data = new ByteArrayInputStream("56789".getBytes())
+
+        when:
+        AgentFileStreamService.AgentFileResource resource = AgentFileResourceImpl.forAgentFile(
+            uri,
+            10,
+            Instant.ofEpochMilli(lastModTime),
+            path,
+            jobId,
+            data,
+            5
+        )
+        def stream = resource.getInputStream()
+
+        then:
+        resource.contentLength() == 10
+        !stream.markSupported()
+
+        when:
+        stream.read()
+
+        then:
+        thrown(IOException)
+
+        when:
+        def skipped = stream.skip(3) + stream.skip(3)
+
+        then:
+        skipped == 6
+        stream.getText() == "6789"
+    }
+
     def "Construct for non-existing"() {
 
         when:
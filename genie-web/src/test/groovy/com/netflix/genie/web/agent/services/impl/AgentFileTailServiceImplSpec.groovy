@@ -0,0 +1,264 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.agent.services.impl
+
+import com.netflix.genie.common.internal.dtos.DirectoryManifest
+import com.netflix.genie.web.agent.resources.AgentFileResourceImpl
+import com.netflix.genie.web.agent.services.AgentFileStreamService
+import com.netflix.genie.web.agent.services.AgentFileTailService
+import com.netflix.genie.web.properties.AgentFileStreamProperties
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.core.task.SyncTaskExecutor
+import org.springframework.http.HttpRange
+import org.springframework.scheduling.TaskScheduler
+import spock.lang.Specification
+
+import java.nio.file.Paths
+import java.time.Instant
+import java.util.concurrent.ScheduledFuture
+
+class AgentFileTailServiceImplSpec extends Specification {
+    private static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz"
+    private static final String FOLLOWED_FILES_GAUGE = "genie.agents.fileTails.followedFiles.gauge"
+    private static final String SUBSCRIPTIONS_GAUGE = "genie.agents.fileTails.subscriptions.gauge"
+
+    AgentFileStreamService agentFileStreamService = Mock()
+    TaskScheduler taskScheduler = Mock()
+    DirectoryManifest manifest = Mock()
+    DirectoryManifest.ManifestEntry manifestEntry = Mock()
+    ScheduledFuture refreshFuture = Mock()
+    ScheduledFuture expirationFuture = Mock()
+    SimpleMeterRegistry registry
+    AgentFileTailServiceImpl service
+    String jobId
+
+    void setup() {
+        def properties = new AgentFileStreamProperties()
+        properties.setFollowInitialBytes(5)
+        registry = new SimpleMeterRegistry()
+        service = new AgentFileTailServiceImpl(
+            agentFileStreamService,
+            taskScheduler,
+            new SyncTaskExecutor(),
+            properties,
+            registry
+        )
+        jobId = UUID.randomUUID().toString()
+    }
+
+    def "Files which aren't available on this node can't be followed"() {
+        def listener = Mock(AgentFileTailService.Listener)
+
+        when:
+        def subscription = service.follow(jobId, Paths.get("stdout"), listener)
+
+        then:
+        1 * agentFileStreamService.getManifest(jobId) >> Optional.empty()
+        !subscription.isPresent()
+
+        when:
+        subscription = service.follow(jobId, Paths.get("stdout"), listener)
+
+        then:
+        1 * agentFileStreamService.getManifest(jobId) >> Optional.of(manifest)
+        1 * manifest.getEntry("stdout") >> Optional.empty()
+        !subscription.isPresent()
+
+        when:
+        subscription = service.follow(jobId, Paths.get("stdout"), listener)
+
+        then:
+        1 * agentFileStreamService.getManifest(jobId) >> Optional.of(manifest)
+        1 * manifest.getEntry("stdout") >> Optional.of(manifestEntry)
+        1 * manifestEntry.isDirectory() >> true
+        !subscription.isPresent()
+        0 * taskScheduler._
+    }
+
+    def "Viewers of the same file share a single transfer of the appended data"() {
+        def listener1 = Mock(AgentFileTailService.Listener)
+        def listener2 = Mock(AgentFileTailService.Listener)
+        Runnable refresh = null
+        _ * agentFileStreamService.getManifest(jobId) >> Optional.of(manifest)
+        _ * manifest.getEntry("stdout") >> Optional.of(manifestEntry)
+        _ * manifestEntry.isDirectory() >> false
+
+        when: "Two viewers start following the file"
+        def subscription1 = service.follow(jobId, Paths.get("stdout"), listener1)
+        def subscription2 = service.follow(jobId, Paths.get("stdout"), listener2)
+
+        then: "It's checked for growth once"
+        _ * manifestEntry.getSize() >> 20L
+        1 * taskScheduler.scheduleWithFixedDelay(_ as Runnable, 1_000L) >> { args ->
+            refresh = args[0] as Runnable
+            return refreshFuture
+        }
+        2 * taskScheduler.schedule(_ as Runnable, _ as Instant) >> expirationFuture
+        subscription1.isPresent()
+        subscription2.isPresent()
+        registry.get(FOLLOWED_FILES_GAUGE).gauge().value() == 1
+        registry.get(SUBSCRIPTIONS_GAUGE).gauge().value() == 2
+
+        when: "The file is checked"
+        refresh.run()
+
+        then: "Both get the end of the file from a single transfer"
+        _ * manifestEntry.getSize() >> 20L
+        1 * agentFileStreamService.getResource(jobId, Paths.get("stdout"), _ as URI, _ as HttpRange) >> { args ->
+            resource(args[3] as HttpRange, 20)
+        }
+        1 * listener1.onData({ new String(it as byte[]) == "fghij" })
+        1 * listener2.onData({ new String(it as byte[]) == "fghij" })
+
+        when: "The file didn't grow"
+        refresh.run()
+
+        then: "Nothing is transferred"
+        _ * manifestEntry.getSize() >> 20L
+        0 * agentFileStreamService.getResource(_, _, _, _)
+        0 * listener1._
+        0 * listener2._
+
+        when: "Data is appended and one viewer went away"
+        subscription2.get().cancel()
+        refresh.run()
+
+        then: "Only the appended data is transferred to the remaining viewer"
+        1 * expirationFuture.cancel(false)
+        _ * manifestEntry.getSize() >> 30L
+        1 * agentFileStreamService.getResource(jobId, Paths.get("stdout"), _ as URI, _ as HttpRange) >> { args ->
+            resource(args[3] as HttpRange, 30)
+        }
+        1 * listener1.onData({ new String(it as byte[]) == "klmnopqrst" })
+        0 * listener2._
+        registry.get(SUBSCRIPTIONS_GAUGE).gauge().value() == 1
+
+        when: "The last viewer goes away"
+        subscription1.get().cancel()
+
+        then: "The file isn't followed anymore"
+        1 * expirationFuture.cancel(false)
+        1 * refreshFuture.cancel(false)
+        registry.get(FOLLOWED_FILES_GAUGE).gauge().value() == 0
+    }
+
+    def "Viewers which fail to receive data are unsubscribed"() {
+        def listener1 = Mock(AgentFileTailService.Listener)
+        def listener2 = Mock(AgentFileTailService.Listener)
+        Runnable refresh = null
+        _ * agentFileStreamService.getManifest(jobId) >> Optional.of(manifest)
+        _ * manifest.getEntry("stdout") >> Optional.of(manifestEntry)
+        _ * manifestEntry.isDirectory() >> false
+        _ * manifestEntry.getSize() >> 20L
+        _ * taskScheduler.schedule(_ as Runnable, _ as Instant) >> expirationFuture
+
+        when:
+        service.follow(jobId, Paths.get("stdout"), listener1)
+        service.follow(jobId, Paths.get("stdout"), listener2)
+
+        then:
+        1 * taskScheduler.scheduleWithFixedDelay(_ as Runnable, 1_000L) >> { args ->
+            refresh = args[0] as Runnable
+            return refreshFuture
+        }
+
+        when:
+        refresh.run()
+
+        then:
+        1 * agentFileStreamService.getResource(jobId, Paths.get("stdout"), _ as URI, _ as HttpRange) >> { args ->
+            resource(args[3] as HttpRange, 20)
+        }
+        1 * listener1.onData(_) >> { throw new IOException("Client went away") }
+        1 * listener2.onData(_)
+        0 * listener1.onCompleted()
+        0 * refreshFuture.cancel(_)
+        registry.get(SUBSCRIPTIONS_GAUGE).gauge().value() == 1
+    }
+
+    def "Viewers are completed when the file is not available anymore or when they followed it for too long"() {
+        def listener1 = Mock(AgentFileTailService.Listener)
+        def listener2 = Mock(AgentFileTailService.Listener)
+        def listener3 = Mock(AgentFileTailService.Listener)
+        Runnable refresh = null
+        Runnable expiration = null
+        _ * manifest.getEntry("stdout") >> Optional.of(manifestEntry)
+        _ * manifestEntry.isDirectory() >> false
+        _ * manifestEntry.getSize() >> 0L
+
+        when:
+        service.follow(jobId, Paths.get("stdout"), listener1)
+        service.follow(jobId, Paths.get("stdout"), listener2)
+
+        then:
+        2 * agentFileStreamService.getManifest(jobId) >> Optional.of(manifest)
+        1 * taskScheduler.scheduleWithFixedDelay(_ as Runnable, 1_000L) >> { args ->
+            refresh = args[0] as Runnable
+            return refreshFuture
+        }
+        1 * taskScheduler.schedule(_ as Runnable, _ as Instant) >> { args ->
+            expiration = args[0] as Runnable
+            return expirationFuture
+        }
+        1 * taskScheduler.schedule(_ as Runnable, _ as Instant) >> expirationFuture
+
+        when: "The first viewer followed the file for too long"
+        expiration.run()
+
+        then:
+        1 * listener1.onCompleted()
+        0 * listener2.onCompleted()
+        0 * refreshFuture.cancel(_)
+
+        when: "The job completes"
+        refresh.run()
+
+        then:
+        1 * agentFileStreamService.getManifest(jobId) >> Optional.empty()
+        0 * agentFileStreamService.getResource(_, _, _, _)
+        0 * listener1.onCompleted()
+        1 * listener2.onCompleted()
+        1 * refreshFuture.cancel(false)
+        registry.get(FOLLOWED_FILES_GAUGE).gauge().value() == 0
+
+        when: "A new viewer follows the file again"
+        service.follow(jobId, Paths.get("stdout"), listener3)
+
+        then: "It is followed anew"
+        1 * agentFileStreamService.getManifest(jobId) >> Optional.of(manifest)
+        1 * taskScheduler.scheduleWithFixedDelay(_ as Runnable, 1_000L) >> refreshFuture
+        1 * taskScheduler.schedule(_ as Runnable, _ as Instant) >> expirationFuture
+        registry.get(FOLLOWED_FILES_GAUGE).gauge().value() == 1
+    }
+
+    private Optional<AgentFileStreamService.AgentFileResource> resource(final HttpRange range, final long size) {
+        def start = range.getRangeStart(size)
+        def end = range.getRangeEnd(size) + 1
+        return Optional.of(
+            AgentFileResourceImpl.forAgentFile(
+                new URI("agent://" + jobId + "/stdout"),
+                size,
+                Instant.now(),
+                Paths.get("stdout"),
+                jobId,
+                new ByteArrayInputStream(CONTENT.substring(start as int, end as int).getBytes()),
+                start
+            )
+        )
+    }
+}
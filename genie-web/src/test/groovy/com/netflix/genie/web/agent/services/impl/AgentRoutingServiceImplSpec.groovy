@@ -18,105 +18,186 @@
 package com.netflix.genie.web.agent.services.impl
 
 import com.netflix.genie.common.internal.util.GenieHostInfo
-import com.netflix.genie.web.agent.services.AgentRoutingService
 import com.netflix.genie.web.data.services.AgentConnectionPersistenceService
+import com.netflix.genie.web.properties.AgentRoutingProperties
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.scheduling.TaskScheduler
 import spock.lang.Specification
 
 class AgentRoutingServiceImplSpec extends Specification {
     private static final String HOSTNAME = "10.1.2.3"
+    private static final String LOOKUP_COUNTER = "genie.agents.routing.lookup.counter"
 
     AgentConnectionPersistenceService persistenceService = Mock()
-    GenieHostInfo genieHostInfo = Mock()
-    AgentRoutingService service
+    GenieHostInfo genieHostInfo = Mock() {
+        getHostname() >> HOSTNAME
+    }
+    TaskScheduler taskScheduler = Mock()
+    SimpleMeterRegistry registry
+    AgentRoutingServiceImpl service
     String jobId
 
     void setup() {
-        service = new AgentRoutingServiceImpl(persistenceService, genieHostInfo)
+        registry = new SimpleMeterRegistry()
+        service = new AgentRoutingServiceImpl(
+            persistenceService,
+            genieHostInfo,
+            taskScheduler,
+            new AgentRoutingProperties(),
+            registry
+        )
         jobId = UUID.randomUUID().toString()
     }
 
-    def "getHostnameForAgentConnection"() {
-        boolean isLocalConnection
-
+    def "Refresh is scheduled"() {
         when:
-        Optional<String> optionalHostname = service.getHostnameForAgentConnection(jobId)
+        new AgentRoutingServiceImpl(
+            persistenceService,
+            genieHostInfo,
+            taskScheduler,
+            new AgentRoutingProperties(),
+            registry
+        )
 
         then:
-        1 * persistenceService.lookupAgentConnectionServer(jobId) >> Optional.of(HOSTNAME)
-
-        expect:
-        optionalHostname.isPresent()
-        HOSTNAME == optionalHostname.get()
+        1 * taskScheduler.scheduleWithFixedDelay(_ as Runnable, 15_000L)
+    }
 
+    def "Local connections are served without querying the database"() {
         when:
-        isLocalConnection = service.isAgentConnectionLocal(jobId)
+        service.handleClientConnected(jobId)
 
         then:
-        1 * persistenceService.lookupAgentConnectionServer(jobId) >> Optional.of(HOSTNAME)
-        1 * genieHostInfo.getHostname() >> HOSTNAME
+        1 * persistenceService.saveAgentConnection(jobId, HOSTNAME)
+
+        when:
+        def isLocalConnection = service.isAgentConnectionLocal(jobId)
+        def optionalHostname = service.getHostnameForAgentConnection(jobId)
 
-        expect:
+        then:
+        0 * persistenceService.lookupAgentConnectionServer(_)
         isLocalConnection
+        optionalHostname == Optional.of(HOSTNAME)
+        registry.counter(LOOKUP_COUNTER, "result", "local").count() == 2
 
         when:
+        service.handleClientDisconnected(jobId)
         isLocalConnection = service.isAgentConnectionLocal(jobId)
 
+        then:
+        1 * persistenceService.removeAgentConnection(jobId, HOSTNAME)
+        0 * persistenceService.lookupAgentConnectionServer(_)
+        !isLocalConnection
+    }
+
+    def "Remote connections are cached after the first lookup"() {
+        when:
+        def optionalHostname = service.getHostnameForAgentConnection(jobId)
+
         then:
         1 * persistenceService.lookupAgentConnectionServer(jobId) >> Optional.of("another.hostname")
-        1 * genieHostInfo.getHostname() >> HOSTNAME
+        optionalHostname == Optional.of("another.hostname")
+
+        when:
+        optionalHostname = service.getHostnameForAgentConnection(jobId)
+        def isLocalConnection = service.isAgentConnectionLocal(jobId)
 
-        expect:
+        then:
+        0 * persistenceService.lookupAgentConnectionServer(_)
+        optionalHostname == Optional.of("another.hostname")
         !isLocalConnection
+        registry.counter(LOOKUP_COUNTER, "result", "miss").count() == 1
+        registry.counter(LOOKUP_COUNTER, "result", "hit").count() == 1
+
+        when: "The agent reconnects to this server"
+        service.handleClientConnected(jobId)
+        optionalHostname = service.getHostnameForAgentConnection(jobId)
+
+        then:
+        1 * persistenceService.saveAgentConnection(jobId, HOSTNAME)
+        0 * persistenceService.lookupAgentConnectionServer(_)
+        optionalHostname == Optional.of(HOSTNAME)
     }
 
-    def "isAgentConnectionLocal"() {
-        boolean isLocalConnection
+    def "Missing and stale local connections are not cached"() {
+        when:
+        def optionalHostname = service.getHostnameForAgentConnection(jobId)
+
+        then:
+        1 * persistenceService.lookupAgentConnectionServer(jobId) >> Optional.empty()
+        !optionalHostname.isPresent()
 
         when:
-        isLocalConnection = service.isAgentConnectionLocal(jobId)
+        optionalHostname = service.getHostnameForAgentConnection(jobId)
 
         then:
         1 * persistenceService.lookupAgentConnectionServer(jobId) >> Optional.of(HOSTNAME)
-        1 * genieHostInfo.getHostname() >> HOSTNAME
-
-        expect:
-        isLocalConnection
+        optionalHostname == Optional.of(HOSTNAME)
 
         when:
-        isLocalConnection = service.isAgentConnectionLocal(jobId)
+        optionalHostname = service.getHostnameForAgentConnection(jobId)
 
         then:
-        1 * persistenceService.lookupAgentConnectionServer(jobId) >> Optional.of("another.hostname")
-        1 * genieHostInfo.getHostname() >> HOSTNAME
+        1 * persistenceService.lookupAgentConnectionServer(jobId) >> Optional.of(HOSTNAME)
+        optionalHostname == Optional.of(HOSTNAME)
+        !service.isAgentConnectionLocal(jobId)
+    }
 
-        expect:
-        !isLocalConnection
+    def "Cached routes are refreshed in bulk"() {
+        def movedJobId = UUID.randomUUID().toString()
+        def goneJobId = UUID.randomUUID().toString()
 
         when:
-        isLocalConnection = service.isAgentConnectionLocal(jobId)
+        service.getHostnameForAgentConnection(jobId)
+        service.getHostnameForAgentConnection(movedJobId)
+        service.getHostnameForAgentConnection(goneJobId)
 
         then:
-        1 * persistenceService.lookupAgentConnectionServer(jobId) >> Optional.empty()
-        0 * genieHostInfo.getHostname() >> HOSTNAME
+        1 * persistenceService.lookupAgentConnectionServer(jobId) >> Optional.of("host1")
+        1 * persistenceService.lookupAgentConnectionServer(movedJobId) >> Optional.of("host1")
+        1 * persistenceService.lookupAgentConnectionServer(goneJobId) >> Optional.of("host1")
 
-        expect:
-        !isLocalConnection
-    }
+        when:
+        service.refreshRemoteRoutes()
 
-    def "Reacting to connection and disconnection"() {
+        then:
+        1 * persistenceService.lookupAgentConnectionServers([jobId, movedJobId, goneJobId] as Set) >> [
+            (jobId)     : "host1",
+            (movedJobId): "host2"
+        ]
 
         when:
-        service.handleClientConnected(jobId)
+        def hostname = service.getHostnameForAgentConnection(jobId)
+        def movedHostname = service.getHostnameForAgentConnection(movedJobId)
+        def goneHostname = service.getHostnameForAgentConnection(goneJobId)
 
         then:
-        1 * genieHostInfo.getHostname() >> HOSTNAME
-        1 * persistenceService.saveAgentConnection(jobId, HOSTNAME)
+        0 * persistenceService.lookupAgentConnectionServer(jobId)
+        0 * persistenceService.lookupAgentConnectionServer(movedJobId)
+        1 * persistenceService.lookupAgentConnectionServer(goneJobId) >> Optional.empty()
+        hostname == Optional.of("host1")
+        movedHostname == Optional.of("host2")
+        !goneHostname.isPresent()
+    }
 
+    def "Failed refreshes keep the cached routes"() {
         when:
-        service.handleClientDisconnected(jobId)
+        service.getHostnameForAgentConnection(jobId)
+        service.refreshRemoteRoutes()
+        def optionalHostname = service.getHostnameForAgentConnection(jobId)
 
         then:
-        1 * genieHostInfo.getHostname() >> HOSTNAME
-        1 * persistenceService.removeAgentConnection(jobId, HOSTNAME)
+        1 * persistenceService.lookupAgentConnectionServer(jobId) >> Optional.of("host1")
+        1 * persistenceService.lookupAgentConnectionServers([jobId] as Set) >> { throw new RuntimeException("down") }
+        noExceptionThrown()
+        optionalHostname == Optional.of("host1")
+    }
+
+    def "Nothing is refreshed when no routes are cached"() {
+        when:
+        service.refreshRemoteRoutes()
+
+        then:
+        0 * persistenceService.lookupAgentConnectionServers(_)
     }
 }
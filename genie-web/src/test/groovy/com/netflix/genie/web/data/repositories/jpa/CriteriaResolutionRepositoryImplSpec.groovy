@@ -0,0 +1,145 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.data.repositories.jpa
+
+import com.google.common.collect.Sets
+import com.netflix.genie.common.external.dtos.v4.Criterion
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+import javax.persistence.EntityManager
+import javax.persistence.Query
+
+/**
+ * Specifications for {@link CriteriaResolutionRepositoryImpl}.
+ *
+ * @author agent
+ */
+class CriteriaResolutionRepositoryImplSpec extends Specification {
+
+    EntityManager entityManager
+    Query query
+    SimpleMeterRegistry registry
+    CriteriaResolutionRepositoryImpl repository
+
+    def setup() {
+        this.entityManager = Mock(EntityManager)
+        this.query = Mock(Query)
+        this.registry = new SimpleMeterRegistry()
+        this.repository = new CriteriaResolutionRepositoryImpl(this.registry)
+        this.repository.@entityManager = this.entityManager
+    }
+
+    def "Criterion values are bound as parameters instead of being part of the statement"() {
+        def clusterCriterion = new Criterion.Builder()
+            .withName("prod'; DROP TABLE clusters; --")
+            .withTags(Sets.newHashSet("type:yarn", "sched:sla", "owner:genie"))
+            .build()
+        def commandCriterion = new Criterion.Builder().withId("spark").withStatus("DEPRECATED").build()
+        def sql = null
+        def parameters = [:]
+        def results = [[1L, "spark"] as Object[]]
+
+        when:
+        def resolved = this.repository.resolveClustersAndCommands(clusterCriterion, commandCriterion)
+
+        then:
+        1 * this.entityManager.createNativeQuery(_ as String) >> { args ->
+            sql = args[0]
+            return this.query
+        }
+        _ * this.query.setParameter(_ as String, _) >> { args ->
+            parameters.put(args[0], args[1])
+            return this.query
+        }
+        1 * this.query.getResultList() >> results
+        resolved == results
+        !sql.contains("prod")
+        !sql.contains("spark")
+        !sql.contains("yarn")
+        !sql.contains("DROP")
+        !sql.contains("DEPRECATED")
+        sql.contains("t.tag IN (:clusterTag0, :clusterTag1, :clusterTag2, :clusterTag3)")
+        parameters == [
+            clusterName    : "prod'; DROP TABLE clusters; --",
+            clusterTag0    : "owner:genie",
+            clusterTag1    : "sched:sla",
+            clusterTag2    : "type:yarn",
+            clusterTag3    : "type:yarn",
+            clusterTagCount: 3,
+            clusterStatus  : "UP",
+            commandId      : "spark",
+            commandStatus  : "DEPRECATED"
+        ]
+    }
+
+    def "A realistic mix of criteria reuses a small library of statements"() {
+        def random = new Random(4815162342L)
+        def tags = (0..<200).collect { "tag" + it }
+        def statements = [] as Set
+        def iterations = 10_000
+
+        when: "Mostly tag based cluster and command criteria with the occasional pinned id or name are resolved"
+        for (int i = 0; i < iterations; i++) {
+            this.repository.resolveClustersAndCommands(
+                randomCriterion(random, tags, 4, "id"),
+                randomCriterion(random, tags, 3, "name")
+            )
+        }
+
+        then:
+        iterations * this.entityManager.createNativeQuery(_ as String) >> { args ->
+            statements.add(args[0])
+            return this.query
+        }
+        iterations * this.query.getResultList() >> []
+        def hits = this.registry.counter(
+            "genie.data.criteriaResolution.statementLibrary.counter",
+            "hit",
+            "true"
+        ).count()
+        def misses = this.registry.counter(
+            "genie.data.criteriaResolution.statementLibrary.counter",
+            "hit",
+            "false"
+        ).count()
+        hits + misses == iterations
+        misses == statements.size()
+        this.registry.get("genie.data.criteriaResolution.statementLibrary.gauge").gauge().value() == statements.size()
+        hits / iterations > 0.99
+    }
+
+    private static Criterion randomCriterion(
+        final Random random,
+        final List<String> tags,
+        final int maxTags,
+        final String field
+    ) {
+        def builder = new Criterion.Builder()
+        def tagCount = 1 + random.nextInt(maxTags)
+        builder.withTags((0..<tagCount).collect { tags.get(random.nextInt(tags.size())) } as Set)
+        if (random.nextInt(20) == 0) {
+            if (field == "id") {
+                builder.withId(UUID.randomUUID().toString())
+            } else {
+                builder.withName("name" + random.nextInt(50))
+            }
+        }
+        return builder.build()
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.data.services.jpa
+
+import com.google.common.collect.Sets
+import com.netflix.genie.common.external.dtos.v4.Criterion
+import com.netflix.genie.web.data.repositories.jpa.JpaClusterRepository
+import com.netflix.genie.web.data.repositories.jpa.JpaCommandRepository
+import com.netflix.genie.web.properties.ResolutionIndexProperties
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.core.env.Environment
+import org.springframework.scheduling.TaskScheduler
+import spock.lang.Specification
+
+import java.time.Instant
+
+/**
+ * Specifications for {@link ClusterCommandResolutionIndex}.
+ *
+ * @author agent
+ */
+class ClusterCommandResolutionIndexSpec extends Specification {
+
+    JpaClusterRepository clusterRepository
+    JpaCommandRepository commandRepository
+    TaskScheduler taskScheduler
+    SimpleMeterRegistry registry
+    Environment environment
+    ClusterCommandResolutionIndex index
+
+    List<Object[]> clusterRows = [
+        [1L, "cluster1", "prod", "1.0", "UP", "sched:sla"] as Object[],
+        [1L, "cluster1", "prod", "1.0", "UP", "type:yarn"] as Object[],
+        [2L, "cluster2", "test", "1.0", "UP", "type:yarn"] as Object[],
+        [3L, "cluster3", "prod", "1.0", "OUT_OF_SERVICE", "sched:sla"] as Object[],
+        [4L, "cluster4", "bare", "1.0", "UP", null] as Object[]
+    ]
+    List<Object[]> commandRows = [
+        [10L, "spark2", "spark", "2.4", "ACTIVE", "type:spark"] as Object[],
+        [11L, "spark1", "spark", "1.6", "ACTIVE", "type:spark"] as Object[],
+        [12L, "spark3", "spark", "3.0", "INACTIVE", "type:spark"] as Object[],
+        [13L, "hive", "hive", "2.3", "ACTIVE", "type:hive"] as Object[]
+    ]
+    List<Object[]> clusterCommandRows = [
+        [1L, 12L] as Object[],
+        [1L, 10L] as Object[],
+        [1L, 11L] as Object[],
+        [2L, 11L] as Object[],
+        [2L, 13L] as Object[],
+        [3L, 10L] as Object[]
+    ]
+
+    def setup() {
+        this.clusterRepository = Mock(JpaClusterRepository)
+        this.commandRepository = Mock(JpaCommandRepository)
+        this.taskScheduler = Mock(TaskScheduler)
+        this.registry = new SimpleMeterRegistry()
+        this.environment = Mock(Environment)
+        this.index = new ClusterCommandResolutionIndex(
+            this.clusterRepository,
+            this.commandRepository,
+            this.taskScheduler,
+            new ResolutionIndexProperties(),
+            this.registry,
+            this.environment
+        )
+    }
+
+    def "Index falls back until loaded and then resolves like the database query"() {
+        def yarnClusters = new Criterion.Builder().withTags(Sets.newHashSet("type:yarn")).build()
+        def slaClusters = new Criterion.Builder().withTags(Sets.newHashSet("sched:sla")).build()
+        def sparkCommands = new Criterion.Builder().withTags(Sets.newHashSet("type:spark")).build()
+        def hiveCommand = new Criterion.Builder().withName("hive").build()
+
+        expect:
+        !this.index.resolve(yarnClusters, sparkCommands).isPresent()
+
+        when:
+        this.index.refresh()
+
+        then:
+        1 * this.clusterRepository.findResolutionIndexClusters() >> this.clusterRows
+        1 * this.commandRepository.findResolutionIndexCommands() >> this.commandRows
+        1 * this.clusterRepository.findResolutionIndexClusterCommands() >> this.clusterCommandRows
+
+        expect: "The highest priority active command is selected per cluster"
+        this.index.resolve(yarnClusters, sparkCommands).get() == [1L: "spark2", 2L: "spark1"]
+        this.index.resolve(slaClusters, sparkCommands).get() == [1L: "spark2"]
+        this.index.resolve(yarnClusters, hiveCommand).get() == [2L: "hive"]
+
+        and: "Explicit statuses, ids, names and versions are honored"
+        this.index.resolve(
+            new Criterion.Builder().withTags(Sets.newHashSet("sched:sla")).withStatus("OUT_OF_SERVICE").build(),
+            sparkCommands
+        ).get() == [3L: "spark2"]
+        this.index.resolve(
+            new Criterion.Builder().withId("cluster2").build(),
+            new Criterion.Builder().withName("spark").withVersion("1.6").build()
+        ).get() == [2L: "spark1"]
+        this.index.resolve(
+            yarnClusters,
+            new Criterion.Builder().withTags(Sets.newHashSet("type:spark")).withStatus("INACTIVE").build()
+        ).get() == [1L: "spark3"]
+
+        and: "Unknown values match nothing"
+        this.index.resolve(new Criterion.Builder().withName("bare").build(), sparkCommands).get().isEmpty()
+        this.index.resolve(
+            new Criterion.Builder().withTags(Sets.newHashSet("type:yarn", "unknown")).build(),
+            sparkCommands
+        ).get().isEmpty()
+    }
+
+    def "Changes make the index stale until only the changed resources are reloaded"() {
+        def yarnClusters = new Criterion.Builder().withTags(Sets.newHashSet("type:yarn")).build()
+        def sparkCommands = new Criterion.Builder().withTags(Sets.newHashSet("type:spark")).build()
+
+        when:
+        this.index.refresh()
+
+        then:
+        1 * this.clusterRepository.findResolutionIndexClusters() >> this.clusterRows
+        1 * this.commandRepository.findResolutionIndexCommands() >> this.commandRows
+        1 * this.clusterRepository.findResolutionIndexClusterCommands() >> this.clusterCommandRows
+        this.index.resolve(yarnClusters, sparkCommands).isPresent()
+
+        when:
+        this.index.clusterChanged("cluster2")
+        this.index.commandChanged("spark2")
+
+        then:
+        1 * this.taskScheduler.schedule(_ as Runnable, _ as Instant)
+        !this.index.resolve(yarnClusters, sparkCommands).isPresent()
+
+        when:
+        this.index.refresh()
+
+        then:
+        0 * this.clusterRepository.findResolutionIndexClusters()
+        1 * this.clusterRepository.findResolutionIndexClusters(Sets.newHashSet("cluster2")) >> []
+        1 * this.clusterRepository.findResolutionIndexClusterCommands(Sets.newHashSet("cluster2")) >> []
+        1 * this.commandRepository.findResolutionIndexCommands(Sets.newHashSet("spark2")) >> [
+            [10L, "spark2", "spark", "2.4", "DEPRECATED", "type:spark"] as Object[]
+        ]
+        this.index.resolve(yarnClusters, sparkCommands).get() == [1L: "spark1"]
+    }
+
+    def "Failed refreshes leave the index stale and request a full reload"() {
+        def criterion = new Criterion.Builder().withName("prod").build()
+
+        when:
+        this.index.refresh()
+
+        then:
+        1 * this.clusterRepository.findResolutionIndexClusters() >> { throw new RuntimeException("down") }
+        !this.index.resolve(criterion, criterion).isPresent()
+
+        when:
+        this.index.refresh()
+
+        then:
+        1 * this.clusterRepository.findResolutionIndexClusters() >> this.clusterRows
+        1 * this.commandRepository.findResolutionIndexCommands() >> this.commandRows
+        1 * this.clusterRepository.findResolutionIndexClusterCommands() >> this.clusterCommandRows
+        this.index.resolve(criterion, criterion).isPresent()
+    }
+
+    def "Dual mode results are counted"() {
+        def criterion = new Criterion.Builder().withName("prod").build()
+
+        when:
+        def dualMode = this.index.isDualModeEnabled()
+
+        then:
+        1 * this.environment.getProperty(
+            ResolutionIndexProperties.DUAL_MODE_ENABLED_PROPERTY,
+            Boolean.class,
+            false
+        ) >> true
+        dualMode
+
+        when:
+        this.index.recordDualModeResult(criterion, criterion, [1L: "spark2"], [1L: "spark2"])
+        this.index.recordDualModeResult(criterion, criterion, [1L: "spark2"], [1L: "spark1"])
+        this.index.recordDualModeResult(criterion, criterion, [:], [1L: "spark1"])
+
+        then:
+        this.registry.counter("genie.data.resolutionIndex.dualMode.counter", "matched", "true").count() == 1
+        this.registry.counter("genie.data.resolutionIndex.dualMode.counter", "matched", "false").count() == 2
+    }
+}
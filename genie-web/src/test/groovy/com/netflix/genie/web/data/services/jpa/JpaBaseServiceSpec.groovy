@@ -36,8 +36,7 @@ class JpaBaseServiceSpec extends Specification {
 
     def "Can't get file entity if doesn't exist"() {
         def fileService = Mock(JpaFilePersistenceService) {
-            1 * createFileIfNotExists(_ as String)
-            1 * getFile(_ as String) >> Optional.empty()
+            1 * createAndGetFiles(_ as Set<String>) >> Sets.newHashSet()
         }
         def service = new JpaBaseService(
             Mock(JpaTagPersistenceService),
@@ -57,8 +56,7 @@ class JpaBaseServiceSpec extends Specification {
 
     def "Can't get tag entity if doesn't exist"() {
         def tagService = Mock(JpaTagPersistenceService) {
-            1 * createTagIfNotExists(_ as String)
-            1 * getTag(_ as String) >> Optional.empty()
+            1 * createAndGetTags(_ as Set<String>) >> Sets.newHashSet()
         }
         def service = new JpaBaseService(
             tagService,
@@ -103,10 +101,7 @@ class JpaBaseServiceSpec extends Specification {
         def criterionEntity = service.toCriterionEntity(criterion)
 
         then:
-        tags.size() * tagService.createTagIfNotExists(_ as String)
-        tags.size() * tagService.getTag(_ as String) >> {
-            Optional.of(new TagEntity((String) it[0]))
-        }
+        1 * tagService.createAndGetTags(tags) >> tags.collect({ it -> new TagEntity(it) }).toSet()
         criterionEntity.getUniqueId().orElse(UUID.randomUUID().toString()) == id
         criterionEntity.getName().orElse(UUID.randomUUID().toString()) == name
         criterionEntity.getVersion().orElse(UUID.randomUUID().toString()) == version
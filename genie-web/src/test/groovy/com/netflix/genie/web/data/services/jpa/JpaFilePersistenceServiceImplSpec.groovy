@@ -19,6 +19,8 @@ package com.netflix.genie.web.data.services.jpa
 
 import com.netflix.genie.web.data.entities.FileEntity
 import com.netflix.genie.web.data.repositories.jpa.JpaFileRepository
+import com.netflix.genie.web.properties.InterningCacheProperties
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import org.springframework.dao.DuplicateKeyException
 import spock.lang.Specification
 
@@ -29,7 +31,11 @@ import spock.lang.Specification
  */
 class JpaFilePersistenceServiceImplSpec extends Specification {
     def fileRepository = Mock(JpaFileRepository)
-    def service = new JpaFilePersistenceServiceImpl(this.fileRepository)
+    def service = new JpaFilePersistenceServiceImpl(
+        this.fileRepository,
+        new InterningCacheProperties(),
+        new SimpleMeterRegistry()
+    )
 
     def "If file exists no creation is attempted"() {
         def file = UUID.randomUUID().toString()
@@ -71,4 +77,24 @@ class JpaFilePersistenceServiceImplSpec extends Specification {
                 throw new DuplicateKeyException("Duplicate key")
         }
     }
+
+    def "Files which exist are fetched in one batch and then served from the cache"() {
+        def files = ["s3://genie/config.xml", "s3://genie/setup.sh"] as Set
+        def entities = files.collect { new FileEntity(it) } as Set
+
+        when:
+        def result = this.service.createAndGetFiles(files)
+
+        then:
+        1 * this.fileRepository.findByFileIn(files) >> entities
+        0 * this.fileRepository.existsByFile(_ as String)
+        result == entities
+
+        when:
+        result = this.service.createAndGetFiles(files)
+
+        then:
+        0 * this.fileRepository._
+        result == entities
+    }
 }
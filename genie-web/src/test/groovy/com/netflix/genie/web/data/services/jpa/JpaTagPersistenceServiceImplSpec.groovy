@@ -18,10 +18,15 @@
 package com.netflix.genie.web.data.services.jpa
 
 import com.netflix.genie.web.data.entities.TagEntity
+import com.netflix.genie.common.internal.exceptions.unchecked.GenieRuntimeException
 import com.netflix.genie.web.data.repositories.jpa.JpaTagRepository
+import com.netflix.genie.web.properties.InterningCacheProperties
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import org.springframework.dao.DuplicateKeyException
 import spock.lang.Specification
 
+import java.time.Instant
+
 /**
  * Unit tests for JpaTagPersistenceServiceImpl.
  *
@@ -29,7 +34,8 @@ import spock.lang.Specification
  */
 class JpaTagPersistenceServiceImplSpec extends Specification {
     def tagRepository = Mock(JpaTagRepository)
-    def service = new JpaTagPersistenceServiceImpl(this.tagRepository)
+    def registry = new SimpleMeterRegistry()
+    def service = new JpaTagPersistenceServiceImpl(this.tagRepository, new InterningCacheProperties(), this.registry)
 
     def "If tag exists no creation is attempted"() {
         def tag = UUID.randomUUID().toString()
@@ -71,4 +77,49 @@ class JpaTagPersistenceServiceImplSpec extends Specification {
                 throw new DuplicateKeyException("Duplicate key")
         }
     }
+
+    def "Tags are created and fetched in batches and served from the cache afterwards"() {
+        def existing = new TagEntity("type:yarn")
+        def created = new TagEntity("sched:sla")
+
+        when: "Only the missing tag is created"
+        def tags = this.service.createAndGetTags(["type:yarn", "sched:sla"] as Set)
+
+        then:
+        1 * this.tagRepository.findByTagIn(["type:yarn", "sched:sla"] as Set) >> ([existing] as Set)
+        1 * this.tagRepository.existsByTag("sched:sla") >> false
+        1 * this.tagRepository.saveAndFlush(_ as TagEntity) >> { args -> args[0] }
+        1 * this.tagRepository.findByTagIn(["sched:sla"] as Set) >> ([created] as Set)
+        0 * this.tagRepository.existsByTag("type:yarn")
+        tags == [existing, created] as Set
+
+        when: "The same tags are requested again"
+        tags = this.service.createAndGetTags(["type:yarn", "sched:sla"] as Set)
+
+        then: "No database call is made"
+        0 * this.tagRepository._
+        tags == [existing, created] as Set
+        this.registry.counter("genie.data.interningCache.lookup.counter", "type", "tag", "hit", "true").count() == 2
+        this.registry.counter("genie.data.interningCache.lookup.counter", "type", "tag", "hit", "false").count() == 2
+
+        when: "Unused tags are deleted"
+        this.service.deleteUnusedTags(Instant.now())
+        tags = this.service.createAndGetTags(["type:yarn"] as Set)
+
+        then: "The cache is dropped"
+        1 * this.tagRepository.findUnusedTags(_ as Instant) >> []
+        1 * this.tagRepository.deleteByIdIn(_ as Set) >> 0L
+        1 * this.tagRepository.findByTagIn(["type:yarn"] as Set) >> ([existing] as Set)
+        tags == [existing] as Set
+    }
+
+    def "If a tag can't be found after creation an exception is thrown"() {
+        when:
+        this.service.createAndGetTags(["type:yarn"] as Set)
+
+        then:
+        2 * this.tagRepository.findByTagIn(["type:yarn"] as Set) >> ([] as Set)
+        1 * this.tagRepository.existsByTag("type:yarn") >> true
+        thrown(GenieRuntimeException)
+    }
 }
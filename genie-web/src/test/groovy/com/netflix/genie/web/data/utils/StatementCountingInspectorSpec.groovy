@@ -0,0 +1,51 @@
+/*
+ *
+ *  Copyright 2020 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.data.utils
+
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+
+/**
+ * Specifications for {@link StatementCountingInspector}.
+ *
+ * @author agent
+ */
+class StatementCountingInspectorSpec extends Specification {
+
+    def "Statements are passed through and counted per thread"() {
+        def inspector = new StatementCountingInspector()
+        def sql = "SELECT id FROM clusters;"
+        def start = StatementCountingInspector.getStatementCount()
+
+        when:
+        def inspected = inspector.inspect(sql)
+        inspector.inspect(sql)
+        def otherThreadCount = CompletableFuture.supplyAsync(
+            {
+                inspector.inspect(sql)
+                StatementCountingInspector.getStatementCount()
+            }
+        ).get()
+
+        then:
+        inspected == sql
+        StatementCountingInspector.getStatementCount() - start == 2
+        otherThreadCount >= 1
+    }
+}
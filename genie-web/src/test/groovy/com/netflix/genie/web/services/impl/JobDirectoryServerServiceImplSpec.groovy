@@ -37,6 +37,8 @@ import com.netflix.genie.web.services.JobFileService
 import io.micrometer.core.instrument.MeterRegistry
 import org.springframework.core.io.Resource
 import org.springframework.core.io.ResourceLoader
+import org.springframework.http.HttpHeaders
+import org.springframework.http.HttpRange
 import org.springframework.http.MediaType
 import spock.lang.Specification
 import spock.lang.Unroll
@@ -127,6 +129,7 @@ class JobDirectoryServerServiceImplSpec extends Specification {
     def "ServeResource -- Active V4 job"() {
         setup:
         DirectoryManifest directoryManifest = Mock(DirectoryManifest)
+        def agentResource = Mock(AgentFileStreamService.AgentFileResource)
 
         when: "Manifest not found"
         this.service.serveResource(JOB_ID, BASE_URL, REL_PATH, this.request, this.response)
@@ -158,11 +161,57 @@ class JobDirectoryServerServiceImplSpec extends Specification {
         1 * this.agentFileStreamService.getManifest(JOB_ID) >> Optional.of(this.manifest)
         1 * this.manifest.getEntry(REL_PATH) >> Optional.of(this.manifestEntry)
         1 * this.manifestEntry.isDirectory() >> false
-        1 * this.manifestEntry.getPath() >> REL_PATH
-        1 * this.resourceLoader.getResource(EXPECTED_V4_FILE_URI.toString()) >> this.resource
+        _ * this.manifestEntry.getPath() >> REL_PATH
+        _ * this.manifestEntry.getSize() >> 100L
+        0 * this.resourceLoader.getResource(_)
+        1 * this.agentFileStreamService.getResource(JOB_ID, Paths.get(REL_PATH), EXPECTED_V4_FILE_URI, null) >> {
+            Optional.of(agentResource)
+        }
         1 * this.manifestEntry.getMimeType() >> Optional.of(MediaType.TEXT_PLAIN_VALUE)
-        1 * this.handlerFactory.get(MediaType.TEXT_PLAIN_VALUE, resource) >> this.handler
+        1 * this.handlerFactory.get(MediaType.TEXT_PLAIN_VALUE, agentResource) >> this.handler
+        1 * this.handler.handleRequest(this.request, this.response)
+    }
+
+    def "ServeResource -- Active V4 job ranges are requested from the agent"() {
+        setup:
+        def agentResource = Mock(AgentFileStreamService.AgentFileResource)
+        HttpRange requestedRange = null
+
+        when:
+        this.service.serveResource(JOB_ID, BASE_URL, REL_PATH, this.request, this.response)
+
+        then:
+        1 * this.jobPersistenceService.getJobStatus(JOB_ID) >> JobStatus.RUNNING
+        1 * this.jobPersistenceService.isV4(JOB_ID) >> true
+        1 * this.agentFileStreamService.getManifest(JOB_ID) >> Optional.of(this.manifest)
+        1 * this.manifest.getEntry(REL_PATH) >> Optional.of(this.manifestEntry)
+        1 * this.manifestEntry.isDirectory() >> false
+        _ * this.manifestEntry.getPath() >> REL_PATH
+        _ * this.manifestEntry.getSize() >> 5_000_000_000L
+        _ * this.request.getHeader(HttpHeaders.RANGE) >> rangeHeader
+        _ * this.request.getHeader(HttpHeaders.IF_RANGE) >> ifRangeHeader
+        1 * this.agentFileStreamService.getResource(JOB_ID, Paths.get(REL_PATH), EXPECTED_V4_FILE_URI, _) >> {
+            args ->
+                requestedRange = args[3] as HttpRange
+                return Optional.of(agentResource)
+        }
+        _ * this.manifestEntry.getMimeType() >> Optional.of(MediaType.TEXT_PLAIN_VALUE)
+        1 * this.handlerFactory.get(MediaType.TEXT_PLAIN_VALUE, agentResource) >> this.handler
         1 * this.handler.handleRequest(this.request, this.response)
+        requestedRange == null ?
+            expectedRange == null :
+            [requestedRange.getRangeStart(5_000_000_000L), requestedRange.getRangeEnd(5_000_000_000L)] == expectedRange
+
+        where:
+        rangeHeader              | ifRangeHeader | expectedRange
+        "bytes=-10240"           | null          | [4_999_989_760L, 4_999_999_999L]
+        "bytes=3000000000-"      | null          | [3_000_000_000L, 4_999_999_999L]
+        "bytes=0-99"             | null          | [0L, 99L]
+        "bytes=0-99"             | "\"etag\""    | null
+        "bytes=0-9, 20-29"       | null          | null
+        "bytes=6000000000-"      | null          | null
+        "lines=1-2"              | null          | null
+        null                     | null          | null
     }
 
     def "ServeResource -- Active V3 job"() {
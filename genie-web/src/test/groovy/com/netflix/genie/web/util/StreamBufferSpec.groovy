@@ -225,4 +225,99 @@ class StreamBufferSpec extends Specification {
         then:
         inputData == outputData
     }
+
+    def "Multiple chunks are buffered and read in one go"() {
+        setup:
+        InputStream inputStream = this.buffer.getInputStream()
+        byte[] dataRead = new byte[30]
+
+        when:
+        this.buffer.write(ByteString.copyFromUtf8("Hello "))
+        this.buffer.write(ByteString.copyFromUtf8("World"))
+        this.buffer.write(ByteString.copyFromUtf8("!"))
+
+        then:
+        this.buffer.getBufferedBytes() == 12
+
+        when:
+        int bytesRead = inputStream.read(dataRead, 0, 8)
+
+        then:
+        bytesRead == 8
+        new String(dataRead, 0, 8) == "Hello Wo"
+        this.buffer.getBufferedBytes() == 4
+
+        when:
+        bytesRead = inputStream.read(dataRead, 8, 22)
+
+        then:
+        bytesRead == 4
+        new String(dataRead, 0, 12) == "Hello World!"
+        this.buffer.getBufferedBytes() == 0
+    }
+
+    def "Writer is notified once the reader makes room"() {
+        setup:
+        this.buffer = new StreamBuffer(10)
+        InputStream inputStream = this.buffer.getInputStream()
+        byte[] dataRead = new byte[30]
+        int notifications = 0
+        Runnable action = { notifications++ }
+
+        expect:
+        this.buffer.whenWritable(action)
+        notifications == 1
+
+        when: "The buffer fills up"
+        this.buffer.write(ByteString.copyFrom(new byte[12]))
+
+        then: "Writes never block but the writer is asked to wait"
+        !this.buffer.whenWritable(action)
+        notifications == 1
+
+        when:
+        inputStream.read(dataRead, 0, 2)
+
+        then:
+        notifications == 1
+
+        when:
+        inputStream.read(dataRead, 0, 1)
+
+        then:
+        notifications == 2
+
+        when: "The reader goes away"
+        this.buffer.write(ByteString.copyFrom(new byte[12]))
+        this.buffer.whenWritable(action)
+        inputStream.close()
+
+        then: "Buffered data is released and the writer can drain its data"
+        notifications == 3
+        this.buffer.getBufferedBytes() == 0
+
+        when:
+        this.buffer.write(ByteString.copyFrom(new byte[12]))
+
+        then:
+        this.buffer.getBufferedBytes() == 0
+        inputStream.read(dataRead, 0, 1) == -1
+    }
+
+    def "Pending writer notification is dropped when the buffer is closed"() {
+        setup:
+        this.buffer = new StreamBuffer(1)
+        int notifications = 0
+
+        when:
+        this.buffer.write(ByteString.copyFromUtf8("Hello World!"))
+        this.buffer.whenWritable({ notifications++ })
+        this.buffer.closeForCompleted()
+        this.buffer.getInputStream().read(new byte[30], 0, 30)
+
+        then:
+        notifications == 0
+        !this.buffer.whenWritable({ notifications++ })
+        notifications == 0
+    }
 }
@@ -19,12 +19,16 @@ package com.netflix.genie.web.apis.rest.v3.controllers;
 
 import com.google.common.collect.Sets;
 import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.dto.search.JobSearchResult;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerUnavailableException;
 import com.netflix.genie.common.external.dtos.v4.JobStatus;
+import com.netflix.genie.common.external.util.GenieObjectMapper;
 import com.netflix.genie.common.internal.jobs.JobConstants;
 import com.netflix.genie.common.internal.util.GenieHostInfo;
+import com.netflix.genie.web.agent.services.AgentFileTailService;
 import com.netflix.genie.web.agent.services.AgentRoutingService;
 import com.netflix.genie.web.apis.rest.v3.hateoas.assemblers.ApplicationModelAssembler;
 import com.netflix.genie.web.apis.rest.v3.hateoas.assemblers.ClusterModelAssembler;
@@ -69,6 +73,8 @@ import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.mock.web.DelegatingServletOutputStream;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -78,10 +84,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -95,9 +103,11 @@ class JobRestControllerTest {
     //Mocked variables
     private JobSearchService jobSearchService;
     private AgentRoutingService agentRoutingService;
+    private AgentFileTailService agentFileTailService;
     private JobPersistenceService jobPersistenceService;
     private String hostname;
     private RestTemplate restTemplate;
+    private RestTemplate followRestTemplate;
     private JobDirectoryServerService jobDirectoryServerService;
     private JobExecutionModeSelector jobExecutionModeSelector;
     private JobsProperties jobsProperties;
@@ -131,8 +141,10 @@ class JobRestControllerTest {
         this.jobSearchService = Mockito.mock(JobSearchService.class);
         this.jobPersistenceService = Mockito.mock(JobPersistenceService.class);
         this.agentRoutingService = Mockito.mock(AgentRoutingService.class);
+        this.agentFileTailService = Mockito.mock(AgentFileTailService.class);
         this.hostname = UUID.randomUUID().toString();
         this.restTemplate = Mockito.mock(RestTemplate.class);
+        this.followRestTemplate = Mockito.mock(RestTemplate.class);
         this.jobDirectoryServerService = Mockito.mock(JobDirectoryServerService.class);
         this.jobExecutionModeSelector = Mockito.mock(JobExecutionModeSelector.class);
         this.jobsProperties = JobsProperties.getJobsPropertiesDefaults();
@@ -157,10 +169,12 @@ class JobRestControllerTest {
             this.createMockResourceAssembler(),
             new GenieHostInfo(this.hostname),
             this.restTemplate,
+            this.followRestTemplate,
             this.jobDirectoryServerService,
             this.jobsProperties,
             registry,
             this.agentRoutingService,
+            this.agentFileTailService,
             this.environment,
             Mockito.mock(AttachmentService.class),
             jobExecutionModeSelector
@@ -580,6 +594,124 @@ class JobRestControllerTest {
             );
     }
 
+    /**
+     * Make sure only the output of running agent jobs can be followed.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    void cantFollowOutputOfEmbeddedOrFinishedJobs() throws GenieException {
+        final String jobId = UUID.randomUUID().toString();
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+
+        Mockito.when(this.jobPersistenceService.isV4(jobId)).thenReturn(false, true);
+        Mockito.when(this.jobPersistenceService.getJobStatus(jobId)).thenReturn(JobStatus.RUNNING, JobStatus.SUCCEEDED);
+
+        Assertions
+            .assertThatExceptionOfType(GeniePreconditionException.class)
+            .isThrownBy(() -> this.controller.followJobOutput(jobId, null, request, response));
+        Assertions
+            .assertThatExceptionOfType(GeniePreconditionException.class)
+            .isThrownBy(() -> this.controller.followJobOutput(jobId, null, request, response));
+
+        Mockito
+            .verify(this.agentFileTailService, Mockito.never())
+            .follow(Mockito.anyString(), Mockito.any(), Mockito.any());
+    }
+
+    /**
+     * Make sure followed output of a job running on this node is streamed from the tail service.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    void canFollowOutputOfLocalJob() throws GenieException {
+        this.jobsProperties.getForwarding().setEnabled(true);
+        final String jobId = UUID.randomUUID().toString();
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        final AgentFileTailService.Subscription subscription = Mockito.mock(AgentFileTailService.Subscription.class);
+
+        Mockito.when(this.jobPersistenceService.isV4(jobId)).thenReturn(true);
+        Mockito.when(this.jobPersistenceService.getJobStatus(jobId)).thenReturn(JobStatus.RUNNING);
+        Mockito.when(this.agentRoutingService.getHostnameForAgentConnection(jobId)).thenReturn(Optional.of(hostname));
+        Mockito
+            .when(
+                this.agentFileTailService.follow(
+                    Mockito.eq(jobId),
+                    Mockito.eq(Paths.get("")),
+                    Mockito.any(AgentFileTailService.Listener.class)
+                )
+            )
+            .thenReturn(Optional.of(subscription), Optional.empty());
+
+        Assertions
+            .assertThat(this.controller.followJobOutput(jobId, null, request, response))
+            .isInstanceOf(ResponseBodyEmitter.class);
+        Mockito.verify(response, Mockito.times(1)).setContentType(MediaType.TEXT_PLAIN_VALUE);
+
+        Assertions
+            .assertThatExceptionOfType(GenieNotFoundException.class)
+            .isThrownBy(() -> this.controller.followJobOutput(jobId, null, request, response));
+
+        Mockito
+            .verify(this.restTemplate, Mockito.never())
+            .execute(
+                Mockito.anyString(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any()
+            );
+    }
+
+    /**
+     * Make sure followed output of a job running on another node is forwarded there off the request thread.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void canForwardFollowRequest() throws Exception {
+        this.jobsProperties.getForwarding().setEnabled(true);
+        final String jobId = UUID.randomUUID().toString();
+        final String jobHostname = UUID.randomUUID().toString();
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+
+        Mockito.when(this.jobPersistenceService.isV4(jobId)).thenReturn(true);
+        Mockito.when(this.jobPersistenceService.getJobStatus(jobId)).thenReturn(JobStatus.RUNNING);
+        Mockito.when(this.agentRoutingService.getHostnameForAgentConnection(jobId))
+            .thenReturn(Optional.of(jobHostname));
+
+        final Object result = this.controller.followJobOutput(jobId, null, request, response);
+
+        // The request thread is released, the forwarded request runs as an async task without a timeout
+        Assertions.assertThat(result).isInstanceOf(WebAsyncTask.class);
+        final WebAsyncTask<Void> forwardTask = (WebAsyncTask<Void>) result;
+        Assertions.assertThat(forwardTask.getTimeout()).isEqualTo(-1L);
+        Mockito
+            .verify(this.followRestTemplate, Mockito.never())
+            .execute(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.any());
+
+        Assertions.assertThat(forwardTask.getCallable().call()).isNull();
+
+        Mockito
+            .verify(this.followRestTemplate, Mockito.times(1))
+            .execute(
+                Mockito.eq("http://" + jobHostname + ":8080/api/v3/jobs/" + jobId + "/output/?follow"),
+                Mockito.eq(HttpMethod.GET),
+                Mockito.any(),
+                Mockito.any()
+            );
+        Mockito
+            .verify(this.restTemplate, Mockito.never())
+            .execute(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito
+            .verify(this.agentFileTailService, Mockito.never())
+            .follow(Mockito.anyString(), Mockito.any(), Mockito.any());
+    }
+
     /**
      * Make sure if directory forwarding isn't enabled it never fires.
      *
@@ -875,10 +1007,12 @@ class JobRestControllerTest {
             this.createMockResourceAssembler(),
             new GenieHostInfo(this.hostname),
             template,
+            this.followRestTemplate,
             this.jobDirectoryServerService,
             this.jobsProperties,
             registry,
             this.agentRoutingService,
+            this.agentFileTailService,
             this.environment,
             Mockito.mock(AttachmentService.class),
             this.jobExecutionModeSelector
@@ -932,6 +1066,106 @@ class JobRestControllerTest {
             .withMessage(errorMessage);
     }
 
+    /**
+     * Make sure jobs are exported one JSON document per line.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void canExportJobsAsNewlineDelimitedJson() throws Exception {
+        final JobSearchResult job1 = new JobSearchResult(
+            "job1", "name1", "user1", "SUCCEEDED", null, null, "cluster1", "command1"
+        );
+        final JobSearchResult job2 = new JobSearchResult(
+            "job2", "name2", "user2", "RUNNING", null, null, "cluster2", "command2"
+        );
+        Mockito
+            .doAnswer(
+                invocation -> {
+                    final Consumer<JobSearchResult> consumer = invocation.getArgument(15);
+                    consumer.accept(job1);
+                    consumer.accept(job2);
+                    return 2L;
+                }
+            )
+            .when(this.jobSearchService)
+            .exportJobs(
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.eq("user"),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(Consumer.class)
+            );
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(response.getOutputStream()).thenReturn(new DelegatingServletOutputStream(outputStream));
+        final WebAsyncTask<Void> exportTask = this.controller.exportJobs(
+            null,
+            null,
+            "user",
+            Sets.newHashSet("succeeded", "running"),
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            response
+        );
+
+        // The export is written off the request thread and isn't cut off by the default async request timeout
+        Assertions.assertThat(exportTask.getTimeout()).isEqualTo(-1L);
+        Mockito.verify(response, Mockito.times(1)).setContentType("application/x-ndjson");
+        Mockito
+            .verify(this.jobSearchService, Mockito.never())
+            .exportJobs(
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(Consumer.class)
+            );
+        Assertions.assertThat(exportTask.getCallable().call()).isNull();
+
+        final String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\n");
+        Assertions.assertThat(lines).hasSize(2);
+        Assertions
+            .assertThat(GenieObjectMapper.getMapper().readValue(lines[0], JobSearchResult.class).getId())
+            .isEqualTo("job1");
+        Assertions
+            .assertThat(GenieObjectMapper.getMapper().readValue(lines[1], JobSearchResult.class).getId())
+            .isEqualTo("job2");
+    }
+
     private EntityModelAssemblers createMockResourceAssembler() {
         return new EntityModelAssemblers(
             Mockito.mock(ApplicationModelAssembler.class),
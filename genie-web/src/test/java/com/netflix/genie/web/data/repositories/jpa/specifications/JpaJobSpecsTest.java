@@ -21,14 +21,19 @@ import com.netflix.genie.web.data.entities.ClusterEntity;
 import com.netflix.genie.web.data.entities.CommandEntity;
 import com.netflix.genie.web.data.entities.JobEntity;
 import com.netflix.genie.web.data.entities.JobEntity_;
+import com.netflix.genie.web.data.entities.TagEntity;
+import com.netflix.genie.web.data.entities.TagEntity_;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.SetJoin;
+import javax.persistence.criteria.Subquery;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Set;
@@ -59,8 +64,9 @@ class JpaJobSpecsTest {
     private static final String GROUPING_INSTANCE = UUID.randomUUID().toString();
 
     private Root<JobEntity> root;
+    private CriteriaQuery<?> cq;
     private CriteriaBuilder cb;
-    private String tagLikeStatement;
+    private Path<String> tagPath;
 
     /**
      * Setup the mocks.
@@ -76,6 +82,7 @@ class JpaJobSpecsTest {
         STATUSES.add(JobStatus.FAILED.name());
 
         this.root = (Root<JobEntity>) Mockito.mock(Root.class);
+        this.cq = Mockito.mock(CriteriaQuery.class);
         this.cb = Mockito.mock(CriteriaBuilder.class);
 
         final Path<String> idPath = (Path<String>) Mockito.mock(Path.class);
@@ -124,12 +131,16 @@ class JpaJobSpecsTest {
         Mockito.when(this.root.get(JobEntity_.command)).thenReturn(commandIdPath);
         Mockito.when(this.cb.equal(clusterIdPath, COMMAND)).thenReturn(equalCommandIdPredicate);
 
-        final Path<String> tagPath = (Path<String>) Mockito.mock(Path.class);
-        final Predicate likeTagPredicate = Mockito.mock(Predicate.class);
-        Mockito.when(this.root.get(JobEntity_.tagSearchString)).thenReturn(tagPath);
-        Mockito.when(this.cb.like(Mockito.eq(tagPath), Mockito.any(String.class))).thenReturn(likeTagPredicate);
-
-        this.tagLikeStatement = JpaSpecificationUtils.getTagLikeString(TAGS);
+        final Subquery<Long> taggedJobs = (Subquery<Long>) Mockito.mock(Subquery.class);
+        final Root<JobEntity> taggedJob = (Root<JobEntity>) Mockito.mock(Root.class);
+        final SetJoin<JobEntity, TagEntity> tagJoin = (SetJoin<JobEntity, TagEntity>) Mockito.mock(SetJoin.class);
+        this.tagPath = (Path<String>) Mockito.mock(Path.class);
+        final Predicate inTagPredicate = Mockito.mock(Predicate.class);
+        Mockito.when(this.cq.subquery(Long.class)).thenReturn(taggedJobs);
+        Mockito.when(taggedJobs.from(JobEntity.class)).thenReturn(taggedJob);
+        Mockito.when(taggedJob.join(JobEntity_.tags)).thenReturn(tagJoin);
+        Mockito.when(tagJoin.get(TagEntity_.tag)).thenReturn(this.tagPath);
+        Mockito.when(this.tagPath.in(Mockito.anyCollection())).thenReturn(inTagPredicate);
 
         final Path<Instant> startedPath = (Path<Instant>) Mockito.mock(Path.class);
         final Predicate minStartedPredicate = Mockito.mock(Predicate.class);
@@ -173,6 +184,7 @@ class JpaJobSpecsTest {
     void testFindWithAll() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -201,9 +213,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito.
-            verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -228,6 +238,7 @@ class JpaJobSpecsTest {
         final String newGroupingInstance = GROUPING_INSTANCE + "%";
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             newId,
             newName,
@@ -256,9 +267,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).like(this.root.get(JobEntity_.commandName), newCommandName);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -276,6 +285,7 @@ class JpaJobSpecsTest {
     void testFindWithOutId() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             null,
             JOB_NAME,
@@ -305,9 +315,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -325,6 +333,7 @@ class JpaJobSpecsTest {
     void testFindWithOutJobName() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             null,
@@ -354,9 +363,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -374,6 +381,7 @@ class JpaJobSpecsTest {
     void testFindWithOutUserName() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -403,9 +411,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -423,6 +429,7 @@ class JpaJobSpecsTest {
     void testFindWithOutStatus() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -451,9 +458,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -471,6 +476,7 @@ class JpaJobSpecsTest {
     void testFindWithEmptyStatus() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -499,9 +505,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -519,6 +523,7 @@ class JpaJobSpecsTest {
     void testFindWithOutClusterName() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -548,9 +553,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -568,6 +571,7 @@ class JpaJobSpecsTest {
     void testFindWithOutClusterId() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -596,9 +600,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.never()).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -616,6 +618,7 @@ class JpaJobSpecsTest {
     void testFindWithOutCommandName() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -645,9 +648,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.never()).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.never()).like(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -665,6 +666,7 @@ class JpaJobSpecsTest {
     void testFindWithOutCommandId() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -693,9 +695,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.never()).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -713,6 +713,7 @@ class JpaJobSpecsTest {
     void testFindWithOutTags() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -741,7 +742,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito.verify(this.cb, Mockito.never()).like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.cq, Mockito.never()).subquery(Long.class);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -759,6 +760,7 @@ class JpaJobSpecsTest {
     void testFindWithOutMinStarted() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -787,9 +789,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.never()).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -807,6 +807,7 @@ class JpaJobSpecsTest {
     void testFindWithOutMaxStarted() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -835,9 +836,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.never()).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -855,6 +854,7 @@ class JpaJobSpecsTest {
     void testFindWithOutMinFinished() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -883,9 +883,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -903,6 +901,7 @@ class JpaJobSpecsTest {
     void testFindWithOutMaxFinished() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -931,9 +930,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -952,6 +949,7 @@ class JpaJobSpecsTest {
         TAGS.add("");
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -978,9 +976,7 @@ class JpaJobSpecsTest {
         }
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.clusterName), CLUSTER_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -996,6 +992,7 @@ class JpaJobSpecsTest {
     void testFindWithOutGrouping() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -1024,9 +1021,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -1044,6 +1039,7 @@ class JpaJobSpecsTest {
     void testFindWithOutGroupingInstance() {
         JpaJobSpecs.getFindPredicate(
             this.root,
+            this.cq,
             this.cb,
             ID,
             JOB_NAME,
@@ -1072,9 +1068,7 @@ class JpaJobSpecsTest {
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.cluster), CLUSTER);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.commandName), COMMAND_NAME);
         Mockito.verify(this.cb, Mockito.times(1)).equal(this.root.get(JobEntity_.command), COMMAND);
-        Mockito
-            .verify(this.cb, Mockito.times(1))
-            .like(this.root.get(JobEntity_.tagSearchString), this.tagLikeStatement);
+        Mockito.verify(this.tagPath, Mockito.times(1)).in(TAGS);
         Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.root.get(JobEntity_.started), MIN_STARTED);
         Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.root.get(JobEntity_.started), MAX_STARTED);
         Mockito
@@ -117,43 +117,4 @@ class JpaSpecificationUtilsTest {
             .assertThat(JpaSpecificationUtils.getStringLikeOrEqualPredicate(cb, expression, "lik%e"))
             .isEqualTo(likePredicate);
     }
-
-    /**
-     * Make sure we can get a valid like string for the tag list.
-     */
-    @Test
-    void canGetTagLikeString() {
-        Assertions
-            .assertThat(JpaSpecificationUtils.getTagLikeString(Sets.newHashSet()))
-            .isEqualTo(
-                // coerce to String
-                JpaSpecificationUtils.PERCENT
-            );
-        Assertions
-            .assertThat(JpaSpecificationUtils.getTagLikeString(Sets.newHashSet("tag")))
-            .isEqualTo(
-                JpaSpecificationUtils.PERCENT
-                    + JpaSpecificationUtils.TAG_DELIMITER
-                    + "tag"
-                    + JpaSpecificationUtils.TAG_DELIMITER
-                    + JpaSpecificationUtils.PERCENT
-            );
-        Assertions
-            .assertThat(JpaSpecificationUtils.getTagLikeString(Sets.newHashSet("tag", "Stag", "rag")))
-            .isEqualTo(
-                JpaSpecificationUtils.PERCENT
-                    + JpaSpecificationUtils.TAG_DELIMITER
-                    + "rag"
-                    + JpaSpecificationUtils.TAG_DELIMITER
-                    + "%"
-                    + JpaSpecificationUtils.TAG_DELIMITER
-                    + "Stag"
-                    + JpaSpecificationUtils.TAG_DELIMITER
-                    + "%"
-                    + JpaSpecificationUtils.TAG_DELIMITER
-                    + "tag"
-                    + JpaSpecificationUtils.TAG_DELIMITER
-                    + JpaSpecificationUtils.PERCENT
-            );
-    }
 }
@@ -171,15 +171,22 @@ public class JpaJobPersistenceServiceImplTest {
 
         final JobExecution execution = new JobExecution.Builder(UUID.randomUUID().toString()).build();
 
-        final TagEntity fooTag = new TagEntity();
-        fooTag.setTag("foo");
-        Mockito.when(this.tagPersistenceService.getTag("foo")).thenReturn(Optional.of(fooTag));
-        final TagEntity barTag = new TagEntity();
-        barTag.setTag("bar");
-        Mockito.when(this.tagPersistenceService.getTag("bar")).thenReturn(Optional.of(barTag));
-        final FileEntity setupFileEntity = new FileEntity();
-        setupFileEntity.setFile(setupFile);
-        Mockito.when(this.filePersistenceService.getFile(setupFile)).thenReturn(Optional.of(setupFileEntity));
+        Mockito
+            .when(this.tagPersistenceService.createAndGetTags(Mockito.anySet()))
+            .thenAnswer(
+                invocation -> invocation.<Set<String>>getArgument(0)
+                    .stream()
+                    .map(TagEntity::new)
+                    .collect(Collectors.toSet())
+            );
+        Mockito
+            .when(this.filePersistenceService.createAndGetFiles(Mockito.anySet()))
+            .thenAnswer(
+                invocation -> invocation.<Set<String>>getArgument(0)
+                    .stream()
+                    .map(FileEntity::new)
+                    .collect(Collectors.toSet())
+            );
 
         final ArgumentCaptor<JobEntity> argument = ArgumentCaptor.forClass(JobEntity.class);
         this.jobPersistenceService.createJob(jobRequest, metadata, job, execution);
@@ -268,11 +275,11 @@ public class JpaJobPersistenceServiceImplTest {
         final JobExecution execution = new JobExecution.Builder(UUID.randomUUID().toString()).build();
 
         Mockito
-            .when(this.tagPersistenceService.getTag(Mockito.anyString()))
-            .thenReturn(Optional.of(new TagEntity(UUID.randomUUID().toString())));
+            .when(this.tagPersistenceService.createAndGetTags(Mockito.anySet()))
+            .thenReturn(Sets.newHashSet(new TagEntity(UUID.randomUUID().toString())));
         Mockito
-            .when(this.filePersistenceService.getFile(Mockito.anyString()))
-            .thenReturn(Optional.of(new FileEntity(UUID.randomUUID().toString())));
+            .when(this.filePersistenceService.createAndGetFiles(Mockito.anySet()))
+            .thenReturn(Sets.newHashSet(new FileEntity(UUID.randomUUID().toString())));
         Mockito
             .when(this.jobRepository.save(Mockito.any(JobEntity.class)))
             .thenThrow(new DuplicateKeyException("Duplicate Key"));
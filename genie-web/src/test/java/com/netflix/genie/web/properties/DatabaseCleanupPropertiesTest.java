@@ -51,6 +51,8 @@ class DatabaseCleanupPropertiesTest {
         Assertions.assertThat(this.properties.getJobCleanup().getRetention()).isEqualTo(90);
         Assertions.assertThat(this.properties.getJobCleanup().getMaxDeletedPerTransaction()).isEqualTo(1000);
         Assertions.assertThat(this.properties.getJobCleanup().getPageSize()).isEqualTo(1000);
+        Assertions.assertThat(this.properties.getJobCleanup().getParallelism()).isEqualTo(1);
+        Assertions.assertThat(this.properties.getJobCleanup().getPartitionHours()).isEqualTo(24);
         Assertions.assertThat(this.properties.getClusterCleanup().isSkip()).isFalse();
         Assertions.assertThat(this.properties.getTagCleanup().isSkip()).isFalse();
         Assertions.assertThat(this.properties.getFileCleanup().isSkip()).isFalse();
@@ -90,6 +92,14 @@ class DatabaseCleanupPropertiesTest {
         Assertions.assertThat(this.properties.getJobCleanup().getPageSize()).isEqualTo(size);
     }
 
+    @Test
+    void canSetJobCleanupParallelism() {
+        this.properties.getJobCleanup().setParallelism(8);
+        this.properties.getJobCleanup().setPartitionHours(6);
+        Assertions.assertThat(this.properties.getJobCleanup().getParallelism()).isEqualTo(8);
+        Assertions.assertThat(this.properties.getJobCleanup().getPartitionHours()).isEqualTo(6);
+    }
+
     @Test
     void canSetSkipJobCleanup() {
         this.properties.getJobCleanup().setSkip(true);
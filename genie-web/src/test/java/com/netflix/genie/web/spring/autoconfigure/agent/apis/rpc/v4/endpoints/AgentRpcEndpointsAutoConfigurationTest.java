@@ -33,6 +33,8 @@ import com.netflix.genie.web.agent.services.AgentJobService;
 import com.netflix.genie.web.agent.services.AgentRoutingService;
 import com.netflix.genie.web.data.services.DataServices;
 import com.netflix.genie.web.data.services.JobSearchService;
+import com.netflix.genie.web.properties.AgentFileStreamProperties;
+import com.netflix.genie.web.properties.HeartBeatProperties;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -69,6 +71,9 @@ class AgentRpcEndpointsAutoConfigurationTest {
             .run(
                 context -> {
                     Assertions.assertThat(context.containsBean("heartBeatServiceTaskScheduler")).isTrue();
+                    Assertions.assertThat(context.containsBean("heartBeatServiceTaskExecutor")).isTrue();
+                    Assertions.assertThat(context).hasSingleBean(AgentFileStreamProperties.class);
+                    Assertions.assertThat(context).hasSingleBean(HeartBeatProperties.class);
                     Assertions.assertThat(context).hasSingleBean(JobServiceProtoErrorComposer.class);
                     Assertions
                         .assertThat(context)
@@ -17,9 +17,11 @@
  */
 package com.netflix.genie.web.spring.autoconfigure.apis;
 
+import com.netflix.genie.web.properties.AgentFileStreamProperties;
 import com.netflix.genie.web.properties.HttpProperties;
 import com.netflix.genie.web.properties.JobsProperties;
 import org.assertj.core.api.Assertions;
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -27,10 +29,15 @@ import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.web.client.ResourceAccessException;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
 /**
@@ -69,6 +76,57 @@ class ApisAutoConfigurationTest {
             .isNotNull();
     }
 
+    /**
+     * Make sure a forwarded follow request survives its output being quiet for longer than the regular read timeout.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    void followRestTemplateToleratesQuietOutput() throws IOException {
+        final HttpProperties httpProperties = new HttpProperties();
+        httpProperties.getRead().setTimeout(200);
+        final AgentFileStreamProperties agentFileStreamProperties = new AgentFileStreamProperties();
+        agentFileStreamProperties.setFollowMaxDuration(5_000L);
+
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(
+            "/",
+            exchange -> {
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write("first\n".getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+                    Thread.sleep(1_000L);
+                    body.write("second\n".getBytes(StandardCharsets.UTF_8));
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        );
+        server.start();
+        try {
+            final InetSocketAddress address = server.getAddress();
+            final String url = "http://" + address.getHostString() + ":" + address.getPort() + "/";
+
+            Assertions
+                .assertThatExceptionOfType(ResourceAccessException.class)
+                .isThrownBy(
+                    () -> this.apisAutoConfiguration
+                        .genieRestTemplate(httpProperties, new RestTemplateBuilder())
+                        .getForObject(url, String.class)
+                );
+            Assertions
+                .assertThat(
+                    this.apisAutoConfiguration
+                        .genieFollowRestTemplate(httpProperties, agentFileStreamProperties, new RestTemplateBuilder())
+                        .getForObject(url, String.class)
+                )
+                .isEqualTo("first\nsecond\n");
+        } finally {
+            server.stop(0);
+        }
+    }
+
     /**
      * Make sure the default implementation of a directory writer is used in this default configuration.
      */
@@ -25,6 +25,7 @@ import com.netflix.genie.web.data.repositories.jpa.JpaCriterionRepository;
 import com.netflix.genie.web.data.repositories.jpa.JpaFileRepository;
 import com.netflix.genie.web.data.repositories.jpa.JpaJobRepository;
 import com.netflix.genie.web.data.repositories.jpa.JpaTagRepository;
+import com.netflix.genie.web.data.services.jpa.ClusterCommandResolutionIndex;
 import com.netflix.genie.web.data.services.jpa.JpaAgentConnectionPersistenceServiceImpl;
 import com.netflix.genie.web.data.services.jpa.JpaApplicationPersistenceServiceImpl;
 import com.netflix.genie.web.data.services.jpa.JpaClusterPersistenceServiceImpl;
@@ -80,6 +81,8 @@ class DataAutoConfigurationTest {
                 Assertions.assertThat(context).hasSingleBean(JpaJobPersistenceServiceImpl.class);
                 Assertions.assertThat(context).hasSingleBean(JpaJobSearchServiceImpl.class);
                 Assertions.assertThat(context).hasSingleBean(JpaTagPersistenceServiceImpl.class);
+
+                Assertions.assertThat(context).doesNotHaveBean(ClusterCommandResolutionIndex.class);
             }
         );
     }
@@ -17,6 +17,7 @@
  */
 package com.netflix.genie.web.tasks.leader;
 
+import com.google.common.collect.Sets;
 import com.netflix.genie.common.external.dtos.v4.CommandStatus;
 import com.netflix.genie.common.internal.jobs.JobConstants;
 import com.netflix.genie.web.data.services.ApplicationPersistenceService;
@@ -26,8 +27,10 @@ import com.netflix.genie.web.data.services.DataServices;
 import com.netflix.genie.web.data.services.FilePersistenceService;
 import com.netflix.genie.web.data.services.JobPersistenceService;
 import com.netflix.genie.web.data.services.TagPersistenceService;
+import com.netflix.genie.web.dtos.JobDeletionBatch;
 import com.netflix.genie.web.properties.DatabaseCleanupProperties;
 import com.netflix.genie.web.tasks.GenieTaskScheduleType;
+import com.netflix.genie.web.tasks.TaskUtils;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -39,8 +42,11 @@ import org.springframework.scheduling.Trigger;
 import org.springframework.scheduling.support.CronTrigger;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Calendar;
 import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Unit tests for {@link DatabaseCleanupTask}.
@@ -238,6 +244,82 @@ class DatabaseCleanupTaskTest {
         }
     }
 
+    /**
+     * Make sure jobs are deleted range by range when parallel deletion is enabled.
+     */
+    @Test
+    void canDeleteJobsInParallel() {
+        final int days = 5;
+        final int maxDeleted = 100;
+        Mockito.when(this.jobCleanupProperties.getRetention()).thenReturn(days);
+        Mockito.when(this.jobCleanupProperties.getMaxDeletedPerTransaction()).thenReturn(maxDeleted);
+        Mockito.when(this.jobCleanupProperties.getPageSize()).thenReturn(10);
+        Mockito.when(this.jobCleanupProperties.getPartitionHours()).thenReturn(24);
+        this.environment.setProperty(DatabaseCleanupProperties.JobDatabaseCleanupProperties.PARALLELISM_PROPERTY, "4");
+        this.environment.setProperty(
+            DatabaseCleanupProperties.ApplicationDatabaseCleanupProperties.SKIP_PROPERTY,
+            "true"
+        );
+        this.environment.setProperty(DatabaseCleanupProperties.CommandDatabaseCleanupProperties.SKIP_PROPERTY, "true");
+        this.environment.setProperty(
+            DatabaseCleanupProperties.CommandDeactivationDatabaseCleanupProperties.SKIP_PROPERTY,
+            "true"
+        );
+        this.environment.setProperty(DatabaseCleanupProperties.ClusterDatabaseCleanupProperties.SKIP_PROPERTY, "true");
+        this.environment.setProperty(DatabaseCleanupProperties.FileDatabaseCleanupProperties.SKIP_PROPERTY, "true");
+        this.environment.setProperty(DatabaseCleanupProperties.TagDatabaseCleanupProperties.SKIP_PROPERTY, "true");
+
+        final Instant retentionLimit = TaskUtils.getMidnightUTC().minus(days, ChronoUnit.DAYS);
+        final Instant oldest = retentionLimit.minus(67L, ChronoUnit.HOURS);
+        Mockito.when(this.jobPersistenceService.getOldestJobCreationTime()).thenReturn(Optional.of(oldest));
+        final Set<Instant> rangeStarts = Sets.newHashSet(
+            oldest,
+            oldest.plus(24L, ChronoUnit.HOURS),
+            oldest.plus(48L, ChronoUnit.HOURS)
+        );
+        // Each range holds a full batch followed by a partial one
+        Mockito
+            .when(
+                this.jobPersistenceService.deleteBatchOfJobsCreatedInRange(
+                    Mockito.any(Instant.class),
+                    Mockito.any(Instant.class),
+                    Mockito.eq(maxDeleted)
+                )
+            )
+            .thenAnswer(
+                invocation -> {
+                    final Instant from = invocation.getArgument(0);
+                    return rangeStarts.contains(from)
+                        ? new JobDeletionBatch(maxDeleted, from.plusSeconds(60L))
+                        : new JobDeletionBatch(2L, from.plusSeconds(1L));
+                }
+            );
+
+        this.task.run();
+
+        if (retentionLimit.equals(TaskUtils.getMidnightUTC().minus(days, ChronoUnit.DAYS))) {
+            final ArgumentCaptor<Instant> fromCaptor = ArgumentCaptor.forClass(Instant.class);
+            final ArgumentCaptor<Instant> toCaptor = ArgumentCaptor.forClass(Instant.class);
+            Mockito
+                .verify(this.jobPersistenceService, Mockito.times(6))
+                .deleteBatchOfJobsCreatedInRange(fromCaptor.capture(), toCaptor.capture(), Mockito.eq(maxDeleted));
+            Assertions.assertThat(fromCaptor.getAllValues()).containsAll(rangeStarts);
+            Assertions
+                .assertThat(fromCaptor.getAllValues())
+                .contains(oldest.plusSeconds(60L), oldest.plus(48L, ChronoUnit.HOURS).plusSeconds(60L));
+            Assertions
+                .assertThat(Sets.newHashSet(toCaptor.getAllValues()))
+                .containsExactlyInAnyOrder(
+                    oldest.plus(24L, ChronoUnit.HOURS),
+                    oldest.plus(48L, ChronoUnit.HOURS),
+                    retentionLimit
+                );
+            Mockito
+                .verify(this.jobPersistenceService, Mockito.never())
+                .deleteBatchOfJobsCreatedBeforeDate(Mockito.any(Instant.class), Mockito.anyInt(), Mockito.anyInt());
+        }
+    }
+
     /**
      * Make sure the run method throws when an error is encountered.
      */